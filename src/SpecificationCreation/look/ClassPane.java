@@ -31,6 +31,7 @@ import javax.swing.tree.TreePath;
 
 import SpecificationCreation.SpecificationCreator;
 import SpecificationCreation.ontology.SpecificationOntologyReader;
+import WYSIWYM.libraries.SpecificationPack;
 import WYSIWYM.model.Anchor;
 import WYSIWYM.model.SGNode;
 
@@ -290,10 +291,10 @@ public class ClassPane implements ActionListener
 	 */
 	public boolean specExists(OntProperty p)
 	{
-		if (new File(parent.getDirectory() + p.getLocalName() + ".xml").exists())
+		if (hasSpecification(p.getLocalName()))
 			return true;	//if there is a specification for this property, return true
 		OntProperty inverse = reader.getInverse(p);
-		if ((inverse != null) && new File(parent.getDirectory() + inverse.getLocalName() + ".xml").exists())
+		if ((inverse != null) && hasSpecification(inverse.getLocalName()))
 			return true;	//if there's a specification for the inverse, return true
 	//	if (reader.hasComment(p, SpecificationOntologyReader.PROPERNAME))
 	//		return true;	//if this is a proper name property, return true
@@ -301,15 +302,26 @@ public class ClassPane implements ActionListener
 		for (Iterator it = p.listSuperProperties(); it.hasNext(); )
 		{	//check the superproperties for linguistic specifications
 			OntProperty superP = (OntProperty) it.next();
-			if (new File(parent.getDirectory() + superP.getLocalName() + ".xml").exists())
+			if (hasSpecification(superP.getLocalName()))
 				return true;
 			inverse = reader.getInverse(superP);	//and their inverses
-			if ((inverse != null) && new File(parent.getDirectory() + inverse.getLocalName() + ".xml").exists())
+			if ((inverse != null) && hasSpecification(inverse.getLocalName()))
 				return true;
 		}
 		return false;	//and if all that fails, return false!
 	}
 	
+	/**	Checks whether the lexicon directory has a specification with the given name,
+	 *	in its specification pack or as a separate file
+	 */
+	private boolean hasSpecification(String name)
+	{
+		SpecificationPack pack = SpecificationPack.forDirectory(parent.getDirectory());
+		if ((pack != null) && pack.contains(name))
+			return true;
+		return new File(parent.getDirectory() + name + ".xml").exists();
+	}
+	
 	/**	Creates a node for a property, and adds a menu with the options:
 	 *	change name, make a spec, add a restriction.
 	 */
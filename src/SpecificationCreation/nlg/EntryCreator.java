@@ -1,5 +1,6 @@
 package SpecificationCreation.nlg;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,6 +16,7 @@ import org.jdom.output.XMLOutputter;
 
 import WYSIWYM.libraries.Lexicon;
 import WYSIWYM.libraries.LinguisticTerms;
+import WYSIWYM.libraries.SpecificationPack;
 import WYSIWYM.model.DTNode;
 import WYSIWYM.model.Morph;
 import WYSIWYM.transformer.DependencyTreeTransformer;
@@ -71,15 +73,27 @@ public class EntryCreator
 			case 2: type = "date"; break;
 		}
 		
+		SpecificationPack pack = SpecificationPack.forDirectory(PATH);	//if the templates have been packed, read them from the pack
 		try
 		{
 			while (true)
 			{
 				String str = new String(type + Integer.toString(cntr));
-				in = getClass().getClassLoader().getResourceAsStream(PATH + str + ".xml");
-				if (in == null)
-					break;
-				DependencyTreeTransformer dt = lex.readFile(in);
+				DependencyTreeTransformer dt;
+				if (pack != null)
+				{
+					if (!pack.contains(str))
+						break;
+					dt = pack.getTree(str);
+				}
+				else
+				{
+					in = getClass().getClassLoader().getResourceAsStream(PATH + str + ".xml");
+					if (in == null)
+						break;
+					dt = lex.readFile(in);
+					in.close();
+				}
 				DTNode node = new DTNode(null, null, root, null);
 				node.setLeaf(true);
 				dt.insert(node, PREDICATE);
@@ -89,7 +103,6 @@ public class EntryCreator
 					dt.getGraph().toFile("number6-2");
     			l.add(dt);
     			cntr++;
-    			in.close();
     		}
     	}
     	catch(Exception e)
@@ -139,6 +152,11 @@ public class EntryCreator
 		fw.print(xml.outputString(doc));
 		fw.close();	
 		f.close();	
+		
+		File pack = new File(dir, SpecificationPack.FILE_NAME);
+		if (pack.exists())	//keep the pack up to date as well
+			SpecificationPack.append(pack, property, root);
+		Lexicon.clearCache();
 	}
 	
 	/**	Makes an XML-node tag
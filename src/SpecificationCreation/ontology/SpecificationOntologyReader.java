@@ -98,31 +98,14 @@ public class SpecificationOntologyReader extends OntologyReader
 		return ch;
 	}
 	
-	/**	Checks whether the resource has a comment of the given type.
-	 *	@param resource OntResource
-	 *	@param type Type of comment
+	/**	Checks whether the property has a submenu comment that mentions the given class
+	 *	@param p OntProperty
+	 *	@param c Class name
 	 *	@return true if there is such a comment
 	 */
-	public boolean hasComment(OntResource resource, String type)
-	{
-		for (Iterator it = resource.listComments(null); it.hasNext(); )
-		{
-			Literal lit = (Literal) it.next();
-			if (lit.getString().indexOf(type) >= 0)
-				return true;
-		}
-		return false;
-	}
-	
 	public boolean inMenu(OntProperty p, String c)
 	{
-		for (Iterator it = p.listComments(null); it.hasNext(); )
-		{
-			Literal lit = (Literal) it.next();
-			if ((lit.getString().indexOf(MENU) >= 0) && (lit.getString().indexOf(c) >= 0))
-				return true;
-		}
-		return false;
+		return getAnnotation(p).inMenu(c);
 	}
 	
 	/**	Checks whether this property stores proper names
@@ -141,8 +124,9 @@ public class SpecificationOntologyReader extends OntologyReader
 	 */
 	public void editComment(OntResource resource, String type, String comment)
 	{
-		removeComment(resource, type);
+		removeComments(resource, type);
 		resource.addComment(ontology.createLiteral(type + comment));
+		commentsChanged(resource);
 	}
 	
 	/**	Sets the submenu for the given property and class, and removes any
@@ -153,8 +137,9 @@ public class SpecificationOntologyReader extends OntologyReader
 	 */
 	public void changeMenu(OntResource resource, String className, String menu)
 	{
-		removeMenu(resource, className);
+		removeComments(resource, MENU + className + "=");
 		resource.addComment(ontology.createLiteral(MENU + className + "=" + menu));
+		commentsChanged(resource);
 	}
 	
 	/**	Removes any definition of sub-menu for this property and class
@@ -163,16 +148,8 @@ public class SpecificationOntologyReader extends OntologyReader
 	 */
 	public void removeMenu(OntResource resource, String className)
 	{
-		List<Literal> remove = new ArrayList<Literal>();
-		for (Iterator it = resource.listComments(null); it.hasNext(); )
-		{
-			Literal lit = (Literal) it.next();
-			String comment = lit.getString();
-			if (comment.indexOf(MENU + className + "=") >= 0)
-				remove.add(lit);
-		}
-		for (Literal l : remove)
-			resource.removeComment(l);
+		removeComments(resource, MENU + className + "=");
+		commentsChanged(resource);
 	}
 	
 	/**	Removes any comment on the resource of the given type.
@@ -180,6 +157,15 @@ public class SpecificationOntologyReader extends OntologyReader
 	 *	@param type Comment type
 	 */
 	public void removeComment(OntResource resource, String type)
+	{
+		removeComments(resource, type);
+		commentsChanged(resource);
+	}
+	
+	/**	Removes all comments on the resource that contain the given string,
+	 *	without updating the maps.
+	 */
+	private void removeComments(OntResource resource, String type)
 	{
 		List<Literal> remove = new ArrayList<Literal>();
 		for (Iterator it = resource.listComments(null); it.hasNext(); )
@@ -192,39 +178,6 @@ public class SpecificationOntologyReader extends OntologyReader
 			resource.removeComment(l);
 	}
 	
-	/**	Returns the submenu that this property belongs to for this class, 
-	 *	or null if there is no sub-menu.
-	 *
-	 *	@param prop OntProperty
-	 *	@param className Class name
-	 *	@return String submenu	
-	 */
-	public String getSubmenu(OntProperty prop, String className)
-	{
-		List<String> comments = new ArrayList<String>();
-		for (Iterator it = prop.listComments(null); it.hasNext(); )
-		{
-			String comment = ((Literal) it.next()).getString();
-			int idx = comment.indexOf(MENU);
-			if (idx >= 0)
-				comments.add(comment);
-			if (comment.indexOf(MENU + className + "=") >= 0)
-				return comment.substring(idx + MENU.length() + className.length() + 1);
-		}
-		if (comments.size() == 0)
-			return null;
-			
-		List<OntClass> list = getSuperClasses(getClass(className));	//if there is no menu specified for this class, check the superclasses
-		for (int i = 1; i < list.size(); i++)
-		{
-			String name = list.get(i).getLocalName();
-			for (String comment : comments)
-				if (comment.indexOf(MENU + name + "=") >= 0)
-					return comment.substring(comment.indexOf(MENU) + MENU.length() + name.length() + 1);
-		}
-		return null;
-	}
-	
 	/**	Returns the nl-expression of this resource defined in the ontology,
 	 *	or if nothing is defined one adapted from the local name.
 	 *	@param r OntResource
@@ -232,13 +185,9 @@ public class SpecificationOntologyReader extends OntologyReader
 	 */
 	public String getNLExpression(OntResource r)
 	{
-		for (Iterator it = r.listComments(null); it.hasNext(); )
-		{
-			String comment = ((Literal) it.next()).getString();
-			int idx = comment.indexOf(PHRASE);
-			if (idx >= 0)
-				return comment.substring(idx + PHRASE.length());
-		}
+		List<String> phrases = getAnnotation(r).getPhrases();
+		if (phrases.size() > 0)
+			return phrases.get(0);
 		return r.getLocalName();
 		//return null;
 	}
@@ -250,9 +199,10 @@ public class SpecificationOntologyReader extends OntologyReader
 	 */
 	public void addCardinalityConstraint(OntClass c, int nr, OntProperty prop)
 	{
-		removeMinCardinalityConstraint(c, prop);
+		removeMinCardinality(c, prop);
 		MinCardinalityRestriction restriction = ontology.createMinCardinalityRestriction(null, prop, nr);
 		c.addSuperClass(restriction);
+		restrictionsChanged(c);
 	}
 	
 	/**	Removes existing minimum cardinality constraint (if any)
@@ -260,6 +210,16 @@ public class SpecificationOntologyReader extends OntologyReader
 d	 *	@param prop Property
 	 */
 	public boolean removeMinCardinalityConstraint(OntClass c, OntProperty prop)
+	{
+		boolean removed = removeMinCardinality(c, prop);
+		if (removed)
+			restrictionsChanged(c);
+		return removed;
+	}
+	
+	/**	Removes an existing minimum cardinality constraint without updating the maps.
+	 */
+	private boolean removeMinCardinality(OntClass c, OntProperty prop)
 	{
 		List list = c.listSuperClasses().toList();
 		list.addAll(c.listEquivalentClasses().toList());
@@ -5,12 +5,18 @@ import WYSIWYM.ontology.*;
 import com.hp.hpl.jena.ontology.OntProperty;
 import WYSIWYM.transformer.DependencyTreeTransformer;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.IOException;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.io.File;
 //import java.net.*;
 
 import org.jdom.Document;
@@ -20,6 +26,14 @@ import org.jdom.input.SAXBuilder;
 /**
  *	Lexicon creates Dependency Trees for properties from property-specific input files
  *
+ *	Each file is read only once: its xml is kept as an immutable template, from
+ *	which every call to map() creates a new tree. Files that do not exist are 
+ *	remembered as well, so looking up a property without a specification does not 
+ *	touch the file system either; files that could not be read are tried again the 
+ *	next time. Call clearCache() when 
+ *	the files have changed; this also changes the version of the lexicon, so that
+ *	tables derived from it (see SpecificationTable) are built anew.
+ *
  * @author Feikje Hielkema
  * @version 1.00 2006/11/13
  */
@@ -82,6 +96,11 @@ public class Lexicon
 	public static final String PATH = "/Users/thomas/Documents/workspace/LangSpecCreator/src/data/resource";
 	public static final String CLASS_SPEC_PATH = "/Users/thomas/Documents/workspace/LangSpecCreator/src/data/resource/ClassSpec/";
 
+	//	Templates of the specifications read so far by name, and the names of those that have no file
+	private static Map<String,LexiconTemplate> templates = new ConcurrentHashMap<String,LexiconTemplate>();
+	private static Set<String> missing = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+	private static final AtomicInteger version = new AtomicInteger();
+
 
 
 	
@@ -115,14 +134,34 @@ public class Lexicon
 
     private static boolean exists(OntProperty p, OntologyReader reader)
     {	//check this property and its inverse
-    	if (new File(PATH + p.getLocalName() + ".xml").exists())
+    	if (exists(p.getLocalName()))
     		return true;
     	OntProperty inverse = reader.getInverse(p);
-    	if ((inverse != null) && new File(PATH + inverse.getLocalName() + ".xml").exists())
+    	if ((inverse != null) && exists(inverse.getLocalName()))
     		return true;
     	return false;
     }
     
+    /**	Checks whether there is a specification file with the given name 
+     *	(even if it could not be read)
+     */
+    private static boolean exists(String name)
+    {
+    	try
+    	{
+    		getTemplate(name);
+    		return true;
+    	}
+    	catch (FileNotFoundException e)
+    	{
+    		return false;
+    	}
+    	catch (IOException e)
+    	{
+    		return true;
+    	}
+    }
+    
     /**	Map an edge in the graph to a dependencytree, by finding
      *	the correct lexicon entry and creating the dependencytree
      *	contained in it
@@ -132,13 +171,121 @@ public class Lexicon
      *	@throws IOException if the file could not be read
      */
     public DependencyTreeTransformer map(String name) throws IOException
-    {	//open the dependencytree-file for this property
-		String fileName = new String(name + ".xml");
-   	//	InputStream input = getClass().getClassLoader().getResourceAsStream(PATH + fileName);
-   		InputStream input = new FileInputStream(PATH + fileName);
-    	readFile(input);
-    	input.close();
-    	return trans;
+    {	//create the dependencytree from the template of this property's file
+    	return makeTree(getTemplate(name));
+    }
+    
+    /**	Creates the dependencytree of the given template
+     *	@param template LexiconTemplate
+     *	@return DependencyTreeTransformer with the specification
+     *	@throws IOException if the template does not hold a valid dependencytree
+     */
+    DependencyTreeTransformer makeTree(LexiconTemplate template) throws IOException
+    {
+    	try
+    	{
+    		makeDT(template);
+    		return trans;
+    	}
+    	catch (IOException e)
+    	{
+    		throw e;
+    	}
+    	catch (Exception e)
+    	{
+    		System.out.println("Lexicon 114: Error occurred when reading lexical specification.");
+    		throw (new IOException(e.getMessage()));
+    	}
+    }
+    
+    /**	Returns the template of the specification with the given name, reading
+     *	it from the specification pack in PATH, if there is one and it contains
+     *	the specification, or else from its file; if that has not been done before.
+     *	@throws FileNotFoundException if there is no such specification
+     *	@throws IOException if the file could not be read
+     */
+    private static LexiconTemplate getTemplate(String name) throws IOException
+    {
+    	LexiconTemplate result = templates.get(name);
+    	if (result != null)
+    		return result;
+    	if (missing.contains(name))
+    		throw new FileNotFoundException(PATH + name + ".xml");
+    	
+    	InputStream input = null;
+    	try
+    	{
+    		SpecificationPack pack = SpecificationPack.forDirectory(PATH);
+    		if ((pack != null) && pack.contains(name))
+    		{
+    			result = pack.getTemplate(name);
+    			templates.put(name, result);
+    			return result;
+    		}
+	   	//	input = getClass().getClassLoader().getResourceAsStream(PATH + name + ".xml");
+    		try
+    		{
+    			input = new FileInputStream(PATH + name + ".xml");
+    		}
+    		catch (FileNotFoundException e)
+    		{	//only the absence of a file is remembered; read errors may not last
+    			missing.add(name);
+    			throw e;
+    		}
+    		result = readTemplate(input);
+    		templates.put(name, result);
+    		return result;
+    	}
+    	finally
+    	{
+    		try
+    		{
+    			if (input != null)
+    				input.close();
+    		}
+    		catch (IOException e)
+    		{}
+    	}
+    }
+    
+    /**	Forgets all specifications that have been read, so that they will be
+     *	read again from file. Should be called when the files have changed.
+     */
+    public static void clearCache()
+    {
+    	templates.clear();
+    	missing.clear();
+    	version.incrementAndGet();
+    }
+    
+    /**	Returns the roots of all nodes of the given syntactic category in the
+     *	specifications that have been read so far
+     *	@param cat Category, e.g. LinguisticTerms.VERB
+     *	@return Set<String> with the roots
+     */
+    public static Set<String> getRoots(String cat)
+    {
+    	Set<String> result = new HashSet<String>();
+    	for (LexiconTemplate template : templates.values())
+    		addRoots(template, cat, result);
+    	return result;
+    }
+    
+    private static void addRoots(LexiconTemplate template, String cat, Set<String> result)
+    {
+    	String root = template.getAttributeValue(ROOT);
+    	if ((root != null) && cat.equals(template.getAttributeValue(CAT)))
+    		result.add(root);
+    	for (LexiconTemplate child : template.getChildren())
+    		addRoots(child, cat, result);
+    }
+    
+    /**	Returns the version of the lexicon, which changes whenever clearCache() is called
+     *	@return int version
+     */
+    public static int getVersion()
+    {
+    	return version.get();
     }
     
     /**	Reads the xml-file
@@ -189,6 +336,16 @@ public class Lexicon
      *	@throws IOException if the file could not be read
      */
     public DependencyTreeTransformer readFile(InputStream input) throws IOException
+    {
+    	return makeTree(readTemplate(input));
+    }
+    
+    /**	Parses the xml-file into a template
+     *	@param input InputStream of file
+     *	@return LexiconTemplate holding the document (root) element
+     *	@throws IOException if the file could not be read
+     */
+    static LexiconTemplate readTemplate(InputStream input) throws IOException
     {
     	try
     	{
@@ -197,8 +354,7 @@ public class Lexicon
       		Element root = doc.getRootElement();
       		if ((root == null) || (root.getName() != "dt"))    
     			throw new IOException("Wrong input: dependency tree expected");
-    		makeDT(root);
-    		return trans;
+    		return new LexiconTemplate(root);
     	}
     	catch (Exception e)
     	{
@@ -214,7 +370,7 @@ public class Lexicon
      *	@param	The root element of the xml-file
      *	@throws Exception
      */
-    private void makeDT(Element element) throws Exception
+    private void makeDT(LexiconTemplate element) throws Exception
 	{
 		trans = new DependencyTreeTransformer(new DependencyTree());
 		DTNode root = makeNode(element);
@@ -230,7 +386,7 @@ public class Lexicon
 	 *	@param	The element to be mapped
 	 *	@throws Exception
 	 */
-	private DTNode makeNode(Element element) throws Exception
+	private DTNode makeNode(LexiconTemplate element) throws Exception
 	{
 		if (element.getName().equals("dt"))
 		{
@@ -239,10 +395,10 @@ public class Lexicon
 				return null;
 			else {
 				//TODO: minCard: if the xml file contains a minCard element, add the minimum cardinality of that property to the cardinalityMap of the OntologyReader? (can get reader from ContentPlanner.getTree(OntProperty) line: 400) 
-				if (element.getChildren().size() > 1 && ((Element) element.getChildren().get(1)).getName().equals(MINIMUM_CARDINALITY)) {
-					System.out.println("min cardinality: " + ((Element) element.getChildren().get(1)).getAttributeValue("value"));
+				if (element.getChildren().size() > 1 && element.getChildren().get(1).getName().equals(MINIMUM_CARDINALITY)) {
+					System.out.println("min cardinality: " + element.getChildren().get(1).getAttributeValue("value"));
 				}
-				return makeNode((Element) element.getChildren().get(0));
+				return makeNode(element.getChildren().get(0));
 			}
 		}
 		else if (element.getName().equals("node"))
@@ -258,10 +414,10 @@ public class Lexicon
 				node = new DTNode(element.getAttributeValue(CAT), element.getAttributeValue(REL), element.getAttributeValue(ROOT), null);
 			
 			trans.addNode(node);
-			List<Element> children = element.getChildren();
+			List<LexiconTemplate> children = element.getChildren();
 			for (int i = 0; i < children.size(); i++)
 			{
-				Element child = children.get(i);
+				LexiconTemplate child = children.get(i);
 				if (child.getName().equals("morph"))
 					makeMorph(child, node);
 				else
@@ -281,7 +437,7 @@ public class Lexicon
 	 *	@param	The node that the morphological information will be added to
 	 *	@throws Exception
 	 */
-    private void makeMorph(Element element, DTNode node)
+    private void makeMorph(LexiconTemplate element, DTNode node)
     {
     	Morph m = new Morph(element.getAttributeValue(NUM), element.getAttributeValue(PERSON), 
     		element.getAttributeValue(TENSE), element.getAttributeValue(ACTOR), 
@@ -0,0 +1,120 @@
+package WYSIWYM.libraries;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+/**	An element of a lexicon specification, with its attributes and child elements.
+ *	Lexicon builds dependency trees from templates; unlike the JDOM elements
+ *	they are made from, templates are never changed, so they can be shared by
+ *	all threads. A template can also be written to and read from a binary
+ *	stream (see SpecificationPack).
+ *
+ *	@version 1.0 18-10-2026
+ */
+class LexiconTemplate
+{
+	private final String name;
+	private final Map<String,String> attributes;
+	private final List<LexiconTemplate> children;
+
+	/**	Constructs a template of the given element and its descendants
+	 *	@param element Element
+	 */
+	LexiconTemplate(Element element)
+	{
+		name = element.getName();
+		Map<String,String> map = new LinkedHashMap<String,String>();
+		for (Iterator it = element.getAttributes().iterator(); it.hasNext(); )
+		{
+			Attribute a = (Attribute) it.next();
+			if (a.getNamespace() == Namespace.NO_NAMESPACE)	//as Element.getAttributeValue(String)
+				map.put(a.getName(), a.getValue());
+		}
+		attributes = Collections.unmodifiableMap(map);
+		List<LexiconTemplate> list = new ArrayList<LexiconTemplate>();
+		for (Iterator it = element.getChildren().iterator(); it.hasNext(); )
+			list.add(new LexiconTemplate((Element) it.next()));
+		children = Collections.unmodifiableList(list);
+	}
+
+	private LexiconTemplate(String name, Map<String,String> attributes, List<LexiconTemplate> children)
+	{
+		this.name = name;
+		this.attributes = Collections.unmodifiableMap(attributes);
+		this.children = Collections.unmodifiableList(children);
+	}
+
+	/**	Returns the element name
+	 *	@return String
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**	Returns the value of the given attribute, or null if the element does not have it
+	 *	@param attribute Attribute name
+	 *	@return String
+	 */
+	public String getAttributeValue(String attribute)
+	{
+		return attributes.get(attribute);
+	}
+
+	/**	Returns the child elements
+	 *	@return List<LexiconTemplate> (read-only)
+	 */
+	public List<LexiconTemplate> getChildren()
+	{
+		return children;
+	}
+
+	/**	Writes the template and its descendants
+	 *	@param out DataOutput
+	 *	@throws IOException
+	 */
+	void write(DataOutput out) throws IOException
+	{
+		out.writeUTF(name);
+		out.writeShort(attributes.size());
+		for (Map.Entry<String,String> e : attributes.entrySet())
+		{
+			out.writeUTF(e.getKey());
+			out.writeUTF(e.getValue());
+		}
+		out.writeShort(children.size());
+		for (LexiconTemplate child : children)
+			child.write(out);
+	}
+
+	/**	Reads a template that was written by write(DataOutput)
+	 *	@param in DataInput
+	 *	@return LexiconTemplate
+	 *	@throws IOException
+	 */
+	static LexiconTemplate read(DataInput in) throws IOException
+	{
+		String name = in.readUTF();
+		Map<String,String> attributes = new LinkedHashMap<String,String>();
+		for (int i = in.readUnsignedShort(); i > 0; i--)
+		{
+			String key = in.readUTF();
+			attributes.put(key, in.readUTF());
+		}
+		List<LexiconTemplate> children = new ArrayList<LexiconTemplate>();
+		for (int i = in.readUnsignedShort(); i > 0; i--)
+			children.add(read(in));
+		return new LexiconTemplate(name, attributes, children);
+	}
+}
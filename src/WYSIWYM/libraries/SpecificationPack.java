@@ -0,0 +1,331 @@
+package WYSIWYM.libraries;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jdom.Element;
+
+import WYSIWYM.transformer.DependencyTreeTransformer;
+
+/**	SpecificationPack keeps many lexicon specifications in a single binary file,
+ *	instead of one small xml-file per property. The file starts with a header that
+ *	points to an index with the name, position and length of every specification;
+ *	each specification is stored as a LexiconTemplate. The file is memory-mapped,
+ *	and only the index is read when it is opened, so checking whether a
+ *	specification exists is a lookup in the index.
+ *
+ *	Specifications can be appended to an existing pack (see append()); a specification
+ *	that is appended again replaces the old one, which remains in the file until the
+ *	pack is converted anew. Appending never overwrites anything but the position of the
+ *	index in the header, which is changed last, so a pack that is interrupted while it
+ *	is being written still holds its old contents. A pack is created from a directory of
+ *	xml-files with convert(), or from the command line:
+ *	java WYSIWYM.libraries.SpecificationPack <directory> [<pack file>]
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class SpecificationPack
+{
+	/**	Name of the pack file in a lexicon directory */
+	public static final String FILE_NAME = "lexicon.pack";
+	/**	Change this whenever the file layout or LexiconTemplate.write() changes */
+	public static final int FORMAT = 1;
+	private static final int MAGIC = 0x4C53504B;	//'LSPK'
+	private static final int HEADER = 16;			//magic, format and the position of the index
+
+	//	Packs that have been opened, by file name, with the modification date and length when they were opened
+	private static Map<String,SpecificationPack> packs = new HashMap<String,SpecificationPack>();
+
+	private final File file;
+	private final long modified, length;
+	private final MappedByteBuffer buffer;
+	private final Map<String,int[]> index;	//name, and the position and length of the specification
+
+	private SpecificationPack(File file) throws IOException
+	{
+		this.file = file;
+		modified = file.lastModified();
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			length = channel.size();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			if ((length < HEADER) || (buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != FORMAT))
+				throw new IOException(file + " is not a specification pack of format " + FORMAT);
+			index = readIndex(buffer, buffer.getLong(8));
+		}
+		finally
+		{
+			raf.close();	//the mapping remains valid
+		}
+	}
+
+	private static Map<String,int[]> readIndex(ByteBuffer buffer, long position) throws IOException
+	{
+		byte[] bytes = new byte[(int) (buffer.limit() - position)];
+		ByteBuffer b = buffer.duplicate();
+		b.position((int) position);
+		b.get(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		Map<String,int[]> result = new HashMap<String,int[]>();
+		for (int i = in.readInt(); i > 0; i--)
+		{
+			String name = in.readUTF();
+			int[] entry = new int[2];
+			entry[0] = in.readInt();
+			entry[1] = in.readInt();
+			result.put(name, entry);
+		}
+		return result;
+	}
+
+	/**	Opens a specification pack
+	 *	@param file Pack file
+	 *	@return SpecificationPack
+	 *	@throws IOException if the file could not be read, or is not a specification pack
+	 */
+	public static SpecificationPack open(File file) throws IOException
+	{
+		return new SpecificationPack(file);
+	}
+
+	/**	Returns the pack in the given lexicon directory, or null if there is none.
+	 *	Packs are opened once, and again only when the file has changed.
+	 *	@param dir Path to the lexicon directory, with or without a trailing separator
+	 *	@return SpecificationPack, or null if the directory has no (readable) pack
+	 */
+	public static synchronized SpecificationPack forDirectory(String dir)
+	{
+		File f = new File(dir, FILE_NAME);
+		SpecificationPack pack = packs.get(f.getPath());
+		if (!f.exists())
+		{
+			packs.remove(f.getPath());
+			return null;
+		}
+		if ((pack != null) && (pack.modified == f.lastModified()) && (pack.length == f.length()))
+			return pack;
+
+		try
+		{
+			pack = new SpecificationPack(f);
+			packs.put(f.getPath(), pack);
+			return pack;
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not read specification pack " + f + ": " + e.getMessage());
+			packs.remove(f.getPath());
+			return null;
+		}
+	}
+
+	/**	Returns the file of this pack
+	 *	@return File
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**	Checks whether the pack contains a specification with the given name
+	 *	@param name Specification (property) name
+	 *	@return true if it does
+	 */
+	public boolean contains(String name)
+	{
+		return index.containsKey(name);
+	}
+
+	/**	Returns the names of all specifications in the pack, in alphabetical order
+	 *	@return Set<String>
+	 */
+	public Set<String> getNames()
+	{
+		return Collections.unmodifiableSet(new TreeSet<String>(index.keySet()));
+	}
+
+	/**	Returns the template of the given specification
+	 *	@param name Specification name
+	 *	@return LexiconTemplate
+	 *	@throws IOException if the pack does not contain the specification, or it could not be read
+	 */
+	LexiconTemplate getTemplate(String name) throws IOException
+	{
+		int[] entry = index.get(name);
+		if (entry == null)
+			throw new IOException("Specification pack " + file + " does not contain " + name);
+		byte[] bytes = new byte[entry[1]];
+		ByteBuffer b = buffer.duplicate();
+		b.position(entry[0]);
+		b.get(bytes);
+		return LexiconTemplate.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**	Creates the dependency tree of the given specification
+	 *	@param name Specification name
+	 *	@return DependencyTreeTransformer
+	 *	@throws IOException if the pack does not contain the specification, or it could not be read
+	 */
+	public DependencyTreeTransformer getTree(String name) throws IOException
+	{
+		return new Lexicon().makeTree(getTemplate(name));
+	}
+
+	/**	Adds a specification to the given pack, replacing any specification with
+	 *	the same name. The pack is created if the file does not exist.
+	 *	@param file Pack file
+	 *	@param name Specification (property) name
+	 *	@param dt Root ('dt') element of the specification
+	 *	@throws IOException if the pack could not be written
+	 */
+	public static void append(File file, String name, Element dt) throws IOException
+	{
+		Map<String,LexiconTemplate> map = new HashMap<String,LexiconTemplate>();
+		map.put(name, new LexiconTemplate(dt));
+		append(file, map);
+	}
+
+	/**	Adds the given templates and a new index to the end of the pack, and then points
+	 *	the header to the new index. The old index is left where it is, so until the header
+	 *	is changed the pack is still complete.
+	 */
+	private static synchronized void append(File file, Map<String,LexiconTemplate> templates) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			if (raf.length() == 0)
+			{	//start with a valid, empty pack
+				raf.writeInt(MAGIC);
+				raf.writeInt(FORMAT);
+				raf.writeLong(HEADER);
+				raf.writeInt(0);
+				raf.getChannel().force(true);
+				raf.seek(0);
+			}
+			if ((raf.readInt() != MAGIC) || (raf.readInt() != FORMAT))
+				throw new IOException(file + " is not a specification pack of format " + FORMAT);
+			long old = raf.readLong();
+			byte[] oldIndex = new byte[(int) (raf.length() - old)];
+			raf.seek(old);
+			raf.readFully(oldIndex);
+			Map<String,int[]> index = readIndex(ByteBuffer.wrap(oldIndex), 0);
+
+			long position = raf.length();
+			raf.seek(position);
+			for (Map.Entry<String,LexiconTemplate> e : templates.entrySet())
+			{
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				e.getValue().write(new DataOutputStream(bytes));
+				raf.write(bytes.toByteArray());
+				index.put(e.getKey(), new int[]{(int) position, bytes.size()});
+				position += bytes.size();
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			String[] names = index.keySet().toArray(new String[index.size()]);
+			Arrays.sort(names);
+			out.writeInt(names.length);
+			for (String name : names)
+			{
+				out.writeUTF(name);
+				out.writeInt(index.get(name)[0]);
+				out.writeInt(index.get(name)[1]);
+			}
+			raf.write(bytes.toByteArray());
+			raf.getChannel().force(true);	//the new index must be on disk before the header points to it
+			raf.seek(8);
+			raf.writeLong(position);
+			raf.getChannel().force(true);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**	Creates a pack with all xml-specifications in the given directory. Each
+	 *	specification is named after its file, without the '.xml'. Files that are
+	 *	not valid specifications are skipped.
+	 *	@param dir Directory with xml-files
+	 *	@param file Pack file, which is overwritten if it exists
+	 *	@return number of specifications in the pack
+	 *	@throws IOException if the pack could not be written
+	 */
+	public static int convert(File dir, File file) throws IOException
+	{
+		File[] files = dir.listFiles();
+		if (files == null)
+			throw new IOException(dir + " is not a directory");
+		Arrays.sort(files);
+
+		Map<String,LexiconTemplate> templates = new HashMap<String,LexiconTemplate>();
+		for (File f : files)
+		{
+			String fileName = f.getName();
+			if (!fileName.endsWith(".xml"))
+				continue;
+			InputStream in = new FileInputStream(f);
+			try
+			{
+				templates.put(fileName.substring(0, fileName.length() - 4), Lexicon.readTemplate(in));
+			}
+			catch (IOException e)
+			{
+				System.out.println("Skipped " + f + ": " + e.getMessage());
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+
+		if (file.exists() && !file.delete())
+			throw new IOException("Could not replace " + file);
+		append(file, templates);
+		return templates.size();
+	}
+
+	/**	Converts a directory of xml-specifications into a pack
+	 *	@param args Directory, and optionally the pack file (by default the pack file in the directory)
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length == 0)
+		{
+			System.out.println("Usage: java WYSIWYM.libraries.SpecificationPack <directory> [<pack file>]");
+			return;
+		}
+		File dir = new File(args[0]);
+		File file = (args.length > 1) ? new File(args[1]) : new File(dir, FILE_NAME);
+		try
+		{
+			long start = System.currentTimeMillis();
+			int nr = convert(dir, file);
+			System.out.println("Stored " + nr + " specifications in " + file + " (" + file.length() + " bytes) in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		catch (IOException e)
+		{
+			System.out.println(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package WYSIWYM.libraries;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import WYSIWYM.ontology.OntologyReader;
+import WYSIWYM.transformer.DependencyTreeTransformer;
+
+import com.hp.hpl.jena.ontology.OntProperty;
+
+/**	SpecificationTable tells, for every property in an ontology, which lexicon
+ *	specification is used to express it: that of the property itself, else that
+ *	of its inverse (in which case the tree is inverted), else that of the first of
+ *	its superproperties that has one (or whose inverse has one).
+ *
+ *	The table is built once for each version of the ontology and the lexicon
+ *	(see get()), so the text planners only have to look up each edge, instead of
+ *	trying the lexicon for each candidate in turn. A table is never changed after
+ *	construction.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class SpecificationTable
+{
+	private static final int CACHE_SIZE = 4;
+	//	Tables of the most recent ontology and lexicon versions
+	private static Map<Long,SpecificationTable> tables = new LinkedHashMap<Long,SpecificationTable>(8, 0.75f, true)
+	{
+		protected boolean removeEldestEntry(Map.Entry<Long,SpecificationTable> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final OntologyReader reader;
+	private final Lexicon lexicon = new Lexicon();
+	private final Map<OntProperty,Entry> entries = new HashMap<OntProperty,Entry>();	//property, and its specification (if any)
+
+	/**	The specification used for a property */
+	public static class Entry
+	{
+		private final OntProperty source;
+		private final String specification;
+		private final boolean inverse;
+
+		private Entry(OntProperty source, String specification, boolean inverse)
+		{
+			this.source = source;
+			this.specification = specification;
+			this.inverse = inverse;
+		}
+
+		/**	Returns the property the specification belongs to: the property itself
+		 *	or one of its superproperties (but never an inverse)
+		 *	@return OntProperty
+		 */
+		public OntProperty getSource()
+		{
+			return source;
+		}
+
+		/**	Returns the name of the specification; that of the source property or of its inverse
+		 *	@return String
+		 */
+		public String getSpecification()
+		{
+			return specification;
+		}
+
+		/**	Returns true if the specification is that of the inverse of the source property
+		 *	@return boolean
+		 */
+		public boolean isInverse()
+		{
+			return inverse;
+		}
+
+		/**	Creates the dependency tree of the specification; marked as inverted if
+		 *	the specification is that of the inverse property.
+		 *	@param lexicon Lexicon
+		 *	@return DependencyTreeTransformer
+		 *	@throws IOException if the specification could not be read
+		 */
+		public DependencyTreeTransformer getTree(Lexicon lexicon) throws IOException
+		{
+			DependencyTreeTransformer dt = lexicon.map(specification);
+			if (inverse)
+				dt.getGraph().setInverseInserted(true);
+			return dt;
+		}
+	}
+
+	private SpecificationTable(OntologyReader reader)
+	{
+		this.reader = reader;
+		Map<OntProperty,Entry> own = new HashMap<OntProperty,Entry>();
+		for (Iterator it = reader.getProperties(); it.hasNext(); )
+		{
+			OntProperty p = (OntProperty) it.next();
+			if (p.getLocalName() != null)
+				own.put(p, findOwn(p));
+		}
+		for (OntProperty p : own.keySet())
+			entries.put(p, resolve(p, own));
+	}
+
+	/**	Returns the table of the current version of the given ontology and the lexicon,
+	 *	building it if it does not exist yet.
+	 *	@param reader Ontology
+	 *	@return SpecificationTable
+	 */
+	public static SpecificationTable get(OntologyReader reader)
+	{
+		Long key = Long.valueOf(((long) reader.getVersion() << 32) | (Lexicon.getVersion() & 0xFFFFFFFFL));
+		synchronized (tables)
+		{
+			SpecificationTable table = tables.get(key);
+			if (table == null)
+			{
+				table = new SpecificationTable(reader);
+				tables.put(key, table);
+			}
+			return table;
+		}
+	}
+
+	/**	Returns the specification used for the given property, or null if neither it,
+	 *	its inverse, nor any of its superproperties (or their inverses) has one.
+	 *	@param p OntProperty
+	 *	@return Entry, or null
+	 */
+	public Entry get(OntProperty p)
+	{
+		if ((p == null) || (p.getLocalName() == null))
+			return null;
+		if (entries.containsKey(p))
+			return entries.get(p);
+		return resolve(p, null);	//not a named property of the ontology
+	}
+
+	/**	Returns true if the given property, or its inverse, has a specification of its own
+	 *	@param p OntProperty
+	 *	@return boolean
+	 */
+	public boolean hasOwn(OntProperty p)
+	{
+		Entry entry = get(p);
+		return (entry != null) && entry.getSource().equals(p);
+	}
+
+	/**	Finds the specification of this property or its superproperties, in the order
+	 *	in which the planners have always tried them.
+	 */
+	private Entry resolve(OntProperty p, Map<OntProperty,Entry> own)
+	{
+		Entry entry = getOwn(p, own);
+		if (entry != null)
+			return entry;
+		for (Iterator it = p.listSuperProperties(); it.hasNext(); )
+		{
+			OntProperty parent = (OntProperty) it.next();
+			if (p.equals(parent))
+				continue;
+			entry = getOwn(parent, own);
+			if (entry != null)
+				return entry;
+		}
+		return null;
+	}
+
+	private Entry getOwn(OntProperty p, Map<OntProperty,Entry> own)
+	{
+		if ((own != null) && own.containsKey(p))
+			return own.get(p);
+		return findOwn(p);
+	}
+
+	/**	Finds the specification of this property or its inverse
+	 */
+	private Entry findOwn(OntProperty p)
+	{
+		if ((p.getLocalName() != null) && readable(p.getLocalName()))
+			return new Entry(p, p.getLocalName(), false);
+		OntProperty i = reader.getInverse(p);
+		if ((i != null) && (i.getLocalName() != null) && readable(i.getLocalName()))
+			return new Entry(p, i.getLocalName(), true);
+		return null;
+	}
+
+	/**	Checks whether the specification exists and can be turned into a tree
+	 */
+	private boolean readable(String name)
+	{
+		try
+		{
+			lexicon.map(name);
+			return true;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+}
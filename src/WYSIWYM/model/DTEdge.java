@@ -106,4 +106,14 @@ public class DTEdge extends Edge
 	{
 		return (DTNode) super.getTarget();
 	}
+	
+	/**	Overload; a new label also changes the structural hash of the source
+	 *	(@see DTNode#getStructuralHash())
+	 */
+	protected void markChanged()
+	{
+		super.markChanged();
+		if (getSource() != null)
+			getSource().invalidateHash();
+	}
 }
\ No newline at end of file
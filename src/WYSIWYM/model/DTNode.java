@@ -15,6 +15,7 @@ import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import WYSIWYM.libraries.LinguisticTerms;
 import WYSIWYM.transformer.DependencyTreeTransformer;
 import javax.naming.NameAlreadyBoundException;
 
@@ -27,6 +28,8 @@ public class DTNode extends Node
 	private int inserted = 0;
 	private boolean useAsPronoun = false;
 	private boolean flagged = false;
+	private boolean hashed = false;
+	private int structuralHash;	//cached structural hash, valid if hashed
 	
 	public static final int NOT_INSERTED = 0;
 	public static final int SOURCE_INSERTED = 1;
@@ -46,6 +49,8 @@ public class DTNode extends Node
     	deplbl = dep;
     	root = w;
     	morph = m;
+    	if (m != null)
+    		m.addOwner(this);
     	if (root != null)
     		leaf = true;
     }
@@ -71,6 +76,8 @@ public class DTNode extends Node
 		deplbl = n.getDeplbl();
 		root = n.getRoot();
 		morph = n.getMorph();
+		if (morph != null)
+			morph.addOwner(this);
 		leaf = n.isLeaf();
 		setInserted(n.getInserted());
 	}
@@ -123,6 +130,7 @@ public class DTNode extends Node
 	public void setLeaf(boolean l)
 	{
 		leaf = l;
+		invalidateHash();
 	}
 	
 	/**	Checks whether this node has been elided, and should
@@ -230,6 +238,7 @@ public class DTNode extends Node
 	public void setDeplbl(String d)
 	{
 		deplbl = d;
+		invalidateHash();
 	}
 	
 	/**	Returns the word root
@@ -258,6 +267,7 @@ public class DTNode extends Node
 			leaf = false;
 		else
 			leaf = true;
+		invalidateHash();
 	}
 	
 	/** Sets the Unique ID assigned by the Semantic Graph
@@ -266,6 +276,7 @@ public class DTNode extends Node
 	public void setSGID(String id)
 	{
 		sgID = id;
+		invalidateHash();
 	}
 	
 	/** Gets the Unique ID assigned by the Semantic Graph
@@ -281,7 +292,14 @@ public class DTNode extends Node
 	 */
 	public void setMorph(Morph m)
 	{
+		if (morph == m)
+			return;
+		if (morph != null)
+			morph.removeOwner(this);
 		morph = m;
+		if (m != null)
+			m.addOwner(this);
+		invalidateHash();
 	}
 	
 	/**	Sets the rank order in the tree (unused)
@@ -435,4 +453,90 @@ public class DTNode extends Node
 	{
 		return (DTNode) super.getParent();
 	}
+	
+	/**	Returns a hash code of this node and its branch, computed from what the Aggregator
+	 *	compares to find identical constituents: dependency labels, morphology, the roots
+	 *	of leaves and the SG IDs of undetermined nodes (but not the syntactic categories).
+	 *	Branches that are identical in that sense have the same hash code, so branches
+	 *	with different hash codes need not be compared. It is computed once, and again
+	 *	after the branch has changed.
+	 *	@return int
+	 */
+	public int getStructuralHash()
+	{
+		if (hashed)
+			return structuralHash;
+		
+		int hash = hash(deplbl) * 31 + Morph.getHash(morph);
+		if (this instanceof UndeterminedDTNode)
+			hash = hash * 31 + hash(sgID);
+		else if (isLeaf())
+			hash = hash * 31 + hash(root);
+		else
+		{
+			int children = 0;
+			for (Iterator it = getOutgoingEdges(); it.hasNext(); )
+			{	//add up the children, since their order does not matter
+				DTEdge edge = (DTEdge) it.next();
+				children += mix(hash(edge.getLabel()) * 31 + edge.getTarget().getStructuralHash());
+			}
+			hash = (hash * 31 + getOutgoingEdgeNr()) * 31 + children;
+			
+			DTNode agent = getPassiveAgent();
+			if (agent != null)	//a 'by'-pp is identical to a subject that equals its object
+				hash = agent.getStructuralHash();
+		}
+		structuralHash = hash;
+		hashed = true;
+		return hash;
+	}
+	
+	/**	If this is a pp-modifier 'by X' that the Aggregator may find identical to a 
+	 *	subject (i.e. X is a subject or such a pp itself), returns X.
+	 */
+	private DTNode getPassiveAgent()
+	{
+		if (!LinguisticTerms.PPMODIFIER.equals(deplbl) || isLeaf() || (this instanceof UndeterminedDTNode))
+			return null;
+		DTNode prep = getDepChild(LinguisticTerms.HEAD);
+		if ((prep == null) || !"by".equals(prep.getRoot()))
+			return null;
+		DTNode object = getDepChild(LinguisticTerms.OBJECT);
+		if ((object == null) || !(LinguisticTerms.SUBJECT.equals(object.getDeplbl()) || LinguisticTerms.PPMODIFIER.equals(object.getDeplbl())))
+			return null;
+		return object;
+	}
+	
+	private static int hash(String s)
+	{
+		return (s == null) ? 0 : s.hashCode();
+	}
+	
+	private static int mix(int h)
+	{
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 13);
+	}
+	
+	/**	Clears the structural hash of this node and its ancestors. A node's hash is
+	 *	only computed after those of the children it depends on, so if this one is 
+	 *	not set, neither are those of its ancestors.
+	 */
+	void invalidateHash()
+	{
+		if (!hashed)
+			return;
+		hashed = false;
+		for (Iterator it = getParents(); it.hasNext(); )
+			((DTNode) it.next()).invalidateHash();
+	}
+	
+	/**	Overload; also clears the structural hash (@see Node#markChanged())
+	 */
+	protected void markChanged()
+	{
+		super.markChanged();
+		invalidateHash();
+	}
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ public abstract class Edge implements TreeComponent
 {
 	private String label, id;
 	private Node source, target;
+	private long changed = Graph.nextChange();	//change stamp
 
 	
 	/**	Constructs Edge with given label
@@ -66,6 +67,7 @@ public abstract class Edge implements TreeComponent
 				target.removeIncomingEdge(this);
 			
 			id = i;
+			markChanged();
 			
 			if (source != null)
 				source.addOutgoingEdge(this);
@@ -83,6 +85,7 @@ public abstract class Edge implements TreeComponent
 	public void setLabel(String str)
 	{
 		label = str;
+		markChanged();
 	}
 	
 	/**	Sets the source to s. To remove the source node, call this with argument null.
@@ -93,6 +96,7 @@ public abstract class Edge implements TreeComponent
 	{	
 		s.addOutgoingEdge(this);
 		source = s;
+		markChanged();
 	}
 	
 	/**	Sets the target to t. To remove the source node, call this with argument null.
@@ -103,6 +107,7 @@ public abstract class Edge implements TreeComponent
 	{
 		t.addIncomingEdge(this);
 		target = t;
+		markChanged();
 	}
 	
 	/**	Returns the label
@@ -137,6 +142,23 @@ public abstract class Edge implements TreeComponent
 		return id;
 	}
 	
+	/**	Renews the change stamp of this edge; subclasses call this whenever
+	 *	they change something
+	 */
+	protected void markChanged()
+	{
+		changed = Graph.nextChange();
+	}
+	
+	/**	Returns the change stamp: the moment this edge was created or last changed
+	 *	@see Graph#getLastChange()
+	 *	@return long
+	 */
+	public long getLastChange()
+	{
+		return changed;
+	}
+	
 	/**	Overload; shows that this is an edge, not a node
 	 *	@see TreeComponent#isEdge()
 	 *	@return true
@@ -1,10 +1,15 @@
 package WYSIWYM.model;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**	Graph is an abstract superclass for graph structures (such as SemanticGraph
  *	and DependencyTree)
  *
+ *	Nodes and edges carry a change stamp, which is renewed whenever they are
+ *	changed; comparing stamps with getLastChange() shows which components have
+ *	changed since a given moment.
+ *
  *	@author Feikje Hielkema
  *	@version 1.1 09-11-2006
  *
@@ -17,6 +22,7 @@ public abstract class Graph
 	protected Map<String, Edge> edges;
 	
 	private int x = 0, y = 0, z = 0;
+	private static final AtomicLong changes = new AtomicLong();	//last change stamp handed out, in any graph
 
 	/**	Default constructor
 	 */
@@ -164,6 +170,23 @@ public abstract class Graph
 		return c.iterator();
 	}
 	
+	/**	Returns a new change stamp, higher than all previous ones
+	 *	@return long
+	 */
+	static long nextChange()
+	{
+		return changes.incrementAndGet();
+	}
+	
+	/**	Returns the most recent change stamp. Nodes and edges with a higher
+	 *	stamp have been created or changed after this call.
+	 *	@return long
+	 */
+	public static long getLastChange()
+	{
+		return changes.get();
+	}
+	
 	/*** This will return an unused ID - unless there are already 26^3 elements 
 	 *	in the graph (which seems unlikely)
 	 *	@return String with unused ID
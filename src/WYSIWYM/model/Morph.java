@@ -1,5 +1,8 @@
 package WYSIWYM.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import WYSIWYM.libraries.LinguisticTerms;
 
 /***
@@ -18,6 +21,9 @@ public class Morph
 	private int person = LinguisticTerms.THIRD;
 	private String tense = LinguisticTerms.PRESENT;
 	private String particle = null;
+	
+	private List<DTNode> owners = null;	//nodes whose structural hash depends on this Morph
+	private static final int STANDARD_HASH = new Morph().getHash();
 
 	/**	Default constructor, with default values for all morphology properties
 	 */
@@ -125,7 +131,7 @@ public class Morph
      */
     public Morph(Morph old)
     {
-    	copy(old);
+    	merge(old);
     }
     
     /** Checks whether the morphology settings are all the default settings
@@ -166,11 +172,69 @@ public class Morph
     	return tense.equals(m.getTense());
     }
     
+    /** Returns a hash code of the settings compared by equals(Morph), so two Morphs
+     *	that are equal have the same hash code.
+     *	@return int
+     */
+    public int getHash()
+    {
+    	int hash = (passive ? 1 : 0) | (genitive ? 2 : 0) | (negated ? 4 : 0) | (rank ? 8 : 0);
+    	hash = hash * 31 + person;
+    	return hash * 31 + ((tense == null) ? 0 : tense.hashCode());
+    }
+    
+    /** Returns the hash code of the given Morph, or for null that of the default
+     *	settings, since Aggregator treats a missing Morph as a standard one.
+     *	@param m Morph, may be null
+     *	@return int
+     */
+    public static int getHash(Morph m)
+    {
+    	if (m == null)
+    		return STANDARD_HASH;
+    	return m.getHash();
+    }
+    
+    /** Registers a node that uses this Morph, so that its structural hash is cleared
+     *	when a setting compared by equals(Morph) changes. A Morph may be shared by
+     *	several nodes of the same tree.
+     *	@param n DTNode
+     */
+    void addOwner(DTNode n)
+    {
+    	if (owners == null)
+    		owners = new ArrayList<DTNode>(1);
+    	else if (owners.contains(n))
+    		return;
+    	owners.add(n);
+    }
+    
+    /** Removes a node that no longer uses this Morph
+     *	@param n DTNode
+     */
+    void removeOwner(DTNode n)
+    {
+    	if (owners != null)
+    		owners.remove(n);
+    }
+    
+    /** Clears the structural hash of the nodes using this Morph
+     */
+    private void changed()
+    {
+    	if (owners == null)
+    		return;
+    	for (int i = 0; i < owners.size(); i++)
+    		owners.get(i).invalidateHash();
+    }
+    
     /**	Sets the negated setting (only for verbs)
      *	@param n true if the verb should be negated
      */
     public void setNegated(boolean n)
     {
+    	if (negated != n)
+    		changed();
     	negated = n;
     }
     
@@ -205,6 +269,16 @@ public class Morph
      */
     public void copy(Morph m)
     {
+    	if (merge(m))
+    		changed();
+    }
+    
+    /**	Copies the settings of the given Morph; returns true if a setting compared
+     *	by equals(Morph) changed.
+     */
+    private boolean merge(Morph m)
+    {
+    	boolean changed = (m.isPassive() && !passive) || (m.isGenitive() && !genitive) || (m.isNegated() && !negated);
     	if (!m.isSingular())
     		singular = false;
     	if (m.isPassive())
@@ -214,11 +288,18 @@ public class Morph
     	if (m.isQuote())
     		quote = true;
     	if (!tense.equals(m.getTense()))
+    	{
     		tense = m.getTense();
+    		changed = true;
+    	}
     	if (person != m.getPerson())
+    	{
     		person = m.getPerson();
+    		changed = true;
+    	}
     	if (m.isNegated())
     		negated = true;
+    	return changed;
     }
     
     /**	Returns whether this should be passive (only for verbs)
@@ -258,6 +339,8 @@ public class Morph
      */
    	public void setGenitive(boolean g)
    	{
+   		if (genitive != g)
+   			changed();
    		genitive = g;
    	}
    	
@@ -282,6 +365,8 @@ public class Morph
    	 */
    	public void setPassive(boolean p)
    	{
+   		if (passive != p)
+   			changed();
    		passive = p;
    	}
    	
@@ -298,6 +383,8 @@ public class Morph
    	 */
    	public void setTense(String s)
    	{
+   		if (!tense.equals(s))
+   			changed();
    		tense = s;
    	}
    	
@@ -19,6 +19,7 @@ public abstract class Node implements TreeComponent
 	private HashMap<String, Edge> incoming, outgoing;
 	private Anchor anchor;
 	private boolean flash = false;
+	private long changed = Graph.nextChange();	//change stamp
 	
 	/**	Constructs a Node with the given label
 	 *	@param lbl Label
@@ -36,6 +37,8 @@ public abstract class Node implements TreeComponent
 	 */
 	public void setFlash(boolean f)
 	{
+		if (flash != f)
+			markChanged();
 		flash = f;
 	} 
 	
@@ -71,6 +74,7 @@ public abstract class Node implements TreeComponent
 				incoming.put(edge.getLabel(), edge);
 		else
 			incoming.put(edge.getID(), edge);
+		markChanged();
 	}
 	
 	/**	Removes (and returns) edge from incoming edges
@@ -83,6 +87,7 @@ public abstract class Node implements TreeComponent
 		if (!hasIncomingEdge(edge))
 			return null;
 		
+		markChanged();
 		if (edge.getID() == null)
 			return (Edge) incoming.remove(edge.getLabel());
 		return (Edge) incoming.remove(edge.getID());
@@ -92,6 +97,7 @@ public abstract class Node implements TreeComponent
 	 */	
 	public void removeIncomingEdges()
 	{
+		markChanged();
 		incoming.clear();
 	}
 	
@@ -109,6 +115,7 @@ public abstract class Node implements TreeComponent
 				outgoing.put(edge.getLabel(), edge);
 		else
 			outgoing.put(edge.getID(), edge);
+		markChanged();
 	}
 	
 	/**	Removes (and returns) edge from outgoing edges
@@ -120,6 +127,7 @@ public abstract class Node implements TreeComponent
 		if (!hasOutgoingEdge(edge))
 			return null;
 		
+		markChanged();
 		if (edge.getID() == null)
 			return (Edge) outgoing.remove(edge.getLabel());
 		return (Edge) outgoing.remove(edge.getID());
@@ -133,6 +141,7 @@ public abstract class Node implements TreeComponent
 	{
 		if (!outgoing.containsKey(id))
 			return null;
+		markChanged();
 		return (Edge) outgoing.remove(id);
 	}
 	
@@ -220,6 +229,7 @@ public abstract class Node implements TreeComponent
 	public void setID(String str)
 	{
 		id = str;
+		markChanged();
 	}
 	
 	/**	Sets the label
@@ -228,6 +238,7 @@ public abstract class Node implements TreeComponent
 	public void setLabel(String str)
 	{
 		label = str;
+		markChanged();
 	}
 	
 	/**	Returns an iterator with all parent nodes
@@ -480,6 +491,24 @@ public abstract class Node implements TreeComponent
 		return id;
 	}
 	
+	/**	Renews the change stamp of this node; subclasses call this whenever
+	 *	they change something that shows in the text
+	 */
+	protected void markChanged()
+	{
+		changed = Graph.nextChange();
+	}
+	
+	/**	Returns the change stamp: the moment this node was created, or last changed
+	 *	(including the addition or removal of an edge)
+	 *	@see Graph#getLastChange()
+	 *	@return long
+	 */
+	public long getLastChange()
+	{
+		return changed;
+	}
+	
 	/**	Overload (@see Node#isEdge()); returns that this is a node, not an edge
 	 *	@see TreeComponent#isEdge()
 	 *	@return false
@@ -506,11 +535,14 @@ public abstract class Node implements TreeComponent
 		return true;
 	}
 	
-	/**	Sets the anchor
+	/**	Sets the anchor. Replacing the anchor by another one (which keeps the anchor
+	 *	id) does not count as a change.
 	 *	@param a Anchor
 	 */
 	public void setAnchor(Anchor a)
 	{
+		if ((anchor == null) != (a == null))
+			markChanged();
 		anchor = a;
 	}
 	
@@ -518,6 +550,8 @@ public abstract class Node implements TreeComponent
 	 */
 	public void removeAnchor()
 	{
+		if (anchor != null)
+			markChanged();
 		anchor = null;
 	}
 	
@@ -531,6 +565,7 @@ public abstract class Node implements TreeComponent
 
 	public void setNameSpace(String nameSpace) {
 		this.nameSpace = nameSpace;
+		markChanged();
 	}
 
 	public String getNameSpace() {
@@ -65,6 +65,7 @@ public class SGBooleanNode extends SGNode implements DatatypeNode
 	{
 		old = value;
 		value = new Boolean(b);
+		markChanged();
 	}
 	
 	/**	Returns the natural language representation of the boolean value
@@ -93,6 +94,7 @@ public class SGBooleanNode extends SGNode implements DatatypeNode
 	public void setValue(Object o) throws IOException
 	{
 		old = value;
+		markChanged();
 		if (o instanceof Boolean)
 			value = (Boolean) o;
 		else
@@ -109,6 +111,7 @@ public class SGBooleanNode extends SGNode implements DatatypeNode
 			return false;
 		value = old;
 		old = null;
+		markChanged();
 		return true;
 	}
 	
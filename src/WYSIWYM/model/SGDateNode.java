@@ -88,6 +88,7 @@ public class SGDateNode extends SGNode
 		finalLabel = false;
 		nlLabel = null;
 		dates = new Integer[8];	//reset dates
+		markChanged();
 		return true;
 	}
 	
@@ -98,6 +99,7 @@ public class SGDateNode extends SGNode
 	 */
 	public void setDate(String[] input) throws BadDateException
 	{
+		markChanged();
 		for (int i = 0; i < 8; i++)
 		{
 			try
@@ -366,6 +368,7 @@ public class SGDateNode extends SGNode
 	 */
 	public void setValue(String property, Integer i)
 	{
+		markChanged();
 		if (property.equals(OntologyReader.DAY) || property.equals(OntologyReader.BEGINDAY))
 			dates[0] = i;
 		else if (property.equals(OntologyReader.MONTH) || property.equals(OntologyReader.BEGINMONTH))
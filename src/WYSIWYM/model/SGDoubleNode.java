@@ -75,6 +75,7 @@ public class SGDoubleNode extends SGNode implements DatatypeNode
 	public void setLabel(double f)
 	{
 		value = f;
+		markChanged();
 	}
 	
 	/** Sets the natural language version of the label
@@ -101,6 +102,7 @@ public class SGDoubleNode extends SGNode implements DatatypeNode
 	public void setValue(Object o) throws IOException
 	{
 		old = value;
+		markChanged();
 		if (o instanceof Double)
 			value = (Double) o;
 		else
@@ -118,6 +120,7 @@ public class SGDoubleNode extends SGNode implements DatatypeNode
 			return false;
 		value = old;
 		old = null;
+		markChanged();
 		return true;
 	}
 	
@@ -101,6 +101,8 @@ public class SGEdge extends Edge implements Comparable
 	 */	
 	public void setListShown(int i)
 	{
+		if (showInList != i)
+			markChanged();
 		showInList = i;
 	}
 	
@@ -122,6 +124,8 @@ public class SGEdge extends Edge implements Comparable
 	 */	
 	public void setRealise(int r)
 	{
+		if (mustRealise != r)
+			markChanged();
 		mustRealise = r;
 		if (r > SGNode.NEW)	//if the node is from the database,
 			setRemovable(false);	//it should not be possible to remove it
@@ -143,6 +147,8 @@ public class SGEdge extends Edge implements Comparable
 	 */
 	public void setFlash(boolean f)
 	{
+		if (flash != f)
+			markChanged();
 		flash = f;
 	}
 	
@@ -175,6 +181,8 @@ public class SGEdge extends Edge implements Comparable
 	 */
 	public void setSequenceNr(int i)
 	{
+		if (sequenceNr != i)
+			markChanged();
 		sequenceNr = i;
 	}
 	
@@ -191,6 +199,8 @@ public class SGEdge extends Edge implements Comparable
 	 */
 	public void setRealiseNr(int i)
 	{
+		if (realiseNr != i)
+			markChanged();
 		realiseNr = i;
 	}
 	
@@ -235,6 +245,8 @@ public class SGEdge extends Edge implements Comparable
 	 */
 	public void setRemovable(boolean r)
 	{
+		if (removable != r)
+			markChanged();
 		removable = r;
 	}
 	
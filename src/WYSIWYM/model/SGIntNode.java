@@ -71,6 +71,7 @@ public class SGIntNode extends SGNode implements DatatypeNode
 	public void setLabel(int f)
 	{
 		value = new Integer(f);
+		markChanged();
 	}
 	
 	/**	Returns the nl-representation of the value
@@ -99,6 +100,7 @@ public class SGIntNode extends SGNode implements DatatypeNode
 	public void setValue(Object val) throws IOException
 	{
 		old = value;
+		markChanged();
 		if (val instanceof Integer)
 			value = (Integer) val;
 		else
@@ -116,6 +118,7 @@ public class SGIntNode extends SGNode implements DatatypeNode
 			return false;
 		value = old;
 		old = null;
+		markChanged();
 		return true;
 	}
 	
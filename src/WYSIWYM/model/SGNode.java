@@ -142,6 +142,8 @@ public class SGNode extends Node implements Comparable
 	 */
 	public void setRealise(int r)
 	{
+		if (mustRealise != r)
+			markChanged();
 		mustRealise = r;
 		if (r > NEW)	//if the node is from the database,
 			setRemovable(false);	//it should not be possible to remove it
@@ -169,6 +171,8 @@ public class SGNode extends Node implements Comparable
 	 */	
 	public void setSGID(String id)
 	{
+		if ((sgID == null) || !sgID.equals(id))
+			markChanged();
 		sgID = id;
 	}
 	
@@ -190,6 +194,8 @@ public class SGNode extends Node implements Comparable
 	 */
 	public void setSequenceNr(int seq)
 	{
+		if (sequenceNr != seq)
+			markChanged();
 		sequenceNr = seq;
 	}
 	
@@ -391,7 +397,12 @@ public class SGNode extends Node implements Comparable
 	public void setNLLabel(String label)
 	{
 		if (!finalLabel)
-			nlLabel = normalise(label);
+		{
+			String nl = normalise(label);
+			if (!nl.equals(nlLabel))
+				markChanged();
+			nlLabel = nl;
+		}
 	}
 	
 	/**	Sets the Natural language representation of this node to the given label
@@ -416,6 +427,7 @@ public class SGNode extends Node implements Comparable
 	 */
 	public void setFinalNLLabel(String label)
 	{
+		markChanged();
 		finalLabel = true;
 		nlLabel = label;
 	}
@@ -764,6 +776,8 @@ public class SGNode extends Node implements Comparable
 	 */
 	public void setQuote(boolean q)
 	{
+		if (quote != q)
+			markChanged();
 		quote = q;
 	}
 	
@@ -801,6 +815,8 @@ public class SGNode extends Node implements Comparable
 	 */
 	public void setRemovable(boolean r)
 	{
+		if (removable != r)
+			markChanged();
 		removable = r;
 	}
 	
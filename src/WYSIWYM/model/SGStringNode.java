@@ -62,7 +62,8 @@ public class SGStringNode extends SGNode implements DatatypeNode
 	public void setLabel(String s)
 	{
 		old = value;
-		value = s;		
+		value = s;
+		markChanged();		
 	}
 	
 	/**	Returns the value, or "something" if the value is null
@@ -91,6 +92,7 @@ public class SGStringNode extends SGNode implements DatatypeNode
 	public void setValue(Object val) throws IOException
 	{
 		old = value;		//remember the old value, so we can undo the change
+		markChanged();
 		if (val instanceof String)
 		{
 			value = (String) val;
@@ -110,6 +112,7 @@ public class SGStringNode extends SGNode implements DatatypeNode
 			return false;	
 		value = old;
 		old = null;
+		markChanged();
 		return true;
 	}
 	
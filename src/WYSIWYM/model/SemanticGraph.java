@@ -1,7 +1,9 @@
 package WYSIWYM.model;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 /**	SemanticGraph holds the metadata structure/query the user is building.
  *	It has a map of nodes and edges in the graph, with id as key.
@@ -244,4 +246,40 @@ public class SemanticGraph extends Graph
 		for (Iterator it = getNodes(); it.hasNext(); )
 			((SGNode)it.next()).setFlash(false);
 	}
+	
+	/**	Returns the ids of all nodes that have changed since the given change stamp 
+	 *	(see Graph.getLastChange()): nodes that are new or have been changed themselves,
+	 *	the source and target of every edge that is new or has been changed,
+	 *	and the owners of datatype values (such as a name) that have been changed.
+	 *	Nodes that have lost an edge count as changed as well.
+	 *	@param since Change stamp
+	 *	@return Set<String> with node ids
+	 */
+	public Set<String> getChangedNodes(long since)
+	{
+		Set<String> result = new HashSet<String>();
+		for (Iterator it = getNodes(); it.hasNext(); )
+		{
+			SGNode node = (SGNode) it.next();
+			if (node.getLastChange() <= since)
+				continue;
+			result.add(node.getID());
+			if ((node instanceof DatatypeNode) || (node instanceof SGDateNode))
+			{	//the value may be part of the way its owner is described
+				for (Iterator it2 = node.getParents(); it2.hasNext(); )
+					result.add(((Node) it2.next()).getID());
+			}
+		}
+		for (Iterator it = getEdges(); it.hasNext(); )
+		{
+			SGEdge edge = (SGEdge) it.next();
+			if (edge.getLastChange() <= since)
+				continue;
+			if (edge.getSource() != null)
+				result.add(edge.getSource().getID());
+			if (edge.getTarget() != null)
+				result.add(edge.getTarget().getID());
+		}
+		return result;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,392 @@
+package WYSIWYM.ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hp.hpl.jena.ontology.IntersectionClass;
+import com.hp.hpl.jena.ontology.OntClass;
+
+/**	ClassHierarchyIndex is an immutable, precomputed view of the class hierarchy of
+ *	an ontology. Every named class gets a dense integer id, and for every class the
+ *	index stores its superclasses (in the order in which OntologyReader has always
+ *	returned them) and bitsets of its ancestors and descendants, so that subsumption
+ *	checks do not need to consult Jena's inference graph.
+ *
+ *	As the index is never changed after construction, one instance can be shared by
+ *	all sessions.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class ClassHierarchyIndex
+{
+	private final OntClass[] classes;
+	private final Map<OntClass,Integer> ids;
+	private final Map<String,Integer> uris;
+	private final int[][] superClasses;		//for each class, itself and its named superclasses, in order
+	private final BitSet[] ancestors;		//includes the class itself
+	private final BitSet[] descendants;		//excludes the class itself
+	private final int[] topologicalOrder;	//superclasses come before their subclasses
+
+	/**	Builds the index by walking the superclasses and equivalent classes of each class once.
+	 *	The named classes get the first ids, in order; named superclasses that are not in 
+	 *	the list (such as owl:Thing) are added after them.
+	 *	@param named All named classes in the ontology
+	 *	@return ClassHierarchyIndex
+	 */
+	public static ClassHierarchyIndex build(List<OntClass> named)
+	{
+		List<OntClass> all = new ArrayList<OntClass>(named);
+		Map<OntClass,Integer> ids = new HashMap<OntClass,Integer>();
+		for (int i = 0; i < all.size(); i++)
+			ids.put(all.get(i), i);
+
+		Map<OntClass,List<OntClass>> neighbours = new HashMap<OntClass,List<OntClass>>();
+		List<int[]> result = new ArrayList<int[]>();
+		for (int i = 0; i < all.size(); i++)
+		{	//all grows while superclasses are found that were not in the list
+			List<OntClass> list = new ArrayList<OntClass>();
+			collect(all.get(i), list, new HashSet<OntClass>(), neighbours);
+			List<Integer> supers = new ArrayList<Integer>();
+			for (OntClass c : list)
+			{
+				if (c.getURI() == null)
+					continue;	//anonymous class, e.g. a restriction
+				Integer id = ids.get(c);
+				if (id == null)
+				{
+					id = all.size();
+					ids.put(c, id);
+					all.add(c);
+				}
+				supers.add(id);
+			}
+			int[] array = new int[supers.size()];
+			for (int j = 0; j < supers.size(); j++)
+				array[j] = supers.get(j);
+			result.add(array);
+		}
+		return new ClassHierarchyIndex(all, result.toArray(new int[result.size()][]));
+	}
+
+	/**	Builds the index from previously computed superclass lists (e.g. from an OntologySnapshot).
+	 *	@param all All classes in the index
+	 *	@param superClasses For each class, the ids of itself and its superclasses
+	 */
+	public ClassHierarchyIndex(List<OntClass> all, int[][] superClasses)
+	{
+		int size = all.size();
+		classes = all.toArray(new OntClass[size]);
+		ids = new HashMap<OntClass,Integer>(size * 2);
+		uris = new HashMap<String,Integer>(size * 2);
+		for (int i = 0; i < size; i++)
+		{
+			ids.put(classes[i], i);
+			uris.put(classes[i].getURI(), i);
+		}
+
+		this.superClasses = superClasses;
+		ancestors = new BitSet[size];
+		descendants = new BitSet[size];
+		for (int i = 0; i < size; i++)
+		{
+			ancestors[i] = new BitSet(size);
+			descendants[i] = new BitSet(size);
+		}
+		for (int i = 0; i < size; i++)
+		{
+			for (int a : superClasses[i])
+			{
+				ancestors[i].set(a);
+				if (a != i)
+					descendants[a].set(i);
+			}
+		}
+
+		//a subclass always has more ancestors than its superclasses, unless they are equivalent
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				int diff = ancestors[a].cardinality() - ancestors[b].cardinality();
+				return (diff != 0) ? diff : a - b;
+			}
+		});
+		topologicalOrder = new int[size];
+		for (int i = 0; i < size; i++)
+			topologicalOrder[i] = order[i];
+	}
+
+	/**	Returns c and all its named superclasses, including those of its equivalent classes 
+	 *	and the operands of intersection classes. Each class is visited only once, so cyclic
+	 *	definitions (e.g. two equivalent classes) cannot cause an infinite recursion.
+	 *	Used for classes that are not in the index.
+	 *	@param c OntClass
+	 *	@return List<OntClass>, starting with c
+	 */
+	public static List<OntClass> collectSuperClasses(OntClass c)
+	{
+		List<OntClass> list = new ArrayList<OntClass>();
+		collect(c, list, new HashSet<OntClass>(), new HashMap<OntClass,List<OntClass>>());
+		List<OntClass> result = new ArrayList<OntClass>();
+		result.add(c);
+		for (int i = 1; i < list.size(); i++)
+			if (list.get(i).getURI() != null)
+				result.add(list.get(i));
+		return result;
+	}
+
+	/**	Adds c and its superclasses to result, asking Jena for the neighbours 
+	 *	of each class only once.
+	 */
+	private static void collect(OntClass c, List<OntClass> result, Set<OntClass> visited, Map<OntClass,List<OntClass>> neighbours)
+	{
+		if (!visited.add(c))
+			return;
+		result.add(c);
+		List<OntClass> next = neighbours.get(c);
+		if (next == null)
+		{
+			next = new ArrayList<OntClass>();
+			addOperands(c.listSuperClasses(false), next);
+			addOperands(c.listEquivalentClasses(), next);
+			neighbours.put(c, next);
+		}
+		for (OntClass sc : next)
+			collect(sc, result, visited, neighbours);
+	}
+
+	private static void addOperands(Iterator it, List<OntClass> result)
+	{
+		while (it.hasNext())
+		{
+			OntClass sc = (OntClass) it.next();
+			if (sc.isIntersectionClass())	//stupid owl/jena construct
+			{
+				IntersectionClass ic = sc.asIntersectionClass();
+				for (Iterator ops = ic.listOperands(); ops.hasNext(); )
+					result.add((OntClass) ops.next());
+			}
+			else
+				result.add(sc);
+		}
+	}
+
+	/**	Returns the number of classes in the index
+	 *	@return int
+	 */
+	public int size()
+	{
+		return classes.length;
+	}
+
+	/**	Returns the id of the given class, or -1 if it is not a named class in the index
+	 *	@param c OntClass
+	 *	@return int id
+	 */
+	public int getID(OntClass c)
+	{
+		Integer id = (c == null) ? null : ids.get(c);
+		return (id == null) ? -1 : id.intValue();
+	}
+
+	/**	Returns the id of the class with the given URI, or -1 if it is not in the index
+	 *	@param uri Class URI
+	 *	@return int id
+	 */
+	public int getID(String uri)
+	{
+		Integer id = uris.get(uri);
+		return (id == null) ? -1 : id.intValue();
+	}
+
+	/**	Returns the class with the given id
+	 *	@param id int
+	 *	@return OntClass
+	 */
+	public OntClass getClass(int id)
+	{
+		return classes[id];
+	}
+
+	/**	Checks whether the given class is in the index
+	 *	@param c OntClass
+	 *	@return true if it is a named class in the index
+	 */
+	public boolean contains(OntClass c)
+	{
+		return getID(c) >= 0;
+	}
+
+	/**	Checks whether sub is (a subclass of) sup.
+	 *	@param sub OntClass
+	 *	@param sup OntClass
+	 *	@return true if sup is sub or one of its superclasses
+	 */
+	public boolean isSubClassOf(OntClass sub, OntClass sup)
+	{
+		int i = getID(sub), j = getID(sup);
+		return (i >= 0) && (j >= 0) && ancestors[i].get(j);
+	}
+
+	/**	Returns a list with c and its superclasses
+	 *	@param c OntClass in the index
+	 *	@return List<OntClass>
+	 */
+	public List<OntClass> getSuperClasses(OntClass c)
+	{
+		int[] supers = superClasses[getID(c)];
+		List<OntClass> result = new ArrayList<OntClass>(supers.length);
+		for (int i = 0; i < supers.length; i++)
+			result.add(classes[supers[i]]);
+		return result;
+	}
+
+	/**	Returns the subclasses of c (not including c itself), superclasses first
+	 *	@param c OntClass in the index
+	 *	@return List<OntClass>
+	 */
+	public List<OntClass> getSubClasses(OntClass c)
+	{
+		BitSet sub = descendants[getID(c)];
+		List<OntClass> result = new ArrayList<OntClass>(sub.cardinality());
+		for (int i = 0; i < topologicalOrder.length; i++)
+			if (sub.get(topologicalOrder[i]))
+				result.add(classes[topologicalOrder[i]]);
+		return result;
+	}
+
+	/**	Returns the direct subclasses of c: the subclasses that are not also a subclass of
+	 *	another subclass of c. Classes that are equivalent to c are not included.
+	 *	@param c OntClass in the index
+	 *	@return List<OntClass>, superclasses first
+	 */
+	public List<OntClass> getDirectSubClasses(OntClass c)
+	{
+		int id = getID(c);
+		BitSet sub = (BitSet) descendants[id].clone();
+		sub.andNot(ancestors[id]);
+		BitSet indirect = new BitSet(classes.length);
+		for (int i = sub.nextSetBit(0); i >= 0; i = sub.nextSetBit(i + 1))
+		{	//the classes below i, except those equivalent to it
+			BitSet below = (BitSet) descendants[i].clone();
+			below.andNot(ancestors[i]);
+			indirect.or(below);
+		}
+		sub.andNot(indirect);
+		
+		List<OntClass> result = new ArrayList<OntClass>(sub.cardinality());
+		for (int i = 0; i < topologicalOrder.length; i++)
+			if (sub.get(topologicalOrder[i]))
+				result.add(classes[topologicalOrder[i]]);
+		return result;
+	}
+
+	/**	Returns the ids of the class and its superclasses, in the order of getSuperClasses(OntClass).
+	 *	@param id Class id
+	 *	@return int[] (a copy)
+	 */
+	public int[] getSuperClassIDs(int id)
+	{
+		return superClasses[id].clone();
+	}
+
+	/**	Returns the ids of the class and all its ancestors
+	 *	@param id Class id
+	 *	@return BitSet (a copy)
+	 */
+	public BitSet getAncestors(int id)
+	{
+		return (BitSet) ancestors[id].clone();
+	}
+
+	/**	Returns the ids of all descendants of the class (not including itself)
+	 *	@param id Class id
+	 *	@return BitSet (a copy)
+	 */
+	public BitSet getDescendants(int id)
+	{
+		return (BitSet) descendants[id].clone();
+	}
+
+	/**	Adds the ids of the class and all its descendants to the given bitset
+	 *	@param id Class id
+	 *	@param bits BitSet to add to
+	 */
+	public void addInheritors(int id, BitSet bits)
+	{
+		bits.set(id);
+		bits.or(descendants[id]);
+	}
+
+	/**	Returns the class ids in topological order: every class comes after its superclasses
+	 *	@return int[] (a copy)
+	 */
+	public int[] getTopologicalOrder()
+	{
+		return topologicalOrder.clone();
+	}
+
+	/**	Returns the class that is lowest in the hierarchy: each class in the list
+	 *	replaces the current choice if it is one of its subclasses.
+	 *	@param list List<OntClass>, which should all be in the index
+	 *	@return OntClass, or null if the list is empty
+	 */
+	public OntClass getMostSpecificClass(List<OntClass> list)
+	{
+		if (list.size() == 0)
+			return null;
+		OntClass result = list.get(0);
+		int r = getID(result);
+		for (int i = 1; i < list.size(); i++)
+		{
+			int c = getID(list.get(i));
+			if ((r >= 0) && (c >= 0) && descendants[r].get(c))
+			{
+				result = list.get(i);
+				r = c;
+			}
+		}
+		return result;
+	}
+
+	/**	Returns the first superclass of the first class in the list (or the class itself)
+	 *	that is, or is a superclass of, all other classes; or null if there is none, or if
+	 *	one of the classes is not in the index.
+	 *	@param list List<OntClass>
+	 *	@return OntClass
+	 */
+	public OntClass getMostGeneralClass(List<OntClass> list)
+	{
+		int first = getID(list.get(0));
+		if (first < 0)
+			return null;
+		BitSet others = new BitSet(classes.length);
+		for (int i = 1; i < list.size(); i++)
+		{
+			int id = getID(list.get(i));
+			if (id < 0)
+				return null;
+			others.set(id);
+		}
+		for (int s : superClasses[first])
+		{
+			BitSet missing = (BitSet) others.clone();
+			missing.andNot(descendants[s]);
+			missing.clear(s);
+			if (missing.isEmpty())
+				return classes[s];
+		}
+		return null;
+	}
+}
@@ -5,8 +5,6 @@ import java.io.InputStream;
 import WYSIWYM.util.OntologyInputException;
 
 import com.hp.hpl.jena.ontology.OntModel;
-import com.hp.hpl.jena.ontology.OntModelSpec;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
 
 
 /**	This class extends the default ontology reader simply to read a different ontology,
@@ -39,8 +37,8 @@ public class GeographyOntologyReader extends OntologyReader
 		try
 		{		
 			String path = "data/";
-			in = getClass().getClassLoader().getResourceAsStream(path + "geography.xml");
-			ontology = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF);
+			in = readSource(getClass().getClassLoader().getResourceAsStream(path + "geography.xml"), baseURI);
+			ontology = ReasoningProfile.createModel();
 			ontology = (OntModel) ontology.read(in, baseURI);
 			in.close();
 			System.out.println("Read geography ontology");
@@ -0,0 +1,150 @@
+package WYSIWYM.ontology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.ontology.OntResource;
+import com.hp.hpl.jena.rdf.model.Literal;
+
+/**	LiberAnnotation holds the comments of an ontology resource, and the LIBER
+ *	information they contain: the nl-expressions (LIBERphrase=...), the submenus
+ *	per class (LIBERmenu=Class=Submenu) and whether the resource stores proper
+ *	names (LIBERpropername). The comments are read from the ontology and parsed
+ *	only once; OntologyReader keeps an annotation for every resource it is asked
+ *	about, until the comments of that resource are edited.
+ *
+ *	An annotation is never changed after construction.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class LiberAnnotation
+{
+	private final List<String> comments;
+	private final List<String> phrases;
+	private final Map<String,String> submenus;
+	private final boolean properName;
+
+	/**	Constructor, parses the given comments
+	 *	@param comments Comments on a resource, in the order in which the ontology lists them
+	 */
+	public LiberAnnotation(List<String> comments)
+	{
+		this.comments = Collections.unmodifiableList(new ArrayList<String>(comments));
+		List<String> phraseList = new ArrayList<String>();
+		Map<String,String> menus = new HashMap<String,String>();
+		boolean name = false;
+		for (String comment : comments)
+		{
+			int idx = comment.indexOf(OntologyReader.MENU);
+			if (idx >= 0)
+			{
+				String rest = comment.substring(idx + OntologyReader.MENU.length());
+				int end = rest.indexOf("=");
+				if (end >= 0)
+					menus.put(rest.substring(0, end), rest.substring(end + 1));
+			}
+			idx = comment.indexOf(OntologyReader.PHRASE);
+			if (idx >= 0)
+				phraseList.add(comment.substring(idx + OntologyReader.PHRASE.length()));
+			if (comment.indexOf(OntologyReader.PROPERNAME) >= 0)
+				name = true;
+		}
+		phrases = Collections.unmodifiableList(phraseList);
+		submenus = Collections.unmodifiableMap(menus);
+		properName = name;
+	}
+
+	/**	Reads and parses the comments of the given resource
+	 *	@param r OntResource
+	 *	@return LiberAnnotation
+	 */
+	public static LiberAnnotation parse(OntResource r)
+	{
+		List<String> comments = new ArrayList<String>();
+		for (Iterator it = r.listComments(null); it.hasNext(); )
+		{
+			try
+			{
+				comments.add(((Literal) it.next()).getString());
+			}
+			catch (Exception e)
+			{}	//not a literal
+		}
+		return new LiberAnnotation(comments);
+	}
+
+	/**	Returns all comments on the resource
+	 *	@return List<String> (read-only)
+	 */
+	public List<String> getComments()
+	{
+		return comments;
+	}
+
+	/**	Checks whether the resource has a comment that includes the given string
+	 *	@param type String comment type
+	 *	@return true if there is such a comment
+	 */
+	public boolean hasComment(String type)
+	{
+		for (String comment : comments)
+		{
+			if (comment.indexOf(type) >= 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**	Checks whether the resource has a submenu comment that mentions the given class
+	 *	@param className Class name
+	 *	@return true if there is such a comment
+	 */
+	public boolean inMenu(String className)
+	{
+		for (String comment : comments)
+		{
+			if ((comment.indexOf(OntologyReader.MENU) >= 0) && (comment.indexOf(className) >= 0))
+				return true;
+		}
+		return false;
+	}
+
+	/**	Returns the nl-expressions defined in the comments, in order
+	 *	@return List<String> (read-only)
+	 */
+	public List<String> getPhrases()
+	{
+		return phrases;
+	}
+
+	/**	Returns the nl-expression defined in the last phrase comment, or null if there is none
+	 *	@return String
+	 */
+	public String getPhrase()
+	{
+		if (phrases.size() == 0)
+			return null;
+		return phrases.get(phrases.size() - 1);
+	}
+
+	/**	Returns a map with class names and the submenus defined for them.
+	 *	If a class has several submenu comments, the last one is used.
+	 *	@return Map<String,String> (read-only)
+	 */
+	public Map<String,String> getSubmenus()
+	{
+		return submenus;
+	}
+
+	/**	Checks whether the resource is marked as storing proper names
+	 *	@return true if it has a proper name comment
+	 */
+	public boolean isProperName()
+	{
+		return properName;
+	}
+}
@@ -0,0 +1,158 @@
+package WYSIWYM.ontology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.ontology.OntClass;
+import com.hp.hpl.jena.ontology.OntProperty;
+
+/**	OntologyIndex holds the maps that OntologyReader derives from its ontology:
+ *	the property and class maps, the class hierarchy, domains, ranges, cardinalities,
+ *	submenus, nl-expressions and proper name properties.
+ *
+ *	An index is never changed after construction; all maps and lists it returns
+ *	are unmodifiable. It can therefore be shared by all readers (i.e. all sessions)
+ *	of the same ontology without copying, and read by several threads at once.
+ *	Session-local changes are kept in an overlay by the reader that makes them
+ *	(see OntologyReader).
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class OntologyIndex
+{
+	private final Map<String,OntProperty> propertyMap;
+	private final Map<String,OntClass> classMap;
+	private final ClassHierarchyIndex hierarchy;
+	private final Map<String,List<OntProperty>> domainMap, rangeMap;
+	private final Map<String,Map<String,Integer[]>> cardinalityMap;
+	private final Map<OntProperty,Map<String,String>> submenuMap;
+	private final Map<String,String> nlExpressions;
+	private final List<OntProperty> properNameProperties;
+
+	/**	Constructs an index from the given maps. The maps are copied, so the caller
+	 *	may go on changing them afterwards.
+	 *	@param properties Map with local names and properties
+	 *	@param classes Map with URIs and named classes
+	 *	@param hierarchy ClassHierarchyIndex
+	 *	@param domains Map with local names of classes and the properties that have them in their domain
+	 *	@param ranges Map with local names of classes and the properties that have them in their range
+	 *	@param cardinalities Map with local names of classes and the cardinality constraints on their properties
+	 *	@param submenus Map with properties and the submenus they appear in
+	 *	@param nl Map with local names and their nl-expressions
+	 *	@param properNames Properties that denote proper names
+	 */
+	public OntologyIndex(Map<String,OntProperty> properties, Map<String,OntClass> classes, ClassHierarchyIndex hierarchy,
+		Map<String,List<OntProperty>> domains, Map<String,List<OntProperty>> ranges,
+		Map<String,Map<String,Integer[]>> cardinalities, Map<OntProperty,Map<String,String>> submenus,
+		Map<String,String> nl, List<OntProperty> properNames)
+	{
+		propertyMap = Collections.unmodifiableMap(new HashMap<String,OntProperty>(properties));
+		classMap = Collections.unmodifiableMap(new HashMap<String,OntClass>(classes));
+		this.hierarchy = hierarchy;
+		domainMap = freezeLists(domains);
+		rangeMap = freezeLists(ranges);
+
+		Map<String,Map<String,Integer[]>> card = new HashMap<String,Map<String,Integer[]>>(cardinalities.size() * 2);
+		for (Map.Entry<String,Map<String,Integer[]>> e : cardinalities.entrySet())
+		{	//the arrays are copied as well, as they cannot be made read-only
+			Map<String,Integer[]> map = new HashMap<String,Integer[]>(e.getValue().size() * 2);
+			for (Map.Entry<String,Integer[]> c : e.getValue().entrySet())
+				map.put(c.getKey(), c.getValue().clone());
+			card.put(e.getKey(), Collections.unmodifiableMap(map));
+		}
+		cardinalityMap = Collections.unmodifiableMap(card);
+
+		Map<OntProperty,Map<String,String>> menus = new HashMap<OntProperty,Map<String,String>>(submenus.size() * 2);
+		for (Map.Entry<OntProperty,Map<String,String>> e : submenus.entrySet())
+			menus.put(e.getKey(), Collections.unmodifiableMap(new HashMap<String,String>(e.getValue())));
+		submenuMap = Collections.unmodifiableMap(menus);
+
+		nlExpressions = Collections.unmodifiableMap(new HashMap<String,String>(nl));
+		properNameProperties = Collections.unmodifiableList(new ArrayList<OntProperty>(properNames));
+	}
+
+	private static Map<String,List<OntProperty>> freezeLists(Map<String,List<OntProperty>> map)
+	{
+		Map<String,List<OntProperty>> result = new HashMap<String,List<OntProperty>>(map.size() * 2);
+		for (Map.Entry<String,List<OntProperty>> e : map.entrySet())
+			result.put(e.getKey(), Collections.unmodifiableList(new ArrayList<OntProperty>(e.getValue())));
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**	Returns the map with local names of properties and the OntProperties with that name
+	 *	@return Map<String,OntProperty>
+	 */
+	public Map<String,OntProperty> getPropertyMap()
+	{
+		return propertyMap;
+	}
+
+	/**	Returns the map with URIs of named classes and their OntClasses
+	 *	@return Map<String,OntClass>
+	 */
+	public Map<String,OntClass> getClassMap()
+	{
+		return classMap;
+	}
+
+	/**	Returns the class hierarchy
+	 *	@return ClassHierarchyIndex
+	 */
+	public ClassHierarchyIndex getClassHierarchyIndex()
+	{
+		return hierarchy;
+	}
+
+	/**	Returns the map with local names of classes and the properties that have them in their domain
+	 *	@return Map<String,List<OntProperty>>
+	 */
+	public Map<String,List<OntProperty>> getDomainMap()
+	{
+		return domainMap;
+	}
+
+	/**	Returns the map with local names of classes and the properties that have them in their range
+	 *	@return Map<String,List<OntProperty>>
+	 */
+	public Map<String,List<OntProperty>> getRangeMap()
+	{
+		return rangeMap;
+	}
+
+	/**	Returns the map with local names of classes and the minimum and maximum
+	 *	cardinalities of their properties. The arrays must not be changed; 
+	 *	OntologyReader only hands out copies of them.
+	 *	@return Map<String,Map<String,Integer[]>>
+	 */
+	public Map<String,Map<String,Integer[]>> getCardinalityMap()
+	{
+		return cardinalityMap;
+	}
+
+	/**	Returns the map with properties and the submenus they should appear in
+	 *	@return Map<OntProperty,Map<String,String>>
+	 */
+	public Map<OntProperty,Map<String,String>> getSubmenuMap()
+	{
+		return submenuMap;
+	}
+
+	/**	Returns the map with local names of classes and properties and their nl-expressions
+	 *	@return Map<String,String>
+	 */
+	public Map<String,String> getNLExpressionMap()
+	{
+		return nlExpressions;
+	}
+
+	/**	Returns the properties that denote proper names
+	 *	@return List<OntProperty>
+	 */
+	public List<OntProperty> getProperNameOntProperties()
+	{
+		return properNameProperties;
+	}
+}
@@ -0,0 +1,232 @@
+package WYSIWYM.ontology;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import WYSIWYM.util.OntologyInputException;
+
+import com.hp.hpl.jena.ontology.OntDocumentManager;
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.ontology.OntModelSpec;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.OWL;
+
+/**	OntologyLoader reads several ontology files into a single OntModel.
+ *	Each file is parsed into its own plain (non-inferencing) model on a pool of
+ *	worker threads; the parsed models are then merged into one base model, in the
+ *	order given by their owl:imports, and only that merged model is wrapped in an
+ *	inferencing OntModel. Reading the files one after another into the OntModel
+ *	itself would update the inference graph after every file.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class OntologyLoader
+{
+	private List<Source> sources = new ArrayList<Source>();
+
+	/**	Adds an ontology to be loaded. The stream is parsed and closed by load().
+	 *	@param in InputStream with the ontology in RDF/XML
+	 *	@param baseURI The ontology's base URI
+	 */
+	public void add(InputStream in, String baseURI)
+	{
+		sources.add(new Source(in, baseURI));
+	}
+
+	/**	Returns the ontologies that were added, with their parse time and number
+	 *	of triples once they have been loaded
+	 *	@return List<Source>
+	 */
+	public List<Source> getSources()
+	{
+		return sources;
+	}
+
+	/**	Parses all ontologies in parallel and merges them into a new OntModel.
+	 *	Imports are not processed; all ontologies should be added explicitly.
+	 *	@param spec OntModelSpec of the model to create
+	 *	@return OntModel
+	 *	@throws OntologyInputException if one of the ontologies could not be read
+	 */
+	public OntModel load(OntModelSpec spec) throws OntologyInputException
+	{
+		int threads = Math.max(1, Math.min(sources.size(), Runtime.getRuntime().availableProcessors()));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try
+		{
+			List<Future<Model>> results = new ArrayList<Future<Model>>();
+			for (Source s : sources)
+				results.add(pool.submit(s));
+			for (int i = 0; i < sources.size(); i++)
+				sources.get(i).model = results.get(i).get();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = (e.getCause() == null) ? e : e.getCause();
+			throw new OntologyInputException(cause.getMessage());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new OntologyInputException(e.getMessage());
+		}
+		finally
+		{
+			pool.shutdownNow();
+			for (Source s : sources)
+				s.close();
+		}
+
+		long start = System.currentTimeMillis();
+		Model base = ModelFactory.createDefaultModel();
+		for (Source s : sortByImports())
+		{
+			base.add(s.model);
+			base.setNsPrefixes(s.model);
+			s.model = null;		//no longer needed, and may be large
+		}
+		OntModel result = ModelFactory.createOntologyModel(withoutImports(spec), base);
+		System.out.println("Merged " + sources.size() + " ontologies (" + base.size() + " triples) in " + (System.currentTimeMillis() - start) + " ms");
+		return result;
+	}
+
+	/**	Returns a copy of the given spec, with its own document manager that does not
+	 *	process imports (left to itself Jena looks for the imports online)
+	 *	@param spec OntModelSpec
+	 *	@return OntModelSpec
+	 */
+	static OntModelSpec withoutImports(OntModelSpec spec)
+	{
+		OntModelSpec result = new OntModelSpec(spec);
+		result.setDocumentManager(new OntDocumentManager());
+		result.getDocumentManager().setProcessImports(false);
+		return result;
+	}
+
+	/**	Orders the parsed ontologies so that every ontology comes after the ones
+	 *	it imports; otherwise the order in which they were added is kept.
+	 *	Imports of ontologies that were not added, and cyclic imports, are ignored.
+	 */
+	private List<Source> sortByImports()
+	{
+		Map<String,Source> byURI = new HashMap<String,Source>();
+		for (Source s : sources)
+			byURI.put(trim(s.baseURI), s);
+
+		Map<Source,List<Source>> imports = new HashMap<Source,List<Source>>();
+		for (Source s : sources)
+		{
+			List<Source> list = new ArrayList<Source>();
+			for (StmtIterator it = s.model.listStatements(null, OWL.imports, (RDFNode) null); it.hasNext(); )
+			{
+				Statement st = it.nextStatement();
+				if (!st.getObject().isURIResource())
+					continue;
+				Source imported = byURI.get(trim(st.getResource().getURI()));
+				if ((imported != null) && (imported != s))
+					list.add(imported);
+			}
+			imports.put(s, list);
+		}
+
+		List<Source> result = new ArrayList<Source>();
+		List<Source> visiting = new ArrayList<Source>();
+		for (Source s : sources)
+			addAfterImports(s, imports, visiting, result);
+		return result;
+	}
+
+	private void addAfterImports(Source s, Map<Source,List<Source>> imports, List<Source> visiting, List<Source> result)
+	{
+		if (result.contains(s) || visiting.contains(s))
+			return;		//already added, or an import cycle
+		visiting.add(s);
+		for (Source imported : imports.get(s))
+			addAfterImports(imported, imports, visiting, result);
+		visiting.remove(s);
+		result.add(s);
+	}
+
+	/**	Strips a trailing '#' or '/' from an ontology URI */
+	private static String trim(String uri)
+	{
+		if (uri.endsWith("#") || uri.endsWith("/"))
+			return uri.substring(0, uri.length() - 1);
+		return uri;
+	}
+
+	/**	An ontology to be loaded, and the statistics of parsing it
+	 */
+	public static class Source implements Callable<Model>
+	{
+		private InputStream in;
+		private String baseURI;
+		private Model model;
+		private long parseTime = -1;
+		private long triples = -1;
+
+		private Source(InputStream in, String baseURI)
+		{
+			this.in = in;
+			this.baseURI = baseURI;
+		}
+
+		/**	Parses the ontology into a plain model */
+		public Model call() throws Exception
+		{
+			long start = System.currentTimeMillis();
+			Model m = ModelFactory.createDefaultModel();
+			m.read(in, baseURI);
+			parseTime = System.currentTimeMillis() - start;
+			triples = m.size();
+			System.out.println("Parsed " + baseURI + ": " + triples + " triples in " + parseTime + " ms");
+			return m;
+		}
+
+		private void close()
+		{
+			try
+			{
+				in.close();
+			}
+			catch (Exception e)
+			{}
+		}
+
+		/**	Returns the ontology's base URI
+		 *	@return String
+		 */
+		public String getBaseURI()
+		{
+			return baseURI;
+		}
+
+		/**	Returns the time it took to parse the ontology, or -1 if it has not been parsed
+		 *	@return long milliseconds
+		 */
+		public long getParseTime()
+		{
+			return parseTime;
+		}
+
+		/**	Returns the number of triples in the ontology, or -1 if it has not been parsed
+		 *	@return long
+		 */
+		public long getTripleCount()
+		{
+			return triples;
+		}
+	}
+}
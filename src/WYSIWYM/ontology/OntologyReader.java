@@ -1,15 +1,24 @@
 package WYSIWYM.ontology;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import liber.edit.client.FormInfo;
 import liber.edit.client.Hierarchy;
@@ -27,12 +36,12 @@ import com.hp.hpl.jena.ontology.MaxCardinalityRestriction;
 import com.hp.hpl.jena.ontology.MinCardinalityRestriction;
 import com.hp.hpl.jena.ontology.OntClass;
 import com.hp.hpl.jena.ontology.OntModel;
-import com.hp.hpl.jena.ontology.OntModelSpec;
 import com.hp.hpl.jena.ontology.OntProperty;
 import com.hp.hpl.jena.ontology.OntResource;
 import com.hp.hpl.jena.ontology.Restriction;
 import com.hp.hpl.jena.ontology.UnionClass;
 import com.hp.hpl.jena.rdf.model.Literal;
+import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.vocabulary.OWL;
@@ -78,7 +87,10 @@ public class OntologyReader
 	public final static String NONE = "-NONE-";
 	
 	//these are objects that speed up the retrieval of information about domain and ranges of properties etc., 
-	//as LIBER needs to do that a lot and it is rather slow
+	//as LIBER needs to do that a lot and it is rather slow.
+	//Once computed they are frozen in an OntologyIndex that is shared by all copies of this reader;
+	//the maps below are then either the shared ones, or an overlay with this reader's own changes
+	private OntologyIndex index;
 	private Map<String,OntProperty> propertyMap = new HashMap<String,OntProperty>();
 	private Map<String,OntClass> classMap = new HashMap<String,OntClass>();
 	private Map<String, List<OntProperty>> domainMap, rangeMap;
@@ -86,8 +98,32 @@ public class OntologyReader
 	private Map<OntProperty,Map<String,String>> submenuMap;
 	private List<OntProperty> properNameProperties = new ArrayList<OntProperty>();
 	private Map<String,String> nlExpressions;
-	// Store list of processed classes to check that we don't process the same class several time (to avoid infinite recursion in getClasses(String))
-	private List<OntClass> processedClasses = new ArrayList<OntClass>();
+	private ClassHierarchyIndex hierarchy;
+	// Hash of the content of all ontology files read so far; identifies the snapshot of the maps above
+	private MessageDigest sources;
+	// Set if the ontology holds content that is not in that hash (it was edited, or not read 
+	// through readSource), so that the maps do not match any snapshot
+	private boolean unhashed = false;
+	// Entailments added to the ontology by the light ReasoningProfile
+	private Model inferred;
+	// Changed whenever the maps change, so that information derived from them can be cached.
+	// Versions are drawn from one counter, so no two states of any readers have the same version
+	private int version;
+	private static final AtomicInteger versions = new AtomicInteger();
+	// Snapshot keys of the sets of ontology files whose reasoning profiles have been compared
+	private static final Set<String> compared = Collections.synchronizedSet(new HashSet<String>());
+	// Parsed LIBER comments of resources; shared by all copies of this reader, as they share the ontology
+	private Map<OntResource,LiberAnnotation> annotations = new ConcurrentHashMap<OntResource,LiberAnnotation>();
+	// For each class name, the submenus of the properties, including those inherited from superclasses
+	private Map<String,Map<OntProperty,String>> inheritedSubmenus = new ConcurrentHashMap<String,Map<OntProperty,String>>();
+	// Type-ahead search indices over the names of classes and properties; rebuilt when nl-expressions change
+	private OntologySearchIndex<OntClass> classSearch;
+	private OntologySearchIndex<OntProperty> propertySearch;
+	// Class hierarchy trees of one version, by root class, and the tree of all classes;
+	// never handed out themselves but copied, as callers change them (e.g. by adding instance numbers)
+	private Map<OntClass,Hierarchy> hierarchyTrees = new ConcurrentHashMap<OntClass,Hierarchy>();
+	private Hierarchy[] classHierarchy;
+	private int hierarchyVersion;
 	
 	/**	Default constructor.
 	 * 	Imports all three PolicyGrid ontologies into one Jena model, and sets the
@@ -110,73 +146,26 @@ public class OntologyReader
 //			String path = "/Users/thomas/Documents/workspace/SpecificationCreation/data/utility/";
 //			String path = "data/";
 			//in = getClass().getClassLoader().getResourceAsStream(path + "Utility.xml");			
-//			in = new FileInputStream(path + "utility.rdf");
-			in = new FileInputStream(path + "Utility.owl");
-//			in = new FileInputStream(path + "ontology.rdf");
-			ontology = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF);
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/utility.owl");	
-			in.close();
-			System.out.println("Read utility ontology");
-
-//			path = "/Users/thomas/Documents/workspace/OurSpaces/trunk/web/ontologies/";
-			ontology.getDocumentManager().setProcessImports(false);	//left to itself Jena looks for the imports online, and currently they are not there!
-		//	in = getClass().getClassLoader().getResourceAsStream(path + "Resource.xml");
-//			in = new FileInputStream(path + "resource.rdf");
-//			in = new FileInputStream(path + "Resource.owl");
-//			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/resource.owl");
-//			in.close();
-//			System.out.println("read resource ontology");	
-			
-		//	in = getClass().getClassLoader().getResourceAsStream(path + "Task.xml");
-//			in = new FileInputStream(path + "task.rdf");
-//			in = new FileInputStream(path + "Task.owl");
-//			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/task.owl");
-//			in.close();
-//			System.out.println("read task ontology");
-			
-			// new ontology file: foaf (used to describe a personne)
-			in = new FileInputStream(path + "foaf.owl");
-			ontology = (OntModel) ontology.read(in, "http://xmlns.com/foaf/0.1/");
-			in.close();
-			System.out.println("read foaf ontology");
-
-			// new ontology file: opm
-			in = new FileInputStream(path + "opm.owl");
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/opm.owl");
-			in.close();
-			System.out.println("read opm ontology");
-
-			// new ontology file: opm-Resource
-//			path = "/Users/thomas/Documents/workspace/SpecificationCreation/data/opm-Resource/";
-			in = new FileInputStream(path + "opm-Resource.owl");
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/opm-resource.owl");
-			in.close();
-			System.out.println("read opm-Resource ontology");
-
-			// new ontology file: OurSpacesVRE
-			in = new FileInputStream(path + "OurSpacesVRE.owl");
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/ourspacesVRE.owl");
-			in.close();
-			System.out.println("read OurSpacesVRE ontology");
-
-			// new ontology file: project
-			in = new FileInputStream(path + "project.owl");
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/project.owl");
-			in.close();
-			System.out.println("read project ontology");
-
-			// new ontology file: sioc
-			in = new FileInputStream(path + "sioc.owl");
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/sioc.owl");
-			in.close();
-			System.out.println("read sioc ontology");
-
-			// new ontology file: geo-properties
-			in = new FileInputStream(path + "geo-properties.owl");
-			ontology = (OntModel) ontology.read(in, "http://www.policygrid.org/geo-properties.owl");
-			in.close();
-			System.out.println("read geo-properties ontology");
-
+			OntologyLoader loader = new OntologyLoader();
+			//the files are parsed in parallel, and merged into one model in the order of their imports
+			in = readSource(new FileInputStream(path + "Utility.owl"), "http://www.policygrid.org/utility.owl");
+			loader.add(in, "http://www.policygrid.org/utility.owl");
+			// new ontology file: foaf (used to describe a personne)
+			loader.add(readSource(new FileInputStream(path + "foaf.owl"), "http://xmlns.com/foaf/0.1/"), "http://xmlns.com/foaf/0.1/");
+			// new ontology file: opm
+			loader.add(readSource(new FileInputStream(path + "opm.owl"), "http://www.policygrid.org/opm.owl"), "http://www.policygrid.org/opm.owl");
+			// new ontology file: opm-Resource
+			loader.add(readSource(new FileInputStream(path + "opm-Resource.owl"), "http://www.policygrid.org/opm-resource.owl"), "http://www.policygrid.org/opm-resource.owl");
+			// new ontology file: OurSpacesVRE
+			loader.add(readSource(new FileInputStream(path + "OurSpacesVRE.owl"), "http://www.policygrid.org/ourspacesVRE.owl"), "http://www.policygrid.org/ourspacesVRE.owl");
+			// new ontology file: project
+			loader.add(readSource(new FileInputStream(path + "project.owl"), "http://www.policygrid.org/project.owl"), "http://www.policygrid.org/project.owl");
+			// new ontology file: sioc
+			loader.add(readSource(new FileInputStream(path + "sioc.owl"), "http://www.policygrid.org/sioc.owl"), "http://www.policygrid.org/sioc.owl");
+			// new ontology file: geo-properties
+			loader.add(readSource(new FileInputStream(path + "geo-properties.owl"), "http://www.policygrid.org/geo-properties.owl"), "http://www.policygrid.org/geo-properties.owl");
+			ontology = loader.load(ReasoningProfile.getSpec());
+			
 			ontology.setNsPrefix(OntologyWriter.UTILITY, "http://www.policygrid.org/utility.owl");
 			ontology.setNsPrefix(OntologyWriter.RESOURCE, "http://www.policygrid.org/resource.owl");
 			ontology.setNsPrefix(OntologyWriter.TASK, "http://www.policygrid.org/task.owl");
@@ -202,45 +191,59 @@ public class OntologyReader
 	 *	@param ont OntologyReader
 	 */
 	public OntologyReader(OntologyReader ont)
-	{
+	{	//the index is immutable, so it is shared rather than copied; only local changes are copied
 		ontology = ont.getOntology();
-		propertyMap = new HashMap(ont.getPropertyMap());
-		classMap = new HashMap(ont.getClassMap());
-		
-		domainMap = new HashMap(ont.getDomainMap().size());
-		for (Iterator it = ont.getDomainMap().keySet().iterator(); it.hasNext(); )
-		{
-			String key = (String) it.next();
-			List<OntProperty> temp = new ArrayList<OntProperty>(ont.getDomainMap().get(key));
-			domainMap.put(key, temp);
-		}
-		
-		rangeMap = new HashMap(ont.getRangeMap().size());
-		for (Iterator it = ont.getRangeMap().keySet().iterator(); it.hasNext(); )
-		{
-			String key = (String) it.next();
-			List<OntProperty> temp = new ArrayList<OntProperty>(ont.getRangeMap().get(key));
-			rangeMap.put(key, temp);
-		}
-		
-		cardinalityMap = new HashMap(ont.getCardinalityMap().size());
-		for (Iterator it = ont.getCardinalityMap().keySet().iterator(); it.hasNext(); )
-		{
-			String key = (String) it.next();
-			Map<String,Integer[]> temp = new HashMap<String,Integer[]>(ont.getCardinalityMap().get(key));
-			cardinalityMap.put(key, temp);
-		}
-		
-		submenuMap = new HashMap(ont.getSubmenuMap().size());
-		for (Iterator it = ont.getSubmenuMap().keySet().iterator(); it.hasNext(); )
-		{
-			OntProperty key = (OntProperty) it.next();
-			Map<String,String> temp = new HashMap<String,String>(ont.getSubmenuMap().get(key));
-			submenuMap.put(key, temp);
-		}
-				
-		properNameProperties.addAll(ont.getProperNameOntProperties());
-		nlExpressions = new HashMap(ont.getNLExpressionMap());
+		inferred = ont.inferred;
+		version = ont.getVersion();
+		annotations = ont.annotations;
+		inheritedSubmenus.putAll(ont.inheritedSubmenus);
+		classSearch = ont.classSearch;
+		propertySearch = ont.propertySearch;
+		hierarchyTrees = ont.hierarchyTrees;
+		classHierarchy = ont.classHierarchy;
+		hierarchyVersion = ont.hierarchyVersion;
+		index = ont.getOntologyIndex();
+		useIndex();
+		domainMap = copyOverlay(ont.domainMap, domainMap);
+		rangeMap = copyOverlay(ont.rangeMap, rangeMap);
+		cardinalityMap = copyOverlay(ont.cardinalityMap, cardinalityMap);
+		submenuMap = copyOverlay(ont.submenuMap, submenuMap);
+		nlExpressions = copyOverlay(ont.nlExpressions, nlExpressions);
+		if (ont.properNameProperties != properNameProperties)
+			properNameProperties = new ArrayList<OntProperty>(ont.properNameProperties);
+		unhashed = true;	//the files of the other reader are not known
+	}
+	
+	/**	Constructs a reader for an ontology that has already been read.
+	 *	No snapshot is used for its maps.
+	 *	@param model OntModel
+	 */
+	public OntologyReader(OntModel model)
+	{
+		ontology = model;
+		unhashed = true;
+		initMaps();
+	}
+	
+	/**	Constructs a reader with the light ReasoningProfile for a copy of the ontology of
+	 *	another reader, and takes its maps from the light snapshot of the same ontology files
+	 *	if there is one. Only if there is not, the entailments are materialised and the maps
+	 *	computed. Used by compareProfiles(String).
+	 *	@param model OntModel without reasoner
+	 *	@param sources Content hash of the other reader's ontology files, or null if
+	 *	its ontology does not match them
+	 */
+	private OntologyReader(OntModel model, MessageDigest sources)
+	{
+		ontology = model;
+		this.sources = sources;		//not updated, as this reader reads no files
+		unhashed = (sources == null);
+		String key = getSnapshotKey();
+		ontology.setStrictMode(false);	//without the entailments, classes and properties are not all declared as such
+		boolean restored = (key != null) && OntologySnapshot.restore(this, key);
+		ontology.setStrictMode(true);
+		if (!restored)
+			initMaps();
 	}
 	
 	/** Constructs a reader by creating a Jena model from the given file.
@@ -254,8 +257,8 @@ public class OntologyReader
 		InputStream in = null;
 		try
 		{		
-			in = new FileInputStream(file);
-			ontology = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF);
+			in = readSource(new FileInputStream(file), baseURI);
+			ontology = ReasoningProfile.createModel();
 			ontology = (OntModel) ontology.read(in, baseURI);
 			in.close();
 			initMaps();
@@ -273,6 +276,31 @@ public class OntologyReader
 		}
 	}
 	
+	
+	/** Constructs a reader from several ontology files. The files are parsed in 
+	 *	parallel and then merged into one Jena model (see OntologyLoader).
+	 *	@param files Ontology files
+	 *	@param baseURIs The base URIs of the ontologies, in the same order as the files.
+	 *	The first is used as the base URI of the reader.
+	 *	@throws OntologyInputException if one of the ontologies could not be read
+	 */
+	public OntologyReader(File[] files, String[] baseURIs) throws OntologyInputException
+	{
+		baseURI = baseURIs[0];
+		OntologyLoader loader = new OntologyLoader();
+		try
+		{
+			for (int i = 0; i < files.length; i++)
+				loader.add(readSource(new FileInputStream(files[i]), baseURIs[i]), baseURIs[i]);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Unable to find specified file in OntologyReader");
+			throw(new OntologyInputException(e.getMessage()));
+		}
+		ontology = loader.load(ReasoningProfile.getSpec());
+		initMaps();
+	}
 		
 	/**	Reads the ontology from a file with the given name and constructs a Jena model
 	 *
@@ -287,8 +315,8 @@ public class OntologyReader
 		try
 		{		
 			String path = "data/";
-			in = getClass().getClassLoader().getResourceAsStream(path + fileName);
-			ontology = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF);
+			in = readSource(getClass().getClassLoader().getResourceAsStream(path + fileName), baseURI);
+			ontology = ReasoningProfile.createModel();
 			ontology = (OntModel) ontology.read(in, baseURI);	
 			in.close();			
 			initMaps();
@@ -316,7 +344,7 @@ public class OntologyReader
 		InputStream in = null;
 		try
 		{		
-			in = new FileInputStream(file);
+			in = readSource(new FileInputStream(file), baseURI);
 			ontology = (OntModel) ontology.read(in, baseURI);	
 			in.close();
 			initMaps();
@@ -345,7 +373,7 @@ public class OntologyReader
 	/**	Returns a HashMap where the keys are local names of classes,
 	 *	and the values are lists of the properties that have the class
 	 *	in their domain
-	 *	@return Map<String,List<OntProperty>>
+	 *	@return Map<String,List<OntProperty>> (read-only)
 	 */
 	public Map<String, List<OntProperty>> getDomainMap()
 	{
@@ -355,7 +383,7 @@ public class OntologyReader
 	/**	Returns a HashMap where the keys are local names of classes,
 	 *	and the values are lists of the properties that have the class
 	 *	in their range
-	 *	@return Map<String,List<OntProperty>>
+	 *	@return Map<String,List<OntProperty>> (read-only)
 	 */
 	public Map<String, List<OntProperty>> getRangeMap()
 	{
@@ -365,16 +393,19 @@ public class OntologyReader
 	/**	Returns a HashMap where the keys are local names of classes,
 	 *	and the values are HashMaps with local names of properties and 
 	 *	minimum & maximum cardinal constraints on them.
-	 *	@return Map<String,Map<String,Integer[]>>
+	 *	@return Map<String,Map<String,Integer[]>> (a copy)
 	 */
 	public Map<String, Map<String,Integer[]>> getCardinalityMap()
 	{
-		return cardinalityMap;
+		Map<String, Map<String,Integer[]>> result = new HashMap<String, Map<String,Integer[]>>(cardinalityMap.size() * 2);
+		for (Map.Entry<String, Map<String,Integer[]>> e : cardinalityMap.entrySet())
+			result.put(e.getKey(), copyCardinalities(e.getValue()));
+		return result;
 	}
 	
 	/**	Returns a HashMap where the keys are local names of properties,
 	 *	and the values are the OntProperties with that name
-	 *	@return Map<String,OntProperty>
+	 *	@return Map<String,OntProperty> (read-only)
 	 */
 	public Map<String,OntProperty> getPropertyMap()
 	{
@@ -383,7 +414,7 @@ public class OntologyReader
 	
 	/**	Returns a HashMap where the keys are local names of classes,
 	 *	and the values are the OntClasses with that name
-	 *	@return Map<String,OntClass>
+	 *	@return Map<String,OntClass> (read-only)
 	 */
 	public Map<String,OntClass> getClassMap()
 	{
@@ -397,9 +428,14 @@ public class OntologyReader
 	 */
 	protected void initMaps()
 	{
-		collectProperNameOntProperties();		
-		collectNLExpressions();
+		if (ReasoningProfile.isLight(ontology))	//there is no reasoner to infer e.g. the superclasses
+			inferred = ReasoningProfile.materialise(ontology, inferred);
+		annotations.clear();
+		inheritedSubmenus.clear();
 		
+		//maps are built anew, as the shared ones of the old index cannot be changed
+		propertyMap = new HashMap<String,OntProperty>(propertyMap);
+		classMap = new HashMap<String,OntClass>(classMap);
 		for (Iterator it = ontology.listOntProperties(); it.hasNext(); )
 		{
 			OntProperty p = (OntProperty) it.next();
@@ -413,27 +449,438 @@ public class OntologyReader
 			classMap.put(c.getURI(), c);
 		}
 		
+		List<OntClass> classes = new ArrayList<OntClass>();
+		for (Iterator it = getClasses(); it.hasNext(); )
+			classes.add((OntClass) it.next());
+		
+		String key = getSnapshotKey();
+		if ((key == null) || !OntologySnapshot.restore(this, key))
+		{	//otherwise the ontology files have not changed since the maps were last computed
+			computeMaps(classes);
+			if (key != null)
+				OntologySnapshot.store(this, key);
+		}
+		
+		if (ReasoningProfile.COMPARE.equals(ReasoningProfile.getProfile()) && !ReasoningProfile.isLight(ontology))
+			compareProfiles(key);
+	}
+	
+	/**	Computes the maps again with the light profile, from a copy of the ontology, and
+	 *	reports the differences with the maps of this reader. This is done once for each
+	 *	set of ontology files (identified by its snapshot key); readers without a key are
+	 *	compared every time their maps are initialised.
+	 *	@param key Snapshot key of this reader, or null
+	 */
+	private void compareProfiles(String key)
+	{
+		if ((key != null) && !compared.add(key))
+			return;
+		Model copy = ModelFactory.createDefaultModel().add(ontology.getBaseModel());
+		OntologyReader light = new OntologyReader(ModelFactory.createOntologyModel(
+			OntologyLoader.withoutImports(ReasoningProfile.getSpec(ReasoningProfile.LIGHT)), copy), unhashed ? null : sources);
+		ReasoningProfile.compare(this, light);
+	}
+	
+	/**	Computes the hierarchy, domain, range, cardinality and other maps.
+	 *	Used by initMaps()
+	 *	@param classes All named classes in the ontology
+	 */
+	private void computeMaps(List<OntClass> classes)
+	{
+		hierarchy = ClassHierarchyIndex.build(classes);
+		collectProperNameOntProperties();		
+		collectNLExpressions();
+		
 		domainMap = new HashMap<String, List<OntProperty>>();
 		rangeMap = new HashMap<String, List<OntProperty>>();
 		cardinalityMap = new HashMap<String, Map<String, Integer[]>>();
+		indexDomainsAndRanges(classes);
+		
+		for (OntClass c : classes)
+		{	//the domain map must be complete before the cardinalities can be computed
+			System.out.println("\t Processing " + c.toString());
+			cardinalityMap.put(c.getLocalName(), initCardinalities(c));
+		}		
+		collectSubmenus();	
+		share();
+	}
+	
+	/**	Freezes the maps that were just computed in a new OntologyIndex, and
+	 *	replaces them with the unmodifiable views of that index.
+	 */
+	private void share()
+	{
+		index = new OntologyIndex(propertyMap, classMap, hierarchy, domainMap, rangeMap,
+			cardinalityMap, submenuMap, nlExpressions, properNameProperties);
+		useIndex();
+		version = versions.incrementAndGet();
+		buildSearchIndices();
+	}
+	
+	/**	Indexes the names, nl-expressions and labels of all classes and properties
+	 *	for getMatchingClasses(String) and getMatchingProperties(String)
+	 */
+	private void buildSearchIndices()
+	{
+		List<OntClass> classes = new ArrayList<OntClass>();
+		for (Iterator it = getClasses(); it.hasNext(); )
+			classes.add((OntClass) it.next());
+		List<OntProperty> properties = new ArrayList<OntProperty>();
+		for (Iterator it = getProperties(); it.hasNext(); )
+			properties.add((OntProperty) it.next());
+		propertySearch = new OntologySearchIndex<OntProperty>(properties, nlExpressions);
+		classSearch = new OntologySearchIndex<OntClass>(classes, nlExpressions);
+	}
+	
+	/**	Returns the version of the maps, which changes whenever they are rebuilt
+	 *	or updated after an edit of the ontology.
+	 *	@return int version
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+	
+	/**	Updates the maps after the comments of the given resource have been edited
+	 *	in the ontology: its nl-expression and, for a property, its submenus and 
+	 *	whether it stores proper names.
+	 *	@param r OntResource whose comments were changed
+	 */
+	protected void commentsChanged(OntResource r)
+	{
+		modified();
+		annotations.remove(r);
+		inheritedSubmenus.clear();
+		classSearch = null;		//rebuilt when needed, with the new nl-expression
+		propertySearch = null;
+		if (r.canAs(OntProperty.class))
+		{
+			OntProperty p = (OntProperty) r.as(OntProperty.class);
+			getLocalSubmenuMap().put(p, getSubmenus(p));
+			if (isProperNameProperty(p) != properNameProperties.contains(p))
+			{	//collect the list again, to keep the properties in the same order
+				List<OntProperty> properNames = getLocalProperNameOntProperties();
+				properNames.clear();
+				for (Iterator it = getProperties(); it.hasNext(); )
+				{
+					OntProperty q = (OntProperty) it.next();
+					if (isProperNameProperty(q))
+						properNames.add(q);
+				}
+			}
+		}
 		
+		String name = r.getLocalName();
+		String phrase = null;
+		for (Iterator it = getProperties(); it.hasNext(); )
+		{	//as in collectNLExpressions(), class phrases override property phrases with the same name
+			OntProperty p = (OntProperty) it.next();
+			if (name.equals(p.getLocalName()) && (getPhrase(p) != null))
+				phrase = getPhrase(p);
+		}
 		for (Iterator it = getClasses(); it.hasNext(); )
 		{
 			OntClass c = (OntClass) it.next();
-			//ignores specific ontologies:
-//			if (!c.toString().endsWith("User") || !c.toString().endsWith("OurSpacesAccount")){
-//					|| !c.toString().startsWith("http://xmlns.com/foaf/0.1/OnlineAccount")
-//					|| !c.toString().startsWith("http://rdfs.org/sioc/ns#User")) {
-//			if ( !( c.toString().equals("http://www.policygrid.org/ourspacesVRE.owl#OurSpacesAccount") || c.toString().equals("http://xmlns.com/foaf/0.1/Person") ) ){
-//	 	 	if (c.getEquivalentClass() != null) {
-//			if ( !( c.toString().equals("http://www.policygrid.org/ourspacesVRE.owl#OurSpacesAccount") || c.toString().equals("http://rdfs.org/sioc/ns#User") ) ){
-				System.out.println("\t Processing " + c.toString());
-				domainMap.put(c.getLocalName(), getProperties(c, true));
-				rangeMap.put(c.getLocalName(), getRangeProperties(c));
-				cardinalityMap.put(c.getLocalName(), initCardinalities(c));
-//			}
-		}		
-		collectSubmenus();	
+			if (name.equals(c.getLocalName()) && (getPhrase(c) != null))
+				phrase = getPhrase(c);
+		}
+		if (phrase == null)
+			getLocalNLExpressionMap().remove(name);
+		else
+			getLocalNLExpressionMap().put(name, phrase);
+	}
+	
+	/**	Updates the maps after restrictions (anonymous superclasses) of the given class 
+	 *	have been added or removed in the ontology: the domains, ranges and cardinalities 
+	 *	of the class and of all its subclasses. The named class hierarchy is not 
+	 *	affected by restrictions.
+	 *	@param c OntClass whose restrictions were changed
+	 */
+	protected void restrictionsChanged(OntClass c)
+	{
+		modified();
+		if (ReasoningProfile.isLight(ontology))	//subclasses inherit the restrictions through the materialised closure
+			inferred = ReasoningProfile.materialise(ontology, inferred);
+		
+		Set<String> names = new HashSet<String>();
+		names.add(c.getLocalName());
+		if (hierarchy.contains(c))
+		{
+			for (OntClass sub : hierarchy.getSubClasses(c))
+				names.add(sub.getLocalName());
+		}
+		List<OntClass> classes = new ArrayList<OntClass>();
+		for (Iterator it = getClasses(); it.hasNext(); )
+		{	//the maps are indexed by local name; as in initMaps, the last class with a name determines its entries
+			OntClass sub = (OntClass) it.next();
+			if (names.contains(sub.getLocalName()))
+				classes.add(sub);
+		}
+		
+		updateDomainsAndRanges(classes);
+		Map<String,Map<String,Integer[]>> map = getLocalCardinalityMap();
+		for (OntClass sub : classes)	//the domain map must be up to date before the cardinalities can be computed
+			map.put(sub.getLocalName(), initCardinalities(sub));
+	}
+	
+	/**	Computes the domain and range entries of the given classes again, in the same
+	 *	way as indexDomainsAndRanges(List) does for all classes.
+	 */
+	private void updateDomainsAndRanges(List<OntClass> classes)
+	{
+		List<List<OntProperty>> domains = new ArrayList<List<OntProperty>>();
+		List<List<OntProperty>> ranges = new ArrayList<List<OntProperty>>();
+		for (int i = 0; i < classes.size(); i++)
+		{
+			domains.add(new ArrayList<OntProperty>());
+			ranges.add(new ArrayList<OntProperty>());
+		}
+		
+		Map<OntProperty,List<OntProperty>> superProperties = new HashMap<OntProperty,List<OntProperty>>();
+		for (Iterator it = ontology.listOntProperties(); it.hasNext(); )
+		{
+			OntProperty p = (OntProperty) it.next();
+			superProperties.put(p, getSuperProperties(p));
+			List<OntClass> domain = getDomainList(p, false);
+			List<OntClass> range = getRangeList(p);
+			for (int i = 0; i < classes.size(); i++)
+			{
+				if (inherits(classes.get(i), domain))
+					domains.get(i).add(p);
+				if (inherits(classes.get(i), range))
+					ranges.get(i).add(p);
+			}
+		}
+		
+		Map<String,List<OntProperty>> domainMap = getLocalDomainMap();
+		Map<String,List<OntProperty>> rangeMap = getLocalRangeMap();
+		for (int i = 0; i < classes.size(); i++)
+		{
+			OntClass c = classes.get(i);
+			domainMap.put(c.getLocalName(), excludeSuperProperties(domains.get(i), superProperties, c));
+			rangeMap.put(c.getLocalName(), excludeSuperProperties(ranges.get(i), superProperties, c));
+		}
+	}
+	
+	/**	Checks whether c is, or is a subclass of, one of the given classes
+	 */
+	private boolean inherits(OntClass c, List<OntClass> classes)
+	{
+		for (OntClass sup : classes)
+		{
+			if (hierarchy.isSubClassOf(c, sup))
+				return true;
+		}
+		return false;
+	}
+	
+	/**	Marks the maps as changed after an edit of the ontology. The ontology no 
+	 *	longer matches the files it was read from, so no snapshot is used for it.
+	 */
+	private void modified()
+	{
+		unhashed = true;
+		version = versions.incrementAndGet();
+	}
+	
+	/**	Points all maps at the shared index, discarding any local changes.
+	 */
+	private void useIndex()
+	{
+		propertyMap = index.getPropertyMap();
+		classMap = index.getClassMap();
+		hierarchy = index.getClassHierarchyIndex();
+		domainMap = index.getDomainMap();
+		rangeMap = index.getRangeMap();
+		cardinalityMap = index.getCardinalityMap();
+		submenuMap = index.getSubmenuMap();
+		nlExpressions = index.getNLExpressionMap();
+		properNameProperties = index.getProperNameOntProperties();
+	}
+	
+	/**	Returns a copy of the given map if it is an overlay with local changes,
+	 *	or the shared map otherwise.
+	 */
+	private static <K,V> Map<K,V> copyOverlay(Map<K,V> map, Map<K,V> shared)
+	{
+		if (map instanceof OverlayMap)
+			return ((OverlayMap<K,V>) map).copy();
+		return shared;
+	}
+	
+	/**	Returns the map if it already holds this reader's local changes, or a new (empty) overlay 
+	 *	over the shared map otherwise. Used for copy-on-write of the maps.
+	 */
+	private static <K,V> Map<K,V> overlay(Map<K,V> map)
+	{
+		if (map instanceof OverlayMap)
+			return map;
+		return new OverlayMap<K,V>(map);
+	}
+	
+	/**	Returns the shared, immutable index of the maps derived from the ontology,
+	 *	without the changes made locally to this reader.
+	 *	@return OntologyIndex
+	 */
+	public OntologyIndex getOntologyIndex()
+	{
+		return index;
+	}
+	
+	/**	Returns a version of the domain map that can be changed without affecting 
+	 *	other readers that share the same index. The lists in the map can not be 
+	 *	changed; replace them instead.
+	 *	@return Map<String,List<OntProperty>>
+	 */
+	protected Map<String,List<OntProperty>> getLocalDomainMap()
+	{
+		domainMap = overlay(domainMap);
+		return domainMap;
+	}
+	
+	/**	Returns a version of the range map that can be changed without affecting 
+	 *	other readers that share the same index. The lists in the map can not be 
+	 *	changed; replace them instead.
+	 *	@return Map<String,List<OntProperty>>
+	 */
+	protected Map<String,List<OntProperty>> getLocalRangeMap()
+	{
+		rangeMap = overlay(rangeMap);
+		return rangeMap;
+	}
+	
+	/**	Returns a version of the cardinality map that can be changed without affecting 
+	 *	other readers that share the same index. The maps in the map can not be 
+	 *	changed; replace them instead.
+	 *	@return Map<String,Map<String,Integer[]>>
+	 */
+	protected Map<String,Map<String,Integer[]>> getLocalCardinalityMap()
+	{
+		cardinalityMap = overlay(cardinalityMap);
+		return cardinalityMap;
+	}
+	
+	/**	Returns a version of the submenu map that can be changed without affecting 
+	 *	other readers that share the same index. The maps in the map can not be 
+	 *	changed; replace them instead.
+	 *	@return Map<OntProperty,Map<String,String>>
+	 */
+	protected Map<OntProperty,Map<String,String>> getLocalSubmenuMap()
+	{
+		submenuMap = overlay(submenuMap);
+		return submenuMap;
+	}
+	
+	/**	Returns a version of the nl-expression map that can be changed without affecting 
+	 *	other readers that share the same index.
+	 *	@return Map<String,String>
+	 */
+	protected Map<String,String> getLocalNLExpressionMap()
+	{
+		nlExpressions = overlay(nlExpressions);
+		return nlExpressions;
+	}
+	
+	/**	Returns a version of the list of proper name properties that can be changed 
+	 *	without affecting other readers that share the same index.
+	 *	@return List<OntProperty>
+	 */
+	protected List<OntProperty> getLocalProperNameOntProperties()
+	{
+		if ((index != null) && (properNameProperties == index.getProperNameOntProperties()))
+			properNameProperties = new ArrayList<OntProperty>(properNameProperties);
+		return properNameProperties;
+	}
+	
+	/**	Reads an ontology file into memory and adds its content to the hash that
+	 *	identifies the snapshot of this reader's maps (see OntologySnapshot). If the 
+	 *	ontology already holds content that is not in that hash, no hash is kept.
+	 *	The given stream is closed.
+	 *
+	 *	@param in InputStream of the ontology file
+	 *	@param base The ontology's base URI
+	 *	@return InputStream with the same content
+	 *	@throws IOException if the stream could not be read
+	 */
+	protected InputStream readSource(InputStream in, String base) throws IOException
+	{
+		if (in == null)
+			throw new IOException("Ontology file for " + base + " not found");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try
+		{
+			byte[] buffer = new byte[8192];
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+				bytes.write(buffer, 0, n);
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		byte[] content = bytes.toByteArray();
+		if ((sources == null) && (ontology != null))
+			unhashed = true;	//the model has content that was not hashed
+		if (unhashed)
+			return new ByteArrayInputStream(content);
+		try
+		{
+			if (sources == null)
+				sources = MessageDigest.getInstance("SHA-1");
+			sources.update(String.valueOf(base).getBytes("UTF-8"));
+			sources.update(content);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			System.out.println("No SHA-1 available, ontology snapshots are disabled");
+			unhashed = true;
+		}
+		return new ByteArrayInputStream(content);
+	}
+	
+	/**	Returns the content hash of the ontology files read by this reader and of the
+	 *	snapshot version, which is used as the key of its snapshot, or null if the ontology
+	 *	holds anything that was not read through readSource(InputStream,String), or has been
+	 *	edited. The light ReasoningProfile has its own snapshots.
+	 *	@return String hexadecimal hash
+	 */
+	protected String getSnapshotKey()
+	{
+		if (unhashed || (sources == null))
+			return null;
+		try
+		{	//clone the digest, so more files can be added later
+			MessageDigest md = (MessageDigest) sources.clone();
+			md.update(OntologySnapshot.getVersion());
+			if (ReasoningProfile.isLight(ontology))
+				md.update(ReasoningProfile.LIGHT.getBytes());
+			byte[] hash = md.digest();
+			StringBuffer sb = new StringBuffer();
+			for (int i = 0; i < hash.length; i++)
+				sb.append(Integer.toHexString((hash[i] & 0xff) | 0x100).substring(1));
+			return sb.toString();
+		}
+		catch (CloneNotSupportedException e)
+		{
+			return null;
+		}
+	}
+	
+	/**	Replaces the maps derived from the ontology with those stored in a snapshot.
+	 *	Used by OntologySnapshot.
+	 */
+	void restoreMaps(ClassHierarchyIndex classes, Map<String,List<OntProperty>> domain, Map<String,List<OntProperty>> range,
+		Map<String,Map<String,Integer[]>> cardinalities, Map<OntProperty,Map<String,String>> submenus,
+		Map<String,String> nl, List<OntProperty> properNames)
+	{
+		hierarchy = classes;
+		domainMap = domain;
+		rangeMap = range;
+		cardinalityMap = cardinalities;
+		submenuMap = submenus;
+		nlExpressions = nl;
+		properNameProperties = properNames;
+		share();
 	}
 	
 	/**	Returns all properties that have a class with the given local 
@@ -460,74 +907,80 @@ public class OntologyReader
 		return new ArrayList<OntProperty>();
 	}
 		
-	/**	Returns all properties that have the given class in their range;
+	/**	Fills the domain and range maps in a single pass over the properties.
+	 *	The class hierarchy index gives the classes that inherit from each class in
+	 *	a property's domain or range, so those are found with a few lookups, instead 
+	 *	of scanning all properties for every class.
 	 *	Used by initMaps()
+	 *
+	 *	@param classes All named classes in the ontology, in the order of the hierarchy index
 	 */
-	private List<OntProperty> getRangeProperties(OntClass c)
+	private void indexDomainsAndRanges(List<OntClass> classes)
 	{
-		List<OntClass> classes = getSuperClasses(c);
-		List<OntProperty> result = new ArrayList<OntProperty>();
+		BitSet[] domains = new BitSet[classes.size()];
+		BitSet[] ranges = new BitSet[classes.size()];
+		for (int i = 0; i < classes.size(); i++)
+		{
+			domains[i] = new BitSet();
+			ranges[i] = new BitSet();
+		}
+		
+		List<OntProperty> properties = new ArrayList<OntProperty>();
+		Map<OntProperty,List<OntProperty>> superProperties = new HashMap<OntProperty,List<OntProperty>>();
 		for (Iterator it = ontology.listOntProperties(); it.hasNext(); )
-		{	//Get the ranges of all the properties
+		{	//push each property down to all classes that inherit its domain or range
 			OntProperty p = (OntProperty) it.next();
-//			System.out.println("property " + p.getURI());
-			for (Iterator i = getRangeList(p).iterator(); i.hasNext(); )
-			{	//and check whether one of the classes is in it
-				OntClass ontClass = (OntClass) i.next();
-//				System.out.println("Range of that prop: " + ontClass.getURI());
-				if (classes.contains(ontClass))
-				{	//if so, add the property to the result
-					result.add(p);
-					break;
-				}
-			}
+			int idx = properties.size();
+			properties.add(p);
+			superProperties.put(p, getSuperProperties(p));
+			pushDown(idx, getDomainList(p, false), domains);
+			pushDown(idx, getRangeList(p), ranges);
+		}
+		
+		for (int i = 0; i < classes.size(); i++)
+		{
+			OntClass c = classes.get(i);
+			domainMap.put(c.getLocalName(), excludeSuperProperties(getProperties(domains[i], properties), superProperties, c));
+			rangeMap.put(c.getLocalName(), excludeSuperProperties(getProperties(ranges[i], properties), superProperties, c));
 		}
-		return excludeSuperProperties(result, c);
 	}
 	
-	/**	This returns an iterator with all the properties that have the given
-	 *	class as their domain. If inherited is true, it included the properties 
-	 *	that have its superclasses as their domain (with the exception of those
-	 *	that are superproperties of one that this class has!).
-	 *	Used by initMaps
+	/**	Marks the property with the given index for all classes that inherit from
+	 *	one of the given classes.
 	 */
-	private List<OntProperty> getProperties(OntClass c, boolean inherited)
+	private void pushDown(int property, List<OntClass> classes, BitSet[] target)
 	{
-		List<OntClass> classes = new ArrayList<OntClass>();
-		if (inherited)
-			classes = getSuperClasses(c);	//get all superclasses, until the top of the hierarchy
-		else
-			classes.add(c);					//else just use this class
-
-		List<OntProperty> result = new ArrayList<OntProperty>();
-		Iterator it = ontology.listOntProperties();
-		while (it.hasNext())
-		{	//Get the domains of all the properties
-			OntProperty p = (OntProperty) it.next();
-			Iterator i = getDomain(p);
-			while (i.hasNext())
-			{	//and check whether the classes are in the domains
-				if (classes.contains(i.next()))
-				{	//if so, add the property to the result
-					result.add(p);
-					break;
-				}
-			}
+		BitSet all = new BitSet();
+		for (OntClass c : classes)
+		{
+			int id = hierarchy.getID(c);
+			if (id >= 0)
+				hierarchy.addInheritors(id, all);
 		}
-		return excludeSuperProperties(result, c);
+		for (int i = all.nextSetBit(0); (i >= 0) && (i < target.length); i = all.nextSetBit(i + 1))
+			target[i].set(property);	//ids beyond the named classes are superclasses like owl:Thing
 	}
 	
-	private List<OntProperty> excludeSuperProperties(List<OntProperty> propList, OntClass c)
+	/**	Returns the properties whose indices are set, in order
+	 */
+	private List<OntProperty> getProperties(BitSet bits, List<OntProperty> properties)
+	{
+		List<OntProperty> result = new ArrayList<OntProperty>(bits.cardinality());
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			result.add(properties.get(i));
+		return result;
+	}
+	
+	private List<OntProperty> excludeSuperProperties(List<OntProperty> propList, Map<OntProperty,List<OntProperty>> superProperties, OntClass c)
 	{
 		List<OntProperty> remove = new ArrayList<OntProperty>();
 		for (int i = 0; i < propList.size(); i++)
 		{
 			OntProperty p = propList.get(i);
-			for (Iterator it = p.listSuperProperties(); it.hasNext(); )
+			for (OntProperty superProp : superProperties.get(p))
 			{
-				OntProperty superProp = (OntProperty) it.next();
-				if (!superProp.getLocalName().equals(p.getLocalName()) && !c.hasDeclaredProperty(superProp, true))	//for some reason Jena 
-					remove.add(superProp);			//includes the property itself in its superproperties; check for this
+				if (!c.hasDeclaredProperty(superProp, true))
+					remove.add(superProp);
 			}
 		}
 		for (int i = 0; i < remove.size(); i++)
@@ -620,68 +1073,17 @@ public class OntologyReader
 	 */
 	public List<OntClass> getSuperClasses(OntClass c)
 	{
-		ArrayList<OntClass> result = new ArrayList();
-		result.add(c);
-//		System.out.println("added " + c.toString() + " to list");
-		// add OntClass to list
-		processedClasses.add(c);
-		
-		for (Iterator i = c.listSuperClasses(false); i.hasNext(); ) 
-		{
- 	 		OntClass sc = (OntClass) i.next();
- 	 		if (sc.isIntersectionClass())	//stupid owl/jena construct
- 	 		{
- 	 			IntersectionClass ic = sc.asIntersectionClass();
- 	 			Iterator it = ic.listOperands();
- 	 			while (it.hasNext())
- 	 			{
- 	 				List<OntClass> temp = getSuperClasses((OntClass) it.next());
- 	 				for (int j = 0; j < temp.size(); j++)
- 	 					if (!result.contains(temp.get(j)))
- 	 						result.add(temp.get(j));
- 	 			}
- 	 		}
- 	 		else	//if sc's a normal class
- 	 		{
- 				List<OntClass> temp = getSuperClasses(sc);
- 	 			for (int j = 0; j < temp.size(); j++)
- 	 				if (!result.contains(temp.get(j)))
- 	 					result.add(temp.get(j));
- 			}	
-		}
-		for (Iterator i = c.listEquivalentClasses(); i.hasNext(); )
-		{
- 	 		OntClass sc = (OntClass) i.next();
- 	 		if (sc.isIntersectionClass())	//stupid owl/jena construct
- 	 		{
- 	 			IntersectionClass ic = sc.asIntersectionClass();
- 	 			Iterator it = ic.listOperands();
- 	 			while (it.hasNext())
- 	 			{
- 	 				List<OntClass> temp = getSuperClasses((OntClass) it.next());
- 	 				for (int j = 0; j < temp.size(); j++)
- 	 					if (!result.contains(temp.get(j)))
- 	 						result.add(temp.get(j));
- 	 			}
- 	 		}
- 	 		else	//if it's a normal class
- 	 		{
- 	 			System.out.println( "super class: " + sc.toString());
- 	 			//TODO: infinite recursion: check that the class has't been processed yet
- 	 			if (! processedClasses.contains(sc)) {
- 	 				//TODO: if it has equivalent class, only do the loop once
-// 	 	 			if (sc.getEquivalentClass() == null) {
-// 	 	 			} else {
-//	 	 				System.out.println(sc.toString() + "'s equivalent class is :" + sc.getEquivalentClass().toString() + ". this class will be ignored");
-//					}
-	 				List<OntClass> temp = getSuperClasses(sc);
-	 				for (int j = 0; j < temp.size(); j++)
-	 	 				if (!result.contains(temp.get(j)))
-	 	 					result.add(temp.get(j));
-				}
- 			}
-		}
-		return result;		
+		if ((hierarchy != null) && hierarchy.contains(c))
+			return hierarchy.getSuperClasses(c);
+		return ClassHierarchyIndex.collectSuperClasses(c);	//not a named class, or no index yet
+	}
+	
+	/**	Returns the index of the class hierarchy, which is shared by all copies of this reader
+	 *	@return ClassHierarchyIndex
+	 */
+	public ClassHierarchyIndex getClassHierarchyIndex()
+	{
+		return hierarchy;
 	}
 	
 	/**	Returns the class that is lowest in the hierarchy. This method assumes 
@@ -705,15 +1107,7 @@ public class OntologyReader
 				list.add(c);
 		}
 		
-		if (list.size() == 0)
-			return null;
-		
-		OntClass result = list.get(0);
-		for (int i = 1; i < list.size(); i++)
-			if (getSubClasses(result).contains(list.get(i)))
-				result = list.get(i);
-
-		return result;
+		return hierarchy.getMostSpecificClass(list);
 	}
 	
 	/**	Returns the class that is highest in the hierarchy, or one that is higher
@@ -742,17 +1136,9 @@ public class OntologyReader
 		if (list.size() == 1)
 			return list.get(0);
 		
-		List<OntClass> superClasses = getSuperClasses(list.get(0));	//get al superclasses of the first item
-		for (OntClass s : superClasses)
-		{	//for each superclass, check if all classes in list are its subclasses
-			boolean suitable = true;
-			List<OntClass> subClasses = getSubClasses(s);
-			for (int i = 1; i < list.size(); i++)
-				if (!subClasses.contains(list.get(i)))
-					suitable = false;
-			if (suitable)	//if so, use it. This method may not return the most
-				return s;	//specific superclass!
-		}
+		OntClass s = hierarchy.getMostGeneralClass(list);	//the first superclass of the first item that has all others as subclasses
+		if (s != null)		//this may not be the most specific superclass!
+			return s;
 
 		System.out.println("ONTOLOGYREADER#getMostGeneralClass(): COULD NOT FIND SHARED SUPERCLASS");
 		return list.get(0);	//the method should not ever get to this point! If it does, it really should return 'Owl:thing', but that's no ontClass in Jena (don't know why)
@@ -764,6 +1150,8 @@ public class OntologyReader
 	 */
 	public List<OntClass> getSubClasses(OntClass c)
 	{
+		if ((hierarchy != null) && hierarchy.contains(c))
+			return hierarchy.getSubClasses(c);
 		List<OntClass> result = new ArrayList();
 		for (Iterator it = c.listSubClasses(false); it.hasNext(); )
 			result.add((OntClass) it.next());
@@ -972,37 +1360,59 @@ public class OntologyReader
 	{
 		Literal lit = ontology.createLiteral(comment);
 		r.addComment(lit);
+		commentsChanged(r);
 	}
 	
 	/** Returns a HashMap where properties are keys, and minimum and maximum
 	 *	cardinality constraints on this class are values.
 	 *	@param c	OntClass
 	 *	@return	HashMap<String, Integer[]> with all minimum and maximum
-	 *	cardinality constraints on the given class
+	 *	cardinality constraints on the given class (a copy)
 	 */
 	public Map<String, Integer[]> getCardinalities(String c)
 	{
 		if (cardinalityMap.containsKey(c))
-			return cardinalityMap.get(c);
+			return copyCardinalities(cardinalityMap.get(c));
 		return new HashMap<String, Integer[]>();
 	}
 	
+	/**	Returns a copy of the given cardinalities, so that callers cannot change the
+	 *	arrays, which are shared with the other readers of the same index.
+	 */
+	private static Map<String, Integer[]> copyCardinalities(Map<String, Integer[]> map)
+	{
+		Map<String, Integer[]> result = new HashMap<String, Integer[]>(map.size() * 2);
+		for (Map.Entry<String, Integer[]> e : map.entrySet())
+			result.put(e.getKey(), e.getValue().clone());
+		return result;
+	}
+	
 	private Map<String, Integer[]> initCardinalities(OntClass c)
 	{
+		return initCardinalities(c, new HashSet<OntClass>());
+	}
+	
+	/**	Collects the cardinality constraints on c. Visiting holds the classes whose
+	 *	constraints are being collected, to avoid an infinite recursion through
+	 *	equivalent classes.
+	 */
+	private HashMap<String, Integer[]> initCardinalities(OntClass c, Set<OntClass> visiting)
+	{
+		visiting.add(c);
 		HashMap<String, Integer[]> result = new HashMap<String, Integer[]> ();
 		for (Iterator i = c.listSuperClasses(false); i.hasNext(); ) 
 		{
  	 		OntClass sc = (OntClass) i.next();
-			result = getCardinality(sc, result);			
+ 	 		if (!visiting.contains(sc))
+ 	 			result = getCardinality(sc, result, visiting);			
 		}
 		for (Iterator i = c.listEquivalentClasses(); i.hasNext(); )
 		{
  	 		OntClass sc = (OntClass) i.next();
- 	 		//TODO: infinite recursion: check that the class has't been processed yet
- 	 		if (! processedClasses.contains(sc)) {
- 	 			result = getCardinality(sc, result);
-			}
+ 	 		if (!visiting.contains(sc))
+ 	 			result = getCardinality(sc, result, visiting);
 		}
+		visiting.remove(c);
 		
 		List<OntProperty> list = getDomainProperties(c.getLocalName());
 		for (int i = 0; i < list.size(); i++)
@@ -1110,9 +1520,10 @@ public class OntologyReader
 	/** Helper method for getCardinalities
 	 *	@param	OntClass
 	 *	@param	HashMap to which results are added
+	 *	@param	Set with the classes whose constraints are being collected
 	 *	@return HashMap with cardinality constraints
 	 */
-	private HashMap <String, Integer[]> getCardinality(OntClass c, HashMap<String, Integer[]> result)
+	private HashMap <String, Integer[]> getCardinality(OntClass c, HashMap<String, Integer[]> result, Set<OntClass> visiting)
 	{
 		if (c.isRestriction()) 
   		{
@@ -1179,12 +1590,12 @@ public class OntologyReader
   			for (Iterator it = ic.listOperands(); it.hasNext();)
   			{
   				OntClass oc = (OntClass) it.next();
-  				result = getCardinality(oc, result);
+  				result = getCardinality(oc, result, visiting);
   			}
   		}
   		else	//if it's just a normal class, it's a superclass, which may have super- and equivalent classes of its own
   		{		//only add those constraints that are not already in the map (constraints on current class take precedence over those on superclasses
-  			Map<String, Integer[]> temp = initCardinalities(c);
+  			Map<String, Integer[]> temp = initCardinalities(c, visiting);
   			for (String key: temp.keySet())
   			{
   				if (!result.containsKey(key))
@@ -1282,40 +1693,56 @@ public class OntologyReader
 		return null;
 	}
 	
-	/** Returns all classes whose names have the given phrase as substring (not case sensitive)
+	/** Returns all classes whose names, nl-expressions or labels have the given phrase as 
+	 *	substring (not case sensitive). Classes with a name that starts with the phrase come first.
 	 *
 	 *	@param regex String phrase
 	 *	@return List<OntClass> 
 	 */
 	public List<OntClass> getMatchingClasses(String regex)
 	{
-		List<OntClass> result = new ArrayList<OntClass>();
-		for (Iterator it = ontology.listNamedClasses(); it.hasNext(); )
-		{	
-			OntClass c = (OntClass) it.next();
-			String name = c.getLocalName().replaceAll("_", "");	//remove all underscores
-			if (name.toLowerCase().indexOf(regex) > -1)
-				result.add(c);
-		}
-		return result;	
+		return getMatchingClasses(regex, false);
 	}
 	
-	/** Returns all properties whose names have the given phrase as substring (not case sensitive)
+	/** Returns all classes whose names, nl-expressions or labels have the given phrase as 
+	 *	substring (not case sensitive), and if fuzzy is true those that contain it with
+	 *	a few typing errors. See OntologySearchIndex for the ranking.
+	 *
+	 *	@param regex String phrase
+	 *	@param fuzzy true to include approximate matches
+	 *	@return List<OntClass> 
+	 */
+	public List<OntClass> getMatchingClasses(String regex, boolean fuzzy)
+	{
+		if (classSearch == null)
+			buildSearchIndices();
+		return classSearch.search(regex, fuzzy);
+	}
+	
+	/** Returns all properties whose names, nl-expressions or labels have the given phrase as 
+	 *	substring (not case sensitive). Properties with a name that starts with the phrase come first.
 	 *
 	 *	@param regex String phrase
 	 *	@return List<OntProperty>
 	 */
 	public List<OntProperty> getMatchingProperties(String regex)
 	{
-		List<OntProperty> result = new ArrayList<OntProperty>();
-		for (Iterator it = ontology.listOntProperties(); it.hasNext(); )
-		{	
-			OntProperty p = (OntProperty) it.next();
-			String name = p.getLocalName().replaceAll("_", "");	//remove all underscores
-			if (name.toLowerCase().indexOf(regex) > -1)
-				result.add(p);
-		}
-		return result;
+		return getMatchingProperties(regex, false);
+	}
+	
+	/** Returns all properties whose names, nl-expressions or labels have the given phrase as 
+	 *	substring (not case sensitive), and if fuzzy is true those that contain it with
+	 *	a few typing errors. See OntologySearchIndex for the ranking.
+	 *
+	 *	@param regex String phrase
+	 *	@param fuzzy true to include approximate matches
+	 *	@return List<OntProperty>
+	 */
+	public List<OntProperty> getMatchingProperties(String regex, boolean fuzzy)
+	{
+		if (propertySearch == null)
+			buildSearchIndices();
+		return propertySearch.search(regex, fuzzy);
 	}
 	
 	/**	If there are no restrictions on the range of a property with respect to a class,
@@ -1360,13 +1787,24 @@ public class OntologyReader
 	 */
 	public boolean hasComment(OntResource resource, String type)
 	{
-		for (Iterator it = resource.listComments(null); it.hasNext(); )
+		return getAnnotation(resource).hasComment(type);
+	}
+	
+	/**	Returns the comments of the given resource, parsed for LIBER information.
+	 *	The comments are only read from the ontology the first time a resource is
+	 *	looked up, or after they have been edited.
+	 *	@param r OntResource
+	 *	@return LiberAnnotation
+	 */
+	public LiberAnnotation getAnnotation(OntResource r)
+	{
+		LiberAnnotation result = annotations.get(r);
+		if (result == null)
 		{
-			Literal lit = (Literal) it.next();
-			if (lit.getString().indexOf(type) >= 0)
-				return true;
+			result = LiberAnnotation.parse(r);
+			annotations.put(r, result);
 		}
-		return false;
+		return result;
 	}
 	
 	/**	Checks whether this property is used to store proper names
@@ -1405,8 +1843,18 @@ public class OntologyReader
 		for (Iterator it = getProperties(); it.hasNext(); )
 		{
 			OntProperty p = (OntProperty) it.next();
-			//TODO: NLG: set surname and title as ProperNames so that those properties are used to identify resources when NLG
-			if (hasComment(p, PROPERNAME) /*|| p.toString().equals("http://www.policygrid.org/utility.owl#HasEmployee") */
+			if (isProperNameProperty(p))
+				properNameProperties.add(p);
+		}
+	}
+	
+	/**	Checks whether the property is marked as storing proper names, or is one of the
+	 *	properties that are always used as proper names.
+	 */
+	private boolean isProperNameProperty(OntProperty p)
+	{
+		//TODO: NLG: set surname and title as ProperNames so that those properties are used to identify resources when NLG
+		return (getAnnotation(p).isProperName() /*|| p.toString().equals("http://www.policygrid.org/utility.owl#HasEmployee") */
 					|| p.toString().equals("http://xmlns.com/foaf/0.1/surname") || p.toString().equals("http://www.policygrid.org/opm-resource.owl#title") 
 					|| p.toString().equals("http://www.policygrid.org/project.owl#projectTitle") 
 //					|| p.toString().equals("http://xmlns.com/foaf/0.1/topic_interest") || p.toString().equals("http://xmlns.com/foaf/0.1/member")
@@ -1414,11 +1862,7 @@ public class OntologyReader
 //					|| p.toString().equals("http://xmlns.com/foaf/0.1/knows") || p.toString().equals("http://xmlns.com/foaf/0.1/title")
 //					|| p.toString().equals("http://www.policygrid.org/task.owl#HasOutput") || p.toString().equals("http://www.policygrid.org/resource.owl#HasResults") || p.toString().equals("http://www.policygrid.org/utility.owl#CollaboratorOf")
 //					|| p.toString().equals("http://www.policygrid.org/utility.owl#AdministratorOf") || p.toString().equals("http://www.policygrid.org/resource.owl#HasResults") || p.toString().equals("http://www.policygrid.org/utility.owl#CollaboratorOf")
-					/*|| p.toString().equals("http://www.policygrid.org/opm-resource.owl#depositedBy") /*|| p.toString().equals("http://www.policygrid.org/opm-resource.owl#producedInProject") || p.toString().equals("http://www.policygrid.org/opm-resource.owl#hasAuthor")*/)
-
-
-				properNameProperties.add(p);
-		}
+					/*|| p.toString().equals("http://www.policygrid.org/opm-resource.owl#depositedBy") /*|| p.toString().equals("http://www.policygrid.org/opm-resource.owl#producedInProject") || p.toString().equals("http://www.policygrid.org/opm-resource.owl#hasAuthor")*/);
 	}
 	
 	/**	Returns the names of all 'proper name properties'.
@@ -1459,24 +1903,17 @@ public class OntologyReader
 		for (Iterator it = getProperties(); it.hasNext(); )
 		{
 			OntProperty p = (OntProperty) it.next();
-			Map<String,String> map = new HashMap<String,String>();
-			for (Iterator it2 = p.listComments(null); it2.hasNext(); )
-			{
-				String comment = ((Literal) it2.next()).getString();
-				int idx = comment.indexOf(MENU);
-				if (idx >= 0)
-				{
-					String rest = comment.substring(idx + MENU.length());
-					int end = rest.indexOf("=");
-					String className = rest.substring(0, end);
-					String submenu = rest.substring(end + 1);
-					map.put(className, submenu);
-				}
-			}
-			submenuMap.put(p, map);
+			submenuMap.put(p, getSubmenus(p));
 		}
 	}
 	
+	/**	Returns a map with the class names and submenus defined in the comments of p
+	 */
+	private Map<String,String> getSubmenus(OntProperty p)
+	{
+		return new HashMap<String,String>(getAnnotation(p).getSubmenus());
+	}
+	
 	/**	Returns the submenu that this property belongs to, or null if there is none.
 	 *
 	 *	@param prop OntProperty
@@ -1485,18 +1922,47 @@ public class OntologyReader
 	 */
 	public String getSubmenu(OntProperty prop, String className)
 	{
-		if (!submenuMap.containsKey(prop))
+		if (prop == null)
 			return null;
-		Map<String,String> menus = submenuMap.get(prop);
-		if (menus.containsKey(className))
-			return menus.get(className);
+		Map<OntProperty,String> menus = inheritedSubmenus.get(className);
+		if (menus == null)
+		{
+			menus = resolveSubmenus(className);
+			inheritedSubmenus.put(className, menus);
+		}
+		return menus.get(prop);
+	}
+	
+	/**	Returns the submenus of all properties for the given class: the submenu defined 
+	 *	for the class itself or, failing that, for its nearest superclass.
+	 */
+	private Map<OntProperty,String> resolveSubmenus(String className)
+	{
+		List<String> names = new ArrayList<String>();
+		names.add(className);
+		OntClass c = getClass(className);
+		if (c != null)
+		{
+			for (OntClass sup : getSuperClasses(c))
+				names.add(sup.getLocalName());
+		}
 		
-		for (OntClass c : getSuperClasses(getClass(className)))
+		Map<OntProperty,String> result = new HashMap<OntProperty,String>();
+		for (Map.Entry<OntProperty,Map<String,String>> e : submenuMap.entrySet())
 		{
-			if (menus.containsKey(c.getLocalName()))
-				return menus.get(c.getLocalName());
+			Map<String,String> menus = e.getValue();
+			if (menus.size() == 0)
+				continue;
+			for (String name : names)
+			{
+				if (menus.containsKey(name))
+				{
+					result.put(e.getKey(), menus.get(name));
+					break;
+				}
+			}
 		}
-		return null;
+		return result;
 	}
 	
 	private void collectNLExpressions()
@@ -1505,27 +1971,26 @@ public class OntologyReader
 		for (Iterator it = getProperties(); it.hasNext(); )
 		{
 			OntProperty p = (OntProperty) it.next();
-			for (Iterator it2 = p.listComments(null); it2.hasNext(); )
-			{
-				String comment = ((Literal) it2.next()).getString();
-				int idx = comment.indexOf(PHRASE);
-				if (idx >= 0)
-					nlExpressions.put(p.getLocalName(), comment.substring(idx + PHRASE.length()));
-			}
+			String phrase = getPhrase(p);
+			if (phrase != null)
+				nlExpressions.put(p.getLocalName(), phrase);
 		}
 		for (Iterator it = getClasses(); it.hasNext(); )
 		{
 			OntClass c = (OntClass) it.next();
-			for (Iterator it2 = c.listComments(null); it2.hasNext(); )
-			{
-				String comment = ((Literal) it2.next()).getString();
-				int idx = comment.indexOf(PHRASE);
-				if (idx >= 0)
-					nlExpressions.put(c.getLocalName(), comment.substring(idx + PHRASE.length()));
-			}
+			String phrase = getPhrase(c);
+			if (phrase != null)
+				nlExpressions.put(c.getLocalName(), phrase);
 		}
 	}
 	
+	/**	Returns the nl-expression defined in the (last) phrase comment of r, or null
+	 */
+	private String getPhrase(OntResource r)
+	{
+		return getAnnotation(r).getPhrase();
+	}
+	
 	/**	Returns the nl-expresssion of the given resource
 	 *	@param r OntResource
 	 *	@return String
@@ -1602,7 +2067,40 @@ public class OntologyReader
 		return result;
 	}
 	
-	/**	Creates a class hierachy with the given classes as its roots
+	/**	Returns the cache of class hierarchy trees, which is emptied when the version changes.
+	 */
+	private Map<OntClass,Hierarchy> getHierarchyTrees()
+	{
+		if (hierarchyVersion != version)
+		{	//a new map, as the old one may be shared with copies of this reader
+			hierarchyTrees = new ConcurrentHashMap<OntClass,Hierarchy>();
+			classHierarchy = null;
+			hierarchyVersion = version;
+		}
+		return hierarchyTrees;
+	}
+	
+	/**	Returns a deep copy of the given trees
+	 */
+	private static Hierarchy[] copy(Hierarchy[] trees)
+	{
+		Hierarchy[] result = new Hierarchy[trees.length];
+		for (int i = 0; i < trees.length; i++)
+			result[i] = copy(trees[i]);
+		return result;
+	}
+	
+	private static Hierarchy copy(Hierarchy h)
+	{
+		Hierarchy[] sub = h.getSub();
+		Hierarchy result = new Hierarchy(h.getValue(), h.getNLExpr(), sub.length);
+		for (int i = 0; i < sub.length; i++)
+			result.addSub(i, copy(sub[i]));
+		return result;
+	}
+	
+	/**	Creates a class hierachy with the given classes as its roots.
+	 *	Roots that are not classes in the ontology are left out.
 	 *
 	 *	@param roots Root classes
 	 *	@return	Hierarchy[] tree representation of class hierarchy
@@ -1612,12 +2110,23 @@ public class OntologyReader
 		if ((roots == null) || (roots.length == 0))
 			return getClassHierarchy();
 		
-		Arrays.sort(roots);
-		Hierarchy[] result = new Hierarchy[roots.length];
-		for (int i = 0; i < roots.length; i++)
-			result[i] = createHierarchy(getClass(roots[i]));
-		
-		return result;
+		List<String> names = new ArrayList<String>();
+		for (String root : roots)
+		{
+			if (root != null)
+				names.add(root);
+		}
+		Collections.sort(names);
+		List<Hierarchy> result = new ArrayList<Hierarchy>();
+		for (String root : names)
+		{
+			OntClass c = getClass(root);
+			if (c == null)
+				System.out.println("Class hierarchy: unknown root class " + root);
+			else
+				result.add(createHierarchy(c));	//sliced from the cached trees
+		}
+		return result.toArray(new Hierarchy[result.size()]);
 	}
 	
 	/**	Creates a class hierarchy with every class in the ontology
@@ -1626,11 +2135,16 @@ public class OntologyReader
 	 */
 	public Hierarchy[] getClassHierarchy()
 	{
+		Map<OntClass,Hierarchy> trees = getHierarchyTrees();
+		if (classHierarchy != null)
+			return copy(classHierarchy);
+		
 		List<Hierarchy> result = new ArrayList<Hierarchy>();
 		List<OntClass> namedClasses = new ArrayList<OntClass>();
 		for (Iterator it = getClasses(); it.hasNext(); )
 			namedClasses.add((OntClass) it.next());
 		Collections.sort(namedClasses, new OntClassComparator());
+		Set<OntClass> named = new HashSet<OntClass>(namedClasses);
 		
 		for (int i = 0; i < namedClasses.size(); i++)
 		{
@@ -1641,38 +2155,77 @@ public class OntologyReader
 				continue;	//skip the dates
 				
 			boolean rootclass = true;
-			for (Iterator it = c.listSuperClasses(); it.hasNext(); )
+			for (OntClass oc : getSuperClassList(c))
 			{
-				OntClass oc = (OntClass) it.next();
-				if (namedClasses.contains(oc))
+				if (!oc.equals(c) && named.contains(oc))
 					rootclass = false;
 			}
 			if (rootclass)
-				result.add(createHierarchy(c));
+				result.add(getHierarchy(c, trees));
 		}
 		Hierarchy[] array = new Hierarchy[result.size()];
 		for (int j = 0; j < result.size(); j++)
 			array[j] = result.get(j);
-		return array;
+		classHierarchy = array;
+		return copy(array);
 	}
 	
 	/**	Creates a class hierachy with the given class as its root
 	 *	@param c root OntClass
-	 *	@return	Hierarchy[] tree representation of class hierarchy
+	 *	@return	Hierarchy[] tree representation of class hierarchy, or null if c is null
 	 */
 	public Hierarchy createHierarchy(OntClass c)
 	{
-		List<OntClass> sub = new ArrayList<OntClass>();
-		for (Iterator it = c.listSubClasses(true); it.hasNext(); )
-			sub.add((OntClass) it.next());	
+		if (c == null)
+			return null;
+		return copy(getHierarchy(c, getHierarchyTrees()));
+	}
+	
+	/**	Returns the cached tree with the given class as its root, building it
+	 *	(and the trees of its subclasses) if it is not in the cache yet.
+	 */
+	private Hierarchy getHierarchy(OntClass c, Map<OntClass,Hierarchy> trees)
+	{
+		Hierarchy h = trees.get(c);
+		if (h != null)
+			return h;
+		
+		List<OntClass> sub = getDirectSubClasses(c);
 		Collections.sort(sub, new OntClassComparator());
 		
 		String name = c.getLocalName();
-		Hierarchy h = new Hierarchy(name, Anchor.getNLExpression(name), sub.size());
+		h = new Hierarchy(name, Anchor.getNLExpression(name), sub.size());
 		for (int i = 0; i < sub.size(); i++)
-			h.addSub(i, createHierarchy(sub.get(i)));
+			h.addSub(i, getHierarchy(sub.get(i), trees));
+		trees.put(c, h);
 		return h;
 	}
+	
+	/**	Returns the superclasses of c (including c) from the class hierarchy index,
+	 *	or from the ontology if c is not in the index.
+	 */
+	private List<OntClass> getSuperClassList(OntClass c)
+	{
+		if ((hierarchy != null) && hierarchy.contains(c))
+			return hierarchy.getSuperClasses(c);
+		List<OntClass> result = new ArrayList<OntClass>();
+		for (Iterator it = c.listSuperClasses(); it.hasNext(); )
+			result.add((OntClass) it.next());
+		return result;
+	}
+	
+	/**	Returns the direct subclasses of c from the class hierarchy index,
+	 *	or from the ontology if c is not in the index.
+	 */
+	private List<OntClass> getDirectSubClasses(OntClass c)
+	{
+		if ((hierarchy != null) && hierarchy.contains(c))
+			return hierarchy.getDirectSubClasses(c);
+		List<OntClass> result = new ArrayList<OntClass>();
+		for (Iterator it = c.listSubClasses(true); it.hasNext(); )
+			result.add((OntClass) it.next());
+		return result;
+	}
 
 	/**	Returns an integer indicating the type of range of this property.
 	 *	0 if it is no property; 1 for a datatype property with restricted values;
@@ -0,0 +1,305 @@
+package WYSIWYM.ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.ontology.OntResource;
+import com.hp.hpl.jena.rdf.model.Literal;
+
+/**	OntologySearchIndex finds classes or properties by (part of) their name, for
+ *	type-ahead lookups. Each resource is indexed under its local name, its
+ *	nl-expression and its labels, all in lower case and without underscores.
+ *	A trigram index over these names narrows down the candidates, so a lookup
+ *	only has to check the names that share the trigrams of the phrase.
+ *
+ *	Results are ranked: first the resources with a name that starts with the phrase,
+ *	then those with a name that contains it, and (if fuzzy matching is asked for)
+ *	then those with a name that contains it with one or two typing errors. Resources
+ *	with the same rank are returned in the order in which they were indexed.
+ *
+ *	An index is never changed after construction.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class OntologySearchIndex<T extends OntResource>
+{
+	private static final int[] NONE = new int[0];
+
+	private final List<T> resources;
+	private final String[] names;			//all searchable names
+	private final int[] owners;				//for each name, the index of its resource
+	private final Map<String,int[]> trigrams;	//for each trigram, the (ascending) indices of the names that contain it
+
+	/**	Builds an index
+	 *	@param resources Resources to index, in the order in which results should be returned
+	 *	@param nl Map with local names and nl-expressions (may be null)
+	 */
+	public OntologySearchIndex(List<T> resources, Map<String,String> nl)
+	{
+		this.resources = new ArrayList<T>(resources);
+		List<String> nameList = new ArrayList<String>();
+		List<Integer> ownerList = new ArrayList<Integer>();
+		for (int i = 0; i < resources.size(); i++)
+		{
+			T r = resources.get(i);
+			List<String> keys = new ArrayList<String>();
+			addName(keys, r.getLocalName());
+			if ((nl != null) && nl.containsKey(r.getLocalName()))
+				addName(keys, nl.get(r.getLocalName()));
+			for (Iterator it = r.listLabels(null); it.hasNext(); )
+			{
+				Object label = it.next();
+				if (label instanceof Literal)
+					addName(keys, ((Literal) label).getString());
+			}
+			for (String key : keys)
+			{
+				nameList.add(key);
+				ownerList.add(i);
+			}
+		}
+
+		names = nameList.toArray(new String[nameList.size()]);
+		owners = new int[names.length];
+		Map<String,List<Integer>> postings = new HashMap<String,List<Integer>>();
+		for (int i = 0; i < names.length; i++)
+		{
+			owners[i] = ownerList.get(i);
+			for (String gram : getTrigrams(names[i]))
+			{
+				List<Integer> list = postings.get(gram);
+				if (list == null)
+				{
+					list = new ArrayList<Integer>();
+					postings.put(gram, list);
+				}
+				if ((list.size() == 0) || (list.get(list.size() - 1) != i))
+					list.add(i);	//a name may contain the same trigram twice
+			}
+		}
+		trigrams = new HashMap<String,int[]>(postings.size() * 2);
+		for (Map.Entry<String,List<Integer>> e : postings.entrySet())
+		{
+			List<Integer> list = e.getValue();
+			int[] array = new int[list.size()];
+			for (int i = 0; i < array.length; i++)
+				array[i] = list.get(i);
+			trigrams.put(e.getKey(), array);
+		}
+	}
+
+	private static void addName(List<String> keys, String name)
+	{
+		if (name == null)
+			return;
+		String key = normalise(name);
+		if ((key.length() > 0) && !keys.contains(key))
+			keys.add(key);
+	}
+
+	/**	Removes all underscores and converts the string to lower case, as LIBER has
+	 *	always done when matching names.
+	 *	@param s String
+	 *	@return String
+	 */
+	public static String normalise(String s)
+	{
+		return s.replaceAll("_", "").toLowerCase();
+	}
+
+	/**	Returns the trigrams of a string, in order (possibly with duplicates)
+	 */
+	private static List<String> getTrigrams(String s)
+	{
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i + 3 <= s.length(); i++)
+			result.add(s.substring(i, i + 3));
+		return result;
+	}
+
+	/**	Returns the number of indexed resources
+	 *	@return int
+	 */
+	public int size()
+	{
+		return resources.size();
+	}
+
+	/**	Returns all resources with a name that contains the given phrase (not case sensitive);
+	 *	those with a name that starts with it first.
+	 *	@param phrase String
+	 *	@return List with the matching resources
+	 */
+	public List<T> search(String phrase)
+	{
+		return search(phrase, false);
+	}
+
+	/**	Returns all resources with a name that contains the given phrase (not case sensitive);
+	 *	those with a name that starts with it first. If fuzzy is true, resources with a name
+	 *	that contains the phrase with a few typing errors (insertions, deletions, substitutions
+	 *	or transpositions of characters) are added after those: one error is allowed in phrases of up to
+	 *	6 characters, two in longer ones. Phrases shorter than 4 characters are never matched
+	 *	fuzzily.
+	 *	@param phrase String
+	 *	@param fuzzy true to include approximate matches
+	 *	@return List with the matching resources
+	 */
+	public List<T> search(String phrase, boolean fuzzy)
+	{
+		String query = normalise(phrase);
+		int[] rank = new int[resources.size()];
+		Arrays.fill(rank, Integer.MAX_VALUE);
+
+		for (int n : getCandidates(query))
+		{
+			int idx = names[n].indexOf(query);
+			if (idx >= 0)
+				rank[owners[n]] = Math.min(rank[owners[n]], (idx == 0) ? 0 : 1);
+		}
+		if (fuzzy && (query.length() >= 4))
+		{
+			int errors = (query.length() <= 6) ? 1 : 2;
+			for (int n : getFuzzyCandidates(query, errors))
+			{
+				if (rank[owners[n]] <= 1)
+					continue;
+				int distance = getSubstringDistance(query, names[n]);
+				if (distance <= errors)
+					rank[owners[n]] = Math.min(rank[owners[n]], 1 + distance);
+			}
+		}
+
+		List<T> result = new ArrayList<T>();
+		for (int r = 0; r <= 3; r++)
+		{	//few ranks, so collecting each rank in turn keeps the indexing order
+			for (int i = 0; i < rank.length; i++)
+			{
+				if (rank[i] == r)
+					result.add(resources.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**	Returns the names that contain all trigrams of the query; or all names if the
+	 *	query is too short to have trigrams.
+	 */
+	private int[] getCandidates(String query)
+	{
+		if (query.length() < 3)
+		{
+			int[] all = new int[names.length];
+			for (int i = 0; i < all.length; i++)
+				all[i] = i;
+			return all;
+		}
+
+		List<int[]> lists = new ArrayList<int[]>();
+		for (String gram : getTrigrams(query))
+		{
+			int[] list = trigrams.get(gram);
+			if (list == null)
+				return NONE;
+			lists.add(list);
+		}
+		int[] result = lists.get(0);
+		for (int[] list : lists)
+		{
+			if (list.length < result.length)
+				result = list;	//start with the shortest list
+		}
+		for (int[] list : lists)
+		{
+			if (list != result)
+				result = intersect(result, list);
+		}
+		return result;
+	}
+
+	private static int[] intersect(int[] a, int[] b)
+	{
+		int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, size = 0;
+		while ((i < a.length) && (j < b.length))
+		{
+			if (a[i] < b[j])
+				i++;
+			else if (a[i] > b[j])
+				j++;
+			else
+			{
+				result[size++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		int[] copy = new int[size];
+		System.arraycopy(result, 0, copy, 0, size);
+		return copy;
+	}
+
+	/**	Returns the names that could contain the query with the given number of errors.
+	 *	Each error changes at most four trigrams of the query (a transposition), so such
+	 *	a name must share at least (number of trigrams - 4 * errors) trigrams with it.
+	 *	For short queries that leaves all names.
+	 */
+	private List<Integer> getFuzzyCandidates(String query, int errors)
+	{
+		List<String> grams = getTrigrams(query);
+		int threshold = grams.size() - 4 * errors;
+		int[] counts = new int[names.length];
+		if (threshold > 0)
+		{
+			for (String gram : grams)
+			{
+				int[] list = trigrams.get(gram);
+				if (list == null)
+					continue;
+				for (int n : list)
+					counts[n]++;
+			}
+		}
+
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < names.length; i++)
+		{
+			if (counts[i] >= threshold)
+				result.add(i);
+		}
+		return result;
+	}
+
+	/**	Returns the smallest number of insertions, deletions, substitutions and transpositions
+	 *	of adjacent characters needed to turn the query into some substring of the name.
+	 */
+	private static int getSubstringDistance(String query, String name)
+	{
+		int[] beforePrevious = new int[name.length() + 1];
+		int[] previous = new int[name.length() + 1];	//a match may start anywhere in the name, at no cost
+		int[] current = new int[name.length() + 1];
+		for (int i = 1; i <= query.length(); i++)
+		{
+			current[0] = i;
+			for (int j = 1; j <= name.length(); j++)
+			{
+				int cost = (query.charAt(i - 1) == name.charAt(j - 1)) ? 0 : 1;
+				current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+				if ((i > 1) && (j > 1) && (query.charAt(i - 1) == name.charAt(j - 2)) && (query.charAt(i - 2) == name.charAt(j - 1)))
+					current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+			}
+			int[] swap = beforePrevious;
+			beforePrevious = previous;
+			previous = current;
+			current = swap;
+		}
+		int result = Integer.MAX_VALUE;
+		for (int j = 0; j <= name.length(); j++)
+			result = Math.min(result, previous[j]);	//and end anywhere
+		return result;
+	}
+}
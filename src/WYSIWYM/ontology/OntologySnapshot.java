@@ -0,0 +1,397 @@
+package WYSIWYM.ontology;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.ontology.OntClass;
+import com.hp.hpl.jena.ontology.OntProperty;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**	OntologySnapshot stores the maps that OntologyReader derives from its ontology
+ *	(class hierarchy, domains, ranges, cardinalities, submenus, nl-expressions and 
+ *	proper name properties)
+ *	in a binary file, so that they do not have to be recomputed every time the same
+ *	ontologies are read. Snapshots are named after a hash of the content of the ontology
+ *	files and of the version of the code that made them (see getVersion()), so a snapshot
+ *	that is found always matches the ontology; if one of the files changes, or LIBER is
+ *	rebuilt with other code, a new snapshot is created.
+ *
+ *	Snapshots are kept in the directory .liber/snapshots in the user's home directory,
+ *	so they cannot be changed by other users. Another directory can be set with the system
+ *	property 'liber.snapshot.dir'; if it is set to 'none', no snapshots are used.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class OntologySnapshot
+{
+	/**	Change this whenever the way the maps are derived from the ontology changes,
+	 *	so that old snapshots are no longer used */
+	public static final int FORMAT = 2;
+	private static final int MAGIC = 0x4C494252;	//'LIBR'
+	private static final String SUFFIX = ".idx";
+	/**	The classes that derive the maps and store them, whose code is part of the version */
+	private static final Class[] CODE = {OntologyReader.class, OntologySnapshot.class, ClassHierarchyIndex.class,
+		ReasoningProfile.class, LiberAnnotation.class};
+	private static byte[] version;
+
+	/**	Returns the directory in which snapshots are stored, or null if snapshots are disabled.
+	 *	@return File directory
+	 */
+	public static File getDirectory()
+	{
+		String dir = System.getProperty("liber.snapshot.dir");
+		if (dir == null)
+			return new File(new File(System.getProperty("user.home"), ".liber"), "snapshots");
+		if (dir.trim().length() == 0 || dir.equalsIgnoreCase("none"))
+			return null;
+		return new File(dir);
+	}
+
+	/**	Returns the version of the snapshots: a hash of FORMAT and of the compiled classes
+	 *	that derive and store the maps. It is part of the snapshot key (see 
+	 *	OntologyReader.getSnapshotKey()), so snapshots of another build are not used even 
+	 *	if FORMAT was not changed.
+	 *	@return byte[] hash
+	 */
+	public static synchronized byte[] getVersion()
+	{
+		if (version != null)
+			return version;
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(String.valueOf(FORMAT).getBytes("UTF-8"));
+			for (Class c : CODE)
+			{
+				md.update(c.getName().getBytes("UTF-8"));
+				InputStream in = c.getResourceAsStream(c.getSimpleName() + ".class");
+				if (in == null)		//e.g. a class loader that does not provide the class files
+					continue;
+				try
+				{
+					byte[] buffer = new byte[8192];
+					for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+						md.update(buffer, 0, n);
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			version = md.digest();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			version = String.valueOf(FORMAT).getBytes();
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not read the classes for the snapshot version: " + e.getMessage());
+			version = String.valueOf(FORMAT).getBytes();
+		}
+		return version;
+	}
+
+	/**	Restores the maps of the reader from the snapshot with the given key, if there
+	 *	is one.
+	 *	@param reader OntologyReader, whose ontology and property map must already be initialised
+	 *	@param key Content hash of the ontology
+	 *	@return true if the snapshot was found and restored
+	 */
+	public static boolean restore(OntologyReader reader, String key)
+	{
+		File dir = getDirectory();
+		if (dir == null)
+			return false;
+		File file = new File(dir, key + SUFFIX);
+		if (!file.exists())
+			return false;
+
+		long start = System.currentTimeMillis();
+		DataInputStream in = null;
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if ((in.readInt() != MAGIC) || (in.readInt() != FORMAT) || !key.equals(in.readUTF()))
+				return false;
+
+			Map<String,OntProperty> uris = new HashMap<String,OntProperty>();
+			for (Iterator it = reader.getProperties(); it.hasNext(); )
+			{
+				OntProperty p = (OntProperty) it.next();
+				uris.put(p.getURI(), p);
+			}
+			ClassHierarchyIndex hierarchy = readHierarchy(in, reader);
+			if (hierarchy == null)
+				return false;
+
+			OntProperty[] properties = new OntProperty[in.readInt()];
+			for (int i = 0; i < properties.length; i++)
+			{
+				String uri = in.readUTF();
+				properties[i] = uris.get(uri);
+				if (properties[i] == null)
+				{	//not listed as a property in the ontology, e.g. because its entailments have not been materialised
+					Resource r = reader.getOntology().getResource(uri);
+					if (!r.canAs(OntProperty.class))	//the ontology does not match the snapshot after all
+						return false;
+					properties[i] = (OntProperty) r.as(OntProperty.class);
+				}
+			}
+
+			Map<String,List<OntProperty>> domainMap = readPropertyLists(in, properties);
+			Map<String,List<OntProperty>> rangeMap = readPropertyLists(in, properties);
+
+			Map<String,Map<String,Integer[]>> cardinalityMap = new HashMap<String,Map<String,Integer[]>>();
+			for (int i = in.readInt(); i > 0; i--)
+			{
+				String c = in.readUTF();
+				Map<String,Integer[]> map = new HashMap<String,Integer[]>();
+				for (int j = in.readInt(); j > 0; j--)
+				{
+					String p = in.readUTF();
+					Integer[] l = new Integer[2];
+					l[0] = in.readInt();
+					l[1] = in.readInt();
+					map.put(p, l);
+				}
+				cardinalityMap.put(c, map);
+			}
+
+			Map<OntProperty,Map<String,String>> submenuMap = new HashMap<OntProperty,Map<String,String>>();
+			for (int i = in.readInt(); i > 0; i--)
+			{
+				OntProperty p = properties[in.readInt()];
+				submenuMap.put(p, readStringMap(in));
+			}
+
+			Map<String,String> nlExpressions = readStringMap(in);
+			List<OntProperty> properNames = new ArrayList<OntProperty>();
+			for (int i = in.readInt(); i > 0; i--)
+				properNames.add(properties[in.readInt()]);
+
+			reader.restoreMaps(hierarchy, domainMap, rangeMap, cardinalityMap, submenuMap, nlExpressions, properNames);
+			System.out.println("Restored ontology snapshot " + file.getName() + " in " + (System.currentTimeMillis() - start) + " ms");
+			return true;
+		}
+		catch (IOException e)
+		{	//a corrupt or outdated snapshot is simply rebuilt
+			System.out.println("Could not read ontology snapshot " + file.getName() + ": " + e.getMessage());
+			return false;
+		}
+		finally
+		{
+			close(in);
+		}
+	}
+
+	/**	Stores the maps of the reader in a snapshot with the given key.
+	 *	Failure to write the snapshot is not fatal; it is merely reported.
+	 *	@param reader OntologyReader with initialised maps
+	 *	@param key Content hash of the ontology
+	 */
+	public static void store(OntologyReader reader, String key)
+	{
+		File dir = getDirectory();
+		if (dir == null)
+			return;
+		File file = new File(dir, key + SUFFIX);
+		File temp = new File(dir, key + SUFFIX + ".tmp");
+		DataOutputStream out = null;
+		try
+		{
+			if (!dir.exists() && !dir.mkdirs())
+				throw new IOException("cannot create directory " + dir);
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			out.writeUTF(key);
+			writeHierarchy(out, reader.getClassHierarchyIndex());
+
+			List<OntProperty> properties = new ArrayList<OntProperty>();
+			Map<OntProperty,Integer> index = new HashMap<OntProperty,Integer>();
+			for (Iterator it = reader.getProperties(); it.hasNext(); )
+			{
+				OntProperty p = (OntProperty) it.next();
+				if ((p.getURI() != null) && !index.containsKey(p))
+				{
+					index.put(p, properties.size());
+					properties.add(p);
+				}
+			}
+			out.writeInt(properties.size());
+			for (OntProperty p : properties)
+				out.writeUTF(p.getURI());
+
+			writePropertyLists(out, reader.getDomainMap(), index);
+			writePropertyLists(out, reader.getRangeMap(), index);
+
+			Map<String,Map<String,Integer[]>> cardinalityMap = reader.getCardinalityMap();
+			out.writeInt(cardinalityMap.size());
+			for (String c : cardinalityMap.keySet())
+			{
+				Map<String,Integer[]> map = cardinalityMap.get(c);
+				out.writeUTF(c);
+				out.writeInt(map.size());
+				for (String p : map.keySet())
+				{
+					out.writeUTF(p);
+					out.writeInt(map.get(p)[0]);
+					out.writeInt(map.get(p)[1]);
+				}
+			}
+
+			Map<OntProperty,Map<String,String>> submenuMap = reader.getSubmenuMap();
+			out.writeInt(submenuMap.size());
+			for (OntProperty p : submenuMap.keySet())
+			{
+				out.writeInt(getIndex(index, p));
+				writeStringMap(out, submenuMap.get(p));
+			}
+
+			writeStringMap(out, reader.getNLExpressionMap());
+			List<OntProperty> properNames = reader.getProperNameOntProperties();
+			out.writeInt(properNames.size());
+			for (OntProperty p : properNames)
+				out.writeInt(getIndex(index, p));
+			out.close();
+			out = null;
+
+			if (!temp.renameTo(file))
+			{	//some platforms will not rename onto an existing file
+				file.delete();
+				if (!temp.renameTo(file))
+					throw new IOException("cannot rename " + temp);
+			}
+			System.out.println("Stored ontology snapshot " + file.getName());
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not store ontology snapshot " + file.getName() + ": " + e.getMessage());
+			close(out);
+			temp.delete();
+		}
+	}
+
+	private static void writeHierarchy(DataOutputStream out, ClassHierarchyIndex hierarchy) throws IOException
+	{
+		out.writeInt(hierarchy.size());
+		for (int i = 0; i < hierarchy.size(); i++)
+			out.writeUTF(hierarchy.getClass(i).getURI());
+		for (int i = 0; i < hierarchy.size(); i++)
+		{
+			int[] supers = hierarchy.getSuperClassIDs(i);
+			out.writeInt(supers.length);
+			for (int j = 0; j < supers.length; j++)
+				out.writeInt(supers[j]);
+		}
+	}
+
+	/**	Reads the class hierarchy; returns null if one of the classes is not in the ontology
+	 */
+	private static ClassHierarchyIndex readHierarchy(DataInputStream in, OntologyReader reader) throws IOException
+	{
+		int size = in.readInt();
+		List<OntClass> classes = new ArrayList<OntClass>(size);
+		for (int i = 0; i < size; i++)
+		{
+			String uri = in.readUTF();
+			OntClass c = reader.getClassMap().get(uri);
+			if (c == null)
+			{	//not a named class in the ontology, but a superclass such as owl:Thing
+				Resource r = reader.getOntology().getResource(uri);
+				if (!r.canAs(OntClass.class))
+					return null;
+				c = (OntClass) r.as(OntClass.class);
+			}
+			classes.add(c);
+		}
+		int[][] superClasses = new int[size][];
+		for (int i = 0; i < size; i++)
+		{
+			superClasses[i] = new int[in.readInt()];
+			for (int j = 0; j < superClasses[i].length; j++)
+				superClasses[i][j] = in.readInt();
+		}
+		return new ClassHierarchyIndex(classes, superClasses);
+	}
+
+	private static int getIndex(Map<OntProperty,Integer> index, OntProperty p) throws IOException
+	{
+		Integer i = index.get(p);
+		if (i == null)
+			throw new IOException("property " + p + " is not in the ontology");
+		return i.intValue();
+	}
+
+	private static void writePropertyLists(DataOutputStream out, Map<String,List<OntProperty>> map, Map<OntProperty,Integer> index) throws IOException
+	{
+		out.writeInt(map.size());
+		for (String c : map.keySet())
+		{
+			List<OntProperty> list = map.get(c);
+			out.writeUTF(c);
+			out.writeInt(list.size());
+			for (OntProperty p : list)
+				out.writeInt(getIndex(index, p));
+		}
+	}
+
+	private static Map<String,List<OntProperty>> readPropertyLists(DataInputStream in, OntProperty[] properties) throws IOException
+	{
+		Map<String,List<OntProperty>> result = new HashMap<String,List<OntProperty>>();
+		for (int i = in.readInt(); i > 0; i--)
+		{
+			String c = in.readUTF();
+			int size = in.readInt();
+			List<OntProperty> list = new ArrayList<OntProperty>(size);
+			for (int j = 0; j < size; j++)
+				list.add(properties[in.readInt()]);
+			result.put(c, list);
+		}
+		return result;
+	}
+
+	private static void writeStringMap(DataOutputStream out, Map<String,String> map) throws IOException
+	{
+		out.writeInt(map.size());
+		for (String key : map.keySet())
+		{
+			out.writeUTF(key);
+			out.writeUTF(map.get(key));
+		}
+	}
+
+	private static Map<String,String> readStringMap(DataInputStream in) throws IOException
+	{
+		Map<String,String> result = new HashMap<String,String>();
+		for (int i = in.readInt(); i > 0; i--)
+			result.put(in.readUTF(), in.readUTF());
+		return result;
+	}
+
+	private static void close(java.io.Closeable c)
+	{
+		try
+		{
+			if (c != null)
+				c.close();
+		}
+		catch (IOException e)
+		{}
+	}
+}
@@ -80,6 +80,15 @@ public class OntologyWriter
 	/**	PolicyGrid Task ontology namespace */
 	public static final String TASK = "Task";
 	public static final String PROPERTY = "Property";
+	/**	Variable to which getNLQuery(String) binds the type */
+	public static final String NL_TYPE = "type";
+	
+	/**	The properties getNLQuery(String) retrieves besides the type, as namespace URI,
+	 *	prefix and local name. The object is bound to a variable named after the local name.
+	 */
+	private static final String[][] NL_PROPERTIES = {{UtilityURI, UTILITY, "Name"}, {GeographyURI, GEOGRAPHY, "Name"},
+		{ResourceURI, RESOURCE, "Title"}, {UtilityURI, UTILITY, "Gender"}, {ResourceURI, RESOURCE, "HasURI"},
+		{ResourceURI, RESOURCE, "AccessConditions"}};
 	
 	private OntologyReader reader;
 	private OntModel model;
@@ -460,12 +469,13 @@ public class OntologyWriter
 	 *	E.g.prefix project: <http://www.policygrid.org/project.owl#>
 	 *		prefix resource: <http://www.policygrid.org/resource.owl#>
 	 *		prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
-	 *		select ?name ?title ?type  ?uri ?access where {
+	 *		select ?Name ?Title ?Gender ?HasURI ?AccessConditions ?type where {
 	 *		<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> rdf:type ?type.
-	 *		OPTIONAL{<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> project:Name ?name.}
-	 *		OPTIONAL{<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> resource:Title ?title.}
-	 *		OPTIONAL{<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> resource:HasURI ?uri.}
-	 *		OPTIONAL{<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> resource:AccessConditions ?access.}}
+	 *		OPTIONAL {{<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> Utility:Name ?Name.}
+	 *			UNION {<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> Geography:Name ?Name.}}
+	 *		OPTIONAL {{<http://www.policygrid.org/resource.owl#ac438309-fb4d-4d17-b232-9246a5f12471> Resource:Title ?Title.}}
+	 *		...}
+	 *	The properties are those in NL_PROPERTIES.
 	 *
 	 *	@param id Sesame ID
 	 *	@return String SPARQL
@@ -476,39 +486,65 @@ public class OntologyWriter
 		for (int i = 0; i < 5; i++)
 			sb.append(getPrefix(i));
 		
-		sb.append("SELECT ?Name ?Title ?Gender ?HasURI ?AccessConditions ?type WHERE { <");
+		List<String> vars = getNLVariables();
+		sb.append("SELECT");
+		for (String var : vars)
+			sb.append(" ?" + var);
+		sb.append(" WHERE { <");
 		sb.append(id + "> ");
-		sb.append(Rdf + ":type ?type. ");
-		
-		sb.append("OPTIONAL {{<");
-		sb.append(id);
-		sb.append("> ");
-		sb.append(UTILITY);
-		sb.append(":Name ?Name.} UNION {<");
-		sb.append(id);
-		sb.append("> ");
-		sb.append(GEOGRAPHY);
-		sb.append(":Name ?Name.}} OPTIONAL {<");
-		sb.append(id);
-		sb.append("> ");
-		sb.append(UTILITY);
-		sb.append(":Gender ?Gender.} OPTIONAL {<");
-		sb.append(id);
-		sb.append("> ");
-		sb.append(RESOURCE);
-		sb.append(":Title ?Title.} OPTIONAL {<");
-		sb.append(id);
-		sb.append("> ");
-		sb.append(RESOURCE);
-		sb.append(":AccessConditions ?AccessConditions.} OPTIONAL {<");
-		sb.append(id);
-		sb.append("> ");
-		sb.append(RESOURCE);
-		sb.append(":HasURI ?HasURI.}}");
+		sb.append(Rdf + ":type ?" + NL_TYPE + ".");
 		
+		for (String var : vars)
+		{
+			if (var.equals(NL_TYPE))
+				continue;
+			sb.append(" OPTIONAL {");
+			String union = "";
+			for (String[] property : NL_PROPERTIES)
+			{
+				if (!property[2].equals(var))
+					continue;
+				sb.append(union + "{<" + id + "> " + property[1] + ":" + property[2] + " ?" + var + ".}");
+				union = " UNION ";
+			}
+			sb.append("}");
+		}
+		sb.append("}");
 		return sb.toString();
 	}
 	
+	/**	Returns the variables of getNLQuery(String), in the order in which it selects them.
+	 *	@return List<String> variables
+	 */
+	public static List<String> getNLVariables()
+	{
+		List<String> result = new ArrayList<String>();
+		for (String[] property : NL_PROPERTIES)
+		{
+			if (!result.contains(property[2]))
+				result.add(property[2]);
+		}
+		result.add(NL_TYPE);
+		return result;
+	}
+	
+	/**	Returns the variable to which getNLQuery(String) binds the object of the
+	 *	given property, or null if that query does not retrieve the property.
+	 *	@param property Full URI of the property
+	 *	@return String variable (e.g. 'Name'), or null
+	 */
+	public static String getNLVariable(String property)
+	{
+		if (property.equals(RDFURI + "type"))
+			return NL_TYPE;
+		for (String[] p : NL_PROPERTIES)
+		{
+			if (property.equals(p[0] + p[2]))
+				return p[2];
+		}
+		return null;
+	}
+	
 	/**	Returns a query that finds the type of the given id.
 	 *	@param id Sesame ID
 	 *	@return String SPARQL
@@ -542,6 +578,32 @@ public class OntologyWriter
 		sb.append("> ?y ?z . }");
 		return sb.toString();
 	}
+	
+	/**	Creates a query that finds all statements that have one of the given ids
+	 *	as their subject, so the descriptions of many objects can be retrieved at
+	 *	once. Each id has its own variables, as SPARQL 1.0 has no VALUES clause.
+	 *
+	 *	CONSTRUCT { <http://www.policygrid.org/project.owl#F2> ?y0 ?z0 . <http://www.policygrid.org/project.owl#F3> ?y1 ?z1 . }
+	 *	WHERE { { <http://www.policygrid.org/project.owl#F2> ?y0 ?z0 . } UNION { <http://www.policygrid.org/project.owl#F3> ?y1 ?z1 . } }
+	 *
+	 *	@param ids Sesame IDs
+	 *	@return String SPARQL
+	 */
+	public static String getDescriptionQuery(List<String> ids)
+	{
+		StringBuffer sb = new StringBuffer("CONSTRUCT { ");
+		for (int i = 0; i < ids.size(); i++)
+			sb.append("<" + ids.get(i) + "> ?y" + i + " ?z" + i + " . ");
+		sb.append("} WHERE { ");
+		for (int i = 0; i < ids.size(); i++)
+		{
+			if (i > 0)
+				sb.append("UNION ");
+			sb.append("{ <" + ids.get(i) + "> ?y" + i + " ?z" + i + " . } ");
+		}
+		sb.append("}");
+		return sb.toString();
+	}
 
 	/**	Returns a SPARQL sentence that defines a prefix. The argument, an integer
 	 *	between 0 and 4, determines for which ontology the prefix is defined. 0 is RDF,
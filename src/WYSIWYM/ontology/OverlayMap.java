@@ -0,0 +1,154 @@
+package WYSIWYM.ontology;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**	A map that layers a small set of local changes over a shared, read-only map.
+ *	Entries that are put or removed are recorded locally; all other lookups go
+ *	to the shared map, which is never changed. This lets a session change a few
+ *	entries of OntologyIndex without copying the whole index.
+ *
+ *	Iterators over the map do not support remove().
+ *
+ *	@version 1.0 18-10-2026
+ */
+class OverlayMap<K,V> extends AbstractMap<K,V>
+{
+	private final Map<K,V> base;
+	private final Map<K,V> local = new HashMap<K,V>();
+	private final Set<Object> removed = new HashSet<Object>();
+
+	/**	Constructor
+	 *	@param base Shared map, which is only read
+	 */
+	OverlayMap(Map<K,V> base)
+	{
+		this.base = base;
+	}
+
+	/**	Returns a copy of this overlay, with the same local changes over the same shared map
+	 *	@return OverlayMap
+	 */
+	OverlayMap<K,V> copy()
+	{
+		OverlayMap<K,V> result = new OverlayMap<K,V>(base);
+		result.local.putAll(local);
+		result.removed.addAll(removed);
+		return result;
+	}
+
+	public V get(Object key)
+	{
+		if (local.containsKey(key))
+			return local.get(key);
+		if (removed.contains(key))
+			return null;
+		return base.get(key);
+	}
+
+	public boolean containsKey(Object key)
+	{
+		if (local.containsKey(key))
+			return true;
+		return !removed.contains(key) && base.containsKey(key);
+	}
+
+	public V put(K key, V value)
+	{
+		V old = get(key);
+		local.put(key, value);
+		removed.remove(key);
+		return old;
+	}
+
+	public V remove(Object key)
+	{
+		V old = get(key);
+		local.remove(key);
+		if (base.containsKey(key))
+			removed.add(key);
+		return old;
+	}
+
+	public void clear()
+	{
+		local.clear();
+		removed.addAll(base.keySet());
+	}
+
+	public int size()
+	{
+		int size = base.size() - removed.size();
+		for (K key : local.keySet())
+			if (!base.containsKey(key))
+				size++;
+		return size;
+	}
+
+	public Set<Map.Entry<K,V>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<K,V>>()
+		{
+			public int size()
+			{
+				return OverlayMap.this.size();
+			}
+
+			public Iterator<Map.Entry<K,V>> iterator()
+			{
+				return new EntryIterator();
+			}
+		};
+	}
+
+	/**	Iterates over the local entries first, then over the shared entries
+	 *	that have not been replaced or removed.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<K,V>>
+	{
+		private final Iterator<Map.Entry<K,V>> localIt = local.entrySet().iterator();
+		private final Iterator<Map.Entry<K,V>> baseIt = base.entrySet().iterator();
+		private Map.Entry<K,V> next;
+
+		public boolean hasNext()
+		{
+			if (next != null)
+				return true;
+			if (localIt.hasNext())
+			{
+				next = localIt.next();
+				return true;
+			}
+			while (baseIt.hasNext())
+			{
+				Map.Entry<K,V> e = baseIt.next();
+				if (!local.containsKey(e.getKey()) && !removed.contains(e.getKey()))
+				{
+					next = e;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Map.Entry<K,V> next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Map.Entry<K,V> result = next;
+			next = null;
+			return result;
+		}
+
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,476 @@
+package WYSIWYM.ontology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.GraphQueryResult;
+import org.openrdf.query.impl.GraphQueryResultImpl;
+
+/**	QueryCache keeps the results of SPARQL queries on one repository, so that the
+ *	same facts (names, types, descriptions of users and resources) do not have to be
+ *	fetched again for every session. Each RepositoryPool has one, which SesameReader
+ *	consults before it sends a query to the repository.
+ *
+ *	Queries are identified by their text, with all whitespace normalised (and, for
+ *	bindings, by the id the results are assigned to). The cache holds at most a fixed
+ *	number of results, evicting the least recently used, and a result is dropped once
+ *	it is older than a fixed time. Callers get a copy of a cached QueryResult, so they
+ *	can change it freely.
+ *
+ *	When statements are written to the repository, every result whose query or
+ *	answer mentions the subject or object of one of them is dropped, as are all results
+ *	of queries that do not mention any resource at all (such as searches by name).
+ *	A result that depends on a resource it does not mention can therefore be out of
+ *	date until it expires.
+ *
+ *	The size and lifetime are set with the system properties 'liber.sesame.cache.size'
+ *	(default 5000 results; 0 turns the cache off) and 'liber.sesame.cache.ttl' (in
+ *	milliseconds, default 600000).
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class QueryCache
+{
+	private static final int MAX_TEMPLATES = 200;
+	private static final String OTHER = "(other)";
+	private static final Pattern IRI = Pattern.compile("<([^<>\\s]*)>");
+	private static final Pattern PREFIX = Pattern.compile("(?i)PREFIX\\s+\\w*:\\s*<[^>]*>\\s*");
+
+	private final int maxSize;
+	private final long ttl;
+	private final Map<String,Entry> entries;
+	private final Map<String,Set<String>> dependents = new HashMap<String,Set<String>>();	//resource, and the keys of the results that mention it
+	private final Set<String> open = new HashSet<String>();		//keys of the results that mention no resource
+	private final Map<String,long[]> templates = new HashMap<String,long[]>();	//template, and its hits and misses
+	private long generation = 0;
+	private long hits = 0, misses = 0, expired = 0, invalidated = 0;
+
+	/**	A cached result (either bindings or statements), and the resources it depends on */
+	private static class Entry
+	{
+		private final QueryResult bindings;
+		private final List<Statement> statements;
+		private final Map<String,String> namespaces;
+		private final Set<String> resources;
+		private final long created = System.currentTimeMillis();
+
+		private Entry(QueryResult bindings, Set<String> resources)
+		{
+			this.bindings = bindings;
+			this.statements = null;
+			this.namespaces = null;
+			this.resources = resources;
+		}
+
+		private Entry(List<Statement> statements, Map<String,String> namespaces, Set<String> resources)
+		{
+			this.bindings = null;
+			this.statements = statements;
+			this.namespaces = namespaces;
+			this.resources = resources;
+		}
+	}
+
+	/**	Creates a cache with the size and lifetime given by the system properties */
+	public QueryCache()
+	{
+		this((int) getProperty("liber.sesame.cache.size", 5000), getProperty("liber.sesame.cache.ttl", 600000));
+	}
+
+	/**	Creates a cache
+	 *	@param size Maximum number of results; 0 or less turns the cache off
+	 *	@param ttl Number of milliseconds a result is kept
+	 */
+	public QueryCache(int size, long ttl)
+	{
+		maxSize = size;
+		this.ttl = ttl;
+		entries = new LinkedHashMap<String,Entry>(64, 0.75f, true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest)
+			{
+				if (size() <= maxSize)
+					return false;
+				forget(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**	Returns true if results are cached at all
+	 *	@return boolean
+	 */
+	public boolean isEnabled()
+	{
+		return maxSize > 0;
+	}
+
+	/**	Returns a number that changes whenever results are invalidated. Read it before
+	 *	sending a query, and pass it on when the result is stored, so that a result that
+	 *	may have missed a write is not stored.
+	 *	@return long
+	 */
+	public synchronized long getGeneration()
+	{
+		return generation;
+	}
+
+	/**	Returns a copy of the cached result of a SELECT query, or null if there is none
+	 *	@param sparql SPARQL query
+	 *	@param id The id the results were assigned to, or null
+	 *	@return QueryResult, or null
+	 */
+	public QueryResult getBinding(String sparql, String id)
+	{
+		Entry entry = get(getKey(sparql, id), sparql);
+		if ((entry == null) || (entry.bindings == null))
+			return null;
+		return entry.bindings.copy();	//the cached result itself is never changed
+	}
+
+	/**	Stores the result of a SELECT query, unless results have been invalidated
+	 *	since the given generation
+	 *	@param sparql SPARQL query
+	 *	@param id The id the results were assigned to, or null
+	 *	@param result QueryResult; it is copied, so the caller may go on changing it
+	 *	@param generation Result of getGeneration() before the query was sent
+	 */
+	public void putBinding(String sparql, String id, QueryResult result, long generation)
+	{
+		if (!isEnabled())
+			return;
+		QueryResult copy = result.copy();
+		Set<String> resources = getResources(sparql);
+		for (Iterator it = copy.getIDs(); it.hasNext(); )
+		{
+			String key = (String) it.next();
+			addResource(resources, key);
+			for (List<String> values : copy.getBindings(key).values())
+			{
+				for (String value : values)
+					addResource(resources, value);
+			}
+		}
+		put(getKey(sparql, id), new Entry(copy, resources), generation);
+	}
+
+	/**	Returns the cached result of a CONSTRUCT query, or null if there is none
+	 *	@param sparql SPARQL query
+	 *	@return GraphQueryResult, or null
+	 */
+	public GraphQueryResult getGraph(String sparql)
+	{
+		Entry entry = get(getKey(sparql, null), sparql);
+		if ((entry == null) || (entry.statements == null))
+			return null;
+		return new GraphQueryResultImpl(entry.namespaces, entry.statements);
+	}
+
+	/**	Stores the result of a CONSTRUCT query, unless results have been invalidated
+	 *	since the given generation
+	 *	@param sparql SPARQL query
+	 *	@param namespaces Namespaces of the result
+	 *	@param statements The statements in the result; this list must not be changed afterwards
+	 *	@param generation Result of getGeneration() before the query was sent
+	 */
+	public void putGraph(String sparql, Map<String,String> namespaces, List<Statement> statements, long generation)
+	{
+		if (!isEnabled())
+			return;
+		Set<String> resources = getResources(sparql);
+		for (Statement s : statements)
+			addResources(resources, s);
+		put(getKey(sparql, null), new Entry(statements, namespaces, resources), generation);
+	}
+
+	/**	Drops all results that mention one of the given resources, and all results
+	 *	of queries that do not mention any resource.
+	 *	@param resources URIs of the resources that have changed
+	 */
+	public synchronized void invalidate(Collection<String> resources)
+	{
+		generation++;
+		Set<String> keys = new HashSet<String>(open);
+		for (String resource : resources)
+		{
+			Set<String> set = dependents.get(resource);
+			if (set != null)
+				keys.addAll(set);
+		}
+		for (String key : keys)
+		{
+			Entry entry = entries.remove(key);
+			if (entry != null)
+			{
+				forget(key, entry);
+				invalidated++;
+			}
+		}
+	}
+
+	/**	Drops all results */
+	public synchronized void clear()
+	{
+		generation++;
+		entries.clear();
+		dependents.clear();
+		open.clear();
+	}
+
+	/**	Returns the resources (subjects, and objects that are not literals) of the given
+	 *	statements, i.e. those whose results have to be invalidated when they are written.
+	 *	@param statements Statements
+	 *	@return Set of URIs
+	 */
+	public static Set<String> getResources(Collection<Statement> statements)
+	{
+		Set<String> result = new HashSet<String>();
+		for (Statement s : statements)
+			addResources(result, s);
+		return result;
+	}
+
+	private Entry get(String key, String sparql)
+	{
+		if (!isEnabled())
+			return null;
+		String template = getTemplate(sparql);
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if ((entry != null) && (System.currentTimeMillis() - entry.created > ttl))
+			{
+				entries.remove(key);
+				forget(key, entry);
+				expired++;
+				entry = null;
+			}
+			long[] counts = getCounts(template);
+			if (entry == null)
+			{
+				misses++;
+				counts[1]++;
+			}
+			else
+			{
+				hits++;
+				counts[0]++;
+			}
+			return entry;
+		}
+	}
+
+	private synchronized void put(String key, Entry entry, long generation)
+	{
+		if (generation != this.generation)
+			return;		//something was written while the query ran
+		Entry old = entries.put(key, entry);
+		if (old != null)
+			forget(key, old);
+		if (entry.resources.isEmpty())
+			open.add(key);
+		for (String resource : entry.resources)
+		{
+			Set<String> set = dependents.get(resource);
+			if (set == null)
+			{
+				set = new HashSet<String>();
+				dependents.put(resource, set);
+			}
+			set.add(key);
+		}
+	}
+
+	/**	Removes the key of a result that is no longer cached from the indices */
+	private void forget(String key, Entry entry)
+	{
+		open.remove(key);
+		for (String resource : entry.resources)
+		{
+			Set<String> set = dependents.get(resource);
+			if (set == null)
+				continue;
+			set.remove(key);
+			if (set.isEmpty())
+				dependents.remove(resource);
+		}
+	}
+
+	private long[] getCounts(String template)
+	{
+		long[] counts = templates.get(template);
+		if (counts == null)
+		{
+			if (templates.size() >= MAX_TEMPLATES)
+				template = OTHER;
+			counts = templates.get(template);
+			if (counts == null)
+			{
+				counts = new long[2];
+				templates.put(template, counts);
+			}
+		}
+		return counts;
+	}
+
+	private static String getKey(String sparql, String id)
+	{
+		String key = normalise(sparql);
+		return (id == null) ? key : key + '\n' + id;
+	}
+
+	/**	Collapses all whitespace in the query, so that queries that only differ in layout
+	 *	share a result
+	 *	@param sparql SPARQL query
+	 *	@return String
+	 */
+	public static String normalise(String sparql)
+	{
+		return sparql.trim().replaceAll("\\s+", " ");
+	}
+
+	/**	Returns the template of a query: the query without its prefixes, with the resources,
+	 *	literals and numbers taken out, and repeated parts (such as the branches of a query
+	 *	about many objects) collapsed. Queries that were built by the same method of
+	 *	OntologyWriter have the same template.
+	 *	@param sparql SPARQL query
+	 *	@return String
+	 */
+	public static String getTemplate(String sparql)
+	{
+		String s = PREFIX.matcher(normalise(sparql)).replaceAll("");
+		s = IRI.matcher(s).replaceAll("<>");
+		s = s.replaceAll("\"[^\"]*\"", "\"\"").replaceAll("(\\?[A-Za-z_]+)\\d+", "$1");
+		s = s.replaceAll("(<> [^<>{}]*? \\. )\\1+", "$1");
+		s = s.replaceAll("(\\{ [^{}]* \\} )(UNION \\1)+", "$1UNION ... ");
+		return s;
+	}
+
+	/**	Returns the resources mentioned in the query */
+	private static Set<String> getResources(String sparql)
+	{
+		Set<String> result = new HashSet<String>();
+		Matcher m = IRI.matcher(PREFIX.matcher(sparql).replaceAll(""));
+		while (m.find())
+			result.add(m.group(1));
+		return result;
+	}
+
+	private static void addResources(Set<String> resources, Statement s)
+	{
+		if (s.getSubject() instanceof URI)
+			resources.add(s.getSubject().toString());
+		Value object = s.getObject();
+		if (object instanceof URI)
+			resources.add(object.toString());
+	}
+
+	private static void addResource(Set<String> resources, String value)
+	{
+		if ((value != null) && (value.indexOf("://") > 0) && (value.indexOf(' ') < 0))
+			resources.add(value);
+	}
+
+	private static long getProperty(String property, long def)
+	{
+		try
+		{
+			return Long.parseLong(System.getProperty(property, Long.toString(def)).trim());
+		}
+		catch (NumberFormatException e)
+		{
+			System.out.println(property + " is not a number, using " + def);
+			return def;
+		}
+	}
+
+	/**	Returns the number of cached results
+	 *	@return int
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**	Returns the number of queries that were answered from the cache
+	 *	@return long
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**	Returns the number of queries that had to be sent to the repository
+	 *	@return long
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**	Returns the fraction of queries that were answered from the cache
+	 *	@return double
+	 */
+	public synchronized double getHitRatio()
+	{
+		return (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+	}
+
+	/**	Returns the number of hits and misses of each query template (see getTemplate())
+	 *	@return Map with for each template an array with the hits and the misses
+	 */
+	public synchronized Map<String,long[]> getTemplateCounts()
+	{
+		Map<String,long[]> result = new TreeMap<String,long[]>();
+		for (Map.Entry<String,long[]> e : templates.entrySet())
+			result.put(e.getKey(), e.getValue().clone());
+		return result;
+	}
+
+	/**	Returns a report of the hit ratio of each query template, most used first
+	 *	@return String
+	 */
+	public synchronized String getReport()
+	{
+		List<Map.Entry<String,long[]>> list = new ArrayList<Map.Entry<String,long[]>>(templates.entrySet());
+		Collections.sort(list, new Comparator<Map.Entry<String,long[]>>()
+		{
+			public int compare(Map.Entry<String,long[]> a, Map.Entry<String,long[]> b)
+			{
+				long x = a.getValue()[0] + a.getValue()[1], y = b.getValue()[0] + b.getValue()[1];
+				return (x < y) ? 1 : ((x > y) ? -1 : 0);
+			}
+		});
+		StringBuffer sb = new StringBuffer(toString());
+		for (Map.Entry<String,long[]> e : list)
+		{
+			long[] counts = e.getValue();
+			sb.append('\n').append(counts[0]).append('/').append(counts[0] + counts[1]);
+			sb.append(" hits (").append(Math.round(100.0 * counts[0] / (counts[0] + counts[1]))).append("%): ");
+			sb.append(e.getKey());
+		}
+		return sb.toString();
+	}
+
+	public synchronized String toString()
+	{
+		return "QueryCache: " + entries.size() + "/" + maxSize + " results, " + hits + " hits, "
+				+ misses + " misses (" + Math.round(100 * getHitRatio()) + "%), " + expired + " expired, "
+				+ invalidated + " invalidated";
+	}
+}
@@ -2,11 +2,17 @@ package WYSIWYM.ontology;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Value;
 import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResultHandler;
 
 import WYSIWYM.model.Anchor;
 import WYSIWYM.model.Edge;
@@ -23,6 +29,8 @@ import com.hp.hpl.jena.ontology.OntClass;
  *	Results are stored by their Sesame ID. Either your SPARQL query should request 
  *	the Sesame ID as the first variable, or you should specify each BindingSet's 
  *	Sesame ID yourself using add(BindingSet, String id).
+ *	A Handler builds a QueryResult while Sesame evaluates the query, so the results
+ *	do not have to be stored twice.
  *
  *	@author Feikje Hielkema
  *	@version 1.2 12-03-2008
@@ -33,6 +41,7 @@ import com.hp.hpl.jena.ontology.OntClass;
  {
  	private List<String> variables;
  	private Map<String, Binding> resultMap = new HashMap<String, Binding>();
+ 	private Map<String, String> uris = new HashMap<String, String>();	//one copy of each URI in the result
  	
  	/**	Creates a new QueryResult from the given set of variables
  	 *	(you can get these from TupleQueryResult.getBindingNames())
@@ -134,6 +143,21 @@ import com.hp.hpl.jena.ontology.OntClass;
  		return variables;
  	}
  	
+ 	/**	Returns a copy of this QueryResult, which can be changed (e.g. by clean() or
+ 	 *	remove()) without affecting the original
+ 	 *	@return QueryResult
+ 	 */
+ 	public QueryResult copy()
+ 	{
+ 		QueryResult result = new QueryResult(new ArrayList<String>(variables));
+ 		for (Iterator<String> it = resultMap.keySet().iterator(); it.hasNext(); )
+ 		{
+ 			String key = it.next();
+ 			result.resultMap.put(key, result.new Binding(resultMap.get(key)));
+ 		}
+ 		return result;
+ 	}
+ 	
  	/**	Adds a new BindingSet; if the Sesame ID (which must be the first binding!) 
  	 *	matches that of one	of the Bindings in resultMap, the (new) values are added to it.
  	 *
@@ -144,8 +168,7 @@ import com.hp.hpl.jena.ontology.OntClass;
  		if (variables.size() == 0)
  			return;
  		
- 		String var = variables.get(0);
- 		String id = getValue(set.getBinding(var).toString(), var);
+ 		String id = getValue(set.getValue(variables.get(0)));
  		if (resultMap.containsKey(id))	//this instance is already in the result
  			resultMap.get(id).add(set, variables);
  		else
@@ -229,6 +252,34 @@ import com.hp.hpl.jena.ontology.OntClass;
  		return true;
  	}
  	
+ 	/**	Returns the value as it is stored in a QueryResult: a URI or blank node
+ 	 *	as a string, and a literal without its datatype or language tag.
+ 	 */
+ 	private String getValue(Value value)
+ 	{
+ 		if (value instanceof Literal)
+ 			return ((Literal) value).getLabel();
+ 		if (value instanceof BNode)
+ 			return "_:" + ((BNode) value).getID();
+ 		String uri = value.stringValue();
+ 		String result = uris.get(uri);
+ 		if (result == null)
+ 		{
+ 			uris.put(uri, uri);
+ 			return uri;
+ 		}
+ 		return result;
+ 	}
+ 	
+ 	/**	Stops checking for duplicate values with sets, once all results have been added
+ 	 */
+ 	private void endOfResults()
+ 	{
+ 		for (Binding b : resultMap.values())
+ 			b.seen = null;
+ 		uris = new HashMap<String, String>();
+ 	}
+ 	
  	/**	Separates the actual value from the variable name
  	 *
  	 *	@param value String value in BindingSet
@@ -390,6 +441,7 @@ import com.hp.hpl.jena.ontology.OntClass;
  	private class Binding
  	{
  		private Map<String, List<String>> bindings = new HashMap<String, List<String>>();
+ 		private Map<String, Set<String>> seen = new HashMap<String, Set<String>>();	//the values in bindings, while results are being added
  		private String id;	//the unique id of the instance
  		
  		/**	Creates a new Binding from the given set of values
@@ -397,7 +449,7 @@ import com.hp.hpl.jena.ontology.OntClass;
  		 */
  		public Binding(BindingSet set, List<String> vars)
  		{
- 			id = QueryResult.getValue(set.getBinding(vars.get(0)).toString(), vars.get(0));		//the first variable is the ID
+ 			id = getValue(set.getValue(vars.get(0)));		//the first variable is the ID
  			initValues(vars, set, 1);
  		}
  		
@@ -409,14 +461,27 @@ import com.hp.hpl.jena.ontology.OntClass;
  			initValues(vars, set, 0);
  		}
  		
+ 		/**	Creates a copy of a complete Binding
+ 		 */
+ 		public Binding(Binding other)
+ 		{
+ 			id = other.id;
+ 			seen = null;
+ 			for (Iterator<String> it = other.bindings.keySet().iterator(); it.hasNext(); )
+ 			{
+ 				String key = it.next();
+ 				bindings.put(key, new ArrayList<String>(other.bindings.get(key)));
+ 			}
+ 		}
+ 		
  		private void initValues(List<String> vars, BindingSet set, int start)
  		{
  			for (int i = start; i < vars.size(); i++)
  			{
  				String var = vars.get(i);
-	 			if (set.getBinding(var) != null)
+	 			if (set.getValue(var) != null)
  				{
-	 				String value = QueryResult.getValue(set.getBinding(var).toString(), var);
+	 				String value = getValue(set.getValue(var));
 	 				if ((value.indexOf("#Seq") > 0) || (value.indexOf("_:node") > -1))
  						continue;	//if the value is a sequence, the type of a sequence, or the id (should be of a sequence), skip it!
  					if (var.equalsIgnoreCase("type") || var.equals(OntologyWriter.PROPERTY))
@@ -431,10 +496,12 @@ import com.hp.hpl.jena.ontology.OntClass;
  					{	//so make this property the key, and the next binding its value
  						var = value;
  						i++;	//get next variable and value
- 						value = QueryResult.getValue(set.getBinding(vars.get(i)).toString(), vars.get(i));
+ 						value = getValue(set.getValue(vars.get(i)));
  					}
 					list.add(value);
  					bindings.put(var, list);
+ 					if (seen != null)
+ 						seen.remove(var);	//rebuilt from the new list by isNew()
  				}
  			}
  		}
@@ -449,7 +516,7 @@ import com.hp.hpl.jena.ontology.OntClass;
  		 */
  		public boolean add(BindingSet set, List<String> vars)
  		{
- 			if (!id.equals(QueryResult.getValue(set.getBinding(vars.get(0)).toString(), vars.get(0))))
+ 			if (!id.equals(getValue(set.getValue(vars.get(0)))))
  				return false;
  			addValues(set, vars, 1);
  			return true;
@@ -460,9 +527,9 @@ import com.hp.hpl.jena.ontology.OntClass;
  			for (int i = start; i < vars.size(); i++)
  			{
  				String var = vars.get(i);
- 				if (set.getBinding(var) != null)
+ 				if (set.getValue(var) != null)
  				{
- 					String value = QueryResult.getValue(set.getBinding(var).toString(), var);
+ 					String value = getValue(set.getValue(var));
  					if ((value.indexOf("#Seq") > 0) || (value.indexOf("_:node") > -1))
  						continue;	//if the value is a sequence or the type of a sequence, skip it!
  					if (var.equalsIgnoreCase("type") || var.equals(OntologyWriter.PROPERTY))
@@ -474,13 +541,13 @@ import com.hp.hpl.jena.ontology.OntClass;
 					{
  						var = value;	//use the value as key, which is the name of the property
  						i++;	//get value of next variable
- 						value = QueryResult.getValue(set.getBinding(vars.get(i)).toString(), vars.get(i));
+ 						value = getValue(set.getValue(vars.get(i)));
 					}
 					
  					if (bindings.containsKey(var))
  					{
  						List<String> list = bindings.get(var);
- 						if (!list.contains(value))
+ 						if (isNew(var, list, value))
 	 						list.add(value);
 	 				}
  					else
@@ -488,11 +555,29 @@ import com.hp.hpl.jena.ontology.OntClass;
  						List<String> list = new ArrayList<String>();
  						list.add(value);
 	 					bindings.put(var, list);
+	 					if (seen != null)
+	 						seen.remove(var);
  					}
  				}
  			}
  		}
  		
+ 		/**	Checks whether the value is not in the list yet; with a set while results
+ 		 *	are being added, as the list may become long if they all have the same ID
+ 		 */
+ 		private boolean isNew(String var, List<String> list, String value)
+ 		{
+ 			if (seen == null)
+ 				return !list.contains(value);
+ 			Set<String> set = seen.get(var);
+ 			if (set == null)
+ 			{
+ 				set = new HashSet<String>(list);
+ 				seen.put(var, set);
+ 			}
+ 			return set.add(value);
+ 		}
+ 		
  		/**	If the given id matches the id of this Binding, the set of
  		 *	values is added to this binding
  		 */
@@ -639,4 +724,45 @@ import com.hp.hpl.jena.ontology.OntClass;
  			return false;
  		}
  	}
+ 	
+ 	/**	Builds a QueryResult from the results of a tuple query while Sesame evaluates
+ 	 *	it, without storing them in between.
+ 	 */
+ 	public static class Handler implements TupleQueryResultHandler
+ 	{
+ 		private String id;
+ 		private QueryResult result;
+ 		
+ 		/**	Creates a handler for results that all belong to the given Sesame ID;
+ 		 *	if it is null, the first variable of each result is its ID.
+ 		 *	@param id Sesame ID, or null
+ 		 */
+ 		public Handler(String id)
+ 		{
+ 			this.id = id;
+ 		}
+ 		
+ 		public void startQueryResult(List<String> bindingNames)
+ 		{
+ 			result = new QueryResult(bindingNames);
+ 		}
+ 		
+ 		public void handleSolution(BindingSet set)
+ 		{
+ 			result.add(set, id);
+ 		}
+ 		
+ 		public void endQueryResult()
+ 		{
+ 			result.endOfResults();
+ 		}
+ 		
+ 		/**	Returns the QueryResult, once the query has been evaluated
+ 		 *	@return QueryResult
+ 		 */
+ 		public QueryResult getResult()
+ 		{
+ 			return result;
+ 		}
+ 	}
  }
\ No newline at end of file
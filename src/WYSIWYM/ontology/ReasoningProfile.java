@@ -0,0 +1,346 @@
+package WYSIWYM.ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.ontology.OntModelSpec;
+import com.hp.hpl.jena.ontology.OntProperty;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**	ReasoningProfile determines how much inference OntologyReader asks of Jena.
+ *	It is set with the system property 'liber.reasoning':
+ *	<ul>
+ *	<li>'full' (the default) uses Jena's RDFS reasoner (OWL_DL_MEM_RDFS_INF), which
+ *	keeps a live inference graph;</li>
+ *	<li>'light' uses a plain model (OWL_DL_MEM), to which the RDFS entailments that
+ *	LIBER needs (subclass and subproperty closure, and the types that follow from
+ *	domains, ranges and subclasses) are added once, as a separate sub-model. This
+ *	needs much less memory and makes queries such as listSuperClasses much faster;</li>
+ *	<li>'compare' uses the full profile, but also computes the maps with the light
+ *	profile and reports any differences between the two.</li>
+ *	</ul>
+ *	The materialised triples are kept in a sub-model, so they are not written
+ *	when the ontology is saved.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class ReasoningProfile
+{
+	public static final String FULL = "full";
+	public static final String LIGHT = "light";
+	public static final String COMPARE = "compare";
+
+	/**	Returns the profile set in the system property 'liber.reasoning'
+	 *	@return String FULL, LIGHT or COMPARE
+	 */
+	public static String getProfile()
+	{
+		String profile = System.getProperty("liber.reasoning", FULL).trim().toLowerCase();
+		if (profile.equals(LIGHT) || profile.equals(COMPARE))
+			return profile;
+		return FULL;
+	}
+
+	/**	Returns the OntModelSpec that belongs to the current profile
+	 *	@return OntModelSpec
+	 */
+	public static OntModelSpec getSpec()
+	{
+		return getSpec(getProfile());
+	}
+
+	/**	Returns the OntModelSpec that belongs to the given profile
+	 *	@param profile FULL, LIGHT or COMPARE
+	 *	@return OntModelSpec
+	 */
+	public static OntModelSpec getSpec(String profile)
+	{
+		if (LIGHT.equals(profile))
+			return OntModelSpec.OWL_DL_MEM;
+		return OntModelSpec.OWL_DL_MEM_RDFS_INF;
+	}
+
+	/**	Creates an empty OntModel for the current profile
+	 *	@return OntModel
+	 */
+	public static OntModel createModel()
+	{
+		return ModelFactory.createOntologyModel(getSpec());
+	}
+
+	/**	Checks whether the model relies on materialised entailments instead of a reasoner
+	 *	@param model OntModel
+	 *	@return true if the model has no reasoner
+	 */
+	public static boolean isLight(OntModel model)
+	{
+		return model.getSpecification().getReasoner() == null;
+	}
+
+	/**	Adds the RDFS entailments of the base model of a light model to it, as a sub-model.
+	 *	The sub-model that was added by a previous call is replaced.
+	 *	@param model OntModel without reasoner
+	 *	@param previous Sub-model returned by the previous call, or null
+	 *	@return The new sub-model
+	 */
+	public static Model materialise(OntModel model, Model previous)
+	{
+		long start = System.currentTimeMillis();
+		if (previous != null)
+			model.removeSubModel(previous, false);
+		Graph base = model.getBaseModel().getGraph();
+		Set<Triple> closure = new HashSet<Triple>();
+		for (Iterator it = base.find(Node.ANY, Node.ANY, Node.ANY); it.hasNext(); )
+			closure.add((Triple) it.next());
+		closure.addAll(AXIOMS);
+		addDeclarations(closure);
+		while (apply(closure))
+		{}	//until nothing new is found
+
+		Model inferred = ModelFactory.createDefaultModel();
+		Graph g = inferred.getGraph();
+		for (Triple t : closure)
+			if (!base.contains(t))
+				g.add(t);
+		model.addSubModel(inferred, true);
+		System.out.println("Materialised " + inferred.size() + " entailments in " + (System.currentTimeMillis() - start) + " ms");
+		return inferred;
+	}
+
+	private static final Node TYPE = RDF.type.asNode();
+	private static final Node PROPERTY = RDF.Property.asNode();
+	private static final Node CLASS = RDFS.Class.asNode();
+	private static final Node RESOURCE = RDFS.Resource.asNode();
+	private static final Node SUBCLASS = RDFS.subClassOf.asNode();
+	private static final Node SUBPROPERTY = RDFS.subPropertyOf.asNode();
+	private static final Node DOMAIN = RDFS.domain.asNode();
+	private static final Node RANGE = RDFS.range.asNode();
+	private static final Node MEMBERSHIP = RDFS.ContainerMembershipProperty.asNode();
+
+	/**	The axiomatic triples of RDFS, as used by Jena's RDFS reasoner at its default level */
+	private static final List<Triple> AXIOMS = new ArrayList<Triple>();
+	static
+	{
+		String[][] axioms = {
+			{"rdf:type", "rdfs:range", "rdfs:Class"}, {"rdfs:Resource", "rdf:type", "rdfs:Class"},
+			{"rdfs:Literal", "rdf:type", "rdfs:Class"}, {"rdf:Statement", "rdf:type", "rdfs:Class"},
+			{"rdf:nil", "rdf:type", "rdf:List"}, {"rdf:subject", "rdf:type", "rdf:Property"},
+			{"rdf:object", "rdf:type", "rdf:Property"}, {"rdf:predicate", "rdf:type", "rdf:Property"},
+			{"rdf:first", "rdf:type", "rdf:Property"}, {"rdf:rest", "rdf:type", "rdf:Property"},
+			{"rdfs:subPropertyOf", "rdfs:domain", "rdf:Property"}, {"rdfs:subClassOf", "rdfs:domain", "rdfs:Class"},
+			{"rdfs:domain", "rdfs:domain", "rdf:Property"}, {"rdfs:range", "rdfs:domain", "rdf:Property"},
+			{"rdf:subject", "rdfs:domain", "rdf:Statement"}, {"rdf:predicate", "rdfs:domain", "rdf:Statement"},
+			{"rdf:object", "rdfs:domain", "rdf:Statement"}, {"rdf:first", "rdfs:domain", "rdf:List"},
+			{"rdf:rest", "rdfs:domain", "rdf:List"}, {"rdfs:subPropertyOf", "rdfs:range", "rdf:Property"},
+			{"rdfs:subClassOf", "rdfs:range", "rdfs:Class"}, {"rdfs:domain", "rdfs:range", "rdfs:Class"},
+			{"rdfs:range", "rdfs:range", "rdfs:Class"}, {"rdfs:comment", "rdfs:range", "rdfs:Literal"},
+			{"rdfs:label", "rdfs:range", "rdfs:Literal"}, {"rdf:rest", "rdfs:range", "rdf:List"},
+			{"rdf:Alt", "rdfs:subClassOf", "rdfs:Container"}, {"rdf:Bag", "rdfs:subClassOf", "rdfs:Container"},
+			{"rdf:Seq", "rdfs:subClassOf", "rdfs:Container"}, {"rdfs:ContainerMembershipProperty", "rdfs:subClassOf", "rdf:Property"},
+			{"rdfs:isDefinedBy", "rdfs:subPropertyOf", "rdfs:seeAlso"}, {"rdf:XMLLiteral", "rdf:type", "rdfs:Datatype"},
+			{"rdfs:Datatype", "rdfs:subClassOf", "rdfs:Class"}};
+		for (int i = 0; i < axioms.length; i++)
+			AXIOMS.add(new Triple(expand(axioms[i][0]), expand(axioms[i][1]), expand(axioms[i][2])));
+	}
+
+	private static Node expand(String qname)
+	{
+		if (qname.startsWith("rdf:"))
+			return Node.createURI(RDF.getURI() + qname.substring(4));
+		return Node.createURI(RDFS.getURI() + qname.substring(5));
+	}
+
+	/**	Applies the rules that Jena's reasoner only applies to the stated triples and 
+	 *	the axioms, not to entailments: classes and properties are subclasses and 
+	 *	subproperties of themselves, and every class is a subclass of rdfs:Resource.
+	 */
+	private static void addDeclarations(Set<Triple> closure)
+	{
+		Set<Triple> types = new HashSet<Triple>();
+		for (Triple t : closure)
+		{
+			Node p = t.getPredicate();
+			if (p.equals(DOMAIN) || p.equals(RANGE))
+				types.add(new Triple(t.getObject(), TYPE, CLASS));			//the object of a domain or range is a class
+			else if (p.equals(TYPE))
+				types.add(t);
+		}
+		closure.addAll(types);
+		for (Triple t : types)
+		{
+			Node s = t.getSubject(), o = t.getObject();
+			if (o.equals(CLASS))
+			{
+				closure.add(new Triple(s, SUBCLASS, s));						//rdfs10
+				closure.add(new Triple(s, SUBCLASS, RESOURCE));				//rdfs8
+			}
+			else if (o.equals(PROPERTY))
+				closure.add(new Triple(s, SUBPROPERTY, s));					//rdfs6
+			else if (o.equals(MEMBERSHIP))
+				closure.add(new Triple(s, SUBPROPERTY, RDFS.member.asNode()));	//rdfs12
+		}
+	}
+
+	/**	Applies the other RDFS rules once to all triples in the closure.
+	 *	@return true if any triples were added
+	 */
+	private static boolean apply(Set<Triple> closure)
+	{
+		int size = closure.size();
+		Map<Node,Set<Node>> superProperties = new HashMap<Node,Set<Node>>();
+		Map<Node,Set<Node>> superClasses = new HashMap<Node,Set<Node>>();
+		Map<Node,Set<Node>> domains = new HashMap<Node,Set<Node>>();
+		Map<Node,Set<Node>> ranges = new HashMap<Node,Set<Node>>();
+		for (Triple t : closure)
+		{
+			Node p = t.getPredicate();
+			if (p.equals(SUBPROPERTY))
+				add(superProperties, t.getSubject(), t.getObject());
+			else if (p.equals(SUBCLASS))
+				add(superClasses, t.getSubject(), t.getObject());
+			else if (p.equals(DOMAIN))
+				add(domains, t.getSubject(), t.getObject());
+			else if (p.equals(RANGE))
+				add(ranges, t.getSubject(), t.getObject());
+		}
+		transitiveClosure(superProperties);
+		transitiveClosure(superClasses);
+
+		List<Triple> found = new ArrayList<Triple>();
+		for (Triple t : closure)
+		{
+			Node s = t.getSubject(), p = t.getPredicate(), o = t.getObject();
+			for (Node q : get(superProperties, p))
+				found.add(new Triple(s, q, o));										//rdfs7
+			for (Node c : get(domains, p))
+				found.add(new Triple(s, TYPE, c));									//rdfs2
+			if (!o.isLiteral())
+				for (Node c : get(ranges, p))
+					found.add(new Triple(o, TYPE, c));								//rdfs3
+			if (p.equals(SUBPROPERTY) || p.equals(SUBCLASS))
+				for (Node sup : get(p.equals(SUBCLASS) ? superClasses : superProperties, s))
+					found.add(new Triple(s, p, sup));								//rdfs5, rdfs11
+			if (p.equals(TYPE))
+				for (Node c : get(superClasses, o))
+					found.add(new Triple(s, TYPE, c));								//rdfs9
+		}
+		closure.addAll(found);
+		return closure.size() > size;
+	}
+
+	private static void add(Map<Node,Set<Node>> map, Node key, Node value)
+	{
+		Set<Node> set = map.get(key);
+		if (set == null)
+		{
+			set = new HashSet<Node>();
+			map.put(key, set);
+		}
+		set.add(value);
+	}
+
+	private static Set<Node> get(Map<Node,Set<Node>> map, Node key)
+	{
+		Set<Node> set = map.get(key);
+		return (set == null) ? new HashSet<Node>() : set;
+	}
+
+	/**	Adds to each set all nodes that can be reached from it */
+	private static void transitiveClosure(Map<Node,Set<Node>> map)
+	{
+		boolean changed = true;
+		while (changed)
+		{
+			changed = false;
+			for (Set<Node> set : map.values())
+			{
+				List<Node> list = new ArrayList<Node>(set);
+				for (Node n : list)
+					if (map.containsKey(n) && set.addAll(map.get(n)))
+						changed = true;
+			}
+		}
+	}
+
+	/**	Compares the domain, range and cardinality maps of two readers of the same
+	 *	ontology, and prints the differences.
+	 *	@param full Reader with the full profile
+	 *	@param light Reader with the light profile
+	 *	@return The number of classes for which the maps differ
+	 */
+	public static int compare(OntologyReader full, OntologyReader light)
+	{
+		int differences = comparePropertyMaps("domain", full.getDomainMap(), light.getDomainMap());
+		differences += comparePropertyMaps("range", full.getRangeMap(), light.getRangeMap());
+
+		Map<String,Map<String,Integer[]>> fullCardinalities = full.getCardinalityMap();
+		Map<String,Map<String,Integer[]>> lightCardinalities = light.getCardinalityMap();
+		Set<String> classes = new TreeSet<String>(fullCardinalities.keySet());
+		classes.addAll(lightCardinalities.keySet());
+		for (String c : classes)
+		{
+			String a = describe(fullCardinalities.get(c)), b = describe(lightCardinalities.get(c));
+			if (!a.equals(b))
+			{
+				System.out.println("Cardinalities of " + c + " differ: full " + a + ", light " + b);
+				differences++;
+			}
+		}
+		if (differences == 0)
+			System.out.println("The full and light reasoning profiles produce identical maps");
+		else
+			System.out.println("The full and light reasoning profiles differ for " + differences + " classes");
+		return differences;
+	}
+
+	private static int comparePropertyMaps(String name, Map<String,List<OntProperty>> full, Map<String,List<OntProperty>> light)
+	{
+		int differences = 0;
+		Set<String> classes = new TreeSet<String>(full.keySet());
+		classes.addAll(light.keySet());
+		for (String c : classes)
+		{
+			Set<String> a = getURIs(full.get(c)), b = getURIs(light.get(c));
+			if (!a.equals(b))
+			{
+				System.out.println("The " + name + " properties of " + c + " differ: full " + a + ", light " + b);
+				differences++;
+			}
+		}
+		return differences;
+	}
+
+	private static Set<String> getURIs(List<OntProperty> list)
+	{
+		Set<String> result = new TreeSet<String>();
+		if (list != null)
+			for (OntProperty p : list)
+				result.add(p.getURI());
+		return result;
+	}
+
+	private static String describe(Map<String,Integer[]> map)
+	{
+		if (map == null)
+			return "{}";
+		Map<String,String> result = new TreeMap<String,String>();
+		for (String p : map.keySet())
+			result.put(p, Arrays.asList(map.get(p)).toString());
+		return result.toString();
+	}
+}
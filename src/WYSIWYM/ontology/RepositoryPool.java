@@ -0,0 +1,480 @@
+package WYSIWYM.ontology;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.openrdf.model.Statement;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.http.HTTPRepository;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.openrdf.rio.rdfxml.RDFXMLParser;
+import org.openrdf.sail.memory.MemoryStore;
+
+import WYSIWYM.util.SesameException;
+
+/**	RepositoryPool holds a Sesame repository and a bounded pool of connections to it.
+ *	There is one pool per remote repository in the process (see getRemote()), so all
+ *	sessions share the same repository handle and at most a fixed number of connections.
+ *	Local repositories (see getLocal()) are not shared, so that each session has its own.
+ *
+ *	A connection is borrowed for each query and released immediately afterwards. If all
+ *	connections are in use, borrow() waits until one is released. A connection that has
+ *	been idle for a while is checked before it is handed out, and replaced if it no longer
+ *	works; a connection on which a query failed is closed rather than returned to the pool.
+ *	Each pool also has the QueryCache of its repository.
+ *
+ *	The pools are configured with the system properties 'liber.sesame.connections' (the
+ *	maximum number of connections per repository, default 8), 'liber.sesame.wait' (the
+ *	number of milliseconds borrow() waits for a connection, default 30000) and
+ *	'liber.sesame.validate' (the number of milliseconds a connection may be idle before
+ *	it is checked, default 60000).
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class RepositoryPool
+{
+	/**	Upper bounds (in ms) of the buckets of the latency histogram; the last bucket
+	 *	holds everything slower than the last bound */
+	public static final long[] LATENCY_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+	//pools by name; each is created by the first thread that asks for it, while other threads
+	//that want the same repository wait for it, and threads that want another one do not
+	private static final Map<String,FutureTask<RepositoryPool>> pools = new HashMap<String,FutureTask<RepositoryPool>>();
+	//the statements in the data files of local repositories, which are parsed only once
+	private static final Map<String,FutureTask<List<Statement>>> localData = new HashMap<String,FutureTask<List<Statement>>>();
+
+	private final String name;
+	private final Repository repository;
+	private final int maxSize;
+	private final long maxWait, validateAfter;
+	private final QueryCache cache = new QueryCache();
+
+	private final LinkedList<RepositoryConnection> idle = new LinkedList<RepositoryConnection>();
+	private final Map<RepositoryConnection,Long> idleSince = new IdentityHashMap<RepositoryConnection,Long>();
+	private final Map<RepositoryConnection,Long> borrowedAt = new IdentityHashMap<RepositoryConnection,Long>();
+	private int inUse = 0;	//connections that are borrowed, or being opened for a borrower
+
+	private long borrows = 0, waits = 0, timeouts = 0, discarded = 0, maxInUse = 0;
+	private final long[] latencies = new long[LATENCY_BOUNDS.length + 1];
+
+	private RepositoryPool(String name, Repository repository)
+	{
+		this.name = name;
+		this.repository = repository;
+		maxSize = Math.max(1, (int) getProperty("liber.sesame.connections", 8));
+		maxWait = getProperty("liber.sesame.wait", 30000);
+		validateAfter = getProperty("liber.sesame.validate", 60000);
+	}
+
+	/**	Returns the pool of the named repository on the given Sesame server, initialising
+	 *	the repository if this is the first time it is used.
+	 *	@param url Sesame URL
+	 *	@param repName Repository name
+	 *	@return RepositoryPool
+	 *	@throws SesameException if the repository cannot be initialised
+	 */
+	public static RepositoryPool getRemote(final String url, final String repName) throws SesameException
+	{
+		final String key = url + "/repositories/" + repName;
+		return getOnce(pools, key, new Callable<RepositoryPool>()
+		{
+			public RepositoryPool call() throws Exception
+			{
+				Repository repository = new HTTPRepository(url, repName);
+				repository.initialize();
+				return new RepositoryPool(key, repository);
+			}
+		});
+	}
+
+	/**	Creates the pool of a new local, in-memory repository that holds the RDF in the given
+	 *	resource file. Every call creates a new repository, so what one reader writes to its
+	 *	repository is not seen by the others, as before there were pools; only the parsed
+	 *	file is shared, so that it is read just once. Local pools are not listed by getPools().
+	 *	@param path Resource path of the RDF/XML file
+	 *	@param baseURI Base URI of the data
+	 *	@return RepositoryPool
+	 *	@throws SesameException if the repository cannot be initialised or the file cannot be read
+	 */
+	public static RepositoryPool getLocal(final String path, final String baseURI) throws SesameException
+	{
+		List<Statement> data = getOnce(localData, path, new Callable<List<Statement>>()
+		{
+			public List<Statement> call() throws Exception
+			{
+				InputStream in = RepositoryPool.class.getClassLoader().getResourceAsStream(path);
+				if (in == null)
+					throw new SesameException("Could not find " + path);
+				try
+				{
+					List<Statement> statements = new ArrayList<Statement>();
+					RDFXMLParser parser = new RDFXMLParser();
+					parser.setRDFHandler(new StatementCollector(statements));
+					parser.parse(in, baseURI);
+					return statements;
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		});
+
+		try
+		{
+			Repository repository = new SailRepository(new MemoryStore());
+			repository.initialize();
+			RepositoryConnection connection = repository.getConnection();
+			try
+			{
+				connection.add(data);
+			}
+			finally
+			{
+				connection.close();
+			}
+			return new RepositoryPool("local:" + path, repository);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			throw new SesameException(e.getMessage());
+		}
+	}
+
+	/**	Returns the value with the given key, creating it if it does not exist yet. The lock
+	 *	on the map is only held to find or register the value; it is created outside it, so
+	 *	a slow repository only holds up the threads that want that repository. If creation
+	 *	fails, the key is forgotten, so that the next call tries again.
+	 */
+	private static <T> T getOnce(Map<String,FutureTask<T>> map, String key, Callable<T> creator) throws SesameException
+	{
+		FutureTask<T> task;
+		boolean create = false;
+		synchronized (map)
+		{
+			task = map.get(key);
+			if (task == null)
+			{
+				task = new FutureTask<T>(creator);
+				map.put(key, task);
+				create = true;
+			}
+		}
+		if (create)
+			task.run();
+
+		try
+		{
+			return task.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SesameException("Interrupted while waiting for " + key);
+		}
+		catch (ExecutionException e)
+		{
+			synchronized (map)
+			{
+				if (map.get(key) == task)
+					map.remove(key);
+			}
+			e.getCause().printStackTrace();
+			throw new SesameException(e.getCause().getMessage());
+		}
+	}
+
+	/**	Borrows a connection from the pool. It must be given back with release(), whether
+	 *	the query succeeded or not.
+	 *	@return RepositoryConnection
+	 *	@throws SesameException if no connection became available in time, or a new one could not be opened
+	 */
+	public RepositoryConnection borrow() throws SesameException
+	{
+		RepositoryConnection connection = null;
+		long idleTime = 0;
+		synchronized (this)
+		{
+			long deadline = System.currentTimeMillis() + maxWait;
+			boolean waited = false;
+			while (idle.isEmpty() && (inUse >= maxSize))
+			{
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+				{
+					timeouts++;
+					throw new SesameException("No connection to " + name + " became available within " + maxWait + " ms");
+				}
+				if (!waited)
+				{
+					waits++;
+					waited = true;
+				}
+				try
+				{
+					wait(remaining);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new SesameException("Interrupted while waiting for a connection to " + name);
+				}
+			}
+			if (!idle.isEmpty())
+			{
+				connection = idle.removeFirst();
+				idleTime = System.currentTimeMillis() - idleSince.remove(connection).longValue();
+			}
+			inUse++;
+			borrows++;
+			maxInUse = Math.max(maxInUse, inUse);
+		}
+
+		try
+		{	//opening and checking connections is done outside the lock, as it may take a round trip
+			if ((connection != null) && (idleTime > validateAfter) && !isHealthy(connection))
+			{
+				close(connection);
+				connection = null;
+			}
+			if (connection == null)
+				connection = repository.getConnection();
+		}
+		catch (Exception e)
+		{
+			synchronized (this)
+			{
+				inUse--;
+				notify();
+			}
+			e.printStackTrace();
+			throw new SesameException(e.getMessage());
+		}
+
+		synchronized (this)
+		{
+			borrowedAt.put(connection, Long.valueOf(System.currentTimeMillis()));
+		}
+		return connection;
+	}
+
+	/**	Gives a borrowed connection back to the pool, and records how long it was used.
+	 *	@param connection RepositoryConnection obtained from borrow()
+	 *	@param healthy False if something went wrong on the connection; it is then closed instead of reused
+	 */
+	public void release(RepositoryConnection connection, boolean healthy)
+	{
+		if (connection == null)
+			return;
+		long now = System.currentTimeMillis();
+		synchronized (this)
+		{
+			Long start = borrowedAt.remove(connection);
+			if (start == null)
+				return;		//not borrowed from this pool, or released twice
+			record(now - start.longValue());
+			inUse--;
+			if (healthy)
+			{
+				idle.addFirst(connection);	//most recently used first, so that surplus connections go stale
+				idleSince.put(connection, Long.valueOf(now));
+			}
+			else
+				discarded++;
+			notify();
+		}
+		if (!healthy)
+			close(connection);
+	}
+
+	/**	Checks whether the connection still works, by asking the repository for its namespaces
+	 */
+	private boolean isHealthy(RepositoryConnection connection)
+	{
+		try
+		{
+			if (!connection.isOpen())
+				return false;
+			connection.getNamespaces().close();
+			return true;
+		}
+		catch (Exception e)
+		{
+			return false;
+		}
+	}
+
+	private void close(RepositoryConnection connection)
+	{
+		try
+		{
+			connection.close();
+		}
+		catch (Exception e)
+		{
+			System.out.println("Could not close connection to " + name + ": " + e.getMessage());
+		}
+	}
+
+	private void record(long ms)
+	{
+		int i = 0;
+		while ((i < LATENCY_BOUNDS.length) && (ms >= LATENCY_BOUNDS[i]))
+			i++;
+		latencies[i]++;
+	}
+
+	private static long getProperty(String property, long def)
+	{
+		try
+		{
+			return Long.parseLong(System.getProperty(property, Long.toString(def)).trim());
+		}
+		catch (NumberFormatException e)
+		{
+			System.out.println(property + " is not a number, using " + def);
+			return def;
+		}
+	}
+
+	/**	Returns the name of the repository (its URL, or 'local:' followed by the data file)
+	 *	@return String
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**	Returns the cache of the results of queries on this repository
+	 *	@return QueryCache
+	 */
+	public QueryCache getCache()
+	{
+		return cache;
+	}
+
+	/**	Returns the maximum number of connections in this pool
+	 *	@return int
+	 */
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**	Returns the number of connections that are currently borrowed
+	 *	@return int
+	 */
+	public synchronized int getInUse()
+	{
+		return inUse;
+	}
+
+	/**	Returns the number of open connections that are waiting to be borrowed
+	 *	@return int
+	 */
+	public synchronized int getIdle()
+	{
+		return idle.size();
+	}
+
+	/**	Returns the highest number of connections that were borrowed at the same time
+	 *	@return long
+	 */
+	public synchronized long getMaxInUse()
+	{
+		return maxInUse;
+	}
+
+	/**	Returns the number of times a connection was borrowed
+	 *	@return long
+	 */
+	public synchronized long getBorrows()
+	{
+		return borrows;
+	}
+
+	/**	Returns the number of times borrow() had to wait because all connections were in use
+	 *	@return long
+	 */
+	public synchronized long getWaits()
+	{
+		return waits;
+	}
+
+	/**	Returns the number of times borrow() gave up waiting
+	 *	@return long
+	 */
+	public synchronized long getTimeouts()
+	{
+		return timeouts;
+	}
+
+	/**	Returns the number of connections that were closed because a query on them failed
+	 *	@return long
+	 */
+	public synchronized long getDiscarded()
+	{
+		return discarded;
+	}
+
+	/**	Returns the number of queries per latency bucket (see LATENCY_BOUNDS); the latency
+	 *	is the time between borrowing and releasing the connection.
+	 *	@return long[] copy of the histogram
+	 */
+	public synchronized long[] getLatencyHistogram()
+	{
+		return latencies.clone();
+	}
+
+	/**	Returns the pools of all repositories that have been used in this process
+	 *	@return Map with the name of each repository and its pool
+	 */
+	public static Map<String,RepositoryPool> getPools()
+	{
+		Map<String,RepositoryPool> result = new HashMap<String,RepositoryPool>();
+		synchronized (pools)
+		{
+			for (Iterator<Map.Entry<String,FutureTask<RepositoryPool>>> it = pools.entrySet().iterator(); it.hasNext(); )
+			{
+				Map.Entry<String,FutureTask<RepositoryPool>> entry = it.next();
+				if (!entry.getValue().isDone())
+					continue;	//still being created
+				try
+				{
+					result.put(entry.getKey(), entry.getValue().get());
+				}
+				catch (Exception e)
+				{	//creation failed; getPool() will remove it
+				}
+			}
+		}
+		return result;
+	}
+
+	public synchronized String toString()
+	{
+		StringBuffer sb = new StringBuffer(name);
+		sb.append(": ").append(inUse).append('/').append(maxSize).append(" in use, ");
+		sb.append(idle.size()).append(" idle, ").append(borrows).append(" borrows, ");
+		sb.append(waits).append(" waits, ").append(timeouts).append(" timeouts, ");
+		sb.append(discarded).append(" discarded; latency");
+		for (int i = 0; i < latencies.length; i++)
+		{
+			sb.append(i < LATENCY_BOUNDS.length ? " <" + LATENCY_BOUNDS[i] : " >=" + LATENCY_BOUNDS[LATENCY_BOUNDS.length - 1]);
+			sb.append("ms:").append(latencies[i]);
+		}
+		return sb.toString();
+	}
+}
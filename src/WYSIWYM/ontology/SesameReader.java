@@ -2,23 +2,33 @@ package WYSIWYM.ontology;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.openrdf.query.BindingSet;
+import org.openrdf.model.Statement;
 import org.openrdf.query.GraphQuery;
 import org.openrdf.query.GraphQueryResult;
+import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.TupleQuery;
-import org.openrdf.query.TupleQueryResult;
-import org.openrdf.query.impl.TupleQueryResultBuilder;
+import org.openrdf.query.impl.GraphQueryResultImpl;
 import org.openrdf.query.resultio.sparqlxml.SPARQLResultsXMLWriter;
-import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
-import org.openrdf.repository.http.HTTPRepository;
-import org.openrdf.repository.sail.SailRepository;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.openrdf.rio.rdfxml.RDFXMLParser;
 import org.openrdf.rio.rdfxml.RDFXMLWriter;
-import org.openrdf.sail.memory.MemoryStore;
 
 import WYSIWYM.util.SesameException;
 
@@ -28,6 +38,16 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
 /**	SesameReader retrieves an ontology from a Sesame repository (local or remote)
  *	and puts it either in a Sesame graph or in a OntologyModel
  *
+ *	The repository and its connections are shared by all SesameReaders in the process
+ *	(see RepositoryPool); each query borrows a connection for as long as it runs.
+ *	The results of queryBinding() and queryGraph() are cached for all readers of the
+ *	repository (see QueryCache), until they expire or write() changes their resources.
+ *
+ *	For debugging, one in every so many CONSTRUCT queries can be recorded with its results
+ *	(see queryGraph(String, RDFHandler)); set the system property 'liber.sesame.capture'
+ *	to the sampling interval, and optionally 'liber.sesame.capture.file' to the file
+ *	(default SPARQL-CAPTURE.txt) to which they are appended.
+ *
  *	THE URLS TO THE POLICYGRID SESAME REPOSITORIES HAVE BEEN REMOVED; TO USE THIS CLASS
  *	YOU MUST SPECIFY YOUR OWN!
  *	
@@ -37,8 +57,12 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
 
 public class SesameReader
 {
-	private RepositoryConnection connection;
-	private Repository sesameRepository;
+	private RepositoryPool pool;
+	/**	Results of CONSTRUCT queries with more statements than this are not cached */
+	public static final int MAX_CACHED_STATEMENTS = 10000;
+	private static final int MAX_CAPTURED_STATEMENTS = 1000;
+	private static final int CAPTURE_INTERVAL = getCaptureInterval();
+	private static long graphQueries = 0;
 	/**	PolicyGrid ontologies' general base URI */
 	public static final String baseURI = "http://www.policygrid.org/";
 	/**	Name of Sesame repository */
@@ -127,47 +151,219 @@ public class SesameReader
 		}
 	}
 	
-	/**	Writes RDF data from the inputstream into the sesame repository
+	/**	Writes RDF data from the inputstream into the sesame repository, and drops
+	 *	the cached results about the resources it describes
 	 *	@param in InputStream
 	 *	@throws SesameException if there is an error writing to the repository
 	 */
 	public void write(InputStream in) throws SesameException
 	{
+		Set<String> resources = new HashSet<String>();
+		RepositoryConnection connection = pool.borrow();
+		boolean healthy = true;
 		try
 		{
-			connection.add(in, baseURI, RDFFormat.RDFXML);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+				out.write(buffer, 0, n);
+			byte[] rdf = out.toByteArray();
+			
+			RDFXMLParser parser = new RDFXMLParser();	//find the resources the data is about
+			StatementCollector collector = new StatementCollector();
+			parser.setRDFHandler(collector);
+			parser.parse(new ByteArrayInputStream(rdf), baseURI);
+			resources = QueryCache.getResources(collector.getStatements());
+			
+			connection.add(new ByteArrayInputStream(rdf), baseURI, RDFFormat.RDFXML);
 		}
 		catch (Exception e)
 		{
+			healthy = false;
 			e.printStackTrace();
 			throw(new SesameException(e.getMessage()));
 		}
+		finally
+		{
+			pool.release(connection, healthy);
+			pool.getCache().invalidate(resources);
+		}
 	}
 	
 	/**	Sends the SPARQL query to the repository and results the results in a 
 	 *	Sesame GraphQueryResult. GraphQueryResult is an Iterator of Sesame statements,
-	 *	which correspond to RDF triples.
+	 *	which correspond to RDF triples. The statements are read before the connection
+	 *	is returned to the pool, so the result does not have to be closed, and the caller
+	 *	may send other queries while going through it.
 	 *	@param sparql SPARQL query
 	 *	@return GraphQueryResult
 	 *	@throws SesameException if there is an error querying the repository
 	 */
 	public GraphQueryResult queryGraph(String sparql) throws SesameException
 	{
+		StatementCollector collector = new StatementCollector(new ArrayList<Statement>(), new HashMap<String,String>());
+		queryGraph(sparql, collector);
+		return new GraphQueryResultImpl(collector.getNamespaces(), collector.getStatements());
+	}
+	
+	/**	Sends the SPARQL query to the repository, which evaluates it once, and hands the
+	 *	statements to the given handler as they come in. If the result is cached, the
+	 *	handler gets the cached statements instead. The connection is held while the
+	 *	handler runs, and is always released afterwards (also if the handler fails), so the
+	 *	handler should not send queries of its own; use queryGraph(String) for that.
+	 *	
+	 *	If debug capture is on, every so many queries are appended, with their results,
+	 *	to the capture file.
+	 *	@param sparql SPARQL query
+	 *	@param handler RDFHandler that receives the statements
+	 *	@throws SesameException if there is an error querying the repository, or in the handler
+	 */
+	public void queryGraph(String sparql, RDFHandler handler) throws SesameException
+	{
+		QueryCache cache = pool.getCache();
+		GraphQueryResult cached = cache.getGraph(sparql);
+		if (cached != null)
+		{
+			replay(cached, handler);
+			return;
+		}
+		long generation = cache.getGeneration();
+		
+		GraphRecorder recorder = new GraphRecorder(handler, cache.isEnabled(), sampleCapture());
+		long start = System.currentTimeMillis();
+		String error = null;
+		RepositoryConnection connection = pool.borrow();
+		boolean healthy = true;
 		try
 		{
 			GraphQuery query = connection.prepareGraphQuery(QueryLanguage.SPARQL, sparql);
-			GraphQueryResult result = query.evaluate();
-		
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
-			RDFXMLWriter writer = new RDFXMLWriter(out);
-			query.evaluate(writer);
-			return result;
+			query.evaluate(recorder);
+			if (recorder.statements != null)
+				cache.putGraph(sparql, recorder.namespaces, recorder.statements, generation);
 		}
 		catch (Exception e)
 		{
+			healthy = (e instanceof MalformedQueryException) || (e instanceof RDFHandlerException);
+			error = e.toString();
 			e.printStackTrace();
 			throw(new SesameException(e.getMessage()));
 		}
+		finally
+		{
+			pool.release(connection, healthy);
+			if (recorder.captured != null)
+				capture(sparql, recorder, System.currentTimeMillis() - start, error);
+		}
+	}
+	
+	/**	Hands the statements of a cached result to the handler
+	 */
+	private void replay(GraphQueryResult result, RDFHandler handler) throws SesameException
+	{
+		try
+		{
+			handler.startRDF();
+			for (Iterator<Map.Entry<String,String>> it = result.getNamespaces().entrySet().iterator(); it.hasNext(); )
+			{
+				Map.Entry<String,String> ns = it.next();
+				handler.handleNamespace(ns.getKey(), ns.getValue());
+			}
+			while (result.hasNext())
+				handler.handleStatement(result.next());
+			handler.endRDF();
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			throw(new SesameException(e.getMessage()));
+		}
+	}
+	
+	/**	Passes the statements of a query on to the handler of the caller, and keeps
+	 *	them for the cache (unless there are too many) and, if the query is captured,
+	 *	for the capture file
+	 */
+	private static class GraphRecorder extends RDFHandlerWrapper
+	{
+		private Map<String,String> namespaces = new HashMap<String,String>();
+		private List<Statement> statements, captured;
+		private int count = 0;
+		
+		private GraphRecorder(RDFHandler handler, boolean cache, boolean capture)
+		{
+			super(handler);
+			if (cache)
+				statements = new ArrayList<Statement>();
+			if (capture)
+				captured = new ArrayList<Statement>();
+		}
+		
+		public void handleNamespace(String prefix, String uri) throws RDFHandlerException
+		{
+			namespaces.put(prefix, uri);
+			super.handleNamespace(prefix, uri);
+		}
+		
+		public void handleStatement(Statement s) throws RDFHandlerException
+		{
+			count++;
+			if (statements != null)
+			{
+				if (statements.size() < MAX_CACHED_STATEMENTS)
+					statements.add(s);
+				else
+					statements = null;	//too large to cache
+			}
+			if ((captured != null) && (captured.size() < MAX_CAPTURED_STATEMENTS))
+				captured.add(s);
+			super.handleStatement(s);
+		}
+	}
+	
+	private static int getCaptureInterval()
+	{
+		try
+		{
+			return Integer.parseInt(System.getProperty("liber.sesame.capture", "0").trim());
+		}
+		catch (NumberFormatException e)
+		{
+			System.out.println("liber.sesame.capture is not a number, no queries will be captured");
+			return 0;
+		}
+	}
+	
+	/**	Returns true if the next CONSTRUCT query should be captured
+	 */
+	private static synchronized boolean sampleCapture()
+	{
+		if (CAPTURE_INTERVAL <= 0)
+			return false;
+		return (graphQueries++ % CAPTURE_INTERVAL) == 0;
+	}
+	
+	/**	Appends a captured query and its results to the capture file
+	 */
+	private static synchronized void capture(String sparql, GraphRecorder recorder, long ms, String error)
+	{
+		try
+		{
+			PrintWriter w = new PrintWriter(new FileWriter(System.getProperty("liber.sesame.capture.file", "SPARQL-CAPTURE.txt"), true));
+			w.println("### " + new java.util.Date() + ", " + ms + " ms, " + recorder.count + " statements");
+			w.println(sparql);
+			if (error != null)
+				w.println("ERROR: " + error);
+			for (Statement s : recorder.captured)
+				w.println(s.getSubject() + " " + s.getPredicate() + " " + s.getObject());
+			if (recorder.count > recorder.captured.size())
+				w.println("... " + (recorder.count - recorder.captured.size()) + " more");
+			w.println();
+			w.close();
+		}
+		catch (Exception e)
+		{
+			System.out.println("Could not capture query: " + e.getMessage());
+		}
 	}
 	
 	/**	Takes a SPARQL query and sends it to Sesame; the answer is returned in XML.
@@ -178,6 +374,8 @@ public class SesameReader
 	 */
 	public String queryXML(String sparql) throws SesameException
 	{
+		RepositoryConnection connection = pool.borrow();
+		boolean healthy = true;
 		try
 		{
 			TupleQuery query = connection.prepareTupleQuery(QueryLanguage.SPARQL, sparql);
@@ -188,9 +386,14 @@ public class SesameReader
 		}
 		catch (Exception e)
 		{
+			healthy = (e instanceof MalformedQueryException);
 			e.printStackTrace();
 			throw(new SesameException(e.getMessage()));
 		}
+		finally
+		{
+			pool.release(connection, healthy);
+		}
 	}
 	
 	/**	Takes a SPARQL query and sends it to Sesame; the answer is returned as a
@@ -218,68 +421,59 @@ public class SesameReader
 	 */	
 	public QueryResult queryBinding(String sparql, String id) throws SesameException
 	{
+		QueryCache cache = pool.getCache();
+		QueryResult cached = cache.getBinding(sparql, id);
+		if (cached != null)
+			return cached;
+		long generation = cache.getGeneration();
+		
+		RepositoryConnection connection = pool.borrow();
+		boolean healthy = true;
 		try
 		{
 			TupleQuery query = connection.prepareTupleQuery(QueryLanguage.SPARQL, sparql);
-			TupleQueryResultBuilder builder = new TupleQueryResultBuilder();
-			query.evaluate(builder);
-		
-			TupleQueryResult tuple = builder.getQueryResult();
-			QueryResult result = new QueryResult(tuple.getBindingNames());
-			while(tuple.hasNext())
-				result.add((BindingSet) tuple.next(), id);
-		
-			tuple.close();
-			return result;
+			QueryResult.Handler handler = new QueryResult.Handler(id);
+			query.evaluate(handler);	//adds the results to the QueryResult as they come in
+			cache.putBinding(sparql, id, handler.getResult(), generation);
+			return handler.getResult();
 		}
 		catch (Exception e)
 		{
+			healthy = (e instanceof MalformedQueryException);
 			e.printStackTrace();
 			throw(new SesameException(e.getMessage()));
 		}
+		finally
+		{
+			pool.release(connection, healthy);
+		}
+	}
+	
+	/**	Returns the pool of connections to the repository, e.g. to inspect its metrics
+	 *	@return RepositoryPool
+	 */
+	public RepositoryPool getPool()
+	{
+		return pool;
 	}
 	
-	/**	Connects to remote repository 
+	/**	Connects to remote repository, through the pool that is shared by all readers of it
 	 *
 	 *	@param	repName name of the remote Sesame repository
 	 *	@throws SesameException if there is an error querying the repository 	
 	 */
 	private void getRemoteRepository(String repName) throws SesameException
 	{
-		try
-		{
-			sesameRepository = new HTTPRepository(sesame, repName);
-			sesameRepository.initialize();
-			connection = sesameRepository.getConnection();	
-		}
-		catch (Exception e)
-		{
-			e.printStackTrace();
-			throw(new SesameException(e.getMessage()));
-		}
+		pool = RepositoryPool.getRemote(sesame, repName);
 	}
 	
-	/**	Creates a local repository from the given filename.
+	/**	Creates a local repository from the data in data/DatabaseRdf.rdf.
 	 *	This repository is not persistent, but will disappear with garbage
-	 *	collection!
+	 *	collection! Each local reader has its own.
 	 */
 	private void getLocalRepository() throws SesameException
 	{
-		try
-		{
-			sesameRepository = new SailRepository(new MemoryStore());
-			sesameRepository.initialize();
-			connection = sesameRepository.getConnection();
-			
-			String path = "data/DatabaseRdf.rdf";
-			InputStream in = getClass().getClassLoader().getResourceAsStream(path);
-			connection.add(in, baseURI, RDFFormat.RDFXML);	//read data from file
-		}
-		catch (Exception e)
-		{
-			e.printStackTrace();
-			throw(new SesameException(e.getMessage()));
-		}
+		pool = RepositoryPool.getLocal("data/DatabaseRdf.rdf", baseURI);
 	}
 	
 	/**	This reads the data from a remote repository, and returns a Jena model
@@ -290,6 +484,8 @@ public class SesameReader
 	 */
 	private OntModel readFromRepository() throws SesameException
 	{ 
+		RepositoryConnection connection = pool.borrow();
+		boolean healthy = true;
 		try
 		{
 			ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -304,17 +500,13 @@ public class SesameReader
 		}
 		catch (Exception e)
 		{
+			healthy = false;
 			e.printStackTrace();
 			throw(new SesameException(e.getMessage()));
 		}
-	}
-	
-	/**	Closes the connection to the Sesame repositor
-	 *	@throws Throwable if there is any error
-	 */
-	protected void finalize() throws Throwable
-	{
-		connection.close();
-		super.finalize();
+		finally
+		{
+			pool.release(connection, healthy);
+		}
 	}
 }	
\ No newline at end of file
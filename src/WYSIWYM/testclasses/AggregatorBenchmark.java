@@ -0,0 +1,204 @@
+package WYSIWYM.testclasses;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import javax.naming.NameAlreadyBoundException;
+
+import WYSIWYM.libraries.LinguisticTerms;
+import WYSIWYM.model.DTEdge;
+import WYSIWYM.model.DTNode;
+import WYSIWYM.model.Morph;
+import WYSIWYM.model.SGNode;
+import WYSIWYM.model.UndeterminedDTNode;
+import WYSIWYM.transformer.Aggregator;
+import WYSIWYM.transformer.DependencyTreeTransformer;
+
+/**	Times Aggregator.aggregate() on synthetic paragraphs of 10 to 200 trees. Every
+ *	paragraph describes one object, with trees shaped like those of the lexicon
+ *	templates: 'X is the author of Y', 'X wrote Y' and 'Y was funded by X'. The
+ *	objects Y are drawn from a pool a third the size of the paragraph, so that there
+ *	is something to aggregate.
+ *
+ *	Usage: AggregatorBenchmark [sizes] [rounds] [seed], with sizes a comma-separated
+ *	list (default 10,25,50,100,200). Every paragraph is built anew from the seed for
+ *	each round, so runs on different versions of the Aggregator aggregate the same
+ *	trees. Besides the time, the number of sentences and elided nodes is printed, with
+ *	a checksum of the aggregated trees, to check that the result has not changed.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class AggregatorBenchmark
+{
+	private static final String[] NOUNS = {"author", "editor", "member", "funder", "reviewer"};
+	private static final String[] VERBS = {"write", "edit", "fund", "review", "manage"};
+	private static final String[] TENSES = {LinguisticTerms.PRESENT, LinguisticTerms.PAST};
+
+	private Random random;
+	private int ids = 0;
+
+	/**	Runs the benchmark
+	 *	@param args sizes, rounds, seed
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		String sizes = (args.length > 0) ? args[0] : "10,25,50,100,200";
+		int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+		String[] s = sizes.split(",");
+		for (int i = 0; i < s.length; i++)	//warm up
+			run(Integer.parseInt(s[i]), 1, seed);
+		for (int i = 0; i < s.length; i++)
+			System.out.println(run(Integer.parseInt(s[i]), rounds, seed));
+	}
+
+	/**	Aggregates a paragraph of the given size the given number of times, and
+	 *	returns a line with the results.
+	 */
+	private static String run(int size, int rounds, long seed) throws NameAlreadyBoundException
+	{
+		long total = 0, max = 0;
+		int sentences = 0, elided = 0, checksum = 0;
+		for (int r = 0; r < rounds; r++)
+		{
+			List<DependencyTreeTransformer> paragraph = new AggregatorBenchmark(seed + size).makeParagraph(size);
+			long start = System.nanoTime();
+			List<DependencyTreeTransformer> result = new Aggregator().aggregate(paragraph);
+			long time = System.nanoTime() - start;
+			total += time;
+			max = Math.max(max, time);
+
+			sentences = result.size();
+			elided = 0;
+			StringBuffer trees = new StringBuffer();
+			for (DependencyTreeTransformer dt : result)
+			{
+				elided += countElided((DTNode) dt.getGraph().getRoot());
+				print((DTNode) dt.getGraph().getRoot(), trees);
+			}
+			checksum = trees.toString().hashCode();
+		}
+		return "trees " + size + "\tsentences " + sentences + "\telided " + elided + "\tchecksum " +
+			Integer.toHexString(checksum) + "\tavg ms " + (total / 1e6 / rounds) + "\tmax ms " + (max / 1e6);
+	}
+
+	/**	Writes the branch of node: dependency labels, roots, SG IDs and which nodes are
+	 *	elided, in the order of the edges
+	 */
+	private static void print(DTNode node, StringBuffer sb)
+	{
+		sb.append('(').append(node.getDeplbl()).append(' ').append(node.getRoot()).append(' ').append(node.getSGID());
+		if (node.isElided())
+			sb.append(" elided");
+		for (Iterator it = node.getOutgoingEdges(); it.hasNext(); )
+			print(((DTEdge) it.next()).getTarget(), sb);
+		sb.append(')');
+	}
+
+	private static int countElided(DTNode node)
+	{
+		int result = node.isElided() ? 1 : 0;
+		for (Iterator it = node.getOutgoingEdges(); it.hasNext(); )
+			result += countElided(((DTEdge) it.next()).getTarget());
+		return result;
+	}
+
+	private AggregatorBenchmark(long seed)
+	{
+		random = new Random(seed);
+	}
+
+	/**	Builds a paragraph of the given number of trees about one object
+	 */
+	private List<DependencyTreeTransformer> makeParagraph(int size) throws NameAlreadyBoundException
+	{
+		SGNode subject = makeSGNode("Person");
+		List<SGNode> objects = new ArrayList<SGNode>();
+		for (int i = 0; i < Math.max(1, size / 3); i++)
+			objects.add(makeSGNode((i % 2 == 0) ? "Paper" : "Project"));
+
+		List<DependencyTreeTransformer> result = new ArrayList<DependencyTreeTransformer>();
+		for (int i = 0; i < size; i++)
+		{
+			SGNode object = objects.get(random.nextInt(objects.size()));
+			switch (random.nextInt(3))
+			{
+				case 0: result.add(makeNounTree(subject, object)); break;
+				case 1: result.add(makeVerbTree(subject, object)); break;
+				default: result.add(makePassiveTree(subject, object));
+			}
+		}
+		return result;
+	}
+
+	private SGNode makeSGNode(String type)
+	{
+		SGNode node = new SGNode(type);
+		node.setSGID("sg" + (ids++));
+		return node;
+	}
+
+	/**	'X is the [noun] of Y'
+	 */
+	private DependencyTreeTransformer makeNounTree(SGNode subject, SGNode object) throws NameAlreadyBoundException
+	{
+		DTNode root = new DTNode(LinguisticTerms.SMAIN, LinguisticTerms.ROOT, null, null);
+		DependencyTreeTransformer dt = new DependencyTreeTransformer(root);
+		add(dt, root, new DTNode(LinguisticTerms.VERB, LinguisticTerms.HEAD, "be", makeMorph()));
+		add(dt, root, new UndeterminedDTNode(LinguisticTerms.NP, LinguisticTerms.SUBJECT, new Morph(), subject));
+		DTNode comp = add(dt, root, new DTNode(LinguisticTerms.NP, LinguisticTerms.COMPLEMENT, null, null));
+		add(dt, comp, new DTNode(LinguisticTerms.DET, LinguisticTerms.DET, "the", null));
+		add(dt, comp, new DTNode(LinguisticTerms.NOUN, LinguisticTerms.HEAD, NOUNS[random.nextInt(NOUNS.length)], new Morph()));
+		DTNode pp = add(dt, comp, new DTNode(LinguisticTerms.PP, LinguisticTerms.PPMODIFIER, null, null));
+		add(dt, pp, new DTNode(LinguisticTerms.PREP, LinguisticTerms.HEAD, "of", null));
+		add(dt, pp, new UndeterminedDTNode(LinguisticTerms.NP, LinguisticTerms.OBJECT, new Morph(), object));
+		return dt;
+	}
+
+	/**	'X [verb] Y'
+	 */
+	private DependencyTreeTransformer makeVerbTree(SGNode subject, SGNode object) throws NameAlreadyBoundException
+	{
+		DTNode root = new DTNode(LinguisticTerms.SMAIN, LinguisticTerms.ROOT, null, null);
+		DependencyTreeTransformer dt = new DependencyTreeTransformer(root);
+		add(dt, root, new DTNode(LinguisticTerms.VERB, LinguisticTerms.HEAD, VERBS[random.nextInt(VERBS.length)], makeMorph()));
+		add(dt, root, new UndeterminedDTNode(LinguisticTerms.NP, LinguisticTerms.SUBJECT, new Morph(), subject));
+		add(dt, root, new UndeterminedDTNode(LinguisticTerms.NP, LinguisticTerms.OBJECT, new Morph(), object));
+		return dt;
+	}
+
+	/**	'Y was [verb] by X'
+	 */
+	private DependencyTreeTransformer makePassiveTree(SGNode subject, SGNode object) throws NameAlreadyBoundException
+	{
+		DTNode root = new DTNode(LinguisticTerms.SMAIN, LinguisticTerms.ROOT, null, null);
+		DependencyTreeTransformer dt = new DependencyTreeTransformer(root);
+		Morph m = makeMorph();
+		m.setPassive(true);
+		add(dt, root, new DTNode(LinguisticTerms.VERB, LinguisticTerms.HEAD, VERBS[random.nextInt(VERBS.length)], m));
+		add(dt, root, new UndeterminedDTNode(LinguisticTerms.NP, LinguisticTerms.SUBJECT, new Morph(), object));
+		DTNode pp = add(dt, root, new DTNode(LinguisticTerms.PP, LinguisticTerms.PPMODIFIER, null, null));
+		add(dt, pp, new DTNode(LinguisticTerms.PREP, LinguisticTerms.HEAD, "by", null));
+		add(dt, pp, new UndeterminedDTNode(LinguisticTerms.NP, LinguisticTerms.OBJECT, new Morph(), subject));
+		return dt;
+	}
+
+	private Morph makeMorph()
+	{
+		Morph m = new Morph();
+		m.setTense(TENSES[random.nextInt(TENSES.length)]);
+		return m;
+	}
+
+	/**	Adds the node to the tree as a child of parent, under its own dependency label
+	 */
+	private static DTNode add(DependencyTreeTransformer dt, DTNode parent, DTNode node) throws NameAlreadyBoundException
+	{
+		dt.addNode(node);
+		dt.addEdge(new DTEdge(node.getDeplbl(), parent, node));
+		return node;
+	}
+}
@@ -0,0 +1,165 @@
+package WYSIWYM.testclasses;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import simplenlg.lexicon.lexicalrules.PatternActionRule;
+import simplenlg.lexicon.lexicalrules.SuffixTrie;
+import simplenlg.lexicon.lexicalrules.rulesets.AdjectivePatternActionRules;
+import simplenlg.lexicon.lexicalrules.rulesets.NounPatternActionRules;
+import simplenlg.lexicon.lexicalrules.rulesets.VerbPatternActionRules;
+
+/**	Checks that SuffixTrie.find() selects the same rule as trying the pattern-action
+ *	rules in turn (the way the inflection rules did before they were compiled into a
+ *	trie), for every rule set of the inflection rules and every word of a word list.
+ *	It also times both over the list.
+ *
+ *	Usage: SuffixTrieCheck [word list] [rounds]. The word list is a UTF-8 file with
+ *	one word or phrase per line, such as a dictionary. Without one, the words in
+ *	the rule expressions are used, with case variants, affixes and phrases made from
+ *	them. Every word for which the two differ is printed; the last line gives the number.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class SuffixTrieCheck
+{
+	private static final String[] NAMES = {"plural", "present tense", "ing form", "past participle",
+		"past tense", "comparative", "superlative"};
+	private static final PatternActionRule[][] RULE_SETS = {NounPatternActionRules.PLURAL_RULES,
+		VerbPatternActionRules.PRESENT_TENSE_RULES, VerbPatternActionRules.ING_FORM_RULES,
+		VerbPatternActionRules.PAST_PARTICIPLE_RULES, VerbPatternActionRules.PAST_TENSE_RULES,
+		AdjectivePatternActionRules.COMPARATIVE_RULES, AdjectivePatternActionRules.SUPERLATIVE_RULES};
+
+	/**	Runs the check
+	 *	@param args word list, rounds
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		List<String> words = (args.length > 0) ? readWords(args[0]) : makeWords();
+		int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+		System.out.println(words.size() + " words");
+
+		int mismatches = 0;
+		for (int i = 0; i < RULE_SETS.length; i++)
+		{
+			List<PatternActionRule> rules = new ArrayList<PatternActionRule>(Arrays.asList(RULE_SETS[i]));
+			Collections.sort(rules);	//as InflectionRule does
+			SuffixTrie trie = new SuffixTrie(rules);
+
+			for (String word : words)
+			{
+				PatternActionRule expected = findLinear(rules, word);
+				PatternActionRule found = trie.find(word);
+				if (expected != found)
+				{
+					mismatches++;
+					System.out.println("MISMATCH " + NAMES[i] + " '" + word + "': " + getExpression(expected) +
+						" instead of " + getExpression(found));
+				}
+			}
+
+			long linear = Long.MAX_VALUE, compiled = Long.MAX_VALUE;
+			for (int r = 0; r < rounds; r++)
+			{	//take the best of the rounds, to leave out warming up
+				long start = System.nanoTime();
+				for (String word : words)
+					findLinear(rules, word);
+				long middle = System.nanoTime();
+				for (String word : words)
+					trie.find(word);
+				long end = System.nanoTime();
+				linear = Math.min(linear, middle - start);
+				compiled = Math.min(compiled, end - middle);
+			}
+			System.out.println(NAMES[i] + ":\t" + rules.size() + " rules, " + trie.getNumberOfUnindexedRules() +
+				" checked with their expression\tlinear " + (linear / 1e6) + " ms\ttrie " + (compiled / 1e6) + " ms");
+		}
+		System.out.println("mismatches " + mismatches);
+	}
+
+	/**	Returns the first rule that applies to the word, trying them in order
+	 */
+	private static PatternActionRule findLinear(List<PatternActionRule> rules, String word)
+	{
+		for (PatternActionRule rule : rules)
+		{
+			if (rule.applies(word))
+				return rule;
+		}
+		return null;
+	}
+
+	private static String getExpression(PatternActionRule rule)
+	{
+		if (rule == null)
+			return "no rule";
+		return rule.getLeftHandSide();
+	}
+
+	private static List<String> readWords(String file) throws IOException
+	{
+		List<String> result = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+				result.add(line);
+		}
+		finally
+		{
+			reader.close();
+		}
+		return result;
+	}
+
+	/**	Makes a word list from the words in the rule expressions, so that every exception
+	 *	is tried, along with variants that end in the same way, differ in case or are
+	 *	part of a phrase.
+	 */
+	private static List<String> makeWords()
+	{
+		Set<String> base = new TreeSet<String>();
+		Pattern letters = Pattern.compile("[a-z]+");
+		for (int i = 0; i < RULE_SETS.length; i++)
+		{
+			for (int j = 0; j < RULE_SETS[i].length; j++)
+			{
+				Matcher m = letters.matcher(RULE_SETS[i][j].getLeftHandSide());
+				while (m.find())
+					base.add(m.group());
+			}
+		}
+
+		Set<String> result = new TreeSet<String>();
+		String[] prefixes = {"", "re", "un", "over", "a-"};
+		String[] suffixes = {"", "e", "s", "y", "ie", "ch", "o"};
+		for (String word : base)
+		{
+			for (int i = 0; i < prefixes.length; i++)
+				for (int j = 0; j < suffixes.length; j++)
+					result.add(prefixes[i] + word + suffixes[j]);
+			result.add(word.toUpperCase());
+			result.add(Character.toUpperCase(word.charAt(0)) + word.substring(1));
+			result.add(" " + word + " ");
+		}
+
+		List<String> list = new ArrayList<String>(base);
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++)
+			result.add(list.get(random.nextInt(list.size())) + " " + list.get(random.nextInt(list.size())));
+		result.addAll(Arrays.asList("", " ", "a", "x", "e", "ie", "a b", "a  b", "a_b", "a1", "1", "_", "ab-", "-ab"));
+		return new ArrayList<String>(result);
+	}
+}
@@ -3,12 +3,16 @@ package WYSIWYM.transformer;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.naming.NameAlreadyBoundException;
 
@@ -36,6 +40,14 @@ public class Aggregator
 {
 	private List<DependencyTreeTransformer> input = new ArrayList<DependencyTreeTransformer>();
 	private List<DependencyTreeTransformer> aggregatedTrees = new ArrayList<DependencyTreeTransformer>();
+	
+	//	constituents in which elision is tried
+	private static final String[] ELISION_TYPES = {LinguisticTerms.HEAD, LinguisticTerms.SUBJECT, LinguisticTerms.OBJECT,
+		LinguisticTerms.COMPLEMENT, LinguisticTerms.MODIFIER, LinguisticTerms.PPMODIFIER};
+	//	while looking for elision opportunities: the constituents of each tree in input, by elision type,
+	//	and the results of findEqualNodes for the constituents of two trees, by elision type and trees
+	private DTNode[][] constituents;
+	private List[][][] equalConstituents;
 
 	/**	Aggregator orders a list of dependency trees to enable the maximum amount of
 	 *	ellipsis, then performs the planned aggregations.
@@ -204,8 +216,8 @@ public class Aggregator
 		if (!different)		//if the nodes are equal so far, check their children
 		{
 			List<DTNode> checked = new ArrayList<DTNode>();
-			List<DTNode> differences = new ArrayList<DTNode>();
-			for (Iterator it = node1.getOutgoingEdges(); it.hasNext(); )
+			List<DTNode> differences = new ArrayList<DTNode>();	//pairs of different branches
+			for (Iterator it = node1.getOutgoingEdges(); it.hasNext() && (differences.size() <= 2); )
 			{
 				DTEdge edge = (DTEdge) it.next();
 				DTNode target = edge.getTarget();
@@ -217,12 +229,14 @@ public class Aggregator
 				}
 			
 				for (int i = 0; i < list.size(); i++)
-				{
-					List<DTNode> diff = compareBranches(target, list.get(i));
-					if (diff.size() == 0)		//the branches are identical
-						checked.add(list.get(i));	//so save this node to checkednodes, that it is not claimed identical to any others
-					else		//different nodes found!
-						differences.addAll(diff);	//store them
+				{	//branches with different hash codes are different; otherwise compare them
+					if ((target.getStructuralHash() == list.get(i).getStructuralHash()) && (compareBranches(target, list.get(i)).size() == 0))
+						checked.add(list.get(i));	//the branches are identical, so save this node to checkednodes, that it is not claimed identical to any others
+					else		//different branches found!
+					{
+						differences.add(target);	//store them
+						differences.add(list.get(i));
+					}
 				}
 			}
 			
@@ -231,8 +245,8 @@ public class Aggregator
 				different = true;
 			else if (node1.getLabel().equals(LinguisticTerms.PP))
 				different = true;
-			else	//exactly one constituent is different
-				result.addAll(differences);
+			else	//exactly one constituent is different; find out where
+				result.addAll(compareBranches(differences.get(0), differences.get(1)));
 		}
 		
 		if (different)
@@ -289,6 +303,8 @@ public class Aggregator
 			return false;	//if the preposition isn't 'by', the nodes are different
 			
 		DTNode child = pp.getDepChild(LinguisticTerms.OBJECT);		//check if object is equal to the object of pp
+		if (object.getStructuralHash() != child.getStructuralHash())
+			return false;		//different nodes
 		if (compareBranches(object, child).size() > 0)			//different nodes
 			return false;
 		return true;			//nodes represent identical phrases!
@@ -524,49 +540,163 @@ public class Aggregator
 	/**	Finds all possible tree combinations that have an elision score > 0 by
 	 *	searching identical nodes, and stores the trees in Combinations.
 	 *
+	 *	Trees are put in buckets by their signature (see getSignature()), and a tree
+	 *	is only compared to the trees that share a bucket with it; the others have
+	 *	no equal constituents, so it cannot combine with them. Combinations whose only
+	 *	elision is gapping 'to be' are never used (see Combination.skip()), so a tree
+	 *	with 'be' as its verb does not look for partners by its verb.
+	 *
 	 *	Don't make combinations involving more than 3 trees!
 	 */
 	private List<Combination> findElisionOpportunities()
 	{
+		int size = input.size();
+		constituents = new DTNode[size][];
+		equalConstituents = new List[ELISION_TYPES.length][size][];
+		List<Set<String>> signatures = new ArrayList<Set<String>>();
+		Map<String,BitSet> buckets = new HashMap<String,BitSet>();
+		for (int i = 0; i < size; i++)
+		{
+			DTNode root = (DTNode) input.get(i).getGraph().getRoot();
+			constituents[i] = new DTNode[ELISION_TYPES.length];
+			for (int t = 0; t < ELISION_TYPES.length; t++)
+				constituents[i][t] = root.getDepChild(ELISION_TYPES[t]);
+			
+			Set<String> signature = getSignature(constituents[i]);
+			signatures.add(signature);
+			for (String s : signature)
+			{
+				BitSet bucket = buckets.get(s);
+				if (bucket == null)
+				{
+					bucket = new BitSet(size);
+					buckets.put(s, bucket);
+				}
+				bucket.set(i);
+			}
+		}
+		
 		List<Combination> result = new ArrayList<Combination>();
-		for (int i = 0; i < input.size(); i++)
+		for (int i = 0; i < size; i++)
 		{
 			List<Combination> combis = new ArrayList<Combination>();
-			DependencyTreeTransformer dt = input.get(i);
-			for (int j = (i + 1); j < input.size(); j++)
+			DTNode verb = constituents[i][0];
+			boolean tobe = (verb != null) && verb.getLabel().equals(LinguisticTerms.VERB) && "be".equals(verb.getRoot());
+			BitSet candidates = new BitSet(size);
+			for (String s : signatures.get(i))
+			{
+				if (!(tobe && s.startsWith(LinguisticTerms.HEAD + "|")))
+					candidates.or(buckets.get(s));
+			}
+			
+			for (int j = candidates.nextSetBit(i + 1); j >= 0; j = candidates.nextSetBit(j + 1))
 			{
-				DependencyTreeTransformer match = input.get(j);
 				List<Combination> copies = new ArrayList<Combination>();
 				for(int k = 0; k < combis.size(); k++)		//if this tree is compatible with a previous combination
 				{
-					Combination copy = addIfCompatible(combis.get(k), match);
+					Combination copy = addIfCompatible(combis.get(k), i, j);
 					if (copy != null)
 						copies.add(copy);	
 				}
 				combis.addAll(copies);
-				Combination c = combineTrees(dt, match);
+				Combination c = combineTrees(i, j);
 				if (c != null)		//try to combine these two
 					combis.add(c);
 			}
 			result.addAll(combis);	//add all combinations with this tree to result
 		}
+		
+		constituents = null;
+		equalConstituents = null;
+		return result;
+	}
+	
+	/**	Returns the signature of a tree, given its constituents: the words of the leaves
+	 *	and the instances of the undetermined nodes in each constituent, as 'deplabel|word'.
+	 *	Two constituents can only be (partly) equal if their signatures overlap. Objects 
+	 *	and pp-modifiers share their label, since they are compared to each other too.
+	 */
+	private Set<String> getSignature(DTNode[] nodes)
+	{
+		Set<String> result = new HashSet<String>();
+		for (int t = 0; t < nodes.length; t++)
+		{
+			if (nodes[t] == null)
+				continue;
+			String type = ELISION_TYPES[t].equals(LinguisticTerms.PPMODIFIER) ? LinguisticTerms.OBJECT : ELISION_TYPES[t];
+			addSignature(nodes[t], type + "|", result);
+		}
 		return result;
 	}
 	
+	private void addSignature(DTNode node, String prefix, Set<String> result)
+	{
+		if (node instanceof UndeterminedDTNode)
+			result.add(prefix + "#" + node.getSGID());
+		if (node.isLeaf())
+			result.add(prefix + node.getRoot());
+		else if (node.getOutgoingEdgeNr() == 0)
+			result.add(prefix + "#empty");	//an empty branch can be equal to any other
+		
+		for (Iterator it = node.getOutgoingEdges(); it.hasNext(); )
+			addSignature(((DTEdge) it.next()).getTarget(), prefix, result);
+	}
+	
+	/**	Returns the position of the dependency label in ELISION_TYPES
+	 */
+	private int getElisionType(String deplbl)
+	{
+		for (int t = 0; t < ELISION_TYPES.length; t++)
+		{
+			if (ELISION_TYPES[t].equals(deplbl))
+				return t;
+		}
+		throw new IllegalArgumentException("No elision possible in " + deplbl);
+	}
+	
+	/**	Returns the constituent with the given dependency label of the tree 
+	 *	at the given position in input.
+	 */
+	private DTNode getConstituent(int tree, String deplbl)
+	{
+		return constituents[tree][getElisionType(deplbl)];
+	}
+	
+	/**	Returns findEqualNodes() for the constituents with the given dependency label
+	 *	of the trees at the given positions in input. It is computed once for each
+	 *	pair of constituents, since the same pair is compared for every combination
+	 *	the first tree is in; the result must not be changed.
+	 */
+	private List<DTNode> findEqualConstituents(String deplbl, int tree1, int tree2)
+	{
+		int type = getElisionType(deplbl);
+		List[] row = equalConstituents[type][tree1];
+		if (row == null)
+		{
+			row = new List[input.size()];
+			equalConstituents[type][tree1] = row;
+		}
+		if (row[tree2] == null)
+			row[tree2] = Collections.unmodifiableList(findEqualNodes(constituents[tree1][type], constituents[tree2][type]));
+		return row[tree2];
+	}
+	
 	/**	Combines two trees if one or more forms of elision are possible
 	 */
-	private Combination combineTrees(DependencyTreeTransformer tree1, DependencyTreeTransformer tree2)
+	private Combination combineTrees(int i, int j)
 	{
+		DependencyTreeTransformer tree1 = input.get(i);
+		DependencyTreeTransformer tree2 = input.get(j);
 		Combination combi = new Combination(tree1, tree2);
 		if (!(tree1.isPassive() ^ tree2.isPassive()))
 		{	//only try eliding verb, subject and object if the trees have the same actor!
-			tryCombination(LinguisticTerms.HEAD, combi);		//try Gapping
-			tryCombination(LinguisticTerms.SUBJECT, combi);		//try CR
-			tryCombination(LinguisticTerms.OBJECT, combi);
+			tryCombination(LinguisticTerms.HEAD, combi, i, j);		//try Gapping
+			tryCombination(LinguisticTerms.SUBJECT, combi, i, j);		//try CR
+			tryCombination(LinguisticTerms.OBJECT, combi, i, j);
 		}
-		tryCombination(LinguisticTerms.COMPLEMENT, combi);	//try RNR		
-		tryCombination(LinguisticTerms.MODIFIER, combi);
-		tryCombination(LinguisticTerms.PPMODIFIER, combi);
+		tryCombination(LinguisticTerms.COMPLEMENT, combi, i, j);	//try RNR		
+		tryCombination(LinguisticTerms.MODIFIER, combi, i, j);
+		tryCombination(LinguisticTerms.PPMODIFIER, combi, i, j);
 		
 		if (combi.elisionScore > 0)
 			return combi;
@@ -575,21 +705,23 @@ public class Aggregator
 	
 	/**	Checks whether the given dependency tree is compatible with the combination;
 	 *	if so, it adds it and increases the elision score.
+	 *	@param combi Combination, of which the first tree is at position first in input
+	 *	@param first Position of the first tree of the combination
+	 *	@param tree Position of the dependency tree
 	 */
-	private Combination addIfCompatible(Combination combi, DependencyTreeTransformer dt)
+	private Combination addIfCompatible(Combination combi, int first, int tree)
 	{
 		if (combi.trees.size() == 3)	//don't aggregate more than 3 trees, no matter how compatible they are!
 			return null;
 			
-		DependencyTreeTransformer tree1 = combi.trees.get(0);
+		DependencyTreeTransformer dt = input.get(tree);
 		boolean compatible = true;
 		Map<Elision, List<DTNode>> map = new HashMap<Elision, List<DTNode>>();
 		
 		for (int i = 0; i < combi.elided.size(); i++)
 		{
 			Elision elision = combi.elided.get(i);
-			DTNode child = ((DTNode) dt.getGraph().getRoot()).getDepChild(elision.type);
-			List<DTNode> equalNodes = findEqualNodes(((DTNode) tree1.getGraph().getRoot()).getDepChild(elision.type), child);
+			List<DTNode> equalNodes = findEqualConstituents(elision.type, first, tree);
 			List<DTNode> list = new ArrayList<DTNode>();
 			
 			if (equalNodes.size() > 0)	
@@ -610,8 +742,8 @@ public class Aggregator
 			{	//if the nodes are completely different
 				if (elision.type.equals(LinguisticTerms.OBJECT))	//try comparing to PPMOD
 				{
-					DTNode node = ((DTNode) dt.getGraph().getRoot()).getDepChild(LinguisticTerms.PPMODIFIER);
-					if ((node != null) && compareObjectAndPP(((DTNode) tree1.getGraph().getRoot()).getDepChild(elision.type), node))
+					DTNode node = getConstituent(tree, LinguisticTerms.PPMODIFIER);
+					if ((node != null) && compareObjectAndPP(getConstituent(first, elision.type), node))
 					{	//if they are identical, remember the node
 						list.add(node);
 						map.put(elision, list);
@@ -620,8 +752,8 @@ public class Aggregator
 				}
 				else if (elision.type.equals(LinguisticTerms.PPMODIFIER))	//try comparing to OBJECT
 				{
-					DTNode node = ((DTNode) dt.getGraph().getRoot()).getDepChild(LinguisticTerms.OBJECT);
-					if ((node != null) && compareObjectAndPP(node, ((DTNode) tree1.getGraph().getRoot()).getDepChild(elision.type)))
+					DTNode node = getConstituent(tree, LinguisticTerms.OBJECT);
+					if ((node != null) && compareObjectAndPP(node, getConstituent(first, elision.type)))
 					{	//if they are identical, remember the node
 						list.add(node);
 						map.put(elision, list);
@@ -650,14 +782,16 @@ public class Aggregator
 	
 	/**	Checks whether a constituent with the provided deplbl is identical in
 	 *	both trees, so that it can be elided.
+	 *	@param deplbl Dependency label
+	 *	@param combi Combination of the trees at positions first and second in input
 	 */
-	private void tryCombination(String deplbl, Combination combi)
+	private void tryCombination(String deplbl, Combination combi, int first, int second)
 	{
-		DTNode node1 = ((DTNode) combi.trees.get(0).getGraph().getRoot()).getDepChild(deplbl);
-		DTNode node2 = ((DTNode) combi.trees.get(1).getGraph().getRoot()).getDepChild(deplbl);
+		DTNode node1 = getConstituent(first, deplbl);
+		DTNode node2 = getConstituent(second, deplbl);
 		if ((node1 != null) && (node2 != null)) 
 		{
-			List<DTNode> nodes = findEqualNodes(node1, node2);
+			List<DTNode> nodes = findEqualConstituents(deplbl, first, second);
 			List<DTNode> elisionNodes = new ArrayList<DTNode>();
 			for (int i = 0; i < nodes.size(); i += 2)
 			{
@@ -682,13 +816,13 @@ public class Aggregator
 		
 		if (deplbl.equals(LinguisticTerms.OBJECT))	//|| deplbl.equals(LinguisticTerms.PPMODIFIER))
 		{
-			DTNode n1 = ((DTNode) combi.trees.get(0).getGraph().getRoot()).getDepChild(LinguisticTerms.OBJECT);
-			DTNode n2 = ((DTNode) combi.trees.get(1).getGraph().getRoot()).getDepChild(LinguisticTerms.PPMODIFIER);
+			DTNode n1 = getConstituent(first, LinguisticTerms.OBJECT);
+			DTNode n2 = getConstituent(second, LinguisticTerms.PPMODIFIER);
 			if ((n1 != null) && (n2 != null) && compareObjectAndPP(n1, n2))
 				combi.addElision(LinguisticTerms.OBJECT, n1, n2);
 		
-			n1 = ((DTNode) combi.trees.get(0).getGraph().getRoot()).getDepChild(LinguisticTerms.PPMODIFIER);
-			n2 = ((DTNode) combi.trees.get(1).getGraph().getRoot()).getDepChild(LinguisticTerms.OBJECT);
+			n1 = getConstituent(first, LinguisticTerms.PPMODIFIER);
+			n2 = getConstituent(second, LinguisticTerms.OBJECT);
 			if ((n1 != null) && (n2 != null) && compareObjectAndPP(n2, n1))
 				combi.addElision(LinguisticTerms.PPMODIFIER, n1, n2);
 		}
@@ -701,8 +835,9 @@ public class Aggregator
 	{	//sort the combinations according to elision score (from high to low)
 		Collections.sort(combinations, new CombiComparator());		
 		List<Combination> result = new ArrayList<Combination>();
-		for (int i = 0; i < combinations.size(); i++)	//iterate through the sorted list of combinations
-		{	//check if the constituents of the next combination are left in input
+		Map<DependencyTreeTransformer,Boolean> used = new IdentityHashMap<DependencyTreeTransformer,Boolean>();
+		for (int i = 0; (i < combinations.size()) && (used.size() < input.size()); i++)	//iterate through the sorted list of combinations
+		{	//check if the constituents of the next combination are left in input; if there are no more trees left, stop searching
 			Combination combi = combinations.get(i);
 			if (combi.skip())	//Skip combinations where the only elision is gapping 'to be'
 				continue;
@@ -710,19 +845,22 @@ public class Aggregator
 			boolean unused = true;
 			for (int j = 0; j < combi.trees.size(); j++)
 			{
-				if (!input.contains(combi.trees.get(j)))
+				if (used.containsKey(combi.trees.get(j)))
 					unused = false;		
 			}
 			
-			if (unused)	//if they are, add this combination to result, and remove its trees from input
+			if (unused)	//if they are, add this combination to result, and mark its trees as used
 			{
 				result.add(combi);
 				for (int j = 0; j < combi.trees.size(); j++)
-					input.remove(combi.trees.get(j));
+					used.put(combi.trees.get(j), Boolean.TRUE);
 			}
-			
-			if (input.size() == 0)	//if there are no more trees left in input, stop searching
-				break;
+		}
+		
+		for (Iterator<DependencyTreeTransformer> it = input.iterator(); it.hasNext(); )
+		{	//remove the used trees from input
+			if (used.containsKey(it.next()))
+				it.remove();
 		}
 		return result;	//return the list of best combinations
 	}
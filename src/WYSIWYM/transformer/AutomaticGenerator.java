@@ -17,6 +17,9 @@ import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.query.GraphQueryResult;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.openrdf.rio.helpers.StatementCollector;
 
 import WYSIWYM.model.DatatypeNode;
 import WYSIWYM.model.Edge;
@@ -61,6 +64,10 @@ public class AutomaticGenerator
 	private SesameReader sesame;
 	private SemanticGraphTransformer sgt;
 	private Map<String, SGNode> idMap = new HashMap<String, SGNode>();
+	private Map<String, List<Statement>> descriptions;	//statements about the resources around the node that is being expanded
+	
+	/**	Maximum number of resources whose descriptions are retrieved with one query */
+	public static final int BATCH_SIZE = 100;
 	
 	/**	Constructor, takes an ontology model and Sesame archive
 	 *	@param r Ontology
@@ -288,27 +295,26 @@ public class AutomaticGenerator
 		return expandNode(result, id, hasName, true);
 	}
 	
-	/**	Gets all statements about the given id and adds them to the given node
+	/**	Gets all statements about the given id and adds them to the given node.
+	 *	The statements about the objects it refers to are retrieved beforehand, one
+	 *	level at a time (see fetchNeighbourhood()), rather than with a few queries per object.
 	 */
 	private boolean expandNode(SGNode result, String id, boolean hasName, boolean hasType) throws SesameException
 	{
+		descriptions = new HashMap<String, List<Statement>>();
 		try
 		{
-			String query = OntologyWriter.getDescriptionQuery(id);
-			GraphQueryResult graph = sesame.queryGraph(query);
 			boolean addedInfo = false;
 			List<String> types = new ArrayList<String>();
 	
-			while (graph.hasNext())
+			for (Statement s : fetchNeighbourhood(id))
 			{
-				Statement s = graph.next();
 				if (s.getObject() instanceof URI)
 				{
 					//TODO: URI: use URI instead of class name
 //					String type = ((URI) s.getObject()).getLocalName();
 					String type = ((URI) s.getObject()).stringValue();
-					String namespace = s.getPredicate().getNamespace();
-					if ((namespace.indexOf("www.policygrid.org") < 0) && (namespace.indexOf("www.mooney.net/geo") < 0))
+					if (!inArchiveNamespace(s.getPredicate()))
 					{
 						if ((!hasType) && (s.getPredicate().toString().indexOf("www.w3.org/1999/02/22-rdf-syntax-ns#type") > 0))	//the type
 							types.add(type);
@@ -350,7 +356,153 @@ public class AutomaticGenerator
 		{
 			e.printStackTrace();
 			throw new SesameException("Exception when retrieving data from the database about " + id);
-		}	
+		}
+		finally
+		{
+			descriptions = null;
+		}
+	}
+	
+	/**	Retrieves the statements about the given id, about the objects of those statements,
+	 *	and about the members of any sequences among those objects; with one query (per
+	 *	BATCH_SIZE resources) for each of these levels. Returns the statements about id.
+	 */
+	private List<Statement> fetchNeighbourhood(String id) throws SesameException
+	{
+		List<String> level = new ArrayList<String>();
+		level.add(id);
+		fetchDescriptions(level);
+		
+		level = getObjects(describe(id), false);
+		fetchDescriptions(level);
+		
+		List<String> members = new ArrayList<String>();
+		for (String object : level)
+			members.addAll(getObjects(descriptions.get(object), true));
+		fetchDescriptions(members);
+		return describe(id);
+	}
+	
+	/**	Returns the ids of the resources that are the object of the given statements,
+	 *	and will have to be presented; so not classes, nor objects that are already
+	 *	in the graph. If 'members' is true, only the members of a sequence are returned.
+	 */
+	private List<String> getObjects(List<Statement> statements, boolean members)
+	{
+		List<String> result = new ArrayList<String>();
+		if (statements == null)
+			return result;
+		for (Statement s : statements)
+		{
+			if (!(s.getObject() instanceof URI) || idMap.containsKey(s.getObject().toString()))
+				continue;
+			String property = s.getPredicate().getLocalName();
+			if (members ? property.matches("_\\d+") : inArchiveNamespace(s.getPredicate()))
+				result.add(s.getObject().toString());
+		}
+		return result;
+	}
+	
+	/**	Retrieves the statements about those of the given resources that have not been
+	 *	retrieved yet, and stores them in descriptions.
+	 */
+	private void fetchDescriptions(List<String> ids) throws SesameException
+	{
+		List<String> batch = new ArrayList<String>();
+		for (String id : ids)
+		{	//ids that could break the query are left to describe()
+			if (!descriptions.containsKey(id) && !batch.contains(id) && id.matches("[^\\s<>\"{}|^`\\\\]+") && !id.startsWith("_:"))
+				batch.add(id);
+		}
+		
+		for (int i = 0; i < batch.size(); i += BATCH_SIZE)
+		{
+			List<String> part = batch.subList(i, Math.min(i + BATCH_SIZE, batch.size()));
+			for (String id : part)
+				descriptions.put(id, new ArrayList<Statement>());
+			try
+			{
+				sesame.queryGraph(OntologyWriter.getDescriptionQuery(part), new RDFHandlerBase()
+				{
+					public void handleStatement(Statement s)
+					{
+						List<Statement> list = descriptions.get(s.getSubject().toString());
+						if (list != null)
+							list.add(s);
+					}
+				});
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+				throw new SesameException("Exception when retrieving data from the database about " + part);
+			}
+		}
+	}
+	
+	/**	Returns all statements about the given id; those that were retrieved beforehand,
+	 *	or else the result of a new query.
+	 */
+	private List<Statement> describe(String id) throws SesameException
+	{
+		if ((descriptions != null) && descriptions.containsKey(id))
+			return descriptions.get(id);
+		
+		List<Statement> result = new ArrayList<Statement>();
+		try
+		{
+			sesame.queryGraph(OntologyWriter.getDescriptionQuery(id), new StatementCollector(result));
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			throw new SesameException("Exception when retrieving data from the database about " + id);
+		}
+		if (descriptions != null)
+			descriptions.put(id, result);
+		return result;
+	}
+	
+	/**	Returns the nl-information about the given id (i.e. name, title, gender, type...)
+	 *	as OntologyWriter.getNLQuery(String) would find it. If the statements about id have
+	 *	been retrieved beforehand, it is taken from those instead of the database: each
+	 *	statement with one of the properties of that query is added to the QueryResult as
+	 *	a binding of its variable, so the values are filtered as the query results would be.
+	 */
+	private Map<String, List<String>> getNLBindings(String id) throws SesameException
+	{
+		List<Statement> statements = (descriptions == null) ? null : descriptions.get(id);
+		if (statements == null)
+			return sesame.queryBinding(OntologyWriter.getNLQuery(id), id).getBindings(id);
+		
+		List<MapBindingSet> sets = new ArrayList<MapBindingSet>();
+		boolean typed = false;
+		for (Statement s : statements)
+		{
+			String var = OntologyWriter.getNLVariable(s.getPredicate().toString());
+			if (var == null)
+				continue;
+			if (var.equals(OntologyWriter.NL_TYPE))
+				typed = true;
+			MapBindingSet set = new MapBindingSet(1);
+			set.addBinding(var, s.getObject());
+			sets.add(set);
+		}
+		if (!typed)
+			return null;		//the query only matches objects with a type
+		
+		QueryResult result = new QueryResult(OntologyWriter.getNLVariables());
+		for (MapBindingSet set : sets)
+			result.add(set, id);
+		return result.getBindings(id);
+	}
+	
+	/**	Checks whether the property belongs to one of the ontologies LIBER uses
+	 */
+	private static boolean inArchiveNamespace(URI property)
+	{
+		String namespace = property.getNamespace();
+		return (namespace.indexOf("www.policygrid.org") >= 0) || (namespace.indexOf("www.mooney.net/geo") >= 0);
 	}
 
 	/**	Retrieves the components of a sequence and adds them to source
@@ -367,13 +519,8 @@ public class AutomaticGenerator
 	{
 		try
 		{
-			String query = OntologyWriter.getDescriptionQuery(id);
-		//	SesameReader sesame = new SesameReader();
-			GraphQueryResult graph = sesame.queryGraph(query);
-
-			while (graph.hasNext())
+			for (Statement s : describe(id))
 			{
-				Statement s = graph.next();
 				String ordering = s.getPredicate().getLocalName();
 				int idx = -1;
 				try	//try to get the rank order of the sequence
@@ -560,10 +707,7 @@ public class AutomaticGenerator
 			}
 			
 			//TODO: URI classMap: might need to change the sparql query (to retrive other properties as well)
-			String sparql = OntologyWriter.getNLQuery(id);	//i.e. name, title, gender and type
-			QueryResult result = sesame.queryBinding(sparql, id);
-			Map<String, List<String>> map = result.getBindings(id);
-
+			Map<String, List<String>> map = getNLBindings(id);	//i.e. name, title, gender and type
 			if ((map == null) || (map.size() == 0))
 			{
 				try
@@ -662,12 +806,8 @@ public class AutomaticGenerator
 		SGDateNode result = new SGDateNode();
 		try
 		{
-			String query = OntologyWriter.getDescriptionQuery(id);
-			GraphQueryResult graph = sesame.queryGraph(query);
-	
-			while (graph.hasNext())
+			for (Statement s : describe(id))
 			{
-				Statement s = graph.next();
 				String namespace = s.getPredicate().getNamespace();
 				if ((namespace.indexOf("www.policygrid.org") < 0) && (namespace.indexOf("www.mooney.net/geo") < 0))
 					continue;
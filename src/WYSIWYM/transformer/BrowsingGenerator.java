@@ -105,9 +105,11 @@ public class BrowsingGenerator extends FeedbackTextGenerator
 	 */
 	public void updateText() throws SurfaceRealisationException, TextPlanningException
 	{	//plan text
-		ContentPlan plan = new ContentPlanner(reader, getGraph()).plan();
-		SurfaceRealiser sr = new SurfaceRealiser();
-		setText(new FeedbackText(sr.realise(plan)));
+		ContentPlanner planner = new ContentPlanner(reader, getGraph());
+		planner.setExecutor(ContentPlanner.getParagraphPool());	//archive objects can have many paragraphs
+		ContentPlan plan = planner.plan();
+		SurfaceRealiser sr = SurfaceRealiser.getInstance();
+		setText(new FeedbackText(sr.realise(plan, true, planner.getExecutor())));
 	}
 	
 	/**	Overload: returns serialisable version of feedback text where the last
@@ -6,14 +6,22 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.naming.NameAlreadyBoundException;
 
 import simplenlg.realiser.AnchorString;
 import WYSIWYM.libraries.Lexicon;
 import WYSIWYM.libraries.LinguisticTerms;
+import WYSIWYM.libraries.SpecificationTable;
 import WYSIWYM.model.ContentPlan;
 import WYSIWYM.model.DTEdge;
 import WYSIWYM.model.DTNode;
@@ -39,6 +47,12 @@ import com.hp.hpl.jena.ontology.OntProperty;
  *	ContentPlanner plans the text; it creates a text plan from a
  *	semantic graph.
  *
+ *	Given an executor (see setExecutor()), it aggregates the paragraphs in parallel.
+ *	The paragraphs are still lexicalised one by one, as each paragraph only realises
+ *	the edges that earlier ones have not; and they are added to the plan in the same
+ *	order, before the relative clauses and referring expressions, so the plan is the
+ *	same as when it is planned serially.
+ *
  * @author Feikje Hielkema
  * @version 1.4 2008/07/25
  */
@@ -48,10 +62,16 @@ public class ContentPlanner
 	protected SemanticGraph graph;
 	protected Lexicon lexicon = new Lexicon();
 	protected OntologyReader reader;
+	protected SpecificationTable specifications;
 	
 	protected List<String> mappedEdges;		//list that stores which edges have been mapped
 	protected List<SGNode> relativeClauses;
 	protected List<SGNode> paragraphs;
+	
+	protected ExecutorService executor;		//if not null, paragraphs are aggregated on it
+	private Map<String,Future<List<DependencyTreeTransformer>>> pending = new LinkedHashMap<String,Future<List<DependencyTreeTransformer>>>();	//paragraph headers, and their aggregated trees
+	private static ExecutorService paragraphPool;
+	private static boolean paragraphPoolResolved = false;	//true once liber.planning.threads has been read
 
     /**	Constructs a text planner with a semantic graph
 	 *
@@ -62,6 +82,7 @@ public class ContentPlanner
     {
     	graph = g;
     	reader = r;
+    	specifications = SpecificationTable.get(r);
     }
     
     /**	Plans the graph to a content plan.
@@ -76,21 +97,8 @@ public class ContentPlanner
     	mappedEdges = new ArrayList<String>();
     	    	
     	for (int i = 0; i < paragraphs.size(); i++)
-    	{
-    		SGNode node = paragraphs.get(i);
-    		if (node instanceof SGAddressNode)
-    			mapAddress((SGAddressNode) node);
-    		else if (node instanceof SGAbstractNode)
-    			mapAbstract((SGAbstractNode) node);
-    		else
-    		{	
-	    		String header = node.getHeaderLabel(reader);
-    			header = plan.newParagraph(header, node.getAnchor());	
-    			List<DependencyTreeTransformer> trees = lexicalise(node);
-    			trees = new Aggregator().aggregate(trees);
-    			plan.add(trees, header);
-    		}
-    	}
+    		planParagraph(paragraphs.get(i));
+    	addPendingParagraphs();
 
     	addRelativeClauses();    	
     	generateReferringExpressions();
@@ -98,6 +106,146 @@ public class ContentPlanner
     	return plan;
     }
     
+    /**	Adds a paragraph about the given node to the plan
+     *
+     *	@param node SGNode, topic of the paragraph
+     *	@throws TextPlanningException
+     */
+    protected void planParagraph(SGNode node) throws TextPlanningException
+    {
+    	if (node instanceof SGAddressNode)
+    		mapAddress((SGAddressNode) node);
+    	else if (node instanceof SGAbstractNode)
+    		mapAbstract((SGAbstractNode) node);
+    	else
+    	{	
+	    	String header = node.getHeaderLabel(reader);
+    		header = plan.newParagraph(header, node.getAnchor());	
+    		planParagraph(node, header);
+    	}
+    }
+    
+    /**	Lexicalises and aggregates the edges of the given node, and adds the
+     *	sentences to the paragraph with the given header
+     *
+     *	@param node SGNode, topic of the paragraph
+     *	@param header Paragraph header, as returned by ContentPlan.newParagraph()
+     *	@throws TextPlanningException
+     */
+    protected void planParagraph(SGNode node, String header) throws TextPlanningException
+    {
+    	final List<DependencyTreeTransformer> trees = lexicalise(node);
+    	if (executor == null)
+    	{
+    		plan.add(new Aggregator().aggregate(trees), header);
+    		return;
+    	}
+    	
+    	pending.put(header, executor.submit(new Callable<List<DependencyTreeTransformer>>()
+    	{	//the trees of one paragraph are not shared with any other
+    		public List<DependencyTreeTransformer> call()
+    		{
+    			return new Aggregator().aggregate(trees);
+    		}
+    	}));
+    }
+    
+    /**	Waits for the paragraphs that are being aggregated, and adds them to the
+     *	plan in the order in which they were planned.
+     *	@throws TextPlanningException
+     */
+    protected void addPendingParagraphs() throws TextPlanningException
+    {
+    	try
+    	{
+    		for (Map.Entry<String,Future<List<DependencyTreeTransformer>>> entry : pending.entrySet())
+    			plan.add(getResult(entry.getValue()), entry.getKey());
+    	}
+    	finally
+    	{
+    		for (Future<List<DependencyTreeTransformer>> f : pending.values())
+    			f.cancel(true);		//only has an effect after an error
+    		pending.clear();
+    	}
+    }
+    
+    /**	Makes this planner aggregate the paragraphs in parallel on the given
+     *	executor, or serially if it is null.
+     *	@param e ExecutorService, e.g. getParagraphPool()
+     */
+    public void setExecutor(ExecutorService e)
+    {
+    	executor = e;
+    }
+    
+    /**	Returns the executor on which the paragraphs are aggregated, if any
+     *	@return ExecutorService, or null
+     */
+    public ExecutorService getExecutor()
+    {
+    	return executor;
+    }
+    
+    /**	Returns the pool that is shared by everything that plans or realises paragraphs
+     *	in parallel. It has a (daemon) thread for each processor, unless the system
+     *	property 'liber.planning.threads' says otherwise; if that is 1 or less, or there
+     *	is only one processor, there is no pool and this returns null. The setting is
+     *	only read the first time.
+     *	@return ExecutorService, or null
+     */
+    public static synchronized ExecutorService getParagraphPool()
+    {
+    	if (paragraphPoolResolved)
+    		return paragraphPool;
+    	paragraphPoolResolved = true;
+    	
+    	int threads = Runtime.getRuntime().availableProcessors();
+    	try
+    	{
+    		threads = Integer.parseInt(System.getProperty("liber.planning.threads", Integer.toString(threads)).trim());
+    	}
+    	catch (NumberFormatException e)
+    	{
+    		System.out.println("liber.planning.threads is not a number, using " + threads + " threads");
+    	}
+    	if (threads <= 1)
+    		return null;
+    	
+    	paragraphPool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+    	{
+    		public Thread newThread(Runnable r)
+    		{
+    			Thread t = new Thread(r, "liber-paragraphs");
+    			t.setDaemon(true);
+    			return t;
+    		}
+    	});
+    	return paragraphPool;
+    }
+    
+    /**	Returns the result of a task, throwing its exception if it failed
+     */
+    private static <T> T getResult(Future<T> future) throws TextPlanningException
+    {
+    	try
+    	{
+    		return future.get();
+    	}
+    	catch (InterruptedException e)
+    	{
+    		Thread.currentThread().interrupt();
+    		throw new TextPlanningException("Interrupted while aggregating the paragraphs");
+    	}
+    	catch (ExecutionException e)
+    	{
+    		if (e.getCause() instanceof RuntimeException)
+    			throw (RuntimeException) e.getCause();
+    		if (e.getCause() instanceof Error)
+    			throw (Error) e.getCause();
+    		throw new TextPlanningException(String.valueOf(e.getCause()));
+    	}
+    }
+    
     /**	Determines the minimum number of paragraphs needed in the text. Each 
      *	paragraph describes a node in the graph.
      *
@@ -410,93 +558,58 @@ public class ContentPlanner
     	return node;
     }
     
-    /**	Finds the linguistic entry for this property or its inverse property
-     */
-    private DependencyTreeTransformer getTree(OntProperty p) throws IOException
-    {	//find the lexicon entry for either this property or its inverse property
-		try
-		{	//try finding this property's entry
-			return lexicon.map(p.getLocalName());
-		}
-		catch (IOException e)
-		{	//if that fails, try finding the inverse
-			OntProperty i = reader.getInverse(p);
-			if (i == null) //if there is no inverse, there was no entry in the lexicon 
-				throw e;		//for the property so we pass on the exception
-			DependencyTreeTransformer dt = lexicon.map(i.getLocalName());
-			dt.getGraph().setInverseInserted(true);
-			return dt;
-		}
-    }
-    
     /**	Finds the linguistic entry for this edge's property, inverse property or 
      *	superproperty
      */
     private DependencyTreeTransformer getTree(SGEdge edge, List<String> propsCovered, SGNode topic, boolean relativeClause)
     {
     	OntProperty p = reader.getProperty(edge.getLabel());
-    	boolean inverse = false;
     	if (/**(!relativeClause) &&*/(p != null) && topic.equals(edge.getTarget()))
     	{	//if both normal and inverse properties have a linguistic spec, pick the one that focuses on the topic of the paragraph!
     		OntProperty i = reader.getInverse(p);
     		if (i != null)
-    		{
-    			inverse = true;
     			p = i;
-    		}
     	}
     	propsCovered.add(edge.getLabel());   
-	    DependencyTreeTransformer result = null;
-	    OntProperty specProp = p;	//Property that has the specification attached
 		
-		try
+		if (edge.getLabel().equals(QueryEdge.ANYTHING))	//'anything' is obviously not a property in the ontology!
 		{
-			if (edge.getLabel().equals(QueryEdge.ANYTHING))	//'anything' is obviously not a property in the ontology!
+			try
+			{
 				return lexicon.map(edge.getLabel());
-			else if (p == null)	//if this is not an ontology property, return null
-	    		return null;
-			else
-				result = getTree(p);		//try finding the entry for this property
-		}		
-		catch (IOException e)
-		{	//if it fails, try the superproperties
-			for (Iterator it = p.listSuperProperties(); it.hasNext(); )
+			}
+			catch (IOException e)
 			{
-				OntProperty parent = (OntProperty) it.next();
-				if (p.equals(parent))
-					continue;
-				try
-				{
-					result = getTree(parent);	//if we have found a linguistic specification
-					specProp = parent;
-					break;
-				}
-				catch(IOException ex)
-				{}
+				System.out.println("Property " + edge.getLabel() +	" is not in the lexicon");
+				return null;
 			}
 		}
+		if (p == null)	//if this is not an ontology property, return null
+	    	return null;
 		
+		//the specification of this property, its inverse or a superproperty
+		SpecificationTable.Entry entry = specifications.get(p);
+		DependencyTreeTransformer result = null;
+		try
+		{
+			if (entry != null)
+				result = entry.getTree(lexicon);
+		}
+		catch (IOException e)
+		{}
 		if (result == null)
 		{
 			System.out.println("Property " + edge.getLabel() +	" is not in the lexicon");
 			return null;
 		}
 		
+		OntProperty specProp = entry.getSource();	//Property that has the specification attached
 		if (!edge.getLabel().equals(specProp.getLocalName()))
 			propsCovered.add(specProp.getLocalName());
 		for (OntProperty subProp : reader.getSubProperties(specProp))
-		{
-			if (subProp.getLocalName().equals(edge.getLabel()))
-				continue;
-
-			try
-			{	//check if the subproperties have their own specification
-				getTree(subProp);
-			}
-			catch (IOException ex)
-			{	//if not, add them to the list of properties covered by this specification
+		{	//if the subproperties have no specification of their own, add them to the list of properties covered by this specification
+			if (!subProp.getLocalName().equals(edge.getLabel()) && !specifications.hasOwn(subProp))
 				propsCovered.add(subProp.getLocalName());
-			}
 		}
 		return result;
     }
@@ -553,37 +666,58 @@ public class ContentPlanner
     protected void addRelativeClauses() throws TextPlanningException
     {
     	for (int i = 0; i < relativeClauses.size(); i++)
-    	{	//for each node in the graph
-    		SGNode node = relativeClauses.get(i); 
-    		List<DependencyTreeTransformer> list = lexicalise(node, true);	//lexicalise the edges that have not yet been mapped
-    		if (list.size() > 1)	//this can actually happen, thanks to hidden nodes/edges
-    		{	//in that case make a new paragraph
-    			plan.addParagraph(node.getHeaderLabel(reader), node.getAnchor(), list);
-    			continue;
-    		}
-    		else if (list.size() == 0)
-    			continue;		//no relative clause needed for this property
+    		addRelativeClause(relativeClauses.get(i));	//for each node in the graph
+    }
+    
+    /**	Lexicalises the edge of this node that has not been mapped yet, and adds it as
+     *	relative clause to the paragraphs; or, if that is impossible, adds a new paragraph
+     *	about the node.
+     *	@param node SGNode
+     *	@throws TextPlanningException
+     */
+    protected void addRelativeClause(SGNode node) throws TextPlanningException
+    {
+    	List<DependencyTreeTransformer> list = lexicalise(node, true);	//lexicalise the edges that have not yet been mapped
+    	if (list.size() > 1)	//this can actually happen, thanks to hidden nodes/edges
+    	{	//in that case make a new paragraph
+    		plan.addParagraph(node.getHeaderLabel(reader), node.getAnchor(), list);
+    		return;
+    	}
+    	else if (list.size() == 0)
+    		return;		//no relative clause needed for this property
 
-    		int added = 0;
-    		for (Iterator keys = plan.getParagraphHeaders(); keys.hasNext(); )	
-    		{	//add the relative clause to a paragraph
-    			String key = (String) keys.next();
-    			List<DependencyTreeTransformer> trees = plan.getParagraphTrees(key);
-    			for (int j = 0; j < trees.size(); j++)
-    			{
-    				int temp = trees.get(j).addRelativeClause(list.get(0));
-    				if (temp == 1)
-    				{
-    					added = 1;
-    					break;
-    				}
-    				else if (temp == 2)
-    					added = 2;
-    			}
-    		}
-    		if (added == 0)		//if impossible, add a new paragraph about this node
-    			plan.addParagraph(node.getHeaderLabel(reader), node.getAnchor(), list);	
+    	int added = 0;
+    	for (Iterator keys = plan.getParagraphHeaders(); keys.hasNext(); )	
+    	{	//add the relative clause to a paragraph
+    		int temp = addRelativeClause(list.get(0), (String) keys.next());
+    		if (temp > 0)
+    			added = temp;
+    	}
+    	if (added == 0)		//if impossible, add a new paragraph about this node
+    		plan.addParagraph(node.getHeaderLabel(reader), node.getAnchor(), list);	
+    }
+    
+    /**	Adds the relative clause to the first sentence in the given paragraph that
+     *	can take it.
+     *	@param clause DependencyTreeTransformer with the relative clause
+     *	@param key Paragraph header
+     *	@return 1 if the clause was added, 2 if it was not because that sentence
+     *	summarises the topic, and 0 if no sentence mentions it
+     *	@see DependencyTreeTransformer#addRelativeClause(DependencyTreeTransformer)
+     */
+    protected int addRelativeClause(DependencyTreeTransformer clause, String key)
+    {
+    	int added = 0;
+    	List<DependencyTreeTransformer> trees = plan.getParagraphTrees(key);
+    	for (int j = 0; j < trees.size(); j++)
+    	{
+    		int temp = trees.get(j).addRelativeClause(clause);
+    		if (temp == 1)
+    			return 1;
+    		else if (temp == 2)
+    			added = 2;
     	}
+    	return added;
     }
     
     /**	Generates referring expressions for all UndeterminedDTNodes in the trees.
@@ -59,6 +59,7 @@ public class FeedbackTextGenerator extends SemanticGraphTransformer
 {
 	private Folksonomy folk;
 	private FeedbackText text;
+	private IncrementalPlanner planner;	//remembers the paragraphs of the last text
 	protected int lastOp = 0;			//tracks which nodes and edges were added last
 	protected SemanticGraphTransformer undoneGraph;
 	protected SesameReader sesame;
@@ -458,15 +459,21 @@ public class FeedbackTextGenerator extends SemanticGraphTransformer
 		}	
 	}
 	
-	/**	Updates the feedbacktext when the semantic graph has been changed
+	/**	Updates the feedbacktext when the semantic graph has been changed. Only the
+	 *	paragraphs that are affected by the changes are planned and realised again.
 	 *	@throws	SurfaceRealisationException	if an error occurred during surface realisation
 	 *	@throws	TextPlanningException if an error occurred during text planning
 	 */
 	public void updateText() throws SurfaceRealisationException, TextPlanningException
 	{	//plan text
-		ContentPlanner planner = new ContentPlanner(reader, getGraph());
-		ContentPlan cp = planner.plan();
-	/*	Iterator it = cp.getTrees();						
+		if ((planner == null) || !planner.isFor(reader, getGraph()))
+		{
+			planner = new IncrementalPlanner(reader, getGraph());
+			planner.setExecutor(ContentPlanner.getParagraphPool());
+		}
+		text = new FeedbackText(planner.generate());
+	/*	ContentPlan cp = planner.plan();
+		Iterator it = cp.getTrees();						
 		int i = 0;			//puts dependency trees in files, to view with GraphViz
 		while (it.hasNext())
 		{
@@ -479,9 +486,6 @@ public class FeedbackTextGenerator extends SemanticGraphTransformer
 			w.close();
 			fw.close();
 		}*/
-		
-		SurfaceRealiser sr = new SurfaceRealiser();
-		text = new FeedbackText(sr.realise(cp));	//planner.getPlan()));
 	}
 	
 	/**	Updates the feedbacktext when the user has added a text value for a property with
@@ -0,0 +1,357 @@
+package WYSIWYM.transformer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import simplenlg.realiser.AnchorString;
+import WYSIWYM.libraries.SpecificationTable;
+import WYSIWYM.model.Anchor;
+import WYSIWYM.model.ContentPlan;
+import WYSIWYM.model.DTNode;
+import WYSIWYM.model.Edge;
+import WYSIWYM.model.Graph;
+import WYSIWYM.model.Node;
+import WYSIWYM.model.SGNode;
+import WYSIWYM.model.SemanticGraph;
+import WYSIWYM.ontology.OntologyReader;
+import WYSIWYM.util.SurfaceRealisationException;
+import WYSIWYM.util.TextPlanningException;
+
+/**	IncrementalPlanner produces the feedback text of a semantic graph that is
+ *	edited step by step. It plans the text as ContentPlanner does, but remembers
+ *	the realised text of each paragraph; the next time, a paragraph is only planned
+ *	and realised again if something it depends on has changed (see
+ *	SemanticGraph.getChangedNodes()). A paragraph depends on its topic, the nodes
+ *	connected to the topic, and all nodes mentioned in its sentences, including
+ *	relative clauses. Besides, it must get the same header as before, and the same
+ *	edges of the topic must have been mapped by earlier paragraphs.
+ *
+ *	Address and abstract paragraphs, and paragraphs that are made for relative
+ *	clauses, are always planned anew. If the ontology or the lexicon has changed,
+ *	the whole text is planned anew; and so it is when a relative clause turns out
+ *	to belong in a paragraph that is reused.
+ *
+ *	@version 1.0 18-10-2026
+ */
+public class IncrementalPlanner extends ContentPlanner
+{
+	private Map<String,CachedParagraph> cache = new HashMap<String,CachedParagraph>();	//topic id, and its paragraph in the last text
+	private Map<String,List<String>> clauseCache = new HashMap<String,List<String>>();	//relative clause node id, and the edges it mapped in the last text
+	private long lastPlanned;		//change stamp before the last text was planned
+
+	private Set<String> changed = new HashSet<String>(), dirty = new HashSet<String>();	//ids of nodes that have changed, of topics that must be planned anew
+	private Map<String,CachedParagraph> reused = new HashMap<String,CachedParagraph>();	//paragraph headers, and the paragraphs that were reused
+	private Map<String,CachedParagraph> planned = new HashMap<String,CachedParagraph>();	//or planned anew
+	private Map<String,List<String>> clauses = new HashMap<String,List<String>>();
+	private SGNode clauseNode;		//node whose relative clause is being added
+	private boolean taken, takenByReused;	//whether that clause has been added to a paragraph, and if so whether that was a reused one
+	private boolean consistent = true;
+
+	/**	The realised text of a paragraph, and the information needed to decide
+	 *	whether it can be reused
+	 */
+	private static class CachedParagraph
+	{
+		private final String topic, header;
+		private final Set<String> mappedBefore;		//edges of the topic that were mapped by earlier paragraphs
+		private final List<String> mapped;			//edges mapped by this paragraph
+		private final Map<String,Integer> clauses = new HashMap<String,Integer>();	//relative clause nodes offered to this paragraph, and the result
+		private Set<String> dependencies;
+		private List<AnchorString> text;
+
+		private CachedParagraph(String topic, String header, Set<String> mappedBefore, List<String> mapped)
+		{
+			this.topic = topic;
+			this.header = header;
+			this.mappedBefore = mappedBefore;
+			this.mapped = mapped;
+		}
+	}
+
+	/**	Constructs a planner for the given semantic graph
+	 *
+	 *	@param r Ontology
+	 *	@param g SemanticGraph
+	 */
+	public IncrementalPlanner(OntologyReader r, SemanticGraph g)
+	{
+		super(r, g);
+	}
+
+	/**	Checks whether this planner was made for the given ontology and graph
+	 *	@param r Ontology
+	 *	@param g SemanticGraph
+	 *	@return true if it was
+	 */
+	public boolean isFor(OntologyReader r, SemanticGraph g)
+	{
+		return (reader == r) && (graph == g);
+	}
+
+	/**	Plans and realises the text, reusing all paragraphs of the previous text
+	 *	that have not changed.
+	 *	@return List<AnchorString> with feedback text
+	 *	@throws TextPlanningException
+	 *	@throws SurfaceRealisationException
+	 */
+	public List<AnchorString> generate() throws TextPlanningException, SurfaceRealisationException
+	{
+		long start = Graph.getLastChange();
+		SpecificationTable table = SpecificationTable.get(reader);
+		if (table != specifications)
+		{	//the ontology or the lexicon has changed
+			cache.clear();
+			specifications = table;
+		}
+		changed = cache.isEmpty() ? new HashSet<String>() : graph.getChangedNodes(lastPlanned);
+		reused = new HashMap<String,CachedParagraph>();
+		planned = new HashMap<String,CachedParagraph>();
+		plan();
+
+		Map<String,String> ids = new HashMap<String,String>();	//sg ids and node ids
+		for (Iterator it = graph.getNodes(); it.hasNext(); )
+		{
+			SGNode node = (SGNode) it.next();
+			if (node.getSGID() != null)
+				ids.put(node.getSGID(), node.getID());
+		}
+
+		List<String> headers = new ArrayList<String>();
+		List<String> realise = new ArrayList<String>();	//paragraphs that are not reused
+		for (Iterator it = plan.getParagraphHeaders(); it.hasNext(); )
+		{
+			String key = (String) it.next();
+			headers.add(key);
+			if (!reused.containsKey(key))
+				realise.add(key);
+		}
+		SurfaceRealiser sr = SurfaceRealiser.getInstance();
+		Iterator<List<AnchorString>> realised = sr.realiseParagraphs(plan, realise, true, executor).iterator();
+
+		List<List<AnchorString>> text = new ArrayList<List<AnchorString>>();
+		Map<String,CachedParagraph> newCache = new HashMap<String,CachedParagraph>();
+		for (String key : headers)
+		{
+			CachedParagraph p = reused.get(key);
+			if (p != null)
+				text.add(getText(p));
+			else
+			{
+				p = planned.get(key);
+				if (p != null)
+					p.dependencies = getDependencies(p, ids);
+				List<AnchorString> paragraph = realised.next();
+				text.add(paragraph);
+				if (p != null)
+					p.text = paragraph;
+			}
+			if (p != null)
+				newCache.put(p.topic, p);
+		}
+		cache = newCache;
+		clauseCache = clauses;
+		lastPlanned = start;
+		return sr.join(text);
+	}
+
+	/**	Returns the number of paragraphs that were reused in the last text
+	 *	@return int
+	 */
+	public int getReused()
+	{
+		return reused.size();
+	}
+
+	/**	Overload; finds the paragraphs that must be planned anew because
+	 *	a node has become, or stopped being, a relative clause.
+	 *	@see ContentPlanner#makeParagraphs()
+	 */
+	protected List<SGNode> makeParagraphs()
+	{
+		List<SGNode> result = super.makeParagraphs();
+		dirty = new HashSet<String>();
+		Set<String> clauseIDs = new HashSet<String>();
+		Set<String> region = new HashSet<String>();
+		for (SGNode node : relativeClauses)
+		{
+			clauseIDs.add(node.getID());
+			if (!clauseCache.containsKey(node.getID()))
+				addRegion(node, region);	//a new relative clause may be added to any sentence that mentions its node or the other one
+		}
+		for (CachedParagraph p : cache.values())
+		{
+			if (!Collections.disjoint(p.dependencies, region) || !clauseIDs.containsAll(p.clauses.keySet()))
+				dirty.add(p.topic);
+		}
+		return result;
+	}
+
+	/**	Overload; reuses the paragraph of the previous text if nothing it depends on
+	 *	has changed, otherwise plans it.
+	 *	@see ContentPlanner#planParagraph(SGNode, String)
+	 */
+	protected void planParagraph(SGNode node, String header) throws TextPlanningException
+	{
+		Set<String> mappedBefore = new HashSet<String>();
+		for (Iterator it = node.getEdges(); it.hasNext(); )
+		{
+			String id = ((Edge) it.next()).getID();
+			if (mappedEdges.contains(id))
+				mappedBefore.add(id);
+		}
+
+		CachedParagraph p = cache.get(node.getID());
+		if ((p != null) && p.header.equals(header) && p.mappedBefore.equals(mappedBefore)
+			&& !dirty.contains(p.topic) && Collections.disjoint(p.dependencies, changed))
+		{
+			mappedEdges.addAll(p.mapped);
+			reused.put(header, p);
+			return;
+		}
+
+		int size = mappedEdges.size();
+		super.planParagraph(node, header);
+		List<String> mapped = new ArrayList<String>(mappedEdges.subList(size, mappedEdges.size()));
+		planned.put(header, new CachedParagraph(node.getID(), header, mappedBefore, mapped));
+	}
+
+	/**	Overload; if a relative clause turns out to differ from the last text and
+	 *	might belong in a reused paragraph, the whole text is planned anew.
+	 *	@see ContentPlanner#addRelativeClauses()
+	 */
+	protected void addRelativeClauses() throws TextPlanningException
+	{
+		consistent = true;
+		clauses = new HashMap<String,List<String>>();
+		super.addRelativeClauses();
+		if (consistent)
+			return;
+
+		cache.clear();
+		reused.clear();
+		planned.clear();
+		plan = new ContentPlan();
+		mappedEdges = new ArrayList<String>();
+		for (int i = 0; i < paragraphs.size(); i++)
+			planParagraph(paragraphs.get(i));
+		addPendingParagraphs();
+		clauses.clear();
+		super.addRelativeClauses();
+	}
+
+	/**	Overload; remembers which edges the relative clause has mapped
+	 *	@see ContentPlanner#addRelativeClause(SGNode)
+	 */
+	protected void addRelativeClause(SGNode node) throws TextPlanningException
+	{
+		clauseNode = node;
+		taken = false;
+		takenByReused = false;
+		int size = mappedEdges.size();
+		super.addRelativeClause(node);
+		List<String> mapped = new ArrayList<String>(mappedEdges.subList(size, mappedEdges.size()));
+		clauses.put(node.getID(), mapped);
+
+		if (reused.isEmpty() || mapped.equals(clauseCache.get(node.getID())))
+			return;
+		Set<String> region = new HashSet<String>();
+		addRegion(node, region);
+		for (CachedParagraph p : reused.values())
+		{	//the clause may have been added to this paragraph if it had been planned anew
+			if (!Collections.disjoint(p.dependencies, region))
+				consistent = false;
+		}
+	}
+
+	/**	Overload; a reused paragraph gives the same result as last time, as its
+	 *	sentences already contain the clause (if it was added).
+	 *	@see ContentPlanner#addRelativeClause(DependencyTreeTransformer, String)
+	 */
+	protected int addRelativeClause(DependencyTreeTransformer clause, String key)
+	{
+		CachedParagraph p = reused.get(key);
+		if (p != null)
+		{
+			Integer old = p.clauses.get(clauseNode.getID());
+			int result = (old == null) ? 0 : old.intValue();
+			if (taken)
+			{
+				if (result == 1)
+					consistent = false;		//this time an earlier paragraph took the clause
+				return 0;
+			}
+			if (result == 1)
+				taken = takenByReused = true;
+			return result;
+		}
+		if (takenByReused)
+			return 0;	//once added, a clause cannot be added to another paragraph
+
+		int result = super.addRelativeClause(clause, key);
+		CachedParagraph q = planned.get(key);
+		if ((q != null) && (result > 0))
+			q.clauses.put(clauseNode.getID(), Integer.valueOf(result));
+		if (result == 1)
+			taken = true;
+		return result;
+	}
+
+	/**	Returns the ids of the nodes the paragraph depends on
+	 */
+	private Set<String> getDependencies(CachedParagraph p, Map<String,String> ids)
+	{
+		Set<String> result = new HashSet<String>();
+		addRegion(graph.getNode(p.topic), result);
+		for (String clause : p.clauses.keySet())
+			addRegion(graph.getNode(clause), result);
+		for (DependencyTreeTransformer dt : plan.getParagraphTrees(p.header))
+		{
+			for (Iterator it = dt.getGraph().getNodes(); it.hasNext(); )
+			{
+				String id = ids.get(((DTNode) it.next()).getSGID());
+				if (id != null)
+					result.add(id);
+			}
+		}
+		return result;
+	}
+
+	/**	Adds the id of the node and of all nodes connected to it
+	 */
+	private void addRegion(Node node, Set<String> region)
+	{
+		if (node == null)
+			return;
+		region.add(node.getID());
+		for (Iterator it = node.getEdges(); it.hasNext(); )
+		{
+			Edge edge = (Edge) it.next();
+			if (edge.getSource() != null)
+				region.add(edge.getSource().getID());
+			if (edge.getTarget() != null)
+				region.add(edge.getTarget().getID());
+		}
+	}
+
+	/**	Returns a copy of the realised paragraph, with the current anchors of the
+	 *	nodes (which may have been replaced since)
+	 */
+	private List<AnchorString> getText(CachedParagraph p)
+	{
+		List<AnchorString> result = new ArrayList<AnchorString>();
+		for (AnchorString as : p.text)
+		{
+			Anchor a = as.getAnchor();
+			if ((a != null) && (a.getNode() != null) && (a.getNode().getAnchor() != null))
+				a = a.getNode().getAnchor();
+			result.add(new AnchorString(as.toString(), a));
+		}
+		return result;
+	}
+}
@@ -148,7 +148,7 @@ public class QueryBuilder extends FeedbackTextGenerator
 			queryResultMap.put(id, sgt);
 			
 			ContentPlan plan = new ContentPlanner(reader, sgt.getGraph()).plan();
-			result.put(id, new FeedbackText(new SurfaceRealiser().realise(plan/**ner.getPlan()*/)));
+			result.put(id, new FeedbackText(SurfaceRealiser.getInstance().realise(plan/**ner.getPlan()*/)));
 		}	
 		return result;
 	}
@@ -38,6 +38,7 @@ public class QueryRealiser extends SurfaceRealiser
      */
     public List<AnchorString> realise(QueryPlan plan) throws SurfaceRealisationException
     {	//create a spec to contain the list (full surface form), and add a spec containing the list intro
+    	Context c = new Context(true);	//output html
     	TextSpec result = new TextSpec();
     	TextSpec intro = new TextSpec().promote(DocStructure.LISTHEADER);
     	intro.addSpec(plan.getIntro());
@@ -46,24 +47,22 @@ public class QueryRealiser extends SurfaceRealiser
     	TextSpec list = new TextSpec().promote(DocStructure.LIST);
     	List<QueryPlan.QueryItem> items = plan.getQuery();
     	for (int i = 0; i < items.size(); i++)
-    		list.addSpec(realiseQueryItem(items.get(i)));
+    		list.addSpec(realiseQueryItem(items.get(i), c));
 
     	result.addSpec(list);
     	result.setDocument();
-    	realiser.setHTML(true);	//output html
-    
-    	return realiser.realise(result);
+    	return c.realiser.realise(result);
     }
     
     /**	Realises a QueryItem, recursing if necessary
      */
-    private TextSpec realiseQueryItem(QueryPlan.QueryItem item) throws SurfaceRealisationException
+    private TextSpec realiseQueryItem(QueryPlan.QueryItem item, Context c) throws SurfaceRealisationException
     {
     	DependencyTree dt = item.content;
-    	PhraseSpec s = realiseNode((DTNode) dt.getRoot());
+    	PhraseSpec s = realiseNode((DTNode) dt.getRoot(), c);
 	//	tweakAggregate(s, dt);
-		aggregateNode = null;
-		conjunctor = "";
+		c.aggregateNode = null;
+		c.conjunctor = "";
 		s.setFlash(dt.flash());
 		
 		TextSpec spec = new TextSpec().promote(DocStructure.LISTITEM);
@@ -77,7 +76,7 @@ public class QueryRealiser extends SurfaceRealiser
 			
 			TextSpec list = new TextSpec().promote(DocStructure.LIST);
 			for (int i = 0; i < item.children.size(); i++)
-				list.addSpec(realiseQueryItem(item.children.get(i)));
+				list.addSpec(realiseQueryItem(item.children.get(i), c));
 			spec.addSpec(list);
 		}
 		return spec;
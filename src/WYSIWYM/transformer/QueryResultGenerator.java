@@ -43,7 +43,7 @@ public class QueryResultGenerator extends BrowsingGenerator
 	public void updateText() throws SurfaceRealisationException, TextPlanningException
 	{	//plan text
 		ContentPlan plan = new QueryResultPlanner(reader, getGraph()).plan();
-		SurfaceRealiser sr = new SurfaceRealiser();
+		SurfaceRealiser sr = SurfaceRealiser.getInstance();
 		setText(new FeedbackText(sr.realise(plan)));
 	}
 	
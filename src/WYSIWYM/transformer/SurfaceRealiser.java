@@ -1,12 +1,18 @@
 package WYSIWYM.transformer;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import simplenlg.features.Tense;
 import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.lexicalitems.Category;
 import simplenlg.lexicon.lexicalitems.Verb;
 import simplenlg.realiser.AggregatePhraseSpec;
 import simplenlg.realiser.AnchorString;
@@ -22,19 +28,29 @@ import simplenlg.realiser.SyntaxPhraseSpec;
 import simplenlg.realiser.TextSpec;
 import simplenlg.realiser.VerbGroupSpec;
 import WYSIWYM.libraries.LinguisticTerms;
+import WYSIWYM.libraries.SpecificationTable;
 import WYSIWYM.model.ContentPlan;
 import WYSIWYM.model.DTEdge;
 import WYSIWYM.model.DTNode;
 import WYSIWYM.model.DependencyTree;
 import WYSIWYM.model.Edge;
 import WYSIWYM.model.QueryResultPlan;
+import WYSIWYM.model.SGNode;
 import WYSIWYM.model.TextPlan;
+import WYSIWYM.ontology.OntologyReader;
 import WYSIWYM.util.SurfaceRealisationException;
 
+import com.hp.hpl.jena.ontology.OntClass;
+
 /***
  *	SurfaceRealiser handles linearisation and morphology tasks
  *	It uses the SimpleNLG package (Reiter, 2006) for surface realisation
  *
+ *	A SurfaceRealiser keeps no state between or during calls; everything a
+ *	single realisation needs is kept in a Context, so one instance (see
+ *	getInstance()) can serve all sessions at once. All realisations share one
+ *	simpleNLG lexicon, on top of which each Context adds the words it inflects.
+ *
  * @author Feikje Hielkema
  * @version 1.00 2006/11/15
  *
@@ -43,15 +59,8 @@ import WYSIWYM.util.SurfaceRealisationException;
 
 public class SurfaceRealiser 
 {
-	protected Lexicon lexicon;
-	protected Realiser realiser;
-	private String tense = LinguisticTerms.PRESENT;		//if a verb should be past tense, ditto
-	private boolean genitive = false, quote = false;
-	private boolean passive = false;	//if a verb is passive, this boolean will store that information until it can be used
-	private boolean singularVerb = true, compPlural = false, subjectPlural = false, modPlural = false;
-
-	protected DTNode aggregateNode;
-	protected String conjunctor = "";
+	private static final Lexicon LEXICON = new Lexicon();	//shared by all realisations; never changed
+	private static final SurfaceRealiser INSTANCE = new SurfaceRealiser();
 
 	/**	HTML output */
 	public static final int HTML = 0;
@@ -60,12 +69,63 @@ public class SurfaceRealiser
 	/**	Output without lay-out */
 	public static final int NOLAYOUT = 2;
 
+	/**	The state of a single realisation */
+	protected static class Context
+	{
+		/**	Realiser, with its own lexicon on top of the shared one */
+		protected final Realiser realiser;
+		/**	True if the last leaf was genitive, until the determiner of its NP is added */
+		protected boolean genitive = false;
+		protected DTNode aggregateNode;
+		protected String conjunctor = "";
+
+		/**	Constructor
+		 *	@param html True for output with HTML tags, false for normal output
+		 */
+		protected Context(boolean html)
+		{
+			realiser = new Realiser(new Lexicon(LEXICON));
+			realiser.setHTML(html);
+		}
+	}
+
 	/**	Default constructor.
 	 */
     public SurfaceRealiser() 
+    {}
+    
+    /**	Returns the SurfaceRealiser that is shared by all sessions
+     *	@return SurfaceRealiser
+     */
+    public static SurfaceRealiser getInstance()
     {
-    	lexicon = new Lexicon();
-    	realiser = new Realiser(lexicon);
+    	return INSTANCE;
+    }
+    
+    /**	Fills the inflection cache of simpleNLG with the words LIBER realises most:
+     *	the nl-expressions of all classes in the ontology, and the nouns and verbs
+     *	in the lexicon specifications (all of which are read). Should be called at startup,
+     *	so the first sessions do not have to inflect these words.
+     *	@param reader Ontology
+     */
+    public static void preload(OntologyReader reader)
+    {
+    	SpecificationTable.get(reader);	//reads all specifications
+    	for (String root : WYSIWYM.libraries.Lexicon.getRoots(LinguisticTerms.VERB))
+    		LEXICON.preload(Category.VERB, root);
+    	for (String root : WYSIWYM.libraries.Lexicon.getRoots(LinguisticTerms.NOUN))
+    		LEXICON.preload(Category.NOUN, root);
+    	for (String root : WYSIWYM.libraries.Lexicon.getRoots(LinguisticTerms.NP))
+    		LEXICON.preload(Category.NOUN, root);
+    	
+    	for (Iterator it = reader.getClasses(); it.hasNext(); )
+    	{
+    		String name = ((OntClass) it.next()).getLocalName();
+    		if (name == null)
+    			continue;
+    		String nl = reader.getNLExpression(name);
+    		LEXICON.preload(Category.NOUN, (nl == null) ? SGNode.normalise(name) : nl);
+    	}
     }
     
     /**	Realises the text plan to a feedback text.
@@ -76,6 +136,7 @@ public class SurfaceRealiser
      */
     public List<AnchorString> realise(TextPlan plan) throws SurfaceRealisationException
     {
+    	Context c = new Context(true);	//output html
     	TextSpec result = new TextSpec();   
     	for (Iterator it = plan.getParagraphHeaders(); it.hasNext(); )
     	{
@@ -91,7 +152,7 @@ public class SurfaceRealiser
      		for (int i = 0; i < setOrder.size(); i++)
      		{
      			String setHeader = setOrder.get(i);
-     			TextSpec set = realiseSentenceSet(parHeader, setHeader, plan);
+     			TextSpec set = realiseSentenceSet(parHeader, setHeader, plan, c);
      			if (set != null)
 	     			paragraph.addSpec(set);
 	     		plan.removeSet(parHeader, setHeader);
@@ -103,7 +164,7 @@ public class SurfaceRealiser
 	     		for (Iterator it2 = qPlan.getSetHeaders(); it2.hasNext(); )
 	     		{
 	     			String setHeader = (String) it2.next();
-	     			TextSpec set = realiseSentenceSet(parHeader, setHeader, plan);
+	     			TextSpec set = realiseSentenceSet(parHeader, setHeader, plan, c);
      				if (set != null)
 	     				paragraph.addSpec(set);
 	     		}
@@ -112,8 +173,7 @@ public class SurfaceRealiser
      		result.addSpec(paragraph);
     	}
     	result.setDocument();
-    	realiser.setHTML(true);	//output html
-    	return realiser.realise(result);
+    	return c.realiser.realise(result);
     }
 
 	/**	Realises the ContentPlan to a feedback text.
@@ -136,36 +196,137 @@ public class SurfaceRealiser
      */
 	public List<AnchorString> realise(ContentPlan plan, boolean html) throws SurfaceRealisationException
 	{	
-		TextSpec result = new TextSpec();
+		return realise(plan, html, null);
+	}
+	
+	/**	Realises the ContentPlan to a feedback text, realising the paragraphs in
+	 *	parallel on the given executor.
+     *
+     *	@param plan	ContentPlan
+     *	@param html True for output with HTML tags, false for normal output
+     *	@param executor ExecutorService, or null to realise the paragraphs one by one
+     *	@return	List<AnchorString> with feedback text
+     *	@throws SurfaceRealisationException
+     */
+	public List<AnchorString> realise(ContentPlan plan, boolean html, ExecutorService executor) throws SurfaceRealisationException
+	{	
+		List<String> headers = new ArrayList<String>();
 		for (Iterator it = plan.getParagraphHeaders(); it.hasNext(); )
-    	{
-    		String parHeader = (String) it.next();
-    		TextSpec paragraph = new TextSpec().promote(DocStructure.PARAGRAPH);
-    		TextSpec header = new TextSpec(plan.getParagraphHeader(parHeader)).promote(DocStructure.PARHEADER);
-     		paragraph.addSpec(header); 		
-     		aggregateNode = null;
+			headers.add((String) it.next());
+		return join(realiseParagraphs(plan, headers, html, executor));
+	}
+	
+	/**	Realises the given paragraphs of the ContentPlan, in parallel on the given
+	 *	executor. Each paragraph has a Context of its own, so they do not share
+	 *	anything but the (thread-safe) lexicon.
+     *
+     *	@param plan	ContentPlan
+     *	@param headers Paragraph headers
+     *	@param html True for output with HTML tags, false for normal output
+     *	@param executor ExecutorService, or null to realise the paragraphs one by one
+     *	@return	List with the realised paragraphs, in the order of the headers
+     *	@throws SurfaceRealisationException
+     */
+	public List<List<AnchorString>> realiseParagraphs(final ContentPlan plan, List<String> headers, final boolean html, ExecutorService executor) throws SurfaceRealisationException
+	{
+		List<List<AnchorString>> result = new ArrayList<List<AnchorString>>();
+		if ((executor == null) || (headers.size() < 2))
+		{
+			for (String header : headers)
+				result.add(realiseParagraph(plan, header, html));
+			return result;
+		}
+		
+		List<Future<List<AnchorString>>> futures = new ArrayList<Future<List<AnchorString>>>();
+		try
+		{
+			for (final String header : headers)
+			{
+				futures.add(executor.submit(new Callable<List<AnchorString>>()
+				{
+					public List<AnchorString> call() throws SurfaceRealisationException
+					{
+						return realiseParagraph(plan, header, html);
+					}
+				}));
+			}
+			for (Future<List<AnchorString>> f : futures)
+				result.add(f.get());
+			return result;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SurfaceRealisationException("Interrupted while realising the paragraphs");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof SurfaceRealisationException)
+				throw (SurfaceRealisationException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new SurfaceRealisationException(String.valueOf(e.getCause()));
+		}
+		finally
+		{
+			for (Future<List<AnchorString>> f : futures)
+				f.cancel(true);		//only has an effect after an error
+		}
+	}
+	
+	/**	Realises one paragraph of the ContentPlan. join() combines realised paragraphs
+	 *	into the same text as realise(ContentPlan, boolean).
+     *
+     *	@param plan	ContentPlan
+     *	@param parHeader Paragraph header
+     *	@param html True for output with HTML tags, false for normal output
+     *	@return	List<AnchorString> with the paragraph
+     *	@throws SurfaceRealisationException
+     */
+	public List<AnchorString> realiseParagraph(ContentPlan plan, String parHeader, boolean html) throws SurfaceRealisationException
+	{
+		Context c = new Context(html);
+    	TextSpec paragraph = new TextSpec().promote(DocStructure.PARAGRAPH);
+    	TextSpec header = new TextSpec(plan.getParagraphHeader(parHeader)).promote(DocStructure.PARHEADER);
+     	paragraph.addSpec(header); 		
      	
-     		List<DependencyTreeTransformer> trees = plan.getParagraphTrees(parHeader);
-    		for (int i = 0; i < trees.size(); i++)
-     		{
-				DependencyTree dt = trees.get(i).getGraph();
-     			PhraseSpec spec = realiseNode((DTNode) dt.getRoot());
-		//		tweakAggregate(spec, dt);
-				aggregateNode = null;	//reset these, otherwise the next sentence might be set to plural!
-				conjunctor = "";		
-     			spec.setFlash(dt.flash());
-	 		   	paragraph.addSpec(spec);
-	    	}
-   		
-    		result.addSpec(paragraph);
-    	}
-    	
-    	result.setDocument();
-    	realiser.setHTML(html);	//output html
-    	return realiser.realise(result);
+     	List<DependencyTreeTransformer> trees = plan.getParagraphTrees(parHeader);
+    	for (int i = 0; i < trees.size(); i++)
+     	{
+			DependencyTree dt = trees.get(i).getGraph();
+     		PhraseSpec spec = realiseNode((DTNode) dt.getRoot(), c);
+		//	tweakAggregate(spec, dt);
+			c.aggregateNode = null;	//reset these, otherwise the next sentence might be set to plural!
+			c.conjunctor = "";		
+     		spec.setFlash(dt.flash());
+	 	   	paragraph.addSpec(spec);
+	    }
+    	return c.realiser.realise(paragraph);
+	}
+	
+	/**	Combines realised paragraphs into a text, with the spacing of a realised document.
+	 *	The paragraphs themselves are not changed, so they can be realised once
+	 *	and joined many times.
+	 *
+	 *	@param paragraphs List with realised paragraphs, in order
+	 *	@return	List<AnchorString> with the text
+	 */
+	public List<AnchorString> join(List<List<AnchorString>> paragraphs)
+	{
+		List<List<AnchorString>> copies = new ArrayList<List<AnchorString>>();
+		for (List<AnchorString> paragraph : paragraphs)
+		{	//the realiser appends spaces to the last string of a paragraph
+			List<AnchorString> copy = new ArrayList<AnchorString>();
+			for (AnchorString as : paragraph)
+				copy.add(new AnchorString(as.toString(), as.getAnchor()));
+			copies.add(copy);
+		}
+		return new Context(true).realiser.realiseList(copies);
 	}
 
-	private TextSpec realiseSentenceSet(String parHeader, String setHeader, TextPlan plan) throws SurfaceRealisationException
+	private TextSpec realiseSentenceSet(String parHeader, String setHeader, TextPlan plan, Context c) throws SurfaceRealisationException
 	{
 		List<DependencyTree> set = plan.getSet(parHeader, setHeader);
      	if ((set == null) || (set.size() == 0))
@@ -174,15 +335,15 @@ public class SurfaceRealiser
      	TextSpec sentenceset = new TextSpec().promote(DocStructure.SENTENCESET);
      	TextSpec setHeaderSpec = new TextSpec(setHeader).promote(DocStructure.SETHEADER);
      	sentenceset.addSpec(setHeaderSpec);
-   		aggregateNode = null;
+   		c.aggregateNode = null;
      	
      	for (int j = 0; j < set.size(); j++)
      	{
 			DependencyTree dt = set.get(j);
-     		PhraseSpec s = realiseNode((DTNode) dt.getRoot());
+     		PhraseSpec s = realiseNode((DTNode) dt.getRoot(), c);
 			//tweakAggregate(s, dt);	
-			aggregateNode = null;	//reset these, otherwise the next sentence might be set to plural!
-			conjunctor = "";		
+			c.aggregateNode = null;	//reset these, otherwise the next sentence might be set to plural!
+			c.conjunctor = "";		
      		s.setFlash(dt.flash());
 	    	sentenceset.addSpec(s);
 	    }
@@ -294,11 +455,11 @@ public class SurfaceRealiser
      */
     public List<AnchorString> realise(DependencyTree dt) throws SurfaceRealisationException
     {
-    	PhraseSpec s = realiseNode((DTNode) dt.getRoot());
+    	Context c = new Context(true);
+    	PhraseSpec s = realiseNode((DTNode) dt.getRoot(), c);
     //	tweakAggregate(s, dt);	
-    	realiser.setHTML(true);
-    	List<AnchorString> result = realiser.realise(s);
-    	return realiser.applySentenceOrthography(result);
+    	List<AnchorString> result = c.realiser.realise(s);
+    	return c.realiser.applySentenceOrthography(result);
     }
     
     /**	Realises a single dependency tree to a String, for the property creation package.
@@ -323,27 +484,39 @@ public class SurfaceRealiser
      */
     public PhraseSpec realiseNode(DTNode node) throws SurfaceRealisationException
     {
-	    PhraseSpec parent = makeSpec(node);	//check the syncat/postag and create the correct type of phrasespec
+    	return realiseNode(node, new Context(true));
+    }
+    
+    /**	Creates a Spec (see simpleNLG) for a dependency tree
+     *
+     *	@param	node DTNode to be realised
+     *	@param	c Context of the realisation
+     *	@return	PhraseSpec, representing node
+     *	@throws SurfaceRealisationException
+     */
+    protected PhraseSpec realiseNode(DTNode node, Context c) throws SurfaceRealisationException
+    {
+	    PhraseSpec parent = makeSpec(node, c);	//check the syncat/postag and create the correct type of phrasespec
 	    if (parent instanceof SyntaxPhraseSpec)
 	    {
 			Iterator it = node.getOutgoingEdges();
     		while (it.hasNext())
     		{
     			DTEdge edge = (DTEdge) it.next();
-    			PhraseSpec child = realiseNode((DTNode) edge.getTarget());
-    			parent = addPhrase((SyntaxPhraseSpec) parent, child, edge.getLabel());	//add phrase to sentence with right function
+    			PhraseSpec child = realiseNode((DTNode) edge.getTarget(), c);
+    			parent = addPhrase((SyntaxPhraseSpec) parent, child, edge.getLabel(), c);	//add phrase to sentence with right function
     		}
     	}  
    		return parent;
     }
     
-    private VerbGroupSpec makeAggregateVerbSpec(DTNode node) throws SurfaceRealisationException
+    private VerbGroupSpec makeAggregateVerbSpec(DTNode node, Context c) throws SurfaceRealisationException
     {
     	List<DTNode> conjuncts = node.getDepChildren(LinguisticTerms.CONJUNCT);
     	if (!conjuncts.get(0).getLabel().equals(LinguisticTerms.VERB))	//if the conjuncts are no verbs, do nothing
     		return null;
     	
-    	PhraseSpec spec = realiseNode(conjuncts.get(0));	
+    	PhraseSpec spec = realiseNode(conjuncts.get(0), c);	
     	if (spec instanceof StringPhraseSpec)
     		return null;	//not a verb; do  nothing
     	
@@ -353,14 +526,14 @@ public class SurfaceRealiser
     
     /**	Creates an aggregate phrase spec for a conjunction
      */
-    private PhraseSpec makeAggregateSpec(DTNode node) throws SurfaceRealisationException
+    private PhraseSpec makeAggregateSpec(DTNode node, Context c) throws SurfaceRealisationException
     {
     	String cat = node.getLabel();
     	if (!cat.equals(LinguisticTerms.CONJUNCTION))
     		throw new SurfaceRealisationException("I can't create an aggregate phrase spec from a node that's not a conjunction!");
     		
     	String dep = node.getDeplbl();
-    	PhraseSpec spec = makeAggregateVerbSpec(node);
+    	PhraseSpec spec = makeAggregateVerbSpec(node, c);
     	if (spec != null)
     		return spec;
     	
@@ -374,20 +547,20 @@ public class SurfaceRealiser
     		DTEdge edge = (DTEdge) edges.get(i);
     		if (edge.getLabel().equals(LinguisticTerms.CONJUNCTOR))
     		{
-    			conjunctor = edge.getTarget().getRoot();
-    			as.setConjunct(conjunctor);
+    			c.conjunctor = edge.getTarget().getRoot();
+    			as.setConjunct(c.conjunctor);
     		}
     		else if (edge.getLabel().equals(LinguisticTerms.CONJUNCT))
-    			as.addSpec(realiseNode(edge.getTarget()));
+    			as.addSpec(realiseNode(edge.getTarget(), c));
     		else if (edge.getLabel().equals(LinguisticTerms.MODIFIER))
-    			as.addFrontModifier(realiseNode(edge.getTarget()));
+    			as.addFrontModifier(realiseNode(edge.getTarget(), c));
     		else if (edge.getLabel().equals(LinguisticTerms.PPMODIFIER))
-    			as.addEndModifier(realiseNode(edge.getTarget()));
+    			as.addEndModifier(realiseNode(edge.getTarget(), c));
     		else
     			throw new SurfaceRealisationException("A conjunction should only have conjuncts, not " + edge.getLabel() + "s!");	
     	}
     	
-		aggregateNode = node;
+		c.aggregateNode = node;
     	return as;
     }
     
@@ -436,16 +609,17 @@ public class SurfaceRealiser
      *	otherwise the correct kind of syntaxspec, depending on the syntactic category
      *
      *	@param	node to be realised as a spec
+     *	@param	c Context of the realisation
      *	@return	PhraseSpec
      *	@throws SurfaceRealisationException
      */
-    private PhraseSpec makeSpec(DTNode node) throws SurfaceRealisationException
+    private PhraseSpec makeSpec(DTNode node, Context c) throws SurfaceRealisationException
     {
     	String cat = node.getLabel();
     	String dep = node.getDeplbl();
 		
 		if (cat.equals(LinguisticTerms.CONJUNCTION))
-			return makeAggregateSpec(node);
+			return makeAggregateSpec(node, c);
 		else if (cat.equals(LinguisticTerms.VERB))
 			return makeVerb(node);
 					
@@ -465,8 +639,8 @@ public class SurfaceRealiser
     		if (node.getMorph() != null)
     		{
 				sps.setSingular(node.getMorph().isSingular());
-    			genitive = node.getMorph().isGenitive();
-	   			sps.setGenitive(genitive);
+    			c.genitive = node.getMorph().isGenitive();
+	   			sps.setGenitive(c.genitive);
 	   			if (!node.useAsPronoun())
 	   				sps.setQuote(node.getMorph().isQuote());
 	   			sps.setRankOrdered(node.getMorph().isRankOrdered());
@@ -568,11 +742,12 @@ public class SurfaceRealiser
      *	@param	parent: higher level spec
      *	@param 	child:	spec to be added to parent
      *	@param	type: the dependencylabel of child, giving the role of the child in parent
+     *	@param	c: Context of the realisation
      *
      *	@return	SyntaxPhraseSpec
      *	@throws SurfaceRealisationException
      */
-    private SyntaxPhraseSpec addPhrase(SyntaxPhraseSpec parent, PhraseSpec child, String type) throws SurfaceRealisationException
+    private SyntaxPhraseSpec addPhrase(SyntaxPhraseSpec parent, PhraseSpec child, String type, Context c) throws SurfaceRealisationException
     {
       	if (parent instanceof NPPhraseSpec)
       	{	//NP can have a determiner and a head, and also (PP)modifiers
@@ -589,11 +764,11 @@ public class SurfaceRealiser
     				return phrase;
 
     			phrase.setDeterminer(child);
-    			if (genitive)				//set the determiner to genitive (this person's [noun])
+    			if (c.genitive)				//set the determiner to genitive (this person's [noun])
     			{
     				child.setGenitive(true);
     				phrase.setGenitiveDeterminer(true);
-    				genitive = false;		//reset
+    				c.genitive = false;		//reset
     			}
     		}
     		else if (type.equals(LinguisticTerms.MODIFIER))
@@ -13,6 +13,7 @@ import javax.naming.NameAlreadyBoundException;
 import simplenlg.realiser.AnchorString;
 import WYSIWYM.libraries.Lexicon;
 import WYSIWYM.libraries.LinguisticTerms;
+import WYSIWYM.libraries.SpecificationTable;
 import WYSIWYM.model.DTEdge;
 import WYSIWYM.model.DTNode;
 import WYSIWYM.model.DependencyTree;
@@ -50,6 +51,7 @@ public class TextPlanner
 	protected SemanticGraph graph;
 	private Lexicon lexicon = new Lexicon();
 	protected OntologyReader reader;
+	protected SpecificationTable specifications;
 	protected List<String> familiarNodes, mappedNodes, mappedEdges;
 
 	/**	Constructs an empty text planner, taking only an ontology reader
@@ -59,6 +61,7 @@ public class TextPlanner
     public TextPlanner(OntologyReader r) 
     {
     	reader = r;
+    	specifications = SpecificationTable.get(r);
     }
     
     /**	Constructs a text planner with a semantic graph
@@ -70,6 +73,7 @@ public class TextPlanner
     {
     	graph = g;
     	reader = r;
+    	specifications = SpecificationTable.get(r);
     }
     
     /**	Sets the semantic graph
@@ -480,48 +484,15 @@ public class TextPlanner
    		return np;   	
     }
     
-    private DependencyTreeTransformer getTree(OntProperty p) throws IOException
-    {	//find the lexicon entry for either this property or its inverse property
-		try
-		{
-			return lexicon.map(p.getLocalName());
-		}
-		catch (IOException e)
-		{
-			OntProperty i = reader.getInverse(p);
-			if (i == null) //if there is no inverse, there was no entry in the lexicon 
-				throw e;		//for the property so we pass on the exception
-			DependencyTreeTransformer dt = lexicon.map(i.getLocalName());
-			dt.getGraph().setInverseInserted(true);
-			return dt;
-		}
-    }
-    
     protected DependencyTreeTransformer getTree(SGEdge edge) throws IOException
     {
-    	OntProperty p = reader.getProperty(edge.getLabel());
-		try
-		{
-			if (edge.getLabel().equals(QueryEdge.ANYTHING))	//'anything' is obviously not a property in the ontology!
-				return lexicon.map(edge.getLabel());
-			return getTree(p);
-		}		
-		catch (IOException e)
-		{
-			for (Iterator it = p.listSuperProperties(); it.hasNext(); )
-			{
-				OntProperty parent = (OntProperty) it.next();
-				if (p.equals(parent))
-					continue;
-				try
-				{
-					return getTree(parent);
-				}
-				catch(IOException ex)
-				{}
-			}
-		}
-		throw new IOException("Property " + edge.getLabel() +	" is not in the lexicon");
+		if (edge.getLabel().equals(QueryEdge.ANYTHING))	//'anything' is obviously not a property in the ontology!
+			return lexicon.map(edge.getLabel());
+		//the specification of this property, its inverse or a superproperty
+		SpecificationTable.Entry entry = specifications.get(reader.getProperty(edge.getLabel()));
+		if (entry == null)
+			throw new IOException("Property " + edge.getLabel() +	" is not in the lexicon");
+		return entry.getTree(lexicon);
     }
     
     /**	If this returns true, 'plan' should return immediately
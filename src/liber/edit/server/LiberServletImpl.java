@@ -20,6 +20,7 @@ import liber.edit.client.TagCloud;
 import WYSIWYM.model.SGDateNode;
 import WYSIWYM.ontology.Folksonomy;
 import WYSIWYM.ontology.OntologyReader;
+import WYSIWYM.transformer.SurfaceRealiser;
 import WYSIWYM.util.LiberSession;
 
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
@@ -41,6 +42,7 @@ public class LiberServletImpl extends RemoteServiceServlet implements LiberServl
 		{
 			ontology = new OntologyReader();	//reads PolicyGrid ontologies
 		//	ontology = new GeographyOntologyReader(); //reads geography ontology
+			SurfaceRealiser.preload(ontology);	//inflects the words of the ontology and lexicon
 			
 			clean = new TimerTask()
 			{
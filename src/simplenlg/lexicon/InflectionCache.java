@@ -0,0 +1,127 @@
+package simplenlg.lexicon;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import simplenlg.lexicon.lexicalitems.Category;
+
+/**
+ * A cache of inflected forms, shared by all threads. Each form is stored
+ * under its word, the <code>Category</code> of the word and the name of the
+ * form (e.g. "plural" or "past"). The cache only holds forms that follow from
+ * the morphological rules; words with an item of their own in a
+ * <code>Lexicon</code> (such as the verb exceptions) are inflected by that
+ * item, so the same cache can serve every lexicon.
+ * <p>
+ * The cache is bounded: once it holds <code>maxSize</code> forms, new forms
+ * are no longer stored (but still returned by the lexicon). Forms are never
+ * evicted, so the words it is seeded with at startup stay in it.
+ *
+ * @see simplenlg.lexicon.Lexicon#getInflectionCache()
+ */
+public class InflectionCache {
+
+	/** Default maximum number of forms */
+	public static final int DEFAULT_SIZE = 50000;
+
+	private final ConcurrentHashMap<String, String> forms = new ConcurrentHashMap<String, String>();
+
+	private final int maxSize;
+
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+	/**
+	 * Creates an empty cache
+	 *
+	 * @param maxSize
+	 *            The maximum number of forms it stores
+	 */
+	public InflectionCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	private static String key(Category cat, String form, String word) {
+		return cat.ordinal() + form + '|' + word;
+	}
+
+	/**
+	 * Returns the given form of a word, if it is in the cache
+	 *
+	 * @param cat
+	 *            The <code>Category</code> of the word
+	 * @param form
+	 *            Name of the form
+	 * @param word
+	 *            The baseform of the word
+	 * @return The inflected form, or <code>null</code> if it is not cached
+	 */
+	public String get(Category cat, String form, String word) {
+		String result = forms.get(key(cat, form, word));
+		if (result == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * Stores the given form of a word, unless the cache is full or the word
+	 * has no such form
+	 *
+	 * @param cat
+	 *            The <code>Category</code> of the word
+	 * @param form
+	 *            Name of the form
+	 * @param word
+	 *            The baseform of the word
+	 * @param inflected
+	 *            The inflected form
+	 */
+	public void put(Category cat, String form, String word, String inflected) {
+		if ((inflected != null) && (forms.size() < maxSize))
+			forms.put(key(cat, form, word), inflected);
+	}
+
+	/**
+	 * @return The number of forms in the cache
+	 */
+	public int size() {
+		return forms.size();
+	}
+
+	/**
+	 * @return The maximum number of forms in the cache
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return The number of lookups that found a form
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The number of lookups that did not find a form
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Removes all forms and resets the counters
+	 */
+	public void clear() {
+		forms.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "InflectionCache: " + size() + "/" + maxSize + " forms, "
+				+ getHits() + " hits, " + getMisses() + " misses";
+	}
+}
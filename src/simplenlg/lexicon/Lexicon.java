@@ -55,10 +55,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 
+import simplenlg.exception.LexiconException;
 import simplenlg.features.Number;
 import simplenlg.features.Person;
 import simplenlg.features.Tense;
@@ -96,23 +98,46 @@ import simplenlg.lexicon.lexicalrules.rulesets.VerbLists;
  * package, namely {@link simplenlg.lexicon.lexicalitems.Determiner} and
  * {@link simplenlg.lexicon.lexicalitems.Pronoun}, are not stored directly, as these are
  * constants. The <code>Lexicon</code> has access to these items, however.
+ * <p>
+ * A <code>Lexicon</code> can also be layered on top of another one (see
+ * {@link #Lexicon(Lexicon)}), which it then never changes. One base lexicon
+ * can be shared by all threads, each of which adds the words it needs to its
+ * own layer.
  * 
  * @author albert gatt
  */
 public class Lexicon implements LexiconInterface {
 
-	private TreeMap<String, Noun> nouns;
+	private HashMap<String, Noun> nouns;
 
-	private TreeMap<String, Adjective> adjectives;
+	private HashMap<String, Adjective> adjectives;
 
-	private TreeMap<String, Verb> verbs;
+	private HashMap<String, Verb> verbs;
 
-	private TreeMap<String, Symbol> symbols;
+	private HashMap<String, Symbol> symbols;
 
 	private PreparedStatement retrieveItems;
 
 	private TreeMap<String, MorphologicalRule> rules;
 
+	private final Lexicon base;	// looked up for all words this lexicon does not contain; null if none
+
+	private static final InflectionCache CACHE = new InflectionCache(InflectionCache.DEFAULT_SIZE);
+
+	// names of the forms in the cache
+	private static final String PLURAL = "plural", COMPARATIVE = "comparative", SUPERLATIVE = "superlative",
+			PAST = "past", PAST_PARTICIPLE = "pastParticiple", PRESENT_3SG = "present3SG",
+			PRESENT_PARTICIPLE = "presentParticiple";
+
+	private static final String[][][] VERB_FORMS = new String[Tense.values().length][Person.values().length][Number.values().length];
+
+	static {
+		for (Tense t : Tense.values())
+			for (Person p : Person.values())
+				for (Number n : Number.values())
+					VERB_FORMS[t.ordinal()][p.ordinal()][n.ordinal()] = t + "." + p + "." + n;
+	}
+
 	public static final Verb NULL_VERB = new Verb("");
 		
 	/**
@@ -125,15 +150,104 @@ public class Lexicon implements LexiconInterface {
 	 * {@link simplenlg.lexicon.lexicalrules.rulesets.SymbolLists}.
 	 */
 	public Lexicon() {
-		nouns = new TreeMap<String, Noun>();
-		verbs = new TreeMap<String, Verb>();
-		adjectives = new TreeMap<String, Adjective>();
-		symbols = new TreeMap<String, Symbol>();
+		nouns = new HashMap<String, Noun>();
+		verbs = new HashMap<String, Verb>();
+		adjectives = new HashMap<String, Adjective>();
+		symbols = new HashMap<String, Symbol>();
+		base = null;
 		addVerbExceptions();
 		addSymbols();
 		addNounExceptions();
 	}
 
+	/**
+	 * Creates a new, empty <code>Lexicon</code> on top of <code>base</code>.
+	 * Words that are not in this lexicon are looked up in the base lexicon.
+	 * Items and rules that are added, and the items that are created when a
+	 * new word is inflected, are stored in this lexicon only, so the base
+	 * lexicon is never changed and can safely be shared between threads, as
+	 * long as nobody adds to it directly. The verb exceptions and symbols are
+	 * not loaded again, which makes this constructor cheap.
+	 * 
+	 * @param base
+	 *            The <code>Lexicon</code> to build on
+	 */
+	public Lexicon(Lexicon base) {
+		nouns = new HashMap<String, Noun>();
+		verbs = new HashMap<String, Verb>();
+		adjectives = new HashMap<String, Adjective>();
+		symbols = new HashMap<String, Symbol>();
+		this.base = base;
+	}
+
+	/**
+	 * Returns the cache with the inflected forms of all words that are not
+	 * items of a lexicon. It is shared by all lexicons.
+	 * 
+	 * @return The <code>InflectionCache</code>
+	 */
+	public static InflectionCache getInflectionCache() {
+		return CACHE;
+	}
+
+	/**
+	 * Returns the lexicon this one is layered on, if any.
+	 * 
+	 * @return The base <code>Lexicon</code>, or <code>null</code>
+	 */
+	public Lexicon getBase() {
+		return base;
+	}
+
+	// lookups in this lexicon and its base
+	private Noun findNoun(String word) {
+		Noun noun = nouns.get(word);
+		return ((noun == null) && (base != null)) ? base.findNoun(word) : noun;
+	}
+
+	private Verb findVerb(String word) {
+		Verb verb = verbs.get(word);
+		return ((verb == null) && (base != null)) ? base.findVerb(word) : verb;
+	}
+
+	private Adjective findAdjective(String word) {
+		Adjective adj = adjectives.get(word);
+		return ((adj == null) && (base != null)) ? base.findAdjective(word) : adj;
+	}
+
+	private Symbol findSymbol(String word) {
+		Symbol symbol = symbols.get(word);
+		return ((symbol == null) && (base != null)) ? base.findSymbol(word) : symbol;
+	}
+
+	private MorphologicalRule findRule(String ruleName) {
+		MorphologicalRule rule = (rules == null) ? null : rules.get(ruleName);
+		return ((rule == null) && (base != null)) ? base.findRule(ruleName) : rule;
+	}
+
+	// all items of a category in this lexicon and its base
+	private TreeMap<String, Noun> allNouns() {
+		return merge(nouns, (base == null) ? null : base.allNouns());
+	}
+
+	private TreeMap<String, Verb> allVerbs() {
+		return merge(verbs, (base == null) ? null : base.allVerbs());
+	}
+
+	private TreeMap<String, Adjective> allAdjectives() {
+		return merge(adjectives, (base == null) ? null : base.allAdjectives());
+	}
+
+	private TreeMap<String, Symbol> allSymbols() {
+		return merge(symbols, (base == null) ? null : base.allSymbols());
+	}
+
+	private static <T> TreeMap<String, T> merge(HashMap<String, T> own, TreeMap<String, T> inBase) {
+		TreeMap<String, T> all = (inBase == null) ? new TreeMap<String, T>() : inBase;
+		all.putAll(own);
+		return all;
+	}
+
 	public void addItem(Category cat, String word) {
 
 		switch (cat) {
@@ -197,17 +311,14 @@ public class Lexicon implements LexiconInterface {
 
 	public LexicalItem getItem(String base) {
 
-		if (nouns.containsKey(base)) {
-			return nouns.get(base);
+		if (findNoun(base) != null) {
+			return findNoun(base);
 
-		} else if (verbs.containsKey(base)) {
-			return verbs.get(base);
-
-		} else if (adjectives.containsKey(base)) {
-			return adjectives.get(base);
+		} else if (findVerb(base) != null) {
+			return findVerb(base);
 
 		} else {
-			return null;
+			return findAdjective(base);
 		}
 	}
 
@@ -216,16 +327,16 @@ public class Lexicon implements LexiconInterface {
 		switch (cat) {
 
 		case NOUN:
-			return nouns.get(word);
+			return findNoun(word);
 
 		case ADJECTIVE:
-			return adjectives.get(word);
+			return findAdjective(word);
 
 		case VERB:
-			return verbs.get(word);
+			return findVerb(word);
 
 		case SYMBOL:
-			return symbols.get(word);
+			return findSymbol(word);
 
 		case PRONOUN:
 			return Pronoun.getPronoun(word);
@@ -243,16 +354,16 @@ public class Lexicon implements LexiconInterface {
 		switch (cat) {
 
 		case NOUN:
-			return nouns.containsKey(word);
+			return findNoun(word) != null;
 
 		case ADJECTIVE:
-			return adjectives.containsKey(word);
+			return findAdjective(word) != null;
 
 		case VERB:
-			return verbs.containsKey(word);
+			return findVerb(word) != null;
 
 		case SYMBOL:
-			return symbols.containsKey(word);
+			return findSymbol(word) != null;
 
 		case DETERMINER:
 			return true;
@@ -274,8 +385,8 @@ public class Lexicon implements LexiconInterface {
 			return true;
 
 		} else {
-			return (nouns.containsKey(word) || adjectives.containsKey(word)
-					|| verbs.containsKey(word) || symbols.containsKey(word));
+			return ((findNoun(word) != null) || (findAdjective(word) != null)
+					|| (findVerb(word) != null) || (findSymbol(word) != null));
 		}
 	}
 
@@ -286,7 +397,7 @@ public class Lexicon implements LexiconInterface {
 	 *         contained in this <code>DefaultLexicon</code>.
 	 */
 	public List<Noun> getNouns() {
-		return new ArrayList<Noun>(nouns.values());
+		return new ArrayList<Noun>(allNouns().values());
 	}
 
 	/**
@@ -296,7 +407,7 @@ public class Lexicon implements LexiconInterface {
 	 *         contained in this <code>DefaultLexicon</code>.
 	 */
 	public List<Verb> getVerbs() {
-		return new ArrayList<Verb>(verbs.values());
+		return new ArrayList<Verb>(allVerbs().values());
 	}
 
 	/**
@@ -307,7 +418,7 @@ public class Lexicon implements LexiconInterface {
 	 *         <code>DefaultLexicon</code>.
 	 */
 	public List<Adjective> getAdjectives() {
-		return new ArrayList<Adjective>(adjectives.values());
+		return new ArrayList<Adjective>(allAdjectives().values());
 	}
 
 	/**
@@ -318,7 +429,7 @@ public class Lexicon implements LexiconInterface {
 	 *         <code>DefaultLexicon</code>.
 	 */
 	public List<Symbol> getSymbols() {
-		return new ArrayList<Symbol>(symbols.values());
+		return new ArrayList<Symbol>(allSymbols().values());
 	}
 
 	/**
@@ -438,9 +549,8 @@ public class Lexicon implements LexiconInterface {
 	 * <code>Noun</code> whose baseform is <code>word</code>. If that is
 	 * the case, it returns the plural form by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Noun#getPlural()} from the <code>Noun</code>.
-	 * If not, it creates a new instance of <code>Noun</code>, which gets
-	 * stored in this instance of <code>DefaultLexicon</code>, returning the
-	 * plural form.
+	 * If not, the plural form follows from the rules; it is looked up in, or
+	 * added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word
 	 *            The baseform of some word that needs to be pluralised
@@ -454,13 +564,16 @@ public class Lexicon implements LexiconInterface {
 			expr = word.substring(idx + 1);
 		
 		String plural = null;
-		if (hasItem(Category.NOUN, expr)) {
-			plural = this.nouns.get(expr).getPlural();
+		Noun noun = findNoun(expr);
+		if (noun != null) {
+			plural = noun.getPlural();
 
 		} else {
-			Noun noun = new Noun(expr);
-			nouns.put(expr, noun);
-			plural = noun.getPlural();
+			plural = CACHE.get(Category.NOUN, PLURAL, expr);
+			if (plural == null) {
+				plural = new Noun(expr).getPlural();
+				CACHE.put(Category.NOUN, PLURAL, expr, plural);
+			}
 		}
 		String first = word.substring(0, idx + 1);
 		return new String(first + plural); 
@@ -472,9 +585,8 @@ public class Lexicon implements LexiconInterface {
 	 * <code>Adjective</code> whose baseform is <code>word</code>. If that
 	 * is the case, it returns the comparative form by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Adjective#getComparative()} from the
-	 * <code>Adjective</code>. If not, it creates a new instance of
-	 * <code>Adjective</code>, which gets stored in this instance of
-	 * <code>DefaultLexicon</code>, returning the comparative form.
+	 * <code>Adjective</code>. If not, the comparative form follows from the
+	 * rules; it is looked up in, or added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word -
 	 *            The baseform of some adjective
@@ -483,13 +595,17 @@ public class Lexicon implements LexiconInterface {
 	 */
 	public String getComparative(String word) {
 
-		if (hasItem(Category.ADJECTIVE, word)) {
-			return adjectives.get(word).getComparative();
+		Adjective adj = findAdjective(word);
+		if (adj != null) {
+			return adj.getComparative();
 
 		} else {
-			Adjective adj = new Adjective(word);
-			adjectives.put(word, adj);
-			return adj.getComparative();
+			String result = CACHE.get(Category.ADJECTIVE, COMPARATIVE, word);
+			if (result == null) {
+				result = new Adjective(word).getComparative();
+				CACHE.put(Category.ADJECTIVE, COMPARATIVE, word, result);
+			}
+			return result;
 		}
 
 	}
@@ -500,9 +616,8 @@ public class Lexicon implements LexiconInterface {
 	 * <code>Adjective</code> whose baseform is <code>word</code>. If that
 	 * is the case, it returns the superlative form by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Adjective#getSuperlative()} from the
-	 * <code>Adjective</code>. If not, it creates a new instance of
-	 * <code>Adjective</code>, which gets stored in this instance of
-	 * <code>DefaultLexicon</code>, returning the superlative form.
+	 * <code>Adjective</code>. If not, the superlative form follows from the
+	 * rules; it is looked up in, or added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word -
 	 *            The baseform of some adjective
@@ -511,13 +626,17 @@ public class Lexicon implements LexiconInterface {
 	 */
 	public String getSuperlative(String word) {
 
-		if (hasItem(Category.ADJECTIVE, word)) {
-			return adjectives.get(word).getSuperlative();
+		Adjective adj = findAdjective(word);
+		if (adj != null) {
+			return adj.getSuperlative();
 
 		} else {
-			Adjective adj = new Adjective(word);
-			adjectives.put(word, adj);
-			return adj.getSuperlative();
+			String result = CACHE.get(Category.ADJECTIVE, SUPERLATIVE, word);
+			if (result == null) {
+				result = new Adjective(word).getSuperlative();
+				CACHE.put(Category.ADJECTIVE, SUPERLATIVE, word, result);
+			}
+			return result;
 		}
 
 	}
@@ -528,9 +647,8 @@ public class Lexicon implements LexiconInterface {
 	 * <code>Verb</code> whose baseform is <code>word</code>. If that is
 	 * the case, it returns the past tense form by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Verb#getPast()} from the <code>Verb</code>.
-	 * If not, it creates a new instance of <code>Verb</code>, which gets
-	 * stored in this instance of <code>DefaultLexicon</code>, and returns
-	 * the past tense form form.
+	 * If not, the past tense form follows from the rules; it is looked up in,
+	 * or added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word
 	 *            The baseform of some verb
@@ -539,13 +657,17 @@ public class Lexicon implements LexiconInterface {
 	 */
 	public String getPast(String word) {
 
-		if (hasItem(Category.VERB, word)) {
-			return this.verbs.get(word).getPast().toString();
+		Verb verb = findVerb(word);
+		if (verb != null) {
+			return verb.getPast().toString();
 
 		} else {
-			Verb verb = new Verb(word);
-			verbs.put(word, verb);
-			return verb.getPast().toString();
+			String result = CACHE.get(Category.VERB, PAST, word);
+			if (result == null) {
+				result = new Verb(word).getPast().toString();
+				CACHE.put(Category.VERB, PAST, word, result);
+			}
+			return result;
 		}
 	}
 
@@ -555,9 +677,8 @@ public class Lexicon implements LexiconInterface {
 	 * <code>Verb</code> whose baseform is <code>word</code>. If that is
 	 * the case, it returns the past participle by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Verb#getPastParticiple()} from the
-	 * <code>Verb</code>. If not, it creates a new instance of
-	 * <code>Verb</code>, which gets stored in this instance of
-	 * <code>DefaultLexicon</code>, and returns the past participle form.
+	 * <code>Verb</code>. If not, the past participle form follows from the rules; it is
+	 * looked up in, or added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word
 	 *            The baseform of some verb
@@ -566,13 +687,17 @@ public class Lexicon implements LexiconInterface {
 	 */
 	public String getPastParticiple(String word) {
 
-		if (hasItem(Category.VERB, word)) {
-			return this.verbs.get(word).getPastParticiple().toString();
+		Verb verb = findVerb(word);
+		if (verb != null) {
+			return verb.getPastParticiple().toString();
 
 		} else {
-			Verb verb = new Verb(word);
-			verbs.put(word, verb);
-			return verb.getPastParticiple().toString();
+			String result = CACHE.get(Category.VERB, PAST_PARTICIPLE, word);
+			if (result == null) {
+				result = new Verb(word).getPastParticiple().toString();
+				CACHE.put(Category.VERB, PAST_PARTICIPLE, word, result);
+			}
+			return result;
 		}
 	}
 
@@ -582,9 +707,8 @@ public class Lexicon implements LexiconInterface {
 	 * <code>Verb</code> whose baseform is <code>word</code>. If that is
 	 * the case, it returns the 3rd person present by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Verb#getPresent3SG()} from the
-	 * <code>Verb</code>. If not, it creates a new instance of
-	 * <code>Verb</code>, which gets stored in this instance of
-	 * <code>DefaultLexicon</code>, and returns the present tense form.
+	 * <code>Verb</code>. If not, the present tense form follows from the rules; it is
+	 * looked up in, or added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word
 	 *            The baseform of some verb
@@ -593,13 +717,17 @@ public class Lexicon implements LexiconInterface {
 	 */
 	public String getPresent3SG(String word) {
 
-		if (hasItem(Category.VERB, word)) {
-			return this.verbs.get(word).getPresent3SG().toString();
+		Verb verb = findVerb(word);
+		if (verb != null) {
+			return verb.getPresent3SG().toString();
 
 		} else {
-			Verb verb = new Verb(word);
-			verbs.put(word, verb);
-			return verb.getPresent3SG().toString();
+			String result = CACHE.get(Category.VERB, PRESENT_3SG, word);
+			if (result == null) {
+				result = new Verb(word).getPresent3SG().toString();
+				CACHE.put(Category.VERB, PRESENT_3SG, word, result);
+			}
+			return result;
 		}
 	}
 
@@ -609,9 +737,8 @@ public class Lexicon implements LexiconInterface {
 	 * contains a <code>Verb</code> whose baseform is <code>word</code>. If
 	 * that is the case, it returns the "ing" form by calling
 	 * {@link simplenlg.lexicon.lexicalitems.Verb#getPresentParticiple()} from the
-	 * <code>Verb</code>. If not, it creates a new instance of
-	 * <code>Verb</code>, which gets stored in this instance of
-	 * <code>DefaultLexicon</code>, and returns the "ing" form.
+	 * <code>Verb</code>. If not, the "ing" form follows from the rules; it is
+	 * looked up in, or added to, the shared {@link InflectionCache}.
 	 * 
 	 * @param word
 	 *            The baseform of some verb
@@ -620,13 +747,17 @@ public class Lexicon implements LexiconInterface {
 	 */
 	public String getPresentParticiple(String word) {
 
-		if (hasItem(Category.VERB, word)) {
-			return this.verbs.get(word).getPresentParticiple().toString();
+		Verb verb = findVerb(word);
+		if (verb != null) {
+			return verb.getPresentParticiple().toString();
 
 		} else {
-			Verb verb = new Verb(word);
-			verbs.put(word, verb);
-			return verb.getPresentParticiple().toString();
+			String result = CACHE.get(Category.VERB, PRESENT_PARTICIPLE, word);
+			if (result == null) {
+				result = new Verb(word).getPresentParticiple().toString();
+				CACHE.put(Category.VERB, PRESENT_PARTICIPLE, word, result);
+			}
+			return result;
 		}
 	}
 
@@ -688,7 +819,7 @@ public class Lexicon implements LexiconInterface {
 	public String applyRule(String ruleName, String word) {
 
 		try {
-			return rules.get(ruleName).apply(word);
+			return findRule(ruleName).apply(word);
 
 		} catch (NullPointerException npe) {
 			return null;
@@ -711,7 +842,7 @@ public class Lexicon implements LexiconInterface {
 	public String applyRule(String ruleName, LexicalItem lex) {
 
 		try {
-			return rules.get(ruleName).apply(lex);
+			return findRule(ruleName).apply(lex);
 
 		} catch (NullPointerException npe) {
 			return null;
@@ -728,15 +859,20 @@ public class Lexicon implements LexiconInterface {
 	 * @return A <code>java.lang.String</code>, the inflected form.
 	 */
 	public String getVerbForm(String v, Tense t, Person p, Number n) {
-		Verb verb;		
-		if (hasItem(Category.VERB, v)) {
-			verb = (Verb) getItem(Category.VERB, v);
-			
-		} else {
-			verb = new Verb(v);
-			addItem(Category.VERB, v);
-		}		
-		
+		Verb verb = findVerb(v);
+		if (verb != null)
+			return getVerbForm(verb, t, p, n);
+
+		String form = VERB_FORMS[t.ordinal()][p.ordinal()][n.ordinal()];
+		String result = CACHE.get(Category.VERB, form, v);
+		if (result == null) {
+			result = getVerbForm(new Verb(v), t, p, n);
+			CACHE.put(Category.VERB, form, v, result);
+		}
+		return result;
+	}
+
+	private static String getVerbForm(Verb verb, Tense t, Person p, Number n) {
 		String result = null;
 		switch (t) {
 		case PRESENT:
@@ -749,6 +885,58 @@ public class Lexicon implements LexiconInterface {
 		return result;
 	}
 
+	/**
+	 * Puts all inflected forms of a word in the shared {@link InflectionCache},
+	 * so that they need not be worked out when the word is first realised.
+	 * Words that are items of this lexicon are skipped, as these inflect
+	 * themselves, and so are words that cannot be inflected.
+	 * 
+	 * @param cat
+	 *            The <code>Category</code> of the word; only nouns, verbs and
+	 *            adjectives are inflected
+	 * @param word
+	 *            The baseform of the word
+	 */
+	public void preload(Category cat, String word) {
+		if ((word == null) || (word.length() == 0) || hasItem(cat, word))
+			return;
+
+		try {
+			preloadForms(cat, word);
+		} catch (LexiconException e) {
+			; // not a possible word of this category
+		}
+	}
+
+	private void preloadForms(Category cat, String word) {
+		switch (cat) {
+
+		case NOUN:
+			getPlural(word);
+			break;
+
+		case ADJECTIVE:
+			getComparative(word);
+			getSuperlative(word);
+			break;
+
+		case VERB:
+			getPast(word);
+			getPastParticiple(word);
+			getPresent3SG(word);
+			getPresentParticiple(word);
+			for (Person p : Person.values())
+				for (Number n : Number.values()) {
+					getVerbForm(word, Tense.PRESENT, p, n);
+					getVerbForm(word, Tense.PAST, p, n);
+				}
+			break;
+
+		default:
+			; // do nothing
+		}
+	}
+
 	/**
 	 * 
 	 * @return Utility method: The form of the verb "to be" used in subjunctive
@@ -51,12 +51,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import simplenlg.lexicon.lexicalitems.Category;
 import simplenlg.lexicon.lexicalitems.LexicalItem;
-import simplenlg.lexicon.lexicalrules.rulesets.BasicPatterns;
 
 /**
  *
@@ -65,6 +62,8 @@ import simplenlg.lexicon.lexicalrules.rulesets.BasicPatterns;
  * 
  * <p>
  * Inflectional rules are conceived as containers for {@link PatternActionRule}s.
+ * The rules are compiled into a {@link SuffixTrie} the first time they are
+ * used, which finds the rule that applies to a word in a single pass.
  * 
  *  @author agatt
  */
@@ -78,7 +77,7 @@ public abstract class InflectionRule implements MorphologicalRule {
 
 	protected Category applicableCategory;
 	
-	protected Matcher wordMatcher = Pattern.compile( BasicPatterns.ANY_STEM ).matcher( "blablabla");
+	private volatile SuffixTrie trie;
 
 	public InflectionRule() {
 		patternActionRules = new ArrayList<PatternActionRule>();
@@ -170,12 +169,70 @@ public abstract class InflectionRule implements MorphologicalRule {
 	public void addRule(PatternActionRule par) {
 		patternActionRules.add(par);
 		Collections.sort( patternActionRules );
+		trie = null;
 	}
 
 	public int getNumberOfRules() {
 		return patternActionRules.size();
 	}
 
+	/**
+	 * Finds the first of the pattern-action rules (in order of their type)
+	 * that applies to a word. The default rule is not included.
+	 * 
+	 * @param word
+	 *            The word
+	 * @return The <code>PatternActionRule</code>, or <code>null</code> if
+	 *         none applies
+	 */
+	protected PatternActionRule findRule(String word) {
+		SuffixTrie t = trie;
+
+		if (t == null) {
+			t = new SuffixTrie(patternActionRules);
+			trie = t;
+		}
+
+		return t.find(word);
+	}
+
+	/**
+	 * Checks whether a word can be inflected: one or more words (separated
+	 * by a single whitespace character) of word characters, possibly joined
+	 * by hyphens. This is what {@link simplenlg.lexicon.lexicalrules.rulesets.BasicPatterns#ANY_STEM}
+	 * matches, without a shared <code>Matcher</code>.
+	 * 
+	 * @param word
+	 *            The word
+	 * @return <code>true</code> if the word is a stem
+	 */
+	protected static boolean isStem(String word) {
+		int length = word.length();
+
+		if (length == 0 || !isWordChar(word.charAt(0))
+				|| !isWordChar(word.charAt(length - 1))) {
+			return false;
+		}
+
+		for (int i = 1; i < length - 1; i++) {
+			char c = word.charAt(i);
+
+			if (!isWordChar(c)) {
+				if ((c != '-' && " \t\n\u000B\f\r".indexOf(c) < 0)
+						|| !isWordChar(word.charAt(i + 1))) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+				|| (c >= '0' && c <= '9') || c == '_';
+	}
+
 	/*
 	public boolean analyse(String word) {
 
@@ -45,8 +45,6 @@
 
 package simplenlg.lexicon.lexicalrules;
 
-import java.util.Iterator;
-
 import simplenlg.lexicon.lexicalitems.Category;
 import simplenlg.lexicon.lexicalitems.LexicalItem;
 
@@ -88,23 +86,16 @@ public class NominalInflectionRule extends InflectionRule {
 
 	public String apply(String word) {		
 		
-		wordMatcher.reset( word );
-		
-		if( !wordMatcher.matches() ) {
+		if( !isStem( word ) ) {
 			return word;
 		}
 		
 		String result = null;
 
-		Iterator<PatternActionRule> iter = patternActionRules.iterator();
+		PatternActionRule rule = findRule(word);
 
-		while (iter.hasNext()) {
-			PatternActionRule currentRule = iter.next();
-
-			if (currentRule.applies(word)) {
-				result = currentRule.fire(word);
-				break;
-			}
+		if (rule != null) {
+			result = rule.fire(word);
 		}
 
 		if( result == null && !(this.defaultRule == null ) ) {
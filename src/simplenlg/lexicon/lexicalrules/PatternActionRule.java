@@ -45,7 +45,6 @@
 
 package simplenlg.lexicon.lexicalrules;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class PatternActionRule implements Comparable<PatternActionRule> {
@@ -56,7 +55,7 @@ public class PatternActionRule implements Comparable<PatternActionRule> {
 
 	public static final int DEFAULT = 2;
 
-	private Matcher leftHandSide;
+	private Pattern leftHandSide;
 
 	private String leftHandString;
 
@@ -67,8 +66,7 @@ public class PatternActionRule implements Comparable<PatternActionRule> {
 	private Integer type = PatternActionRule.EXCEPTION;
 
 	public PatternActionRule(String regex, int truncate, String suff) {
-		leftHandSide = Pattern.compile(regex, Pattern.CASE_INSENSITIVE)
-				.matcher("\\w+");
+		leftHandSide = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
 		leftHandString = regex;
 		offset = truncate;
 		suffix = suff;
@@ -88,11 +86,9 @@ public class PatternActionRule implements Comparable<PatternActionRule> {
 							+ "1 (Generic) or 2 (Default)");
 		}
 
-		// set the leftHandSide to a matcher for "word". To be reset
-		// every time the rule is applied. Saves garbage from creation
-		// of new matchers each time
-		leftHandSide = Pattern.compile(regex, Pattern.CASE_INSENSITIVE)
-				.matcher("word");
+		// a new matcher is created every time the rule is applied, so
+		// that rules can be shared by several threads
+		leftHandSide = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
 		leftHandString = regex;
 		offset = truncate;
 		suffix = suff;
@@ -121,9 +117,7 @@ public class PatternActionRule implements Comparable<PatternActionRule> {
 	}
 
 	public boolean applies(String word) {
-		word = word.trim();
-		leftHandSide.reset(word);
-		return leftHandSide.find();
+		return leftHandSide.matcher(word.trim()).find();
 	}
 
 	public String fire( String word ) {
@@ -0,0 +1,509 @@
+package simplenlg.lexicon.lexicalrules;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The rules of an {@link InflectionRule}, compiled into a trie of the word
+ * endings they look for. The trie is walked once from the last character of a
+ * word to the first, and collects the rules whose endings it passes; the
+ * first of those in priority order is the rule that applies. This gives the
+ * same rule as trying every <code>PatternActionRule</code> in turn, which is
+ * slow for long rule sets such as the past tense rules.
+ * <p>
+ * The regular expression of each rule is expanded into the (finite) set of
+ * endings it can match. Where an expression is a list of words or suffixes,
+ * such as <code>"^(lie|die)$"</code> or <code>"([zsx]|ch|sh)$"</code>, the
+ * trie alone decides whether the rule applies. Where it only tells part of the
+ * ending (e.g. the "e" of <code>"[^ie]e$"</code>), the rule is a candidate,
+ * and is checked with its expression; so are the rules whose expressions are
+ * not anchored to the end of the word (such as <code>"femur"</code>), or use
+ * constructs the expansion does not know.
+ * <p>
+ * A trie is never changed after construction, and can be used by several
+ * threads at once.
+ *
+ * @see InflectionRule#findRule(String)
+ */
+public class SuffixTrie {
+
+	/** Maximum number of endings a single expression is expanded into */
+	private static final int MAX_ENDINGS = 4096;
+
+	/** Maximum number of characters a character class is expanded into */
+	private static final int MAX_CLASS = 64;
+
+	// markers in the expanded endings, for any string, '^' and '$'
+	private static final char ANY = '\uE000', START = '\uE001',
+			END = '\uE002';
+
+	private PatternActionRule[] rules;
+
+	private Node root = new Node();
+
+	// rules that have to be checked with their expression for every word
+	private int[] unindexed;
+
+	private static class Node {
+		char[] keys = new char[0];
+
+		Node[] children = new Node[0];
+
+		// rules whose ending ends here, as index * 2 (+ 1 if the rule
+		// still has to be checked with its expression)
+		int[] suffixes = new int[0];
+
+		// rules that apply if the whole word ends here
+		int[] words = new int[0];
+
+		Node child(char c) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		Node addChild(char c) {
+			Node node = child(c);
+			if (node == null) {
+				node = new Node();
+				keys = append(keys, c);
+				children = Arrays.copyOf(children, children.length + 1);
+				children[children.length - 1] = node;
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Compiles the given rules
+	 *
+	 * @param ruleList
+	 *            The rules, in the order in which they are to be tried
+	 */
+	public SuffixTrie(List<PatternActionRule> ruleList) {
+		rules = ruleList.toArray(new PatternActionRule[ruleList.size()]);
+		int[] rest = new int[0];
+
+		for (int i = 0; i < rules.length; i++) {
+			if (!index(i)) {
+				rest = append(rest, i);
+			}
+		}
+
+		unindexed = rest;
+	}
+
+	/**
+	 * @return The number of rules in the trie
+	 */
+	public int size() {
+		return rules.length;
+	}
+
+	/**
+	 * @return The number of rules that have to be checked with their
+	 *         expression for every word
+	 */
+	public int getNumberOfUnindexedRules() {
+		return unindexed.length;
+	}
+
+	/**
+	 * Finds the first rule that applies to a word
+	 *
+	 * @param word
+	 *            The word
+	 * @return The first rule (in the order of the list it was built with)
+	 *         whose expression matches the word, or <code>null</code> if
+	 *         none does
+	 */
+	public PatternActionRule find(String word) {
+		String w = word.trim();
+		int best = Integer.MAX_VALUE;
+		int[] candidates = unindexed;
+		int nrCandidates = unindexed.length;
+		Node node = root;
+
+		for (int i = w.length() - 1; node != null; i--) {
+			int[] found = node.suffixes;
+
+			if (i < 0) {
+				found = concat(found, node.words);
+			}
+
+			for (int entry : found) {
+				int rule = entry >> 1;
+
+				if (rule >= best) {
+					continue;
+
+				} else if ((entry & 1) == 0) {
+					best = rule;
+
+				} else {
+					if (candidates == unindexed) {
+						candidates = Arrays.copyOf(unindexed,
+								unindexed.length + 8);
+					} else if (nrCandidates == candidates.length) {
+						candidates = Arrays.copyOf(candidates,
+								nrCandidates * 2);
+					}
+					candidates[nrCandidates++] = rule;
+				}
+			}
+
+			node = (i < 0) ? null : node.child(fold(w.charAt(i)));
+		}
+
+		if (candidates != unindexed) {
+			Arrays.sort(candidates, 0, nrCandidates);
+		}
+
+		for (int i = 0; i < nrCandidates && candidates[i] < best; i++) {
+			if (rules[candidates[i]].applies(word)) {
+				return rules[candidates[i]];
+			}
+		}
+
+		return (best == Integer.MAX_VALUE) ? null : rules[best];
+	}
+
+	/**
+	 * Adds the endings of a rule to the trie. Returns false if its expression
+	 * could not be expanded, or matches words that do not have one of the
+	 * endings.
+	 */
+	private boolean index(int rule) {
+		Set<String> endings;
+
+		try {
+			endings = new Expansion(rules[rule].getLeftHandSide()).expand();
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+
+		int[] entries = new int[endings.size()];
+		String[] keys = new String[endings.size()];
+		boolean[] whole = new boolean[endings.size()];
+		int nr = 0;
+
+		for (String ending : endings) {
+			int end = ending.length();
+			while (end > 0 && ending.charAt(end - 1) == END) {
+				end--;
+			}
+
+			int start = 0;
+			while (start < end && ending.charAt(start) == START) {
+				start++;
+			}
+
+			int any = ending.lastIndexOf(ANY, end - 1);
+			if (any >= 0) {
+				start = any + 1;
+			}
+
+			String key = ending.substring(start, end);
+			if (end == ending.length() || key.length() == 0
+					|| key.indexOf(START) >= 0 || key.indexOf(END) >= 0) {
+				return false; // not (only) matched at the end of the word
+			}
+
+			keys[nr] = key;
+			whole[nr] = (any < 0) && (start > 0);
+			entries[nr++] = (rule << 1) | ((any < 0) ? 0 : 1);
+		}
+
+		for (int i = 0; i < nr; i++) {
+			Node node = root;
+			for (int c = keys[i].length() - 1; c >= 0; c--) {
+				node = node.addChild(keys[i].charAt(c));
+			}
+
+			if (whole[i]) {
+				node.words = append(node.words, entries[i]);
+			} else {
+				node.suffixes = append(node.suffixes, entries[i]);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Folds a character the way <code>Pattern.CASE_INSENSITIVE</code> does
+	 * (for US-ASCII only).
+	 */
+	private static char fold(char c) {
+		return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static char[] append(char[] array, char c) {
+		char[] result = Arrays.copyOf(array, array.length + 1);
+		result[array.length] = c;
+		return result;
+	}
+
+	private static int[] append(int[] array, int i) {
+		int[] result = Arrays.copyOf(array, array.length + 1);
+		result[array.length] = i;
+		return result;
+	}
+
+	private static int[] concat(int[] a, int[] b) {
+		if (b.length == 0) {
+			return a;
+		}
+		int[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * Expands a regular expression into the strings it matches. Anchors are
+	 * kept as markers; anything that cannot be expanded (repetition, negated
+	 * classes, <code>\w</code> etc.) becomes the marker for 'any string', so
+	 * the expansion matches at least what the expression matches. Constructs
+	 * that are not known at all throw an
+	 * <code>IllegalArgumentException</code>.
+	 */
+	private static class Expansion {
+
+		private String regex;
+
+		private int pos = 0;
+
+		Expansion(String regex) {
+			this.regex = regex;
+		}
+
+		Set<String> expand() {
+			Set<String> result = alternation();
+			if (pos < regex.length()) {
+				throw new IllegalArgumentException("Unbalanced ')' in "
+						+ regex);
+			}
+			return result;
+		}
+
+		private boolean more() {
+			return pos < regex.length();
+		}
+
+		private char peek() {
+			return regex.charAt(pos);
+		}
+
+		private Set<String> alternation() {
+			Set<String> result = sequence();
+
+			while (more() && peek() == '|') {
+				pos++;
+				result.addAll(sequence());
+				if (result.size() > MAX_ENDINGS) {
+					throw new IllegalArgumentException(
+							"Too many alternatives in " + regex);
+				}
+			}
+
+			return result;
+		}
+
+		private Set<String> sequence() {
+			Set<String> result = strings("");
+
+			while (more() && peek() != '|' && peek() != ')') {
+				Set<String> atom = quantifier(atom());
+
+				if ((long) result.size() * atom.size() > MAX_ENDINGS) {
+					result = strings(String.valueOf(ANY));
+				}
+
+				Set<String> product = new HashSet<String>();
+				for (String prefix : result) {
+					for (String suffix : atom) {
+						product.add(normalise(prefix + suffix));
+					}
+				}
+				result = product;
+			}
+
+			return result;
+		}
+
+		private Set<String> atom() {
+			char c = regex.charAt(pos++);
+
+			switch (c) {
+			case '(':
+				if (more() && peek() == '?') {
+					if (pos + 1 < regex.length()
+							&& regex.charAt(pos + 1) == ':') {
+						pos += 2;
+					} else {
+						throw new IllegalArgumentException(
+								"Unknown group in " + regex);
+					}
+				}
+				Set<String> group = alternation();
+				if (!more() || regex.charAt(pos++) != ')') {
+					throw new IllegalArgumentException("Unbalanced '(' in "
+							+ regex);
+				}
+				return group;
+
+			case '[':
+				return characterClass();
+
+			case '\\':
+				if (!more()) {
+					throw new IllegalArgumentException("Trailing '\\' in "
+							+ regex);
+				}
+				c = regex.charAt(pos++);
+				if (Character.isLetterOrDigit(c)) {
+					return strings(String.valueOf(ANY)); // \w, \s, \b etc.
+				}
+				return strings(String.valueOf(fold(c)));
+
+			case '.':
+				return strings(String.valueOf(ANY));
+
+			case '^':
+				return strings(String.valueOf(START));
+
+			case '$':
+				return strings(String.valueOf(END));
+
+			case '?':
+			case '*':
+			case '+':
+			case '{':
+			case ']':
+			case '}':
+				throw new IllegalArgumentException("Unexpected '" + c
+						+ "' in " + regex);
+
+			default:
+				return strings(String.valueOf(fold(c)));
+			}
+		}
+
+		private Set<String> characterClass() {
+			Set<String> result = new HashSet<String>();
+			boolean negated = more() && peek() == '^';
+			boolean any = negated;
+			boolean first = true;
+
+			if (negated) {
+				pos++;
+			}
+
+			while (more() && (peek() != ']' || first)) {
+				char c = regex.charAt(pos++);
+				first = false;
+
+				if (c == '[' || (c == '&' && more() && peek() == '&')) {
+					throw new IllegalArgumentException(
+							"Nested character class in " + regex);
+
+				} else if (c == '\\') {
+					if (!more()) {
+						break;
+					}
+					c = regex.charAt(pos++);
+					if (Character.isLetterOrDigit(c)) {
+						any = true;
+						continue;
+					}
+				}
+
+				char last = c;
+				if (pos + 1 < regex.length() && peek() == '-'
+						&& regex.charAt(pos + 1) != ']') {
+					last = regex.charAt(pos + 1);
+					pos += 2;
+					if (last == '\\') {
+						throw new IllegalArgumentException(
+								"Escaped range in " + regex);
+					}
+				}
+
+				for (int i = c; i <= last && result.size() <= MAX_CLASS; i++) {
+					result.add(String.valueOf(fold((char) i)));
+				}
+			}
+
+			if (!more()) {
+				throw new IllegalArgumentException("Unbalanced '[' in "
+						+ regex);
+			}
+
+			pos++; // ']'
+			if (any || result.size() > MAX_CLASS) {
+				return strings(String.valueOf(ANY));
+			}
+
+			return result;
+		}
+
+		private Set<String> quantifier(Set<String> atom) {
+			if (!more()) {
+				return atom;
+			}
+
+			char c = peek();
+			Set<String> result;
+
+			if (c == '?') {
+				pos++;
+				result = new HashSet<String>(atom);
+				result.add("");
+
+			} else if (c == '*' || c == '+') {
+				pos++;
+				result = strings(String.valueOf(ANY));
+
+			} else if (c == '{') {
+				int close = regex.indexOf('}', pos);
+				if (close < 0) {
+					throw new IllegalArgumentException("Unbalanced '{' in "
+							+ regex);
+				}
+				pos = close + 1;
+				result = strings(String.valueOf(ANY));
+
+			} else {
+				return atom;
+			}
+
+			// lazy and possessive quantifiers may match less
+			if (more() && (peek() == '?' || peek() == '+')) {
+				pos++;
+				result = strings(String.valueOf(ANY));
+			}
+
+			return result;
+		}
+
+		private static Set<String> strings(String s) {
+			Set<String> result = new HashSet<String>();
+			result.add(s);
+			return result;
+		}
+
+		/**
+		 * Only the part after the last 'any string' tells anything about the
+		 * ending
+		 */
+		private static String normalise(String s) {
+			int any = s.lastIndexOf(ANY);
+			return (any > 0) ? s.substring(any) : s;
+		}
+	}
+}